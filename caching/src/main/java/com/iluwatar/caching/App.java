@@ -33,9 +33,10 @@ import org.slf4j.LoggerFactory;
  * caching strategies/techniques in this pattern; each with their own pros and cons. They are;
  * <code>write-through</code> which writes data to the cache and DB in a single transaction,
  * <code>write-around</code> which writes data immediately into the DB instead of the cache,
- * <code>write-behind</code> which writes data into the cache initially whilst the data is only
- * written into the DB when the cache is full, and <code>cache-aside</code> which pushes the
- * responsibility of keeping the data synchronized in both data sources to the application itself.
+ * <code>write-behind</code> which writes data into the cache initially whilst the data is written
+ * into the DB later, in batches, by a background flusher, and <code>cache-aside</code> which
+ * pushes the responsibility of keeping the data synchronized in both data sources to the
+ * application itself.
  * The <code>read-through</code> strategy is also included in the mentioned four strategies --
  * returns data from the cache to the caller <b>if</b> it exists <b>else</b> queries from DB and
  * stores it into the cache for future use. These strategies determine when the data in the cache
@@ -58,6 +59,7 @@ import org.slf4j.LoggerFactory;
  *
  * @see CacheStore
  * @see LruCache
+ * @see StripedCache
  * @see CachingPolicy
  *
  */
@@ -73,6 +73,20 @@ public final class AppManager {
     CacheStore.initCapacity(capacity);
   }
 
+  /**
+   * Initialize eviction policy
+   */
+  public static void initEvictionPolicy(EvictionPolicy policy) {
+    CacheStore.initEvictionPolicy(policy);
+  }
+
+  /**
+   * Initialize off-heap storage, 0 keeping cached data on the heap
+   */
+  public static void initOffHeapStorage(int slabSize) {
+    CacheStore.initOffHeapStorage(slabSize);
+  }
+
   /**
    * Find user account
    */
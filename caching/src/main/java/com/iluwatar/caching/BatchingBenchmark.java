@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Measures what batching saves against a DB with network latency, using the virtual DB as an
+ * in-process stand-in for MongoDB that charges one simulated round trip per call. The same accounts
+ * are written with one {@link DbManager#upsertDb(UserAccount)} per account and with
+ * {@link DbManager#upsertManyDb(java.util.Collection)} batches, then read back with
+ * {@link DbManager#readFromDb(String)} and {@link DbManager#readManyFromDb(java.util.Collection)}.
+ * <p>
+ * Run with {@code java com.iluwatar.caching.BatchingBenchmark [accounts] [batch] [round-trip-us]}.
+ *
+ */
+public class BatchingBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchingBenchmark.class);
+
+  private BatchingBenchmark() {
+  }
+
+  /**
+   * Program entry point
+   *
+   * @param args optional number of accounts, batch size and round-trip latency in microseconds
+   */
+  public static void main(String[] args) {
+    int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    long roundTripMicros = args.length > 2 ? Long.parseLong(args[2]) : 500;
+    DbManager.createVirtualDb(roundTripMicros);
+
+    List<UserAccount> userAccounts = new ArrayList<>(accounts);
+    List<String> userIds = new ArrayList<>(accounts);
+    for (int i = 0; i < accounts; i++) {
+      userAccounts.add(new UserAccount(String.valueOf(i), "user-" + i, ""));
+      userIds.add(String.valueOf(i));
+    }
+
+    long start = System.nanoTime();
+    for (UserAccount userAccount : userAccounts) {
+      DbManager.upsertDb(userAccount);
+    }
+    long singleWrites = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int from = 0; from < accounts; from += batchSize) {
+      DbManager.upsertManyDb(userAccounts.subList(from, Math.min(from + batchSize, accounts)));
+    }
+    long batchedWrites = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (String userId : userIds) {
+      DbManager.readFromDb(userId);
+    }
+    long singleReads = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int from = 0; from < accounts; from += batchSize) {
+      DbManager.readManyFromDb(userIds.subList(from, Math.min(from + batchSize, accounts)));
+    }
+    long batchedReads = System.nanoTime() - start;
+
+    LOGGER.info("{} accounts, batches of {}, {} us round trip", accounts, batchSize,
+        roundTripMicros);
+    LOGGER.info("upsert: {} ms single, {} ms batched", singleWrites / 1_000_000,
+        batchedWrites / 1_000_000);
+    LOGGER.info("read: {} ms single, {} ms batched", singleReads / 1_000_000,
+        batchedReads / 1_000_000);
+  }
+}
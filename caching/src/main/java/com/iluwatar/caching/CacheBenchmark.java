@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Throughput comparison between a single {@link LruCache} guarded by one global lock (the only safe
+ * way to share it between threads) and the lock-striped {@link StripedCache}. Each thread runs a
+ * 90% read / 10% write mix over a key space that fits in the cache, so the numbers reflect lock
+ * contention rather than eviction cost.
+ * <p>
+ * Run with {@code java com.iluwatar.caching.CacheBenchmark [capacity] [seconds]}.
+ *
+ */
+public class CacheBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CacheBenchmark.class);
+
+  private static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+  private static final int WRITE_PERCENT = 10;
+
+  /**
+   * Common surface of the two caches under test.
+   */
+  interface BenchmarkedCache {
+    UserAccount get(String userId);
+
+    void set(String userId, UserAccount userAccount);
+  }
+
+  private CacheBenchmark() {
+  }
+
+  /**
+   * Program entry point
+   *
+   * @param args optional capacity and duration per run in seconds
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    String[] keys = new String[capacity];
+    for (int i = 0; i < capacity; i++) {
+      keys[i] = String.valueOf(i);
+    }
+
+    for (int threads : THREAD_COUNTS) {
+      LruCache lruCache = new LruCache(capacity);
+      BenchmarkedCache globalLock = new BenchmarkedCache() {
+        @Override
+        public synchronized UserAccount get(String userId) {
+          return lruCache.get(userId);
+        }
+
+        @Override
+        public synchronized void set(String userId, UserAccount userAccount) {
+          lruCache.set(userId, userAccount);
+        }
+      };
+      StripedCache stripedCache = new StripedCache(capacity);
+      BenchmarkedCache striped = new BenchmarkedCache() {
+        @Override
+        public UserAccount get(String userId) {
+          return stripedCache.get(userId);
+        }
+
+        @Override
+        public void set(String userId, UserAccount userAccount) {
+          stripedCache.set(userId, userAccount);
+        }
+      };
+
+      long globalOps = run(globalLock, keys, threads, seconds);
+      long stripedOps = run(striped, keys, threads, seconds);
+      LOGGER.info("threads={} LruCache+lock={} ops/s StripedCache={} ops/s ({} segments)", threads,
+          globalOps / seconds, stripedOps / seconds, stripedCache.segmentCount());
+    }
+  }
+
+  private static long run(BenchmarkedCache cache, String[] keys, int threads, int seconds)
+      throws InterruptedException {
+    for (String key : keys) {
+      cache.set(key, new UserAccount(key, "user" + key, "warm-up"));
+    }
+    LongAdder operations = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    for (int t = 0; t < threads; t++) {
+      new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long count = 0;
+        try {
+          start.await();
+          while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1_000; i++) {
+              String key = keys[random.nextInt(keys.length)];
+              if (random.nextInt(100) < WRITE_PERCENT) {
+                cache.set(key, new UserAccount(key, "user" + key, "updated"));
+              } else {
+                cache.get(key);
+              }
+            }
+            count += 1_000;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          operations.add(count);
+          done.countDown();
+        }
+      }).start();
+    }
+    start.countDown();
+    done.await();
+    return operations.sum();
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ *
+ * Trace-driven simulator reporting the hit ratio of every {@link EvictionPolicy}. A trace is a text
+ * file with one user id per line; each line is replayed as a cache-aside read (a miss loads the
+ * account into the cache). Without a trace file a synthetic one is generated: skewed accesses to a
+ * hot set interrupted by sequential scans over ids that are never seen again.
+ * <p>
+ * Run with {@code java com.iluwatar.caching.CacheSimulator <capacity> [trace-file]}.
+ *
+ */
+public class CacheSimulator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CacheSimulator.class);
+
+  private static final int SYNTHETIC_ACCESSES = 1_000_000;
+  private static final int SYNTHETIC_SCAN_INTERVAL = 100_000;
+
+  private CacheSimulator() {
+  }
+
+  /**
+   * Program entry point
+   *
+   * @param args capacity and optional trace file
+   */
+  public static void main(String[] args) throws IOException {
+    int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+    for (EvictionPolicy policy : EvictionPolicy.values()) {
+      EvictionCache cache = policy.newCache(capacity);
+      long[] counts = new long[2];
+      Consumer<String> replay = userId -> {
+        counts[0]++;
+        if (cache.get(userId) != null) {
+          counts[1]++;
+        } else {
+          cache.set(userId, new UserAccount(userId, "user" + userId, ""));
+        }
+      };
+      if (args.length > 1) {
+        replayFile(args[1], replay);
+      } else {
+        replaySynthetic(capacity, replay);
+      }
+      LOGGER.info("policy={} capacity={} accesses={} hit ratio={}%", policy.getPolicy(), capacity,
+          counts[0], String.format("%.2f", 100.0 * counts[1] / Math.max(counts[0], 1)));
+    }
+  }
+
+  private static void replayFile(String file, Consumer<String> replay) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty()) {
+          replay.accept(line);
+        }
+      }
+    }
+  }
+
+  private static void replaySynthetic(int capacity, Consumer<String> replay) {
+    Random random = new Random(42);
+    int hotSet = capacity * 2;
+    int nextScanId = hotSet;
+    for (int i = 1; i <= SYNTHETIC_ACCESSES; i++) {
+      // cubing a uniform value skews accesses towards the low ids of the hot set
+      double skew = random.nextDouble();
+      replay.accept(String.valueOf((int) (hotSet * skew * skew * skew)));
+      if (i % SYNTHETIC_SCAN_INTERVAL == 0) {
+        for (int j = 0; j < capacity * 5; j++) {
+          replay.accept(String.valueOf(nextScanId++));
+        }
+      }
+    }
+  }
+}
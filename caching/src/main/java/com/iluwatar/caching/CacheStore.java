@@ -25,7 +25,12 @@ package com.iluwatar.caching;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
 
 /**
  *
@@ -36,7 +41,15 @@ public class CacheStore {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CacheStore.class);
 
-  static LruCache cache;
+  static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 100;
+  static final long DEFAULT_WRITE_BEHIND_DELAY_MILLIS = 1000;
+  static final int WARM_UP_BATCH_SIZE = 500;
+
+  static StripedCache cache;
+  static EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+  static int offHeapSlabSize;
+  static volatile WriteBehindFlusher flusher;
+  static final SingleFlightLoader loader = new SingleFlightLoader(CacheStore::loadIntoCache);
 
   private CacheStore() {
   }
@@ -46,26 +59,162 @@ public class CacheStore {
    */
   public static void initCapacity(int capacity) {
     if (cache == null) {
-      cache = new LruCache(capacity);
+      cache = newCache(capacity);
     } else {
       cache.setCapacity(capacity);
     }
   }
 
+  /**
+   * Init eviction policy. An existing cache is replaced by an empty one of the same capacity.
+   */
+  public static void initEvictionPolicy(EvictionPolicy policy) {
+    evictionPolicy = policy;
+    rebuildCache();
+  }
+
+  /**
+   * Init off-heap storage. With a positive {@code slabSize} cached accounts are kept serialized in
+   * direct buffers of that many bytes and evicted in LRU order, whatever the eviction policy; 0
+   * keeps them on the heap. An existing cache is replaced by an empty one of the same capacity.
+   */
+  public static void initOffHeapStorage(int slabSize) {
+    offHeapSlabSize = slabSize;
+    rebuildCache();
+  }
+
+  private static void rebuildCache() {
+    if (cache != null) {
+      clearCache();
+      cache = newCache(cache.getCapacity());
+    }
+  }
+
+  private static StripedCache newCache(int capacity) {
+    int slabSize = offHeapSlabSize;
+    IntFunction<EvictionCache> segmentFactory = slabSize > 0
+        ? segmentCapacity -> new OffHeapLruCache(segmentCapacity, slabSize)
+        : evictionPolicy::newCache;
+    return new StripedCache(capacity, Runtime.getRuntime().availableProcessors(), segmentFactory);
+  }
+
+  /**
+   * Init write-behind batching. Dirty accounts are written once {@code batchSize} of them are
+   * waiting or at least every {@code maxDelayMillis}.
+   */
+  public static synchronized void initWriteBehind(int batchSize, long maxDelayMillis) {
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    flusher = new WriteBehindFlusher(batchSize, maxDelayMillis);
+  }
+
+  /**
+   * Returns the write-behind flusher, starting one with default settings on first use.
+   */
+  public static WriteBehindFlusher getWriteBehindFlusher() {
+    WriteBehindFlusher result = flusher;
+    if (result == null) {
+      synchronized (CacheStore.class) {
+        if (flusher == null) {
+          flusher = new WriteBehindFlusher(DEFAULT_WRITE_BEHIND_BATCH_SIZE,
+              DEFAULT_WRITE_BEHIND_DELAY_MILLIS);
+        }
+        result = flusher;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Init expiry of cached accounts. Accounts older than {@code expireAfterMillis} are reloaded
+   * before being returned; accounts older than {@code refreshAfterMillis} are returned while a
+   * background reload refreshes them. 0 disables either.
+   */
+  public static void initExpiry(long expireAfterMillis, long refreshAfterMillis) {
+    loader.setExpiry(expireAfterMillis, refreshAfterMillis);
+  }
+
+  public static SingleFlightLoader getLoader() {
+    return loader;
+  }
+
   /**
    * Get user account using read-through cache
    */
   public static UserAccount readThrough(String userId) {
-    if (cache.contains(userId)) {
+    UserAccount cached = cache.get(userId);
+    if (cached != null && loader.checkFresh(userId)) {
       LOGGER.info("# Cache Hit!");
-      return cache.get(userId);
+      return cached;
     }
     LOGGER.info("# Cache Miss!");
-    UserAccount userAccount = DbManager.readFromDb(userId);
-    cache.set(userId, userAccount);
+    return loader.load(userId);
+  }
+
+  /**
+   * Get user account using read-through cache without blocking the caller on a miss
+   */
+  public static CompletableFuture<UserAccount> readThroughAsync(String userId) {
+    UserAccount cached = cache.get(userId);
+    if (cached != null && loader.checkFresh(userId)) {
+      LOGGER.info("# Cache Hit!");
+      return CompletableFuture.completedFuture(cached);
+    }
+    LOGGER.info("# Cache Miss!");
+    return loader.loadAsync(userId);
+  }
+
+  /**
+   * Reads an account from the DB into the cache. Accounts still waiting for a write-behind flush
+   * are newer than their DB copy and are taken from the flusher instead.
+   */
+  private static UserAccount loadIntoCache(String userId) {
+    UserAccount userAccount = flusher == null ? null : flusher.pending(userId);
+    if (userAccount == null) {
+      userAccount = DbManager.readFromDb(userId);
+    }
+    if (userAccount != null) {
+      put(userId, userAccount);
+    }
     return userAccount;
   }
 
+  /**
+   * Loads the given user accounts into the cache ahead of use, reading the ones not cached yet in
+   * bulk from the DB.
+   */
+  public static void warmUp(Collection<String> userIds) {
+    List<String> missing = new ArrayList<>();
+    for (String userId : userIds) {
+      if (!cache.contains(userId)) {
+        missing.add(userId);
+      }
+    }
+    for (int from = 0; from < missing.size(); from += WARM_UP_BATCH_SIZE) {
+      List<String> batch = missing.subList(from, Math.min(from + WARM_UP_BATCH_SIZE,
+          missing.size()));
+      Map<String, UserAccount> loaded = DbManager.readManyFromDb(batch);
+      for (String userId : batch) {
+        UserAccount userAccount = flusher == null ? null : flusher.pending(userId);
+        if (userAccount == null) {
+          userAccount = loaded.get(userId);
+        }
+        if (userAccount != null) {
+          put(userId, userAccount);
+        }
+      }
+    }
+  }
+
+  private static void put(String userId, UserAccount userAccount) {
+    UserAccount evicted = cache.set(userId, userAccount);
+    loader.recordLoad(userId);
+    if (evicted != null) {
+      loader.forget(evicted.getUserId());
+    }
+  }
+
   /**
    * Get user account using write-through cache
    */
@@ -75,7 +224,7 @@ public class CacheStore {
     } else {
       DbManager.writeToDb(userAccount);
     }
-    cache.set(userAccount.getUserId(), userAccount);
+    put(userAccount.getUserId(), userAccount);
   }
 
   /**
@@ -84,65 +233,53 @@ public class CacheStore {
   public static void writeAround(UserAccount userAccount) {
     if (cache.contains(userAccount.getUserId())) {
       DbManager.updateDb(userAccount);
-      cache.invalidate(userAccount.getUserId()); // Cache data has been updated -- remove older
-                                                 // version from cache.
+      invalidate(userAccount.getUserId()); // Cache data has been updated -- remove older
+                                           // version from cache.
     } else {
       DbManager.writeToDb(userAccount);
     }
   }
 
   /**
-   * Get user account using read-through cache with write-back policy
+   * Get user account using read-through cache with write-back policy. Misses go through the same
+   * loader as {@link #readThrough(String)}, which already prefers unflushed write-behind data.
    */
   public static UserAccount readThroughWithWriteBackPolicy(String userId) {
-    if (cache.contains(userId)) {
-      LOGGER.info("# Cache Hit!");
-      return cache.get(userId);
-    }
-    LOGGER.info("# Cache Miss!");
-    UserAccount userAccount = DbManager.readFromDb(userId);
-    if (cache.isFull()) {
-      LOGGER.info("# Cache is FULL! Writing LRU data to DB...");
-      UserAccount toBeWrittenToDb = cache.getLruData();
-      DbManager.upsertDb(toBeWrittenToDb);
-    }
-    cache.set(userId, userAccount);
-    return userAccount;
+    return readThrough(userId);
   }
 
   /**
    * Set user account
    */
   public static void writeBehind(UserAccount userAccount) {
-    if (cache.isFull() && !cache.contains(userAccount.getUserId())) {
-      LOGGER.info("# Cache is FULL! Writing LRU data to DB...");
-      UserAccount toBeWrittenToDb = cache.getLruData();
-      DbManager.upsertDb(toBeWrittenToDb);
-    }
-    cache.set(userAccount.getUserId(), userAccount);
+    put(userAccount.getUserId(), userAccount);
+    getWriteBehindFlusher().markDirty(userAccount);
   }
 
   /**
-   * Clears cache
+   * Clears cache. Pending write-behind data is written to the DB first so it is not lost.
    */
   public static void clearCache() {
+    if (flusher != null) {
+      flusher.flush();
+    }
     if (cache != null) {
       cache.clear();
     }
+    loader.clear();
   }
 
   /**
-   * Writes remaining content in the cache into the DB.
+   * Writes remaining dirty content of the cache into the DB.
    */
   public static void flushCache() {
     LOGGER.info("# flushCache...");
-    if (null == cache) {
+    if (null == flusher) {
       return;
     }
-    List<UserAccount> listOfUserAccounts = cache.getCacheDataInListForm();
-    for (UserAccount userAccount : listOfUserAccounts) {
-      DbManager.upsertDb(userAccount);
-    }
+    flusher.flush();
+    LOGGER.info("# {} accounts flushed, {} writes coalesced", flusher.getFlushedCount(),
+        flusher.getCoalescedCount());
   }
 
   /**
@@ -170,7 +307,7 @@ public class CacheStore {
    * Delegate to backing cache store
    */
   public static void set(String userId, UserAccount userAccount) {
-    cache.set(userId, userAccount);
+    put(userId, userAccount);
   }
 
   /**
@@ -178,5 +315,6 @@ public class CacheStore {
    */
   public static void invalidate(String userId) {
     cache.invalidate(userId);
+    loader.forget(userId);
   }
 }
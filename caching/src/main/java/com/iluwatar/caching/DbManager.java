@@ -23,14 +23,23 @@
 package com.iluwatar.caching;
 
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.bson.Document;
 
 import com.mongodb.MongoClient;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 
 /**
@@ -41,7 +50,8 @@ import com.mongodb.client.model.UpdateOptions;
  * 
  * <p>Developer/Tester is able to choose whether the application should use MongoDB as its underlying
  * data storage (connect()) or a simple Java data structure to (temporarily) store the data/objects
- * during runtime (createVirtualDB()).</p>
+ * during runtime (createVirtualDB()). The virtual DB can be given a simulated round-trip latency,
+ * which makes it an offline stand-in for measuring the effect of batching.</p>
  * 
  */
 public final class DbManager {
@@ -51,6 +61,7 @@ public final class DbManager {
   private static boolean useMongoDB;
 
   private static Map<String, UserAccount> virtualDB;
+  private static long virtualRoundTripNanos;
 
   private DbManager() {
   }
@@ -59,8 +70,22 @@ public final class DbManager {
    * Create DB
    */
   public static void createVirtualDb() {
+    createVirtualDb(0);
+  }
+
+  /**
+   * Create DB that delays every call, single or bulk, by one simulated network round trip
+   */
+  public static void createVirtualDb(long roundTripMicros) {
     useMongoDB = false;
-    virtualDB = new HashMap<>();
+    virtualDB = new ConcurrentHashMap<>();
+    virtualRoundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+  }
+
+  private static void virtualRoundTrip() {
+    if (virtualRoundTripNanos > 0) {
+      LockSupport.parkNanos(virtualRoundTripNanos);
+    }
   }
 
   /**
@@ -77,6 +102,7 @@ public final class DbManager {
    */
   public static UserAccount readFromDb(String userId) {
     if (!useMongoDB) {
+      virtualRoundTrip();
       if (virtualDB.containsKey(userId)) {
         return virtualDB.get(userId);
       }
@@ -103,6 +129,7 @@ public final class DbManager {
    */
   public static void writeToDb(UserAccount userAccount) {
     if (!useMongoDB) {
+      virtualRoundTrip();
       virtualDB.put(userAccount.getUserId(), userAccount);
       return;
     }
@@ -123,6 +150,7 @@ public final class DbManager {
    */
   public static void updateDb(UserAccount userAccount) {
     if (!useMongoDB) {
+      virtualRoundTrip();
       virtualDB.put(userAccount.getUserId(), userAccount);
       return;
     }
@@ -145,6 +173,7 @@ public final class DbManager {
    */
   public static void upsertDb(UserAccount userAccount) {
     if (!useMongoDB) {
+      virtualRoundTrip();
       virtualDB.put(userAccount.getUserId(), userAccount);
       return;
     }
@@ -161,4 +190,73 @@ public final class DbManager {
             userAccount.getUserName()).append("additionalInfo", userAccount.getAdditionalInfo())),
         new UpdateOptions().upsert(true));
   }
+
+  /**
+   * Read several user accounts from DB in one round trip
+   *
+   * @return the accounts found, keyed by user id
+   */
+  public static Map<String, UserAccount> readManyFromDb(Collection<String> userIds) {
+    Map<String, UserAccount> userAccounts = new HashMap<>();
+    if (userIds.isEmpty()) {
+      return userAccounts;
+    }
+    if (!useMongoDB) {
+      virtualRoundTrip();
+      for (String userId : userIds) {
+        UserAccount userAccount = virtualDB.get(userId);
+        if (userAccount != null) {
+          userAccounts.put(userId, userAccount);
+        }
+      }
+      return userAccounts;
+    }
+    if (db == null) {
+      try {
+        connect();
+      } catch (ParseException e) {
+        e.printStackTrace();
+      }
+    }
+    for (Document doc : db.getCollection("user_accounts").find(Filters.in("userID", userIds))) {
+      String userId = doc.getString("userID");
+      userAccounts.put(userId,
+          new UserAccount(userId, doc.getString("userName"), doc.getString("additionalInfo")));
+    }
+    return userAccounts;
+  }
+
+  /**
+   *
+   * Insert or update several user accounts in one round trip.
+   */
+  public static void upsertManyDb(Collection<UserAccount> userAccounts) {
+    if (userAccounts.isEmpty()) {
+      return;
+    }
+    if (!useMongoDB) {
+      virtualRoundTrip();
+      for (UserAccount userAccount : userAccounts) {
+        virtualDB.put(userAccount.getUserId(), userAccount);
+      }
+      return;
+    }
+    if (db == null) {
+      try {
+        connect();
+      } catch (ParseException e) {
+        e.printStackTrace();
+      }
+    }
+    List<UpdateOneModel<Document>> upserts = new ArrayList<>(userAccounts.size());
+    for (UserAccount userAccount : userAccounts) {
+      upserts.add(new UpdateOneModel<>(
+          new Document("userID", userAccount.getUserId()),
+          new Document("$set", new Document("userID", userAccount.getUserId()).append("userName",
+              userAccount.getUserName()).append("additionalInfo", userAccount.getAdditionalInfo())),
+          new UpdateOptions().upsert(true)));
+    }
+    // user ids are unique within a batch, so the server may apply the upserts in any order
+    db.getCollection("user_accounts").bulkWrite(upserts, new BulkWriteOptions().ordered(false));
+  }
 }
@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import java.util.List;
+
+/**
+ *
+ * A bounded, single-threaded user account cache that decides by itself which entry to evict when
+ * it runs out of room. {@link StripedCache} wraps one instance per segment and takes care of
+ * locking.
+ *
+ * @see EvictionPolicy
+ *
+ */
+public interface EvictionCache {
+
+  /**
+   * Get user account, recording the access for the eviction policy
+   */
+  UserAccount get(String userId);
+
+  /**
+   * Set user account
+   *
+   * @return the user account evicted to make room, or null if nothing was evicted
+   */
+  UserAccount set(String userId, UserAccount userAccount);
+
+  boolean contains(String userId);
+
+  /**
+   * Invalidate cache for user
+   */
+  void invalidate(String userId);
+
+  int size();
+
+  /**
+   * Clear cache
+   */
+  void clear();
+
+  /**
+   * Returns cache data in list form.
+   */
+  List<UserAccount> getCacheDataInListForm();
+
+  /**
+   * Set cache capacity
+   */
+  void setCapacity(int newCapacity);
+}
@@ -0,0 +1,54 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import java.util.function.IntFunction;
+
+/**
+ *
+ * Eviction policies available for the cache. The policy only decides which entry leaves the cache
+ * when it is full; when data is written to the DB is still decided by the {@link CachingPolicy}.
+ *
+ */
+public enum EvictionPolicy {
+  LRU("lru", LruCache::new), TINY_LFU("tinylfu", TinyLfuCache::new);
+
+  private String policy;
+  private IntFunction<EvictionCache> factory;
+
+  private EvictionPolicy(String policy, IntFunction<EvictionCache> factory) {
+    this.policy = policy;
+    this.factory = factory;
+  }
+
+  public String getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Creates an empty cache of the given capacity that evicts according to this policy.
+   */
+  public EvictionCache newCache(int capacity) {
+    return factory.apply(capacity);
+  }
+}
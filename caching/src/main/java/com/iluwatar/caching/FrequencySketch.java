@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+/**
+ *
+ * Count-min sketch estimating how often a user id has been accessed recently. Counters are 4 bits
+ * wide, sixteen to a {@code long}, and each id maps to four counters picked by independent hash
+ * functions; the estimate is the smallest of the four. Once the number of recorded accesses reaches
+ * ten times the cache capacity every counter is halved, so old popularity fades away.
+ *
+ */
+public class FrequencySketch {
+
+  private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+      0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Creates a sketch sized for a cache of the given capacity.
+   */
+  public FrequencySketch(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 1) - 1 | 1) << 1;
+    table = new long[Math.max(size, 16)];
+    tableMask = table.length - 1;
+    sampleSize = Math.max(10 * capacity, 10);
+  }
+
+  /**
+   * Returns the estimated number of recent accesses to the user id, between 0 and 15.
+   */
+  public int frequency(String userId) {
+    int hash = spread(userId.hashCode());
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long counter = (table[indexOf(hash, i)] >>> offsetOf(hash, i)) & MAX_COUNT;
+      frequency = Math.min(frequency, (int) counter);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an access to the user id.
+   */
+  public void increment(String userId) {
+    int hash = spread(userId.hashCode());
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      int offset = offsetOf(hash, i);
+      if (((table[index] >>> offset) & MAX_COUNT) < MAX_COUNT) {
+        table[index] += 1L << offset;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  private static int offsetOf(int hash, int i) {
+    return ((hash >>> (i << 3)) & 15) << 2;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
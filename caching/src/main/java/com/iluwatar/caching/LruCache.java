@@ -39,7 +39,7 @@ import java.util.Map;
  * LRU data is always at the end of the list.
  *
  */
-public class LruCache {
+public class LruCache implements EvictionCache {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LruCache.class);
 
@@ -110,8 +110,11 @@ public class LruCache {
 
   /**
    * Set user account
+   *
+   * @return the LRU user account that was evicted to make room, or null if nothing was evicted
    */
-  public void set(String userId, UserAccount userAccount) {
+  public UserAccount set(String userId, UserAccount userAccount) {
+    UserAccount evicted = null;
     if (cache.containsKey(userId)) {
       Node old = cache.get(userId);
       old.userAccount = userAccount;
@@ -121,6 +124,7 @@ public class LruCache {
       Node newNode = new Node(userId, userAccount);
       if (cache.size() >= capacity) {
         LOGGER.info("# Cache is FULL! Removing {} from cache...", end.userId);
+        evicted = end.userAccount;
         cache.remove(end.userId); // remove LRU data from cache.
         remove(end);
         setHead(newNode);
@@ -129,6 +133,7 @@ public class LruCache {
       }
       cache.put(userId, newNode);
     }
+    return evicted;
   }
 
   public boolean contains(String userId) {
@@ -146,6 +151,10 @@ public class LruCache {
     }
   }
 
+  public int size() {
+    return cache.size();
+  }
+
   public boolean isFull() {
     return cache.size() >= capacity;
   }
@@ -183,8 +192,7 @@ public class LruCache {
     if (capacity > newCapacity) {
       clear(); // Behavior can be modified to accommodate for decrease in cache size. For now, we'll
                // just clear the cache.
-    } else {
-      this.capacity = newCapacity;
     }
+    this.capacity = newCapacity;
   }
 }
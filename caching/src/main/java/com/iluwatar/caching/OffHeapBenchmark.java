@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ *
+ * Compares heap footprint and garbage collection cost of the on-heap {@link LruCache} with the
+ * {@link OffHeapLruCache}. Each run fills a cache with {@code entries} accounts, measures the heap
+ * still in use after a full collection, then overwrites and reads random accounts and reports the
+ * collections that happened meanwhile. Run with a fixed heap, e.g.
+ * {@code java -Xms2g -Xmx2g com.iluwatar.caching.OffHeapBenchmark [entries] [operations]}.
+ *
+ */
+public class OffHeapBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapBenchmark.class);
+
+  private OffHeapBenchmark() {
+  }
+
+  /**
+   * Program entry point
+   *
+   * @param args optional number of entries and churn operations
+   */
+  public static void main(String[] args) {
+    int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+    run("on-heap", LruCache::new, entries, operations);
+    run("off-heap", capacity -> new OffHeapLruCache(capacity), entries, operations);
+  }
+
+  private static void run(String name, IntFunction<EvictionCache> segmentFactory, int entries,
+      int operations) {
+    long baseline = usedHeapAfterGc();
+    StripedCache cache = new StripedCache(entries, Runtime.getRuntime().availableProcessors(),
+        segmentFactory);
+    for (int i = 0; i < entries; i++) {
+      cache.set(String.valueOf(i), account(i, 0));
+    }
+    long footprint = usedHeapAfterGc() - baseline;
+
+    long gcCount = gcCount();
+    long gcMillis = gcMillis();
+    long start = System.nanoTime();
+    Random random = new Random(42);
+    for (int i = 0; i < operations; i++) {
+      int id = random.nextInt(entries);
+      if (i % 4 == 0) {
+        cache.set(String.valueOf(id), account(id, i));
+      } else {
+        cache.get(String.valueOf(id));
+      }
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    LOGGER.info("{}: {} entries use {} MB of heap; {} operations took {} ms with {} collections "
+        + "({} ms)", name, entries, footprint / (1024 * 1024), operations, elapsedMillis,
+        gcCount() - gcCount, gcMillis() - gcMillis);
+    cache.clear();
+  }
+
+  private static UserAccount account(int id, int version) {
+    return new UserAccount(String.valueOf(id), "user-" + id,
+        "Account " + id + " revision " + version + ", padded to a realistic profile size.");
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += gc.getCollectionCount();
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += gc.getCollectionTime();
+    }
+    return millis;
+  }
+}
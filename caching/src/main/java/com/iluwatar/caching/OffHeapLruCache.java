@@ -0,0 +1,213 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *
+ * LRU cache that keeps user accounts serialized in an {@link OffHeapStore} instead of as objects on
+ * the heap. The heap only holds the index: an access-ordered map from user id to the record handle,
+ * which also provides the LRU order. Every {@link #get(String)} deserializes a fresh copy of the
+ * account, so callers never share a cached instance.
+ * <p>
+ * Null accounts cannot be cached. Replacing or evicting an account leaves a hole in its slab. When
+ * holes outweigh live data the records of sparse slabs are moved together and the emptied slabs
+ * are recycled.
+ *
+ */
+public class OffHeapLruCache implements EvictionCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapLruCache.class);
+
+  static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+  private final int slabSize;
+  private final Map<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+  private OffHeapStore store;
+  private int capacity;
+
+  public OffHeapLruCache(int capacity) {
+    this(capacity, DEFAULT_SLAB_SIZE);
+  }
+
+  /**
+   * Creates a cache storing its values in direct buffers of {@code slabSize} bytes.
+   */
+  public OffHeapLruCache(int capacity, int slabSize) {
+    this.capacity = capacity;
+    this.slabSize = slabSize;
+    this.store = new OffHeapStore(slabSize);
+  }
+
+  @Override
+  public UserAccount get(String userId) {
+    Long handle = index.get(userId);
+    return handle == null ? null : decode(store.read(handle));
+  }
+
+  @Override
+  public UserAccount set(String userId, UserAccount userAccount) {
+    long handle = store.put(encode(userAccount));
+    Long old = index.put(userId, handle);
+    UserAccount evicted = null;
+    if (old != null) {
+      store.free(old);
+    } else if (index.size() > capacity) {
+      Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+      Map.Entry<String, Long> entry = eldest.next();
+      LOGGER.info("# Cache is FULL! Removing {} from cache...", entry.getKey());
+      evicted = decode(store.read(entry.getValue()));
+      store.free(entry.getValue());
+      eldest.remove();
+    }
+    if (store.needsCompaction()) {
+      compact();
+    }
+    return evicted;
+  }
+
+  /**
+   * Moves the records of sparse slabs into the current slab. Updating the index through its entries
+   * leaves the LRU order untouched.
+   */
+  private void compact() {
+    Set<Integer> sparse = store.sparseSlabs();
+    for (Map.Entry<String, Long> entry : index.entrySet()) {
+      if (sparse.contains(OffHeapStore.slabOf(entry.getValue()))) {
+        entry.setValue(store.move(entry.getValue()));
+      }
+    }
+  }
+
+  @Override
+  public boolean contains(String userId) {
+    return index.containsKey(userId);
+  }
+
+  @Override
+  public void invalidate(String userId) {
+    Long handle = index.remove(userId);
+    if (handle != null) {
+      LOGGER.info("# {} has been updated! Removing older version from cache...", userId);
+      store.free(handle);
+    }
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Clear cache. The slabs are dropped and their direct memory is released once garbage collected.
+   */
+  @Override
+  public void clear() {
+    index.clear();
+    store = new OffHeapStore(slabSize);
+  }
+
+  /**
+   * Returns cache data in list form, most recently used first.
+   */
+  @Override
+  public List<UserAccount> getCacheDataInListForm() {
+    List<UserAccount> listOfCacheData = new ArrayList<>(index.size());
+    for (Long handle : index.values()) {
+      listOfCacheData.add(decode(store.read(handle)));
+    }
+    Collections.reverse(listOfCacheData);
+    return listOfCacheData;
+  }
+
+  @Override
+  public void setCapacity(int newCapacity) {
+    if (capacity > newCapacity) {
+      clear();
+    }
+    capacity = newCapacity;
+  }
+
+  public OffHeapStore getStore() {
+    return store;
+  }
+
+  /**
+   * Serializes a user account as three length-prefixed UTF-8 strings (length -1 for null).
+   */
+  static byte[] encode(UserAccount userAccount) {
+    byte[] userId = bytes(userAccount.getUserId());
+    byte[] userName = bytes(userAccount.getUserName());
+    byte[] additionalInfo = bytes(userAccount.getAdditionalInfo());
+    ByteBuffer buffer = ByteBuffer.allocate(12 + length(userId) + length(userName)
+        + length(additionalInfo));
+    putString(buffer, userId);
+    putString(buffer, userName);
+    putString(buffer, additionalInfo);
+    return buffer.array();
+  }
+
+  static UserAccount decode(byte[] record) {
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    return new UserAccount(getString(buffer), getString(buffer), getString(buffer));
+  }
+
+  private static byte[] bytes(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int length(byte[] value) {
+    return value == null ? 0 : value.length;
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] value) {
+    if (value == null) {
+      buffer.putInt(-1);
+    } else {
+      buffer.putInt(value.length);
+      buffer.put(value);
+    }
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+}
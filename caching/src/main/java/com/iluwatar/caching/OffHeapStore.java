@@ -0,0 +1,171 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * Append-only record storage in direct {@link ByteBuffer} slabs, outside the Java heap. Records are
+ * addressed by a {@code long} handle (slab index in the high 32 bits, offset in the low 32 bits)
+ * and laid out as a 4-byte length followed by the record bytes. Freed records leave holes; a slab
+ * whose records are all freed is recycled, and {@link #sparseSlabs()} names the slabs worth
+ * compacting by moving their remaining records with {@link #move(long)}.
+ * <p>
+ * Not thread-safe: each cache segment owns its own store.
+ *
+ */
+public class OffHeapStore {
+
+  private static final int HEADER_BYTES = 4;
+
+  private final int slabSize;
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  private final List<Integer> liveBytes = new ArrayList<>();
+  private final Deque<Integer> freeSlabs = new ArrayDeque<>();
+  private int currentSlab = -1;
+  private long totalLiveBytes;
+
+  public OffHeapStore(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * Appends a record and returns its handle.
+   */
+  public long put(byte[] record) {
+    int needed = HEADER_BYTES + record.length;
+    if (needed > slabSize) {
+      throw new IllegalArgumentException(
+          "Record of " + record.length + " bytes does not fit in a slab of " + slabSize + " bytes");
+    }
+    if (currentSlab < 0 || slabs.get(currentSlab).remaining() < needed) {
+      currentSlab = nextSlab();
+    }
+    ByteBuffer slab = slabs.get(currentSlab);
+    int offset = slab.position();
+    slab.putInt(record.length);
+    slab.put(record);
+    liveBytes.set(currentSlab, liveBytes.get(currentSlab) + needed);
+    totalLiveBytes += needed;
+    return (long) currentSlab << 32 | offset;
+  }
+
+  private int nextSlab() {
+    Integer recycled = freeSlabs.poll();
+    if (recycled != null) {
+      return recycled;
+    }
+    slabs.add(ByteBuffer.allocateDirect(slabSize));
+    liveBytes.add(0);
+    return slabs.size() - 1;
+  }
+
+  /**
+   * Reads the record behind a handle.
+   */
+  public byte[] read(long handle) {
+    ByteBuffer slab = slabs.get(slabOf(handle));
+    int offset = (int) handle;
+    byte[] record = new byte[slab.getInt(offset)];
+    int position = slab.position();
+    slab.position(offset + HEADER_BYTES);
+    slab.get(record);
+    slab.position(position);
+    return record;
+  }
+
+  /**
+   * Releases the record behind a handle. Its bytes are reclaimed once the whole slab is free.
+   */
+  public void free(long handle) {
+    int slabIndex = slabOf(handle);
+    int freed = HEADER_BYTES + slabs.get(slabIndex).getInt((int) handle);
+    int live = liveBytes.get(slabIndex) - freed;
+    liveBytes.set(slabIndex, live);
+    totalLiveBytes -= freed;
+    if (live == 0) {
+      slabs.get(slabIndex).clear();
+      if (slabIndex == currentSlab) {
+        return; // keep appending to the now empty current slab
+      }
+      freeSlabs.push(slabIndex);
+    }
+  }
+
+  /**
+   * Copies a record to the current slab, frees the original and returns the new handle.
+   */
+  public long move(long handle) {
+    byte[] record = read(handle);
+    free(handle);
+    return put(record);
+  }
+
+  /**
+   * True when the slabs other than the current one hold more dead than live bytes, and more than a
+   * slab's worth of them. At least one of those slabs is then less than half live, so
+   * {@link #sparseSlabs()} is never empty when this returns true.
+   */
+  public boolean needsCompaction() {
+    int fullSlabs = slabs.size() - freeSlabs.size() - (currentSlab < 0 ? 0 : 1);
+    long live = totalLiveBytes - (currentSlab < 0 ? 0 : liveBytes.get(currentSlab));
+    long dead = (long) fullSlabs * slabSize - live;
+    return dead > slabSize && dead > live;
+  }
+
+  /**
+   * Slabs other than the current one that are less than half full of live records.
+   */
+  public Set<Integer> sparseSlabs() {
+    Set<Integer> sparse = new HashSet<>();
+    for (int i = 0; i < slabs.size(); i++) {
+      int live = liveBytes.get(i);
+      if (i != currentSlab && live > 0 && live < slabSize / 2) {
+        sparse.add(i);
+      }
+    }
+    return sparse;
+  }
+
+  public static int slabOf(long handle) {
+    return (int) (handle >>> 32);
+  }
+
+  /**
+   * Off-heap bytes reserved by all slabs, including recycled ones.
+   */
+  public long getReservedBytes() {
+    return (long) slabs.size() * slabSize;
+  }
+
+  public long getLiveBytes() {
+    return totalLiveBytes;
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ *
+ * Loads missing user accounts for the read-through strategies. Concurrent misses for the same user
+ * id share a single in-flight load: the first caller runs the load function, every other caller
+ * gets the same {@link CompletableFuture}, so an expired popular account costs one DB read instead
+ * of one per request.
+ * <p>
+ * The loader also remembers when each account was loaded. Accounts older than
+ * {@code expireAfterMillis} are reloaded before being served, and accounts older than
+ * {@code refreshAfterMillis} are served as they are while a background reload refreshes them
+ * (refresh-ahead). Both are disabled when set to 0.
+ *
+ */
+public class SingleFlightLoader {
+
+  private final ConcurrentMap<String, CompletableFuture<UserAccount>> inFlight =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Long> loadTimes = new ConcurrentHashMap<>();
+  private final Function<String, UserAccount> loadFunction;
+  private final ExecutorService executor;
+
+  private volatile long expireAfterMillis;
+  private volatile long refreshAfterMillis;
+
+  private final LongAdder loadCount = new LongAdder();
+  private final LongAdder collapsedLoadCount = new LongAdder();
+  private final LongAdder refreshCount = new LongAdder();
+
+  /**
+   * Creates a loader. {@code loadFunction} must read the account and put it into the cache, so the
+   * account is cached by the time the shared load completes.
+   */
+  public SingleFlightLoader(Function<String, UserAccount> loadFunction) {
+    this.loadFunction = loadFunction;
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "cache-loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Set expiry and refresh-ahead ages in milliseconds, 0 disabling either.
+   */
+  public void setExpiry(long expireAfterMillis, long refreshAfterMillis) {
+    this.expireAfterMillis = expireAfterMillis;
+    this.refreshAfterMillis = refreshAfterMillis;
+  }
+
+  /**
+   * Loads the user account, running the load on the calling thread unless another thread is
+   * already loading it.
+   */
+  public UserAccount load(String userId) {
+    try {
+      return load(userId, false).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Loads the user account on the loader's own threads.
+   */
+  public CompletableFuture<UserAccount> loadAsync(String userId) {
+    return load(userId, true);
+  }
+
+  private CompletableFuture<UserAccount> load(String userId, boolean async) {
+    CompletableFuture<UserAccount> future = new CompletableFuture<>();
+    CompletableFuture<UserAccount> existing = inFlight.putIfAbsent(userId, future);
+    if (existing != null) {
+      collapsedLoadCount.increment();
+      return existing;
+    }
+    start(userId, future, async);
+    return future;
+  }
+
+  private void start(String userId, CompletableFuture<UserAccount> future, boolean async) {
+    loadCount.increment();
+    if (async) {
+      executor.execute(() -> complete(userId, future));
+    } else {
+      complete(userId, future);
+    }
+  }
+
+  private void complete(String userId, CompletableFuture<UserAccount> future) {
+    try {
+      future.complete(loadFunction.apply(userId));
+    } catch (Throwable e) {
+      // complete on errors too, or the callers that joined the load would wait forever
+      future.completeExceptionally(e);
+    } finally {
+      inFlight.remove(userId, future);
+    }
+  }
+
+  /**
+   * Checks the age of a cached account before it is served.
+   *
+   * @return false if the account has expired and must be loaded again; true if it may be served,
+   *         in which case a background refresh is started when it is due
+   */
+  public boolean checkFresh(String userId) {
+    if (expireAfterMillis <= 0 && refreshAfterMillis <= 0) {
+      return true;
+    }
+    Long loadTime = loadTimes.get(userId);
+    if (loadTime == null) {
+      return true;
+    }
+    long age = System.currentTimeMillis() - loadTime;
+    if (expireAfterMillis > 0 && age >= expireAfterMillis) {
+      return false;
+    }
+    if (refreshAfterMillis > 0 && age >= refreshAfterMillis && !inFlight.containsKey(userId)) {
+      CompletableFuture<UserAccount> future = new CompletableFuture<>();
+      // only count a refresh that starts a load, not one that found a load in flight
+      if (inFlight.putIfAbsent(userId, future) == null) {
+        refreshCount.increment();
+        start(userId, future, true);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Records that a fresh copy of the account has just been put into the cache.
+   */
+  public void recordLoad(String userId) {
+    if (expireAfterMillis > 0 || refreshAfterMillis > 0) {
+      loadTimes.put(userId, System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Forgets the load time of an account that left the cache.
+   */
+  public void forget(String userId) {
+    loadTimes.remove(userId);
+  }
+
+  /**
+   * Forgets all load times.
+   */
+  public void clear() {
+    loadTimes.clear();
+  }
+
+  /**
+   * Number of loads that actually ran the load function.
+   */
+  public long getLoadCount() {
+    return loadCount.sum();
+  }
+
+  /**
+   * Number of loads that joined a load already in flight instead of running their own.
+   */
+  public long getCollapsedLoadCount() {
+    return collapsedLoadCount.sum();
+  }
+
+  /**
+   * Number of refresh-ahead reloads started.
+   */
+  public long getRefreshCount() {
+    return refreshCount.sum();
+  }
+}
@@ -0,0 +1,230 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ *
+ * Thread-safe cache built from independently locked segments. Every user id is hashed to one
+ * segment, and each segment is a single-threaded {@link EvictionCache} (an {@link LruCache} by
+ * default) guarded by its own lock, so threads touching different segments never contend on a
+ * shared monitor. Eviction decisions are taken per segment, which makes LRU approximate across the
+ * whole cache.
+ * <p>
+ * Small caches are not split: a segment is only created for every {@link #MIN_SEGMENT_CAPACITY}
+ * entries of capacity, so a cache of a handful of entries behaves exactly like a single segment.
+ *
+ */
+public class StripedCache {
+
+  static final int MIN_SEGMENT_CAPACITY = 16;
+
+  private final EvictionCache[] segments;
+  private final ReentrantLock[] locks;
+  private final int segmentMask;
+  private volatile int capacity;
+
+  /**
+   * Creates a cache with one segment per available processor (at most).
+   */
+  public StripedCache(int capacity) {
+    this(capacity, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates an LRU cache striped over up to {@code concurrencyLevel} segments.
+   */
+  public StripedCache(int capacity, int concurrencyLevel) {
+    this(capacity, concurrencyLevel, EvictionPolicy.LRU);
+  }
+
+  /**
+   * Creates a cache striped over up to {@code concurrencyLevel} segments, each evicting according
+   * to {@code evictionPolicy}.
+   */
+  public StripedCache(int capacity, int concurrencyLevel, EvictionPolicy evictionPolicy) {
+    this(capacity, concurrencyLevel, evictionPolicy::newCache);
+  }
+
+  /**
+   * Creates a cache striped over up to {@code concurrencyLevel} segments, each created by
+   * {@code segmentFactory} from its share of the capacity.
+   */
+  public StripedCache(int capacity, int concurrencyLevel,
+      IntFunction<EvictionCache> segmentFactory) {
+    int segmentCount = 1;
+    int maxSegments = Math.min(concurrencyLevel, capacity / MIN_SEGMENT_CAPACITY);
+    while (segmentCount << 1 <= maxSegments) {
+      segmentCount <<= 1;
+    }
+    segments = new EvictionCache[segmentCount];
+    locks = new ReentrantLock[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = segmentFactory.apply(segmentCapacity(capacity, segmentCount, i));
+      locks[i] = new ReentrantLock();
+    }
+    segmentMask = segmentCount - 1;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Spreads {@code capacity} over the segments, handing the remainder to the first ones.
+   */
+  private static int segmentCapacity(int capacity, int segmentCount, int index) {
+    return capacity / segmentCount + (index < capacity % segmentCount ? 1 : 0);
+  }
+
+  private int segmentFor(String userId) {
+    int h = userId.hashCode();
+    return (h ^ (h >>> 16)) & segmentMask;
+  }
+
+  /**
+   * Get user account
+   */
+  public UserAccount get(String userId) {
+    int i = segmentFor(userId);
+    locks[i].lock();
+    try {
+      return segments[i].get(userId);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  /**
+   * Set user account
+   *
+   * @return the user account evicted from the segment to make room, or null if nothing was evicted
+   */
+  public UserAccount set(String userId, UserAccount userAccount) {
+    int i = segmentFor(userId);
+    locks[i].lock();
+    try {
+      return segments[i].set(userId, userAccount);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  /**
+   * Check whether the user account is cached
+   */
+  public boolean contains(String userId) {
+    int i = segmentFor(userId);
+    locks[i].lock();
+    try {
+      return segments[i].contains(userId);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  /**
+   * Invalidate cache for user
+   */
+  public void invalidate(String userId) {
+    int i = segmentFor(userId);
+    locks[i].lock();
+    try {
+      segments[i].invalidate(userId);
+    } finally {
+      locks[i].unlock();
+    }
+  }
+
+  /**
+   * Number of cached entries. Segments are visited one at a time, so the result is only a
+   * snapshot while other threads are writing.
+   */
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < segments.length; i++) {
+      locks[i].lock();
+      try {
+        size += segments[i].size();
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Clear cache
+   */
+  public void clear() {
+    for (int i = 0; i < segments.length; i++) {
+      locks[i].lock();
+      try {
+        segments[i].clear();
+      } finally {
+        locks[i].unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns cache data in list form, most-recently-used first within each segment.
+   */
+  public List<UserAccount> getCacheDataInListForm() {
+    List<UserAccount> listOfCacheData = new ArrayList<>();
+    for (int i = 0; i < segments.length; i++) {
+      locks[i].lock();
+      try {
+        listOfCacheData.addAll(segments[i].getCacheDataInListForm());
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return listOfCacheData;
+  }
+
+  /**
+   * Set cache capacity. The number of segments is fixed at construction time; only their
+   * capacities change.
+   */
+  public void setCapacity(int newCapacity) {
+    capacity = newCapacity;
+    for (int i = 0; i < segments.length; i++) {
+      locks[i].lock();
+      try {
+        segments[i].setCapacity(segmentCapacity(newCapacity, segments.length, i));
+      } finally {
+        locks[i].unlock();
+      }
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  int segmentCount() {
+    return segments.length;
+  }
+}
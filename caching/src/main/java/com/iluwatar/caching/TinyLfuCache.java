@@ -0,0 +1,216 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * W-TinyLFU cache. New entries land in a small LRU <i>window</i> (1% of the capacity). An entry
+ * pushed out of the window only enters the <i>main</i> region if the {@link FrequencySketch}
+ * estimates it has been accessed more often than the entry it would replace; otherwise the newcomer
+ * itself is evicted. This admission filter keeps a one-off scan over many user ids from flushing
+ * out the frequently used ones, which plain LRU cannot do.
+ * <p>
+ * The main region is a segmented LRU: admitted entries start in <i>probation</i> and move to
+ * <i>protected</i> (80% of the main region) when they are accessed again. Entries demoted from
+ * protected go back to probation, whose LRU end supplies the eviction victims.
+ *
+ */
+public class TinyLfuCache implements EvictionCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TinyLfuCache.class);
+
+  // access-ordered maps iterate from least to most recently used
+  private final Map<String, UserAccount> window = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, UserAccount> probation = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, UserAccount> protectedRegion = new LinkedHashMap<>(16, 0.75f, true);
+
+  private int capacity;
+  private int windowCapacity;
+  private int mainCapacity;
+  private int protectedCapacity;
+  private FrequencySketch sketch;
+
+  public TinyLfuCache(int capacity) {
+    resize(capacity);
+  }
+
+  private void resize(int newCapacity) {
+    capacity = newCapacity;
+    windowCapacity = Math.max(1, newCapacity / 100);
+    mainCapacity = Math.max(0, newCapacity - windowCapacity);
+    protectedCapacity = mainCapacity * 80 / 100;
+    sketch = new FrequencySketch(newCapacity);
+  }
+
+  @Override
+  public UserAccount get(String userId) {
+    sketch.increment(userId);
+    if (window.containsKey(userId)) {
+      return window.get(userId);
+    }
+    if (protectedRegion.containsKey(userId)) {
+      return protectedRegion.get(userId);
+    }
+    if (probation.containsKey(userId)) {
+      UserAccount userAccount = probation.remove(userId);
+      promote(userId, userAccount);
+      return userAccount;
+    }
+    return null;
+  }
+
+  @Override
+  public UserAccount set(String userId, UserAccount userAccount) {
+    sketch.increment(userId);
+    if (window.containsKey(userId)) {
+      window.put(userId, userAccount);
+      return null;
+    }
+    if (protectedRegion.containsKey(userId)) {
+      protectedRegion.put(userId, userAccount);
+      return null;
+    }
+    if (probation.containsKey(userId)) {
+      probation.remove(userId);
+      promote(userId, userAccount);
+      return null;
+    }
+    window.put(userId, userAccount);
+    if (window.size() <= windowCapacity) {
+      return null;
+    }
+    Map.Entry<String, UserAccount> candidate = removeEldest(window);
+    return admit(candidate.getKey(), candidate.getValue());
+  }
+
+  /**
+   * Moves a re-accessed probation entry to the protected region, demoting the protected LRU entry
+   * back to probation if that region is over its share.
+   */
+  private void promote(String userId, UserAccount userAccount) {
+    protectedRegion.put(userId, userAccount);
+    if (protectedRegion.size() > protectedCapacity) {
+      Map.Entry<String, UserAccount> demoted = removeEldest(protectedRegion);
+      probation.put(demoted.getKey(), demoted.getValue());
+    }
+  }
+
+  /**
+   * Lets the entry leaving the window compete with the main region's victim.
+   *
+   * @return whichever of the two was evicted, or null if the main region had room
+   */
+  private UserAccount admit(String candidateId, UserAccount candidate) {
+    if (probation.size() + protectedRegion.size() < mainCapacity) {
+      probation.put(candidateId, candidate);
+      return null;
+    }
+    Map<String, UserAccount> victimRegion = probation.isEmpty() ? protectedRegion : probation;
+    if (victimRegion.isEmpty()) {
+      LOGGER.info("# Cache is FULL! Removing {} from cache...", candidateId);
+      return candidate;
+    }
+    String victimId = victimRegion.keySet().iterator().next();
+    if (sketch.frequency(candidateId) > sketch.frequency(victimId)) {
+      LOGGER.info("# Cache is FULL! Removing {} from cache...", victimId);
+      UserAccount victim = victimRegion.remove(victimId);
+      probation.put(candidateId, candidate);
+      return victim;
+    }
+    LOGGER.info("# Cache is FULL! Removing {} from cache...", candidateId);
+    return candidate;
+  }
+
+  private static Map.Entry<String, UserAccount> removeEldest(Map<String, UserAccount> region) {
+    Iterator<Map.Entry<String, UserAccount>> iterator = region.entrySet().iterator();
+    Map.Entry<String, UserAccount> eldest = iterator.next();
+    Map.Entry<String, UserAccount> copy =
+        new AbstractMap.SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue());
+    iterator.remove();
+    return copy;
+  }
+
+  @Override
+  public boolean contains(String userId) {
+    return window.containsKey(userId) || probation.containsKey(userId)
+        || protectedRegion.containsKey(userId);
+  }
+
+  @Override
+  public void invalidate(String userId) {
+    if (window.remove(userId) != null || probation.remove(userId) != null
+        || protectedRegion.remove(userId) != null) {
+      LOGGER.info("# {} has been updated! Removing older version from cache...", userId);
+    }
+  }
+
+  @Override
+  public int size() {
+    return window.size() + probation.size() + protectedRegion.size();
+  }
+
+  @Override
+  public void clear() {
+    window.clear();
+    probation.clear();
+    protectedRegion.clear();
+  }
+
+  /**
+   * Returns cache data in list form, region by region (window, protected, probation), most
+   * recently used first within each region.
+   */
+  @Override
+  public List<UserAccount> getCacheDataInListForm() {
+    List<UserAccount> listOfCacheData = new ArrayList<>(size());
+    for (Map<String, UserAccount> region : Arrays.asList(window, protectedRegion, probation)) {
+      List<UserAccount> values = new ArrayList<>(region.values());
+      Collections.reverse(values);
+      listOfCacheData.addAll(values);
+    }
+    return listOfCacheData;
+  }
+
+  /**
+   * Set cache capacity. Like {@link LruCache#setCapacity(int)}, shrinking simply clears the cache.
+   */
+  @Override
+  public void setCapacity(int newCapacity) {
+    if (capacity > newCapacity) {
+      clear();
+    }
+    resize(newCapacity);
+  }
+}
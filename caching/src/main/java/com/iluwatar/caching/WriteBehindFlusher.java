@@ -0,0 +1,214 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * Background writer for the write-behind strategy. Writes only mark a user account as dirty; a
+ * single daemon thread writes dirty accounts to the DB in bulk upserts, either every
+ * {@code maxDelayMillis} or as soon as {@code batchSize} accounts are waiting. Repeated writes to
+ * the same user id before a flush are coalesced into one DB write of the latest value.
+ * <p>
+ * A dirty account stays visible through {@link #pending(String)} until the DB write for it has
+ * completed, so a reader that misses the cache never sees an older DB copy of an unflushed write.
+ *
+ */
+public class WriteBehindFlusher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindFlusher.class);
+
+  /**
+   * A dirty user account together with the time it first became dirty.
+   */
+  private static final class PendingWrite {
+    final UserAccount userAccount;
+    final long dirtySince;
+
+    PendingWrite(UserAccount userAccount, long dirtySince) {
+      this.userAccount = userAccount;
+      this.dirtySince = dirtySince;
+    }
+  }
+
+  private final ConcurrentMap<String, PendingWrite> dirty = new ConcurrentHashMap<>();
+  private final int batchSize;
+  private final ScheduledExecutorService executor;
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private final AtomicLong coalescedCount = new AtomicLong();
+  private final AtomicLong flushedCount = new AtomicLong();
+  private volatile long lastFlushMillis;
+
+  /**
+   * Starts a flusher that writes at most {@code batchSize} accounts per DB batch and never lets a
+   * dirty account wait much longer than {@code maxDelayMillis}.
+   */
+  public WriteBehindFlusher(int batchSize, long maxDelayMillis) {
+    this.batchSize = batchSize;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "write-behind-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::flushQuietly, maxDelayMillis, maxDelayMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Mark user account as dirty
+   */
+  public void markDirty(UserAccount userAccount) {
+    long now = System.currentTimeMillis();
+    dirty.compute(userAccount.getUserId(), (userId, previous) -> {
+      if (previous == null) {
+        return new PendingWrite(userAccount, now);
+      }
+      // keep the original timestamp so a hot key cannot postpone its own flush forever
+      coalescedCount.incrementAndGet();
+      return new PendingWrite(userAccount, previous.dirtySince);
+    });
+    if (dirty.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        flushRequested.set(false);
+        flushQuietly();
+      });
+    }
+  }
+
+  /**
+   * Returns the latest not yet flushed value for the user id, or null if it is clean.
+   */
+  public UserAccount pending(String userId) {
+    PendingWrite write = dirty.get(userId);
+    return write == null ? null : write.userAccount;
+  }
+
+  /**
+   * Writes every dirty account to the DB on the calling thread.
+   */
+  public void flush() {
+    flushLock.lock();
+    try {
+      long start = System.currentTimeMillis();
+      List<String> userIds = new ArrayList<>(dirty.keySet());
+      for (int from = 0; from < userIds.size(); from += batchSize) {
+        List<String> batchIds = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+        List<PendingWrite> batch = new ArrayList<>(batchIds.size());
+        for (String userId : batchIds) {
+          PendingWrite write = dirty.get(userId);
+          if (write != null) {
+            batch.add(write);
+          }
+        }
+        writeBatch(batch);
+        for (PendingWrite write : batch) {
+          // a newer write that arrived meanwhile stays dirty for the next flush
+          dirty.remove(write.userAccount.getUserId(), write);
+        }
+        flushedCount.addAndGet(batch.size());
+      }
+      lastFlushMillis = System.currentTimeMillis() - start;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void writeBatch(List<PendingWrite> batch) {
+    List<UserAccount> userAccounts = new ArrayList<>(batch.size());
+    for (PendingWrite write : batch) {
+      userAccounts.add(write.userAccount);
+    }
+    DbManager.upsertManyDb(userAccounts);
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOGGER.error("# Write-behind flush failed, dirty entries will be retried", e);
+    }
+  }
+
+  /**
+   * Flushes what is left and stops the background thread.
+   */
+  public void shutdown() {
+    executor.shutdown();
+    flush();
+  }
+
+  /**
+   * Number of dirty accounts waiting to be written.
+   */
+  public int getQueueDepth() {
+    return dirty.size();
+  }
+
+  /**
+   * Age in milliseconds of the oldest dirty account, or 0 if nothing is waiting.
+   */
+  public long getFlushLagMillis() {
+    long now = System.currentTimeMillis();
+    long lag = 0;
+    for (PendingWrite write : dirty.values()) {
+      lag = Math.max(lag, now - write.dirtySince);
+    }
+    return lag;
+  }
+
+  /**
+   * Number of writes absorbed by an already dirty entry instead of causing a DB write.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * Number of accounts written to the DB so far.
+   */
+  public long getFlushedCount() {
+    return flushedCount.get();
+  }
+
+  /**
+   * Duration in milliseconds of the last completed flush.
+   */
+  public long getLastFlushMillis() {
+    return lastFlushMillis;
+  }
+}
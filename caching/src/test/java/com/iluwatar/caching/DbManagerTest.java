@@ -0,0 +1,72 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * Tests for the bulk operations of {@link DbManager} against the virtual DB
+ *
+ */
+public class DbManagerTest {
+
+  @BeforeEach
+  public void setUp() {
+    DbManager.createVirtualDb();
+  }
+
+  @Test
+  public void testUpsertManyThenReadMany() {
+    DbManager.writeToDb(new UserAccount("001", "John", "old"));
+    DbManager.upsertManyDb(Arrays.asList(new UserAccount("001", "John", "new"),
+        new UserAccount("002", "Jane", "")));
+
+    Map<String, UserAccount> found = DbManager.readManyFromDb(Arrays.asList("001", "002", "003"));
+    assertEquals(2, found.size());
+    assertEquals("new", found.get("001").getAdditionalInfo());
+    assertEquals("Jane", found.get("002").getUserName());
+    assertFalse(found.containsKey("003"));
+  }
+
+  @Test
+  public void testWarmUpLoadsAccountsInBulk() {
+    DbManager.upsertManyDb(Arrays.asList(new UserAccount("004", "Rita", ""),
+        new UserAccount("005", "Isaac", "")));
+    CacheStore.initCapacity(3);
+    CacheStore.clearCache();
+
+    CacheStore.warmUp(Arrays.asList("004", "005", "006"));
+    assertTrue(CacheStore.cache.contains("004"));
+    assertTrue(CacheStore.cache.contains("005"));
+    assertFalse(CacheStore.cache.contains("006"));
+  }
+}
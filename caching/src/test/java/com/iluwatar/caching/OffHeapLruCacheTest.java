@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * Tests for {@link OffHeapLruCache}
+ *
+ */
+public class OffHeapLruCacheTest {
+
+  @Test
+  public void testAccountsRoundTripThroughDirectMemory() {
+    OffHeapLruCache cache = new OffHeapLruCache(3);
+    cache.set("001", new UserAccount("001", "Jöhn", null));
+
+    UserAccount account = cache.get("001");
+    assertEquals("001", account.getUserId());
+    assertEquals("Jöhn", account.getUserName());
+    assertNull(account.getAdditionalInfo());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    OffHeapLruCache cache = new OffHeapLruCache(3);
+    cache.set("001", new UserAccount("001", "John", ""));
+    cache.set("002", new UserAccount("002", "Jane", ""));
+    cache.set("003", new UserAccount("003", "Adam", ""));
+    cache.get("001");
+
+    UserAccount evicted = cache.set("004", new UserAccount("004", "Rita", ""));
+    assertEquals("Jane", evicted.getUserName());
+    assertFalse(cache.contains("002"));
+    assertEquals("Rita", cache.getCacheDataInListForm().get(0).getUserName());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void testOverwritesAreCompactedAway() {
+    OffHeapLruCache cache = new OffHeapLruCache(100, 4096);
+    for (int round = 0; round < 1_000; round++) {
+      for (int i = 0; i < 100; i++) {
+        String userId = String.valueOf(i);
+        cache.set(userId, new UserAccount(userId, "user", "round " + round));
+      }
+    }
+
+    OffHeapStore store = cache.getStore();
+    assertTrue(store.getReservedBytes() <= 4 * store.getLiveBytes() + 2 * 4096);
+    assertEquals("round 999", cache.get("42").getAdditionalInfo());
+  }
+
+  @Test
+  public void testSelectableThroughCacheStore() {
+    DbManager.createVirtualDb();
+    CacheStore.initCapacity(3);
+    CacheStore.initOffHeapStorage(4096);
+    try {
+      UserAccount account = new UserAccount("005", "Isaac", "");
+      CacheStore.writeThrough(account);
+      assertEquals("Isaac", CacheStore.readThrough("005").getUserName());
+      assertEquals(1, CacheStore.cache.size());
+    } finally {
+      CacheStore.initOffHeapStorage(0);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ *
+ * Tests for {@link SingleFlightLoader}
+ *
+ */
+public class SingleFlightLoaderTest {
+
+  @Test
+  public void testConcurrentMissesShareOneLoad() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger dbReads = new AtomicInteger();
+    UserAccount account = new UserAccount("001", "John", "");
+    SingleFlightLoader loader = new SingleFlightLoader(userId -> {
+      dbReads.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return account;
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    List<Future<UserAccount>> results = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      results.add(executor.submit(() -> loader.load("001")));
+    }
+    while (loader.getLoadCount() + loader.getCollapsedLoadCount() < 16) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    for (Future<UserAccount> result : results) {
+      assertSame(account, result.get(5, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+
+    assertEquals(1, dbReads.get());
+    assertEquals(1, loader.getLoadCount());
+    assertEquals(15, loader.getCollapsedLoadCount());
+  }
+
+  @Test
+  public void testAsyncLoadCompletesFuture() throws Exception {
+    SingleFlightLoader loader =
+        new SingleFlightLoader(userId -> new UserAccount(userId, "Jane", ""));
+    CompletableFuture<UserAccount> future = loader.loadAsync("002");
+    assertEquals("Jane", future.get(5, TimeUnit.SECONDS).getUserName());
+  }
+
+  @Test
+  public void testRefreshAheadServesStaleValueAndReloads() throws Exception {
+    Map<String, UserAccount> cache = new ConcurrentHashMap<>();
+    AtomicInteger version = new AtomicInteger();
+    SingleFlightLoader[] holder = new SingleFlightLoader[1];
+    SingleFlightLoader loader = new SingleFlightLoader(userId -> {
+      UserAccount account = new UserAccount(userId, "v" + version.incrementAndGet(), "");
+      cache.put(userId, account);
+      holder[0].recordLoad(userId);
+      return account;
+    });
+    holder[0] = loader;
+    loader.setExpiry(60_000, 20);
+
+    loader.load("003");
+    assertTrue(loader.checkFresh("003"));
+    Thread.sleep(40);
+
+    assertTrue(loader.checkFresh("003"));
+    assertEquals("v1", cache.get("003").getUserName());
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!"v2".equals(cache.get("003").getUserName()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals("v2", cache.get("003").getUserName());
+    assertEquals(1, loader.getRefreshCount());
+  }
+
+  @Test
+  public void testExpiredEntryIsNotFresh() throws Exception {
+    SingleFlightLoader loader = new SingleFlightLoader(userId -> null);
+    loader.setExpiry(10, 0);
+    loader.recordLoad("004");
+    Thread.sleep(20);
+    assertFalse(loader.checkFresh("004"));
+    loader.forget("004");
+    assertTrue(loader.checkFresh("004"));
+  }
+
+  @Test
+  public void testErrorInLoadCompletesJoinedCallers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    SingleFlightLoader loader = new SingleFlightLoader(userId -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new OutOfMemoryError("boom");
+    });
+
+    CompletableFuture<UserAccount> first = loader.loadAsync("005");
+    CompletableFuture<UserAccount> joined = loader.loadAsync("005");
+    release.countDown();
+
+    assertSame(first, joined);
+    try {
+      joined.get(5, TimeUnit.SECONDS);
+      fail("Load should fail with the error of the load function");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof OutOfMemoryError);
+    }
+    assertThrows(OutOfMemoryError.class, () -> loader.load("005"));
+  }
+}
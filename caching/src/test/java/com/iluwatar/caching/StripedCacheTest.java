@@ -0,0 +1,103 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * Tests for {@link StripedCache}
+ *
+ */
+public class StripedCacheTest {
+
+  @Test
+  public void testSmallCacheKeepsExactLruOrder() {
+    StripedCache cache = new StripedCache(3, 64);
+    assertEquals(1, cache.segmentCount());
+
+    UserAccount first = new UserAccount("001", "John", "");
+    cache.set("001", first);
+    cache.set("002", new UserAccount("002", "Jane", ""));
+    cache.set("003", new UserAccount("003", "Adam", ""));
+    cache.get("001");
+
+    UserAccount evicted = cache.set("004", new UserAccount("004", "Rita", ""));
+    assertEquals("002", evicted.getUserId());
+    assertSame(first, cache.get("001"));
+    assertNull(cache.get("002"));
+  }
+
+  @Test
+  public void testConcurrentWritersNeverExceedCapacity() throws Exception {
+    StripedCache cache = new StripedCache(256, 8);
+    assertEquals(8, cache.segmentCount());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      int offset = t * 10_000;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          String userId = String.valueOf(offset + i);
+          cache.set(userId, new UserAccount(userId, "user", ""));
+          cache.get(String.valueOf(offset + i / 2));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertEquals(256, cache.size());
+    assertEquals(256, cache.getCacheDataInListForm().size());
+  }
+
+  @Test
+  public void testSetCapacityShrinksEverySegment() {
+    StripedCache cache = new StripedCache(64, 4);
+    for (int i = 0; i < 64; i++) {
+      cache.set(String.valueOf(i), new UserAccount(String.valueOf(i), "user", ""));
+    }
+    cache.setCapacity(8);
+    assertEquals(0, cache.size());
+    for (int i = 0; i < 64; i++) {
+      cache.set(String.valueOf(i), new UserAccount(String.valueOf(i), "user", ""));
+    }
+    assertTrue(cache.size() <= 8);
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * Tests for {@link TinyLfuCache}
+ *
+ */
+public class TinyLfuCacheTest {
+
+  @Test
+  public void testNeverExceedsCapacity() {
+    TinyLfuCache cache = new TinyLfuCache(3);
+    for (int i = 0; i < 10; i++) {
+      cache.set(String.valueOf(i), new UserAccount(String.valueOf(i), "user", ""));
+      assertTrue(cache.size() <= 3);
+    }
+    assertEquals(3, cache.getCacheDataInListForm().size());
+  }
+
+  @Test
+  public void testUpdateKeepsSingleEntry() {
+    TinyLfuCache cache = new TinyLfuCache(3);
+    cache.set("001", new UserAccount("001", "John", ""));
+    UserAccount updated = new UserAccount("001", "John G.", "");
+    assertNull(cache.set("001", updated));
+    assertEquals(1, cache.size());
+    assertSame(updated, cache.get("001"));
+
+    cache.invalidate("001");
+    assertNull(cache.get("001"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testScanDoesNotFlushFrequentlyUsedEntries() {
+    TinyLfuCache cache = new TinyLfuCache(100);
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        String userId = "hot" + i;
+        if (cache.get(userId) == null) {
+          cache.set(userId, new UserAccount(userId, "hot", ""));
+        }
+      }
+    }
+    for (int i = 0; i < 1_000; i++) {
+      String userId = "scan" + i;
+      cache.set(userId, new UserAccount(userId, "scan", ""));
+    }
+
+    int survivors = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.contains("hot" + i)) {
+        survivors++;
+      }
+    }
+    assertEquals(50, survivors);
+  }
+
+  @Test
+  public void testSelectableThroughStripedCache() {
+    StripedCache cache = new StripedCache(64, 4, EvictionPolicy.TINY_LFU);
+    for (int i = 0; i < 200; i++) {
+      cache.set(String.valueOf(i), new UserAccount(String.valueOf(i), "user", ""));
+    }
+    assertTrue(cache.size() <= 64);
+  }
+}
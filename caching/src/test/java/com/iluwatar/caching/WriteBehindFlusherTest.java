@@ -0,0 +1,99 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.caching;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ *
+ * Tests for {@link WriteBehindFlusher}
+ *
+ */
+public class WriteBehindFlusherTest {
+
+  private WriteBehindFlusher flusher;
+
+  @BeforeEach
+  public void setUp() {
+    DbManager.createVirtualDb();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    flusher.shutdown();
+  }
+
+  @Test
+  public void testRepeatedWritesAreCoalesced() {
+    flusher = new WriteBehindFlusher(100, 60_000);
+    flusher.markDirty(new UserAccount("001", "John", "v1"));
+    UserAccount latest = new UserAccount("001", "John", "v2");
+    flusher.markDirty(latest);
+
+    assertEquals(1, flusher.getQueueDepth());
+    assertEquals(1, flusher.getCoalescedCount());
+    assertSame(latest, flusher.pending("001"));
+    assertNull(DbManager.readFromDb("001"));
+
+    flusher.flush();
+    assertEquals(0, flusher.getQueueDepth());
+    assertNull(flusher.pending("001"));
+    assertSame(latest, DbManager.readFromDb("001"));
+  }
+
+  @Test
+  public void testFullBatchIsFlushedInBackground() throws InterruptedException {
+    flusher = new WriteBehindFlusher(3, 60_000);
+    flusher.markDirty(new UserAccount("001", "John", ""));
+    flusher.markDirty(new UserAccount("002", "Jane", ""));
+    flusher.markDirty(new UserAccount("003", "Adam", ""));
+
+    awaitFlushed(3);
+    assertEquals(0, flusher.getQueueDepth());
+    assertEquals("Adam", DbManager.readFromDb("003").getUserName());
+  }
+
+  @Test
+  public void testDirtyEntriesAreFlushedAfterMaxDelay() throws InterruptedException {
+    flusher = new WriteBehindFlusher(100, 50);
+    flusher.markDirty(new UserAccount("001", "John", ""));
+
+    awaitFlushed(1);
+    assertEquals("John", DbManager.readFromDb("001").getUserName());
+    assertEquals(0, flusher.getFlushLagMillis());
+  }
+
+  private void awaitFlushed(long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (flusher.getFlushedCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, flusher.getFlushedCount());
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.app;
+
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.state.AccountAggregate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the throughput of {@link AccountAggregate} under a mixed workload of account reads,
+ * deposits and transfers between random accounts, run by an increasing number of threads.
+ *
+ * <p>Run with {@code java com.iluwatar.event.sourcing.app.AggregateBenchmark [seconds]
+ * [maxThreads]}.
+ */
+public class AggregateBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AggregateBenchmark.class);
+
+  private static final int ACCOUNTS = 10_000;
+  private static final int READ_PERCENT = 70;
+  private static final int DEPOSIT_PERCENT = 20;
+
+  /**
+   * The entry point of the benchmark.
+   *
+   * @param args the input arguments
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      run(threads, seconds);
+    }
+  }
+
+  private static void run(int threadCount, int seconds) throws InterruptedException {
+    AccountAggregate.resetState();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      process(new AccountCreateEvent(i, 0, i, "Owner " + i));
+      process(new MoneyDepositEvent(i, 0, i, BigDecimal.valueOf(1_000_000)));
+    }
+
+    LongAdder operations = new LongAdder();
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long count = 0;
+        while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+          int operation = random.nextInt(100);
+          int accountNo = random.nextInt(ACCOUNTS);
+          if (operation < READ_PERCENT) {
+            AccountAggregate.getAccount(accountNo).getMoney();
+          } else if (operation < READ_PERCENT + DEPOSIT_PERCENT) {
+            process(new MoneyDepositEvent(count, 0, accountNo, BigDecimal.ONE));
+          } else {
+            process(new MoneyTransferEvent(count, 0, BigDecimal.ONE, accountNo,
+                random.nextInt(ACCOUNTS)));
+          }
+          count++;
+        }
+        operations.add(count);
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    LOGGER.info("{} threads: {} operations/s", threadCount, operations.sum() / seconds);
+  }
+
+  private static void process(DomainEvent event) {
+    event.setRealTime(false);
+    event.process();
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.app;
+
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal.FsyncPolicy;
+import com.iluwatar.event.sourcing.processor.EventJournal;
+import com.iluwatar.event.sourcing.processor.JsonFileJournal;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the write and replay times of {@link JsonFileJournal} and {@link BinaryFileJournal}.
+ * A journal of account creations, deposits and transfers is written, reopened and read back.
+ * The binary journal runs with the fsync policies that do not force every write,
+ * as the JSON journal does not force anything either.
+ *
+ * <p>Run with {@code java com.iluwatar.event.sourcing.app.JournalBenchmark [events]},
+ * a million events by default. The JSON journal is written to the working directory.
+ */
+public class JournalBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JournalBenchmark.class);
+
+  private static final int ACCOUNTS = 1000;
+
+  /**
+   * The entry point of the benchmark.
+   *
+   * @param args the input arguments
+   */
+  public static void main(String[] args) throws IOException {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    Path directory = Files.createTempDirectory("journal-benchmark");
+    run("binary, fsync every second", events, () -> new BinaryFileJournal(directory,
+        FsyncPolicy.INTERVAL, BinaryFileJournal.DEFAULT_FSYNC_INTERVAL_MILLIS,
+        BinaryFileJournal.DEFAULT_SEGMENT_SIZE));
+    run("binary, no fsync", events, () -> new BinaryFileJournal(directory, FsyncPolicy.NEVER,
+        0, BinaryFileJournal.DEFAULT_SEGMENT_SIZE));
+    try (Stream<Path> segments = Files.list(directory)) {
+      segments.forEach(path -> path.toFile().delete());
+    }
+    Files.delete(directory);
+
+    run("json", events, JsonFileJournal::new);
+    new JsonFileJournal().reset();
+  }
+
+  private static void run(String name, int events, Supplier<EventJournal> journals) {
+    EventJournal journal = journals.get();
+    journal.reset();
+    long start = System.nanoTime();
+    for (int i = 0; i < events; i++) {
+      journal.write(event(i));
+    }
+    journal.close();
+    long written = System.nanoTime();
+
+    journal = journals.get();
+    int read = 0;
+    for (DomainEvent event = journal.readNext(); event != null; event = journal.readNext()) {
+      read++;
+    }
+    journal.close();
+    long replayed = System.nanoTime();
+
+    LOGGER.info("{}: wrote {} events in {} ms, replayed {} in {} ms", name, events,
+        (written - start) / 1_000_000, read, (replayed - written) / 1_000_000);
+  }
+
+  private static DomainEvent event(int sequenceId) {
+    long now = System.currentTimeMillis();
+    if (sequenceId < ACCOUNTS) {
+      return new AccountCreateEvent(sequenceId, now, sequenceId, "Owner " + sequenceId);
+    } else if (sequenceId % 2 == 0) {
+      return new MoneyDepositEvent(sequenceId, now, sequenceId % ACCOUNTS,
+          BigDecimal.valueOf(sequenceId % 10_000, 2));
+    }
+    return new MoneyTransferEvent(sequenceId, now, BigDecimal.valueOf(sequenceId % 100, 2),
+        sequenceId % ACCOUNTS, (sequenceId + 1) % ACCOUNTS);
+  }
+}
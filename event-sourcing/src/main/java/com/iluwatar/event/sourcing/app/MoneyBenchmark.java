@@ -0,0 +1,155 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.app;
+
+import com.iluwatar.event.sourcing.domain.MinorUnits;
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal.FsyncPolicy;
+import com.iluwatar.event.sourcing.processor.EventJournal;
+import com.iluwatar.event.sourcing.state.AccountAggregate;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the time and the allocation per event of {@link BigDecimal} money with fixed-point
+ * {@link MinorUnits} money, for deposits and transfers applied to {@link AccountAggregate} and
+ * written to and replayed from a {@link BinaryFileJournal}.
+ * The allocated bytes are those reported for the benchmark thread by the JVM.
+ *
+ * <p>Run with {@code java com.iluwatar.event.sourcing.app.MoneyBenchmark [events]}.
+ */
+public class MoneyBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MoneyBenchmark.class);
+
+  private static final int ACCOUNTS = 10_000;
+  private static final long INITIAL_MINOR_UNITS = 100_000_000;
+
+  /**
+   * The entry point of the benchmark.
+   *
+   * @param args the input arguments
+   */
+  public static void main(String[] args) throws IOException {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+    // the first rounds warm up the JIT
+    for (int round = 0; round < 3; round++) {
+      boolean report = round == 2;
+      process("decimal", false, events, report);
+      process("fixed-point", true, events, report);
+      journal("decimal", false, events, report);
+      journal("fixed-point", true, events, report);
+    }
+  }
+
+  private static void process(String name, boolean fixedPoint, int events, boolean report) {
+    AccountAggregate.resetState();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      apply(new AccountCreateEvent(i, 0, i, "Owner " + i));
+      apply(fixedPoint ? new MoneyDepositEvent(i, 0, i, INITIAL_MINOR_UNITS)
+          : new MoneyDepositEvent(i, 0, i, MinorUnits.toBigDecimal(INITIAL_MINOR_UNITS)));
+    }
+
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < events; i++) {
+      apply(event(i, fixedPoint));
+    }
+    long elapsed = System.nanoTime() - start;
+    allocated = allocatedBytes() - allocated;
+    if (report) {
+      LOGGER.info("{} process: {} ns/event, {} bytes/event", name, elapsed / events,
+          allocated / events);
+    }
+  }
+
+  private static void journal(String name, boolean fixedPoint, int events, boolean report)
+      throws IOException {
+    Path directory = Files.createTempDirectory("money-benchmark");
+    EventJournal journal = new BinaryFileJournal(directory, FsyncPolicy.NEVER, 0,
+        BinaryFileJournal.DEFAULT_SEGMENT_SIZE);
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < events; i++) {
+      journal.write(event(i, fixedPoint));
+    }
+    journal.close();
+    long written = System.nanoTime();
+    long writeAllocated = allocatedBytes();
+
+    journal = new BinaryFileJournal(directory, FsyncPolicy.NEVER, 0,
+        BinaryFileJournal.DEFAULT_SEGMENT_SIZE);
+    long checksum = 0;
+    for (DomainEvent event = journal.readNext(); event != null; event = journal.readNext()) {
+      checksum += event.getSequenceId();
+    }
+    journal.close();
+    long replayed = System.nanoTime();
+    long replayAllocated = allocatedBytes();
+
+    try (Stream<Path> segments = Files.list(directory)) {
+      segments.forEach(path -> path.toFile().delete());
+    }
+    Files.delete(directory);
+    if (report) {
+      LOGGER.info("{} journal: write {} ns/event, {} bytes/event, replay {} ns/event,"
+          + " {} bytes/event ({})", name, (written - start) / events,
+          (writeAllocated - allocated) / events, (replayed - written) / events,
+          (replayAllocated - writeAllocated) / events, checksum);
+    }
+  }
+
+  private static DomainEvent event(int sequenceId, boolean fixedPoint) {
+    int accountNo = sequenceId % ACCOUNTS;
+    long minorUnits = sequenceId % 10_000;
+    if (sequenceId % 2 == 0) {
+      return fixedPoint ? new MoneyDepositEvent(sequenceId, 0, accountNo, minorUnits)
+          : new MoneyDepositEvent(sequenceId, 0, accountNo, MinorUnits.toBigDecimal(minorUnits));
+    }
+    int accountNoTo = (sequenceId + 1) % ACCOUNTS;
+    return fixedPoint ? new MoneyTransferEvent(sequenceId, 0, minorUnits, accountNo, accountNoTo)
+        : new MoneyTransferEvent(sequenceId, 0, MinorUnits.toBigDecimal(minorUnits), accountNo,
+            accountNoTo);
+  }
+
+  private static void apply(DomainEvent event) {
+    event.setRealTime(false);
+    event.process();
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
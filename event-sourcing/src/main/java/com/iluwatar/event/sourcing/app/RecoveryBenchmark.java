@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.app;
+
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal.FsyncPolicy;
+import com.iluwatar.event.sourcing.processor.DomainEventProcessor;
+import com.iluwatar.event.sourcing.processor.SnapshotStore;
+import com.iluwatar.event.sourcing.state.AccountAggregate;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the startup time of {@link DomainEventProcessor#recover(int)}: a full sequential
+ * replay of the journal, a full replay partitioned by account, and the recovery from the latest
+ * snapshot followed by a sequential and a partitioned replay of the tail.
+ * One event in a hundred is a money transfer, which the partitioned replay handles alone.
+ *
+ * <p>Run with {@code java com.iluwatar.event.sourcing.app.RecoveryBenchmark [events]
+ * [snapshotInterval] [parallelism]}.
+ */
+public class RecoveryBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecoveryBenchmark.class);
+
+  private static final int ACCOUNTS = 10_000;
+
+  /**
+   * The entry point of the benchmark.
+   *
+   * @param args the input arguments
+   */
+  public static void main(String[] args) throws IOException {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int snapshotInterval = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+    int parallelism = args.length > 2 ? Integer.parseInt(args[2])
+        : Runtime.getRuntime().availableProcessors();
+
+    Path directory = Files.createTempDirectory("recovery-benchmark");
+    try {
+      DomainEventProcessor processor = new DomainEventProcessor(journal(directory),
+          new SnapshotStore(directory.resolve("snapshots")), snapshotInterval);
+      processor.reset();
+      for (int i = 0; i < events; i++) {
+        DomainEvent event = event(i);
+        event.setRealTime(false);
+        processor.process(event);
+      }
+      processor.close();
+
+      run("full replay", 1, new DomainEventProcessor(journal(directory)));
+      run("full replay", parallelism, new DomainEventProcessor(journal(directory)));
+      run("snapshot and tail", 1, snapshotProcessor(directory, snapshotInterval));
+      run("snapshot and tail", parallelism, snapshotProcessor(directory, snapshotInterval));
+    } finally {
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static void run(String name, int parallelism, DomainEventProcessor processor) {
+    AccountAggregate.resetState();
+    long start = System.nanoTime();
+    processor.recover(parallelism);
+    long elapsed = System.nanoTime() - start;
+    processor.close();
+    LOGGER.info("{}, parallelism {}: recovered {} accounts in {} ms", name, parallelism,
+        AccountAggregate.getAccounts().size(), elapsed / 1_000_000);
+  }
+
+  private static DomainEventProcessor snapshotProcessor(Path directory, int snapshotInterval) {
+    return new DomainEventProcessor(journal(directory),
+        new SnapshotStore(directory.resolve("snapshots")), snapshotInterval);
+  }
+
+  private static BinaryFileJournal journal(Path directory) {
+    return new BinaryFileJournal(directory.resolve("journal"), FsyncPolicy.NEVER, 0,
+        BinaryFileJournal.DEFAULT_SEGMENT_SIZE);
+  }
+
+  private static DomainEvent event(int sequenceId) {
+    if (sequenceId < ACCOUNTS) {
+      return new AccountCreateEvent(sequenceId, sequenceId, sequenceId, "Owner " + sequenceId);
+    } else if (sequenceId % 100 == 0 && sequenceId > 2 * ACCOUNTS) {
+      return new MoneyTransferEvent(sequenceId, sequenceId, BigDecimal.ONE,
+          (sequenceId + 1) % ACCOUNTS, sequenceId % ACCOUNTS);
+    }
+    return new MoneyDepositEvent(sequenceId, sequenceId, sequenceId % ACCOUNTS,
+        BigDecimal.valueOf(100 + sequenceId % 1000, 2));
+  }
+}
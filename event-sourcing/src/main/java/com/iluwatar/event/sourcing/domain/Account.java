@@ -34,6 +34,10 @@ import org.slf4j.LoggerFactory;
  * This is the Account class that holds the account info, the account number,
  * account owner name and money of the account. Account class also have the business logic of events
  * that effects this account.
+ * Accounts are immutable, handling an event publishes a new account with the new balance
+ * to {@link AccountAggregate}.
+ * The balance is held in {@link MinorUnits} while fixed-point events are applied to it,
+ * and as a {@link BigDecimal} once a plain event or an inexact amount is involved.
  *
  * Created by Serdar Hamzaogullari on 06.08.2017.
  */
@@ -43,7 +47,8 @@ public class Account {
 
   private final int accountNo;
   private final String owner;
-  private BigDecimal money;
+  private final BigDecimal money;
+  private final long minorUnits;
 
   /**
    * Instantiates a new Account.
@@ -52,9 +57,35 @@ public class Account {
    * @param owner the owner
    */
   public Account(int accountNo, String owner) {
+    this(accountNo, owner, BigDecimal.ZERO);
+  }
+
+  /**
+   * Instantiates a new Account.
+   *
+   * @param accountNo the account no
+   * @param owner the owner
+   * @param money the money
+   */
+  public Account(int accountNo, String owner, BigDecimal money) {
+    this.accountNo = accountNo;
+    this.owner = owner;
+    this.money = money;
+    this.minorUnits = 0;
+  }
+
+  /**
+   * Instantiates a new fixed-point Account.
+   *
+   * @param accountNo the account no
+   * @param owner the owner
+   * @param minorUnits the money in minor units
+   */
+  public Account(int accountNo, String owner, long minorUnits) {
     this.accountNo = accountNo;
     this.owner = owner;
-    money = BigDecimal.ZERO;
+    this.money = null;
+    this.minorUnits = minorUnits;
   }
 
   /**
@@ -81,28 +112,26 @@ public class Account {
    * @return the money
    */
   public BigDecimal getMoney() {
-    return money;
+    return money != null ? money : MinorUnits.toBigDecimal(minorUnits);
   }
 
   /**
-   * Sets money.
+   * Tells whether the balance is held in minor units.
    *
-   * @param money the money
+   * @return true for a fixed-point account
    */
-  public void setMoney(BigDecimal money) {
-    this.money = money;
+  public boolean isFixedPoint() {
+    return money == null;
   }
 
-
   /**
-   * Copy account.
+   * Gets money in minor units.
    *
-   * @return the account
+   * @return the money in minor units
+   * @throws ArithmeticException if the money is not representable in minor units
    */
-  public Account copy() {
-    Account account = new Account(accountNo, owner);
-    account.setMoney(money);
-    return account;
+  public long getMinorUnits() {
+    return money != null ? MinorUnits.fromBigDecimal(money) : minorUnits;
   }
 
   @Override
@@ -110,33 +139,72 @@ public class Account {
     return "Account{"
         + "accountNo=" + accountNo
         + ", owner='" + owner + '\''
-        + ", money=" + money
+        + ", money=" + getMoney()
         + '}';
   }
 
-  private void depositMoney(BigDecimal money) {
-    this.money = this.money.add(money);
+  private Account depositMoney(BigDecimal money) {
+    return new Account(accountNo, owner, getMoney().add(money));
   }
 
-  private void withdrawMoney(BigDecimal money) {
-    this.money = this.money.subtract(money);
+  private Account withdrawMoney(BigDecimal money) {
+    return new Account(accountNo, owner, getMoney().subtract(money));
   }
 
-  private void handleDeposit(BigDecimal money, boolean realTime) {
-    depositMoney(money);
-    AccountAggregate.putAccount(this);
-    if (realTime) {
-      LOGGER.info("Some external api for only realtime execution could be called here.");
+  private Account depositMoney(long minorUnits) {
+    if (money == null) {
+      return new Account(accountNo, owner, Math.addExact(this.minorUnits, minorUnits));
+    }
+    if (MinorUnits.isExact(money)) {
+      return new Account(accountNo, owner,
+          Math.addExact(MinorUnits.fromBigDecimal(money), minorUnits));
+    }
+    return depositMoney(MinorUnits.toBigDecimal(minorUnits));
+  }
+
+  private Account withdrawMoney(long minorUnits) {
+    if (money == null) {
+      return new Account(accountNo, owner, Math.subtractExact(this.minorUnits, minorUnits));
     }
+    if (MinorUnits.isExact(money)) {
+      return new Account(accountNo, owner,
+          Math.subtractExact(MinorUnits.fromBigDecimal(money), minorUnits));
+    }
+    return withdrawMoney(MinorUnits.toBigDecimal(minorUnits));
+  }
+
+  private boolean isBalanceBelow(long minorUnits) {
+    return money == null
+        ? this.minorUnits < minorUnits
+        : money.compareTo(MinorUnits.toBigDecimal(minorUnits)) < 0;
+  }
+
+  private void handleDeposit(BigDecimal money, boolean realTime) {
+    publish(depositMoney(money), realTime);
+  }
+
+  private void handleDeposit(long minorUnits, boolean realTime) {
+    publish(depositMoney(minorUnits), realTime);
   }
 
   private void handleWithdrawal(BigDecimal money, boolean realTime) {
-    if (this.money.compareTo(money) == -1) {
+    if (getMoney().compareTo(money) == -1) {
       throw new RuntimeException("Insufficient Account Balance");
     }
 
-    withdrawMoney(money);
-    AccountAggregate.putAccount(this);
+    publish(withdrawMoney(money), realTime);
+  }
+
+  private void handleWithdrawal(long minorUnits, boolean realTime) {
+    if (isBalanceBelow(minorUnits)) {
+      throw new RuntimeException("Insufficient Account Balance");
+    }
+
+    publish(withdrawMoney(minorUnits), realTime);
+  }
+
+  private static void publish(Account account, boolean realTime) {
+    AccountAggregate.putAccount(account);
     if (realTime) {
       LOGGER.info("Some external api for only realtime execution could be called here.");
     }
@@ -148,7 +216,11 @@ public class Account {
    * @param moneyDepositEvent the money deposit event
    */
   public void handleEvent(MoneyDepositEvent moneyDepositEvent) {
-    handleDeposit(moneyDepositEvent.getMoney(), moneyDepositEvent.isRealTime());
+    if (moneyDepositEvent.isFixedPoint()) {
+      handleDeposit(moneyDepositEvent.getMinorUnits(), moneyDepositEvent.isRealTime());
+    } else {
+      handleDeposit(moneyDepositEvent.getMoney(), moneyDepositEvent.isRealTime());
+    }
   }
 
 
@@ -170,7 +242,42 @@ public class Account {
    * @param moneyTransferEvent the money transfer event
    */
   public void handleTransferFromEvent(MoneyTransferEvent moneyTransferEvent) {
-    handleWithdrawal(moneyTransferEvent.getMoney(), moneyTransferEvent.isRealTime());
+    if (moneyTransferEvent.isFixedPoint()) {
+      handleWithdrawal(moneyTransferEvent.getMinorUnits(), moneyTransferEvent.isRealTime());
+    } else {
+      handleWithdrawal(moneyTransferEvent.getMoney(), moneyTransferEvent.isRealTime());
+    }
+  }
+
+  /**
+   * Handles a money transfer event from this account to another. Both new balances are worked
+   * out before either account is published, so a transfer that fails, on an insufficient balance
+   * or an overflow, leaves both accounts as they were.
+   *
+   * @param moneyTransferEvent the money transfer event
+   * @param accountTo the account the money goes to, this account for a transfer to itself
+   */
+  public void handleTransferEvent(MoneyTransferEvent moneyTransferEvent, Account accountTo) {
+    Account withdrawn;
+    Account deposited;
+    if (moneyTransferEvent.isFixedPoint()) {
+      long minorUnits = moneyTransferEvent.getMinorUnits();
+      if (isBalanceBelow(minorUnits)) {
+        throw new RuntimeException("Insufficient Account Balance");
+      }
+      withdrawn = withdrawMoney(minorUnits);
+      deposited = (accountTo.accountNo == accountNo ? withdrawn : accountTo)
+          .depositMoney(minorUnits);
+    } else {
+      BigDecimal money = moneyTransferEvent.getMoney();
+      if (getMoney().compareTo(money) == -1) {
+        throw new RuntimeException("Insufficient Account Balance");
+      }
+      withdrawn = withdrawMoney(money);
+      deposited = (accountTo.accountNo == accountNo ? withdrawn : accountTo).depositMoney(money);
+    }
+    publish(withdrawn, moneyTransferEvent.isRealTime());
+    publish(deposited, moneyTransferEvent.isRealTime());
   }
 
   /**
@@ -179,7 +286,11 @@ public class Account {
    * @param moneyTransferEvent the money transfer event
    */
   public void handleTransferToEvent(MoneyTransferEvent moneyTransferEvent) {
-    handleDeposit(moneyTransferEvent.getMoney(), moneyTransferEvent.isRealTime());
+    if (moneyTransferEvent.isFixedPoint()) {
+      handleDeposit(moneyTransferEvent.getMinorUnits(), moneyTransferEvent.isRealTime());
+    } else {
+      handleDeposit(moneyTransferEvent.getMoney(), moneyTransferEvent.isRealTime());
+    }
   }
 
 
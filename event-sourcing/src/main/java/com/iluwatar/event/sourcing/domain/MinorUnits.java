@@ -0,0 +1,80 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * This is the fixed-point representation of money used on the allocation free path.
+ * An amount is a long count of minor units, hundredths of the currency unit.
+ * Conversions from {@link BigDecimal} are exact, an amount that does not fit is rejected
+ * rather than rounded.
+ */
+public final class MinorUnits {
+
+  /**
+   * The number of decimal digits of the minor unit.
+   */
+  public static final int SCALE = 2;
+
+  private MinorUnits() {
+  }
+
+  /**
+   * Converts an amount to minor units.
+   *
+   * @param money the amount
+   * @return the amount in minor units
+   * @throws ArithmeticException if the amount has more than {@link #SCALE} decimal digits
+   *     or does not fit in a long
+   */
+  public static long fromBigDecimal(BigDecimal money) {
+    return money.movePointRight(SCALE).longValueExact();
+  }
+
+  /**
+   * Tells whether an amount converts to minor units without loss.
+   *
+   * @param money the amount
+   * @return true if {@link #fromBigDecimal(BigDecimal)} succeeds
+   */
+  public static boolean isExact(BigDecimal money) {
+    if (money.signum() == 0) {
+      return true;
+    }
+    BigDecimal scaled = money.movePointRight(SCALE).stripTrailingZeros();
+    return scaled.scale() <= 0
+        && scaled.precision() - scaled.scale() <= 19
+        && scaled.toBigInteger().bitLength() <= 63;
+  }
+
+  /**
+   * Converts an amount in minor units.
+   *
+   * @param minorUnits the amount in minor units
+   * @return the amount, with a scale of {@link #SCALE}
+   */
+  public static BigDecimal toBigDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+}
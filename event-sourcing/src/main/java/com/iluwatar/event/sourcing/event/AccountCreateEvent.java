@@ -72,11 +72,13 @@ public class AccountCreateEvent extends DomainEvent {
 
   @Override
   public void process() {
-    Account account = AccountAggregate.getAccount(accountNo);
-    if (account != null) {
-      throw new RuntimeException("Account already exists");
-    }
-    account = new Account(accountNo, owner);
-    account.handleEvent(this);
+    AccountAggregate.runLocked(accountNo, () -> {
+      Account account = AccountAggregate.getAccount(accountNo);
+      if (account != null) {
+        throw new RuntimeException("Account already exists");
+      }
+      account = new Account(accountNo, owner);
+      account.handleEvent(this);
+    });
   }
 }
@@ -23,6 +23,7 @@
 package com.iluwatar.event.sourcing.event;
 
 import com.iluwatar.event.sourcing.domain.Account;
+import com.iluwatar.event.sourcing.domain.MinorUnits;
 import com.iluwatar.event.sourcing.state.AccountAggregate;
 import java.math.BigDecimal;
 
@@ -30,13 +31,16 @@ import java.math.BigDecimal;
  * This is the class that implements money deposit event.
  * Holds the necessary info for a money deposit event.
  * Implements the process function that finds the event related
- * domain objects and calls the related domain object's handle event functions
+ * domain objects and calls the related domain object's handle event functions.
+ * The amount is either a {@link BigDecimal} or, on the fixed-point path, a long count of
+ * {@link MinorUnits}.
  *
  * Created by Serdar Hamzaogullari on 06.08.2017.
  */
 public class MoneyDepositEvent extends DomainEvent {
 
   private final BigDecimal money;
+  private final long minorUnits;
   private final int accountNo;
 
   /**
@@ -50,6 +54,22 @@ public class MoneyDepositEvent extends DomainEvent {
   public MoneyDepositEvent(long sequenceId, long createdTime, int accountNo, BigDecimal money) {
     super(sequenceId, createdTime, "MoneyDepositEvent");
     this.money = money;
+    this.minorUnits = 0;
+    this.accountNo = accountNo;
+  }
+
+  /**
+   * Instantiates a new fixed-point Money deposit event.
+   *
+   * @param sequenceId the sequence id
+   * @param createdTime the created time
+   * @param accountNo the account no
+   * @param minorUnits the money in minor units
+   */
+  public MoneyDepositEvent(long sequenceId, long createdTime, int accountNo, long minorUnits) {
+    super(sequenceId, createdTime, "MoneyDepositEvent");
+    this.money = null;
+    this.minorUnits = minorUnits;
     this.accountNo = accountNo;
   }
 
@@ -59,7 +79,26 @@ public class MoneyDepositEvent extends DomainEvent {
    * @return the money
    */
   public BigDecimal getMoney() {
-    return money;
+    return money != null ? money : MinorUnits.toBigDecimal(minorUnits);
+  }
+
+  /**
+   * Tells whether the money is held in minor units.
+   *
+   * @return true for a fixed-point event
+   */
+  public boolean isFixedPoint() {
+    return money == null;
+  }
+
+  /**
+   * Gets money in minor units.
+   *
+   * @return the money in minor units
+   * @throws ArithmeticException if the money is not representable in minor units
+   */
+  public long getMinorUnits() {
+    return money != null ? MinorUnits.fromBigDecimal(money) : minorUnits;
   }
 
   /**
@@ -73,10 +112,12 @@ public class MoneyDepositEvent extends DomainEvent {
 
   @Override
   public void process() {
-    Account account = AccountAggregate.getAccount(accountNo);
-    if (account == null) {
-      throw new RuntimeException("Account not found");
-    }
-    account.handleEvent(this);
+    AccountAggregate.runLocked(accountNo, () -> {
+      Account account = AccountAggregate.getAccount(accountNo);
+      if (account == null) {
+        throw new RuntimeException("Account not found");
+      }
+      account.handleEvent(this);
+    });
   }
 }
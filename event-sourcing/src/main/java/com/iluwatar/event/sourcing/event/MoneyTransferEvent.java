@@ -23,6 +23,7 @@
 package com.iluwatar.event.sourcing.event;
 
 import com.iluwatar.event.sourcing.domain.Account;
+import com.iluwatar.event.sourcing.domain.MinorUnits;
 import com.iluwatar.event.sourcing.state.AccountAggregate;
 import java.math.BigDecimal;
 
@@ -30,13 +31,16 @@ import java.math.BigDecimal;
  * This is the class that implements money transfer event.
  * Holds the necessary info for a money transfer event.
  * Implements the process function that finds the event related
- * domain objects and calls the related domain object's handle event functions
+ * domain objects and calls the related domain object's handle event functions.
+ * The amount is either a {@link BigDecimal} or, on the fixed-point path, a long count of
+ * {@link MinorUnits}.
  *
  * Created by Serdar Hamzaogullari on 06.08.2017.
  */
 public class MoneyTransferEvent extends DomainEvent {
 
   private final BigDecimal money;
+  private final long minorUnits;
   private final int accountNoFrom;
   private final int accountNoTo;
 
@@ -53,6 +57,25 @@ public class MoneyTransferEvent extends DomainEvent {
       int accountNoTo) {
     super(sequenceId, createdTime, "MoneyTransferEvent");
     this.money = money;
+    this.minorUnits = 0;
+    this.accountNoFrom = accountNoFrom;
+    this.accountNoTo = accountNoTo;
+  }
+
+  /**
+   * Instantiates a new fixed-point Money transfer event.
+   *
+   * @param sequenceId the sequence id
+   * @param createdTime the created time
+   * @param minorUnits the money in minor units
+   * @param accountNoFrom the account no from
+   * @param accountNoTo the account no to
+   */
+  public MoneyTransferEvent(long sequenceId, long createdTime, long minorUnits, int accountNoFrom,
+      int accountNoTo) {
+    super(sequenceId, createdTime, "MoneyTransferEvent");
+    this.money = null;
+    this.minorUnits = minorUnits;
     this.accountNoFrom = accountNoFrom;
     this.accountNoTo = accountNoTo;
   }
@@ -63,7 +86,26 @@ public class MoneyTransferEvent extends DomainEvent {
    * @return the money
    */
   public BigDecimal getMoney() {
-    return money;
+    return money != null ? money : MinorUnits.toBigDecimal(minorUnits);
+  }
+
+  /**
+   * Tells whether the money is held in minor units.
+   *
+   * @return true for a fixed-point event
+   */
+  public boolean isFixedPoint() {
+    return money == null;
+  }
+
+  /**
+   * Gets money in minor units.
+   *
+   * @return the money in minor units
+   * @throws ArithmeticException if the money is not representable in minor units
+   */
+  public long getMinorUnits() {
+    return money != null ? MinorUnits.fromBigDecimal(money) : minorUnits;
   }
 
   /**
@@ -86,16 +128,17 @@ public class MoneyTransferEvent extends DomainEvent {
 
   @Override
   public void process() {
-    Account accountFrom = AccountAggregate.getAccount(accountNoFrom);
-    if (accountFrom == null) {
-      throw new RuntimeException("Account not found " + accountNoFrom);
-    }
-    Account accountTo = AccountAggregate.getAccount(accountNoTo);
-    if (accountTo == null) {
-      throw new RuntimeException("Account not found " + accountNoTo);
-    }
+    AccountAggregate.runLocked(accountNoFrom, accountNoTo, () -> {
+      Account accountFrom = AccountAggregate.getAccount(accountNoFrom);
+      if (accountFrom == null) {
+        throw new RuntimeException("Account not found " + accountNoFrom);
+      }
+      Account accountTo = AccountAggregate.getAccount(accountNoTo);
+      if (accountTo == null) {
+        throw new RuntimeException("Account not found " + accountNoTo);
+      }
 
-    accountFrom.handleTransferFromEvent(this);
-    accountTo.handleTransferToEvent(this);
+      accountFrom.handleTransferEvent(this, accountTo);
+    });
   }
 }
@@ -0,0 +1,675 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.processor;
+
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is the binary implementation of event journal.
+ * Events are appended to segment files in a compact binary encoding,
+ * each record framed as {@code [int length][int crc32][byte type][payload]}.
+ * Fixed-point amounts are written as a raw long of minor units, others as scale and unscaled
+ * bytes.
+ * A segment is closed and a new one started when it reaches the maximum segment size.
+ *
+ * <p>Records are collected in a write buffer and reach the file in batches.
+ * When they are forced to disk depends on the {@link FsyncPolicy}; with {@link FsyncPolicy#ALWAYS}
+ * the writers waiting for the disk at the same time share a single force (group commit).
+ *
+ * <p>Reading streams through the segments with a small read buffer, so the journal is never
+ * loaded into memory as a whole. A record torn by a crash at the end of the last segment is
+ * truncated when the journal is opened.
+ */
+public class BinaryFileJournal implements EventJournal {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinaryFileJournal.class);
+
+  /**
+   * The default directory of the segment files.
+   */
+  public static final String DEFAULT_DIRECTORY = "Journal";
+
+  /**
+   * The default maximum size of a segment file.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The default interval of {@link FsyncPolicy#INTERVAL}.
+   */
+  public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+
+  static final byte ACCOUNT_CREATE = 1;
+  static final byte MONEY_DEPOSIT = 2;
+  static final byte MONEY_TRANSFER = 3;
+  static final byte MONEY_DEPOSIT_FIXED = 4;
+  static final byte MONEY_TRANSFER_FIXED = 5;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".journal";
+  private static final int HEADER_SIZE = 8;
+  private static final int MAX_RECORD_SIZE = 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * When the written events are forced to disk.
+   */
+  public enum FsyncPolicy {
+    /**
+     * Every write returns once its event is on disk.
+     */
+    ALWAYS,
+    /**
+     * The events are forced to disk by the first write after the fsync interval has passed.
+     */
+    INTERVAL,
+    /**
+     * The events are left to the operating system, the write buffer is written out when full.
+     */
+    NEVER
+  }
+
+  private final Path directory;
+  private final FsyncPolicy fsyncPolicy;
+  private final long fsyncIntervalNanos;
+  private final int segmentSize;
+  private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final CRC32 crc = new CRC32();
+  private final Object syncLock = new Object();
+  private ByteBuffer record = ByteBuffer.allocate(256);
+  private FileChannel segment;
+  private int segmentIndex;
+  private long segmentPosition;
+  private long appendedBytes;
+  private volatile long syncedBytes;
+  private volatile long lastSyncNanos = System.nanoTime();
+  private Reader reader;
+
+  /**
+   * Instantiates a new Binary file journal at {@link #DEFAULT_DIRECTORY} of the working directory,
+   * forcing events to disk every second.
+   */
+  public BinaryFileJournal() {
+    this(Paths.get(DEFAULT_DIRECTORY), FsyncPolicy.INTERVAL, DEFAULT_FSYNC_INTERVAL_MILLIS,
+        DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Instantiates a new Binary file journal.
+   *
+   * @param directory the directory of the segment files
+   * @param fsyncPolicy when the events are forced to disk
+   * @param fsyncIntervalMillis the interval of {@link FsyncPolicy#INTERVAL}
+   * @param segmentSize the size after which a new segment is started
+   */
+  public BinaryFileJournal(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+      int segmentSize) {
+    if (segmentSize < HEADER_SIZE) {
+      throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+    }
+    this.directory = directory;
+    this.fsyncPolicy = fsyncPolicy;
+    this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+    this.segmentSize = segmentSize;
+    try {
+      Files.createDirectories(directory);
+      List<Path> segments = segments();
+      if (segments.isEmpty()) {
+        openSegment(0);
+      } else {
+        Path last = segments.get(segments.size() - 1);
+        openSegment(indexOf(last));
+        truncateTornTail();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void write(DomainEvent domainEvent) {
+    long end;
+    synchronized (this) {
+      encode(domainEvent);
+      try {
+        append();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      end = appendedBytes;
+    }
+    if (fsyncPolicy == FsyncPolicy.ALWAYS || fsyncPolicy == FsyncPolicy.INTERVAL
+        && System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos) {
+      sync(end);
+    }
+  }
+
+  /**
+   * Writes the buffered events to the segment file and forces them to disk.
+   */
+  @Override
+  public void flush() {
+    long end;
+    synchronized (this) {
+      end = appendedBytes;
+    }
+    sync(end);
+  }
+
+  @Override
+  public synchronized void reset() {
+    try {
+      closeReader();
+      segment.close();
+      writeBuffer.clear();
+      for (Path path : segments()) {
+        Files.delete(path);
+      }
+      openSegment(0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public DomainEvent readNext() {
+    try {
+      synchronized (this) {
+        if (reader == null) {
+          drainWriteBuffer();
+          reader = new Reader(segments());
+        }
+      }
+      return reader.next();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Skips the segments that only hold events before the given sequence id, and the records before
+   * it in the first segment read without decoding them. Sequence ids are expected to increase in
+   * the order the events were written.
+   */
+  @Override
+  public synchronized void skipTo(long sequenceId) {
+    try {
+      closeReader();
+      drainWriteBuffer();
+      List<Path> segments = segments();
+      int first = 0;
+      for (int i = segments.size() - 1; i > 0; i--) {
+        try (Reader segmentReader = new Reader(segments.subList(i, i + 1))) {
+          DomainEvent event = segmentReader.next();
+          if (event != null && event.getSequenceId() <= sequenceId) {
+            first = i;
+            break;
+          }
+        }
+      }
+      reader = new Reader(segments.subList(first, segments.size()));
+      reader.minSequenceId = sequenceId;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+    synchronized (this) {
+      try {
+        closeReader();
+        segment.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of segment files.
+   *
+   * @return the segment count
+   */
+  public synchronized int getSegmentCount() {
+    return segmentIndex + 1;
+  }
+
+  /*
+   * Forces everything appended up to end to disk, unless a concurrent sync already did. The buffer
+   * is drained under the journal lock, but the force is not, so writers keep appending meanwhile
+   * and are covered by the next force together.
+   */
+  private void sync(long end) {
+    synchronized (syncLock) {
+      if (syncedBytes >= end) {
+        return;
+      }
+      FileChannel channel;
+      long drained;
+      synchronized (this) {
+        try {
+          drainWriteBuffer();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        channel = segment;
+        drained = appendedBytes;
+      }
+      try {
+        channel.force(false);
+      } catch (ClosedChannelException e) {
+        // the segment has been rolled over or closed, which forces it beforehand
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      syncedBytes = drained;
+      lastSyncNanos = System.nanoTime();
+    }
+  }
+
+  /*
+   * Encodes the event into the record buffer, leaving room for the header.
+   */
+  private void encode(DomainEvent domainEvent) {
+    record.clear();
+    record.position(HEADER_SIZE);
+    if (domainEvent instanceof AccountCreateEvent) {
+      AccountCreateEvent event = (AccountCreateEvent) domainEvent;
+      byte[] owner = event.getOwner().getBytes(StandardCharsets.UTF_8);
+      ensureRecordCapacity(owner.length);
+      record.put(ACCOUNT_CREATE);
+      putHeader(event);
+      record.putInt(event.getAccountNo());
+      record.putInt(owner.length);
+      record.put(owner);
+    } else if (domainEvent instanceof MoneyDepositEvent
+        && ((MoneyDepositEvent) domainEvent).isFixedPoint()) {
+      MoneyDepositEvent event = (MoneyDepositEvent) domainEvent;
+      record.put(MONEY_DEPOSIT_FIXED);
+      putHeader(event);
+      record.putInt(event.getAccountNo());
+      record.putLong(event.getMinorUnits());
+    } else if (domainEvent instanceof MoneyDepositEvent) {
+      MoneyDepositEvent event = (MoneyDepositEvent) domainEvent;
+      byte[] unscaled = event.getMoney().unscaledValue().toByteArray();
+      ensureRecordCapacity(unscaled.length);
+      record.put(MONEY_DEPOSIT);
+      putHeader(event);
+      record.putInt(event.getAccountNo());
+      putMoney(event.getMoney().scale(), unscaled);
+    } else if (domainEvent instanceof MoneyTransferEvent
+        && ((MoneyTransferEvent) domainEvent).isFixedPoint()) {
+      MoneyTransferEvent event = (MoneyTransferEvent) domainEvent;
+      record.put(MONEY_TRANSFER_FIXED);
+      putHeader(event);
+      record.putInt(event.getAccountNoFrom());
+      record.putInt(event.getAccountNoTo());
+      record.putLong(event.getMinorUnits());
+    } else if (domainEvent instanceof MoneyTransferEvent) {
+      MoneyTransferEvent event = (MoneyTransferEvent) domainEvent;
+      byte[] unscaled = event.getMoney().unscaledValue().toByteArray();
+      ensureRecordCapacity(unscaled.length);
+      record.put(MONEY_TRANSFER);
+      putHeader(event);
+      record.putInt(event.getAccountNoFrom());
+      record.putInt(event.getAccountNoTo());
+      putMoney(event.getMoney().scale(), unscaled);
+    } else {
+      throw new RuntimeException("Journal Event not recegnized");
+    }
+    record.flip();
+    int length = record.limit() - HEADER_SIZE;
+    if (length > MAX_RECORD_SIZE) {
+      throw new IllegalArgumentException("Event too large to journal: " + length + " bytes");
+    }
+    crc.reset();
+    crc.update((ByteBuffer) record.duplicate().position(HEADER_SIZE));
+    record.putInt(0, length);
+    record.putInt(4, (int) crc.getValue());
+  }
+
+  private void ensureRecordCapacity(int variableLength) {
+    int required = HEADER_SIZE + 64 + variableLength;
+    if (record.capacity() < required) {
+      record = ByteBuffer.allocate(Math.max(required, record.capacity() * 2));
+      record.position(HEADER_SIZE);
+    }
+  }
+
+  private void putHeader(DomainEvent event) {
+    record.putLong(event.getSequenceId());
+    record.putLong(event.getCreatedTime());
+  }
+
+  private void putMoney(int scale, byte[] unscaled) {
+    record.putInt(scale);
+    record.putInt(unscaled.length);
+    record.put(unscaled);
+  }
+
+  /*
+   * Appends the encoded record to the current segment, rolling over to a new segment first if the
+   * record does not fit. A record larger than the write buffer bypasses it.
+   */
+  private void append() throws IOException {
+    int length = record.remaining();
+    if (segmentPosition > 0 && segmentPosition + length > segmentSize) {
+      rollSegment();
+    }
+    if (writeBuffer.remaining() < length) {
+      drainWriteBuffer();
+    }
+    if (length > writeBuffer.capacity()) {
+      while (record.hasRemaining()) {
+        segment.write(record);
+      }
+    } else {
+      writeBuffer.put(record);
+    }
+    segmentPosition += length;
+    appendedBytes += length;
+  }
+
+  private void drainWriteBuffer() throws IOException {
+    writeBuffer.flip();
+    while (writeBuffer.hasRemaining()) {
+      segment.write(writeBuffer);
+    }
+    writeBuffer.clear();
+  }
+
+  private void rollSegment() throws IOException {
+    drainWriteBuffer();
+    if (fsyncPolicy != FsyncPolicy.NEVER) {
+      segment.force(false);
+    }
+    segment.close();
+    openSegment(segmentIndex + 1);
+  }
+
+  private void openSegment(int index) throws IOException {
+    segmentIndex = index;
+    segment = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segmentPosition = segment.size();
+    segment.position(segmentPosition);
+  }
+
+  /*
+   * Scans the last segment and cuts off a damaged record at its very end, which is what a crash in
+   * the middle of a write leaves behind. A damaged record followed by others is not a torn write,
+   * it is left in place for reading to report.
+   */
+  private void truncateTornTail() throws IOException {
+    long valid = 0;
+    try (Reader tailReader = new Reader(Collections.singletonList(segmentPath(segmentIndex)))) {
+      while (tailReader.skipRecord()) {
+        valid = tailReader.position();
+      }
+    }
+    if (valid == segmentPosition) {
+      return;
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining() && segment.read(header, valid + header.position()) > 0) {
+      // read the header of the damaged record
+    }
+    if (!header.hasRemaining()) {
+      int length = header.getInt(0);
+      if (length > 0 && length <= MAX_RECORD_SIZE
+          && valid + HEADER_SIZE + length < segmentPosition) {
+        LOGGER.error("Corrupt record at offset {} of {}", valid, segmentPath(segmentIndex));
+        return;
+      }
+    }
+    LOGGER.warn("Truncating {} torn bytes at the end of {}", segmentPosition - valid,
+        segmentPath(segmentIndex));
+    segment.truncate(valid);
+    segmentPosition = valid;
+    segment.position(valid);
+  }
+
+  private void closeReader() throws IOException {
+    if (reader != null) {
+      reader.close();
+      reader = null;
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        segments.add(path);
+      }
+    }
+    segments.sort((a, b) -> Integer.compare(indexOf(a), indexOf(b)));
+    return segments;
+  }
+
+  private Path segmentPath(int index) {
+    return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+  }
+
+  private static int indexOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Integer.parseInt(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Streams the records of a list of segments.
+   */
+  private static class Reader implements AutoCloseable {
+
+    private final List<Path> segments;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private int next;
+    private long position;
+    private long minSequenceId = Long.MIN_VALUE;
+
+    Reader(List<Path> segments) {
+      this.segments = segments;
+      buffer.limit(0);
+    }
+
+    /*
+     * Returns the next event or null at the end of the last segment.
+     */
+    DomainEvent next() throws IOException {
+      ByteBuffer payload = nextRecord();
+      while (payload != null && payload.getLong(1) < minSequenceId) {
+        payload = nextRecord();
+      }
+      if (payload == null) {
+        return null;
+      }
+      DomainEvent event = decode(payload);
+      event.setRealTime(false);
+      return event;
+    }
+
+    /*
+     * Skips the next record, returning false if there is no intact record left.
+     */
+    boolean skipRecord() throws IOException {
+      try {
+        return nextRecord() != null;
+      } catch (IllegalStateException e) {
+        return false;
+      }
+    }
+
+    long position() {
+      return position;
+    }
+
+    /*
+     * Reads the next record, verifying its checksum. The returned buffer is the payload, valid
+     * until the next call.
+     */
+    private ByteBuffer nextRecord() throws IOException {
+      while (!fill(HEADER_SIZE)) {
+        if (buffer.hasRemaining()) {
+          throw new IllegalStateException("Truncated record header in journal");
+        }
+        if (!openNextSegment()) {
+          return null;
+        }
+      }
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length <= 0 || length > MAX_RECORD_SIZE) {
+        throw new IllegalStateException("Corrupt record length in journal: " + length);
+      }
+      if (!fill(length)) {
+        throw new IllegalStateException("Truncated record in journal");
+      }
+      ByteBuffer payload = buffer.slice();
+      payload.limit(length);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        throw new IllegalStateException("Record checksum mismatch in journal");
+      }
+      buffer.position(buffer.position() + length);
+      position += HEADER_SIZE + length;
+      return payload;
+    }
+
+    /*
+     * Makes sure the buffer holds at least count bytes, returning false at the end of the
+     * current segment.
+     */
+    private boolean fill(int count) throws IOException {
+      if (buffer.remaining() >= count) {
+        return true;
+      }
+      if (channel == null) {
+        return false;
+      }
+      if (buffer.capacity() < count) {
+        ByteBuffer larger = ByteBuffer.allocateDirect(count);
+        larger.put(buffer);
+        buffer = larger;
+      } else {
+        buffer.compact();
+      }
+      while (buffer.position() < count) {
+        if (channel.read(buffer) < 0) {
+          buffer.flip();
+          return false;
+        }
+      }
+      buffer.flip();
+      return true;
+    }
+
+    private boolean openNextSegment() throws IOException {
+      close();
+      if (next >= segments.size()) {
+        return false;
+      }
+      channel = FileChannel.open(segments.get(next++), StandardOpenOption.READ);
+      buffer.clear().limit(0);
+      position = 0;
+      return true;
+    }
+
+    private static DomainEvent decode(ByteBuffer payload) {
+      byte type = payload.get();
+      long sequenceId = payload.getLong();
+      long createdTime = payload.getLong();
+      switch (type) {
+        case ACCOUNT_CREATE:
+          int accountNo = payload.getInt();
+          byte[] owner = new byte[payload.getInt()];
+          payload.get(owner);
+          return new AccountCreateEvent(sequenceId, createdTime, accountNo,
+              new String(owner, StandardCharsets.UTF_8));
+        case MONEY_DEPOSIT:
+          int depositAccountNo = payload.getInt();
+          return new MoneyDepositEvent(sequenceId, createdTime, depositAccountNo,
+              getMoney(payload));
+        case MONEY_TRANSFER:
+          int accountNoFrom = payload.getInt();
+          int accountNoTo = payload.getInt();
+          return new MoneyTransferEvent(sequenceId, createdTime, getMoney(payload),
+              accountNoFrom, accountNoTo);
+        case MONEY_DEPOSIT_FIXED:
+          int fixedAccountNo = payload.getInt();
+          return new MoneyDepositEvent(sequenceId, createdTime, fixedAccountNo, payload.getLong());
+        case MONEY_TRANSFER_FIXED:
+          int fixedAccountNoFrom = payload.getInt();
+          int fixedAccountNoTo = payload.getInt();
+          return new MoneyTransferEvent(sequenceId, createdTime, payload.getLong(),
+              fixedAccountNoFrom, fixedAccountNoTo);
+        default:
+          throw new RuntimeException("Journal Event not recegnized");
+      }
+    }
+
+    private static BigDecimal getMoney(ByteBuffer payload) {
+      int scale = payload.getInt();
+      byte[] unscaled = new byte[payload.getInt()];
+      payload.get(unscaled);
+      return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (channel != null) {
+        channel.close();
+        channel = null;
+      }
+    }
+  }
+}
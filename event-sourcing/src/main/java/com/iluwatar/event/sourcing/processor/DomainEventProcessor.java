@@ -22,18 +22,71 @@
  */
 package com.iluwatar.event.sourcing.processor;
 
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
 import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * This is the implementation of event processor.
  * All events are processed by this class.
  * This processor uses processorJournal to persist and recover events.
  *
+ * <p>With a {@link SnapshotStore} the processor snapshots the state every snapshotInterval events,
+ * and recovery starts from the latest snapshot, replaying only the events journaled after it.
+ * Recovery can also replay in parallel, partitioning the events by account number, with money
+ * transfers, which touch two accounts, replayed alone once all the events before them have been.
+ *
  * Created by Serdar Hamzaogullari on 06.08.2017.
  */
 public class DomainEventProcessor {
 
-  private final JsonFileJournal processorJournal = new JsonFileJournal();
+  /**
+   * The number of events read ahead before a parallel replay hands them to the partitions.
+   */
+  public static final int REPLAY_BATCH_SIZE = 10_000;
+
+  private final EventJournal processorJournal;
+  private final SnapshotStore snapshotStore;
+  private final int snapshotInterval;
+  private long lastSequenceId = -1;
+  private int eventsSinceSnapshot;
+
+  /**
+   * Instantiates a new Domain event processor using a {@link JsonFileJournal}.
+   */
+  public DomainEventProcessor() {
+    this(new JsonFileJournal());
+  }
+
+  /**
+   * Instantiates a new Domain event processor.
+   *
+   * @param processorJournal the journal to persist and recover events with
+   */
+  public DomainEventProcessor(EventJournal processorJournal) {
+    this(processorJournal, null, 0);
+  }
+
+  /**
+   * Instantiates a new Domain event processor taking snapshots.
+   *
+   * @param processorJournal the journal to persist and recover events with
+   * @param snapshotStore the store of the snapshots
+   * @param snapshotInterval the number of events processed between two snapshots
+   */
+  public DomainEventProcessor(EventJournal processorJournal, SnapshotStore snapshotStore,
+      int snapshotInterval) {
+    if (snapshotStore != null && snapshotInterval <= 0) {
+      throw new IllegalArgumentException("Snapshot interval must be positive");
+    }
+    this.processorJournal = processorJournal;
+    this.snapshotStore = snapshotStore;
+    this.snapshotInterval = snapshotInterval;
+  }
 
   /**
    * Process.
@@ -43,6 +96,23 @@ public class DomainEventProcessor {
   public void process(DomainEvent domainEvent) {
     domainEvent.process();
     processorJournal.write(domainEvent);
+    lastSequenceId = domainEvent.getSequenceId();
+    if (snapshotStore != null && ++eventsSinceSnapshot >= snapshotInterval) {
+      snapshot();
+    }
+  }
+
+  /**
+   * Snapshot the current state. The journal is flushed first,
+   * so that a snapshot never gets ahead of the persisted events.
+   */
+  public void snapshot() {
+    if (snapshotStore == null) {
+      throw new IllegalStateException("No snapshot store");
+    }
+    processorJournal.flush();
+    snapshotStore.save(lastSequenceId);
+    eventsSinceSnapshot = 0;
   }
 
   /**
@@ -50,20 +120,115 @@ public class DomainEventProcessor {
    */
   public void reset() {
     processorJournal.reset();
+    if (snapshotStore != null) {
+      snapshotStore.reset();
+    }
+    lastSequenceId = -1;
+    eventsSinceSnapshot = 0;
+  }
+
+  /**
+   * Close the journal.
+   */
+  public void close() {
+    processorJournal.close();
   }
 
   /**
    * Recover.
    */
   public void recover() {
+    recover(1);
+  }
+
+  /**
+   * Recover, replaying the events in the given number of partitions in parallel.
+   *
+   * @param parallelism the number of partitions, 1 for a sequential replay
+   */
+  public void recover(int parallelism) {
+    long snapshotSequenceId = snapshotStore == null ? -1 : snapshotStore.load();
+    lastSequenceId = snapshotSequenceId;
+    if (snapshotSequenceId >= 0) {
+      processorJournal.skipTo(snapshotSequenceId + 1);
+    }
+    if (parallelism <= 1) {
+      replay(snapshotSequenceId);
+    } else {
+      replay(snapshotSequenceId, parallelism);
+    }
+  }
+
+  private void replay(long snapshotSequenceId) {
     DomainEvent domainEvent;
     while (true) {
       domainEvent = processorJournal.readNext();
       if (domainEvent == null) {
         break;
-      } else {
+      } else if (domainEvent.getSequenceId() > snapshotSequenceId) {
         domainEvent.process();
+        lastSequenceId = domainEvent.getSequenceId();
+      }
+    }
+  }
+
+  private void replay(long snapshotSequenceId, int parallelism) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<List<DomainEvent>> partitions = new ArrayList<>(parallelism);
+      for (int i = 0; i < parallelism; i++) {
+        partitions.add(new ArrayList<>());
+      }
+      int batched = 0;
+      DomainEvent domainEvent;
+      while ((domainEvent = processorJournal.readNext()) != null) {
+        if (domainEvent.getSequenceId() <= snapshotSequenceId) {
+          continue;
+        }
+        lastSequenceId = domainEvent.getSequenceId();
+        int accountNo = accountOf(domainEvent);
+        if (accountNo < 0) {
+          // the event may touch several partitions, so it waits for all of them
+          replay(pool, partitions);
+          batched = 0;
+          domainEvent.process();
+        } else {
+          partitions.get(Math.floorMod(accountNo, parallelism)).add(domainEvent);
+          if (++batched == REPLAY_BATCH_SIZE) {
+            replay(pool, partitions);
+            batched = 0;
+          }
+        }
       }
+      replay(pool, partitions);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void replay(ForkJoinPool pool, List<List<DomainEvent>> partitions) {
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      List<DomainEvent> events = partitions.get(i);
+      if (!events.isEmpty()) {
+        tasks.add(pool.submit(() -> events.forEach(DomainEvent::process)));
+        partitions.set(i, new ArrayList<>());
+      }
+    }
+    for (ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+  }
+
+  /*
+   * Returns the account a single account event belongs to, or -1 for any other event.
+   */
+  private static int accountOf(DomainEvent domainEvent) {
+    if (domainEvent instanceof AccountCreateEvent) {
+      return ((AccountCreateEvent) domainEvent).getAccountNo();
+    } else if (domainEvent instanceof MoneyDepositEvent) {
+      return ((MoneyDepositEvent) domainEvent).getAccountNo();
     }
+    return -1;
   }
 }
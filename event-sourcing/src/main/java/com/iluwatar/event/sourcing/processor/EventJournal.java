@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.processor;
+
+import com.iluwatar.event.sourcing.event.DomainEvent;
+
+/**
+ * This is the interface of event journals.
+ * A journal appends the processed events to a persistent store
+ * and reads them back one by one, in the order they were written, on recovery.
+ */
+public interface EventJournal {
+
+  /**
+   * Write.
+   *
+   * @param domainEvent the domain event
+   */
+  void write(DomainEvent domainEvent);
+
+  /**
+   * Reset, dropping all the events written.
+   */
+  void reset();
+
+  /**
+   * Read next domain event.
+   *
+   * @return the domain event or null if all the events have been read
+   */
+  DomainEvent readNext();
+
+  /**
+   * Skip to the given sequence id, so that reading starts at the first event with a sequence id
+   * greater than or equal to it. Journals that cannot seek may still return earlier events.
+   *
+   * @param sequenceId the sequence id to skip to
+   */
+  default void skipTo(long sequenceId) {
+    // reading starts at the beginning by default
+  }
+
+  /**
+   * Flush, making sure all the events written so far are persisted.
+   */
+  default void flush() {
+    // events are persisted as they are written by default
+  }
+
+  /**
+   * Close, making sure all the events written are persisted.
+   */
+  default void close() {
+    // nothing to release by default
+  }
+}
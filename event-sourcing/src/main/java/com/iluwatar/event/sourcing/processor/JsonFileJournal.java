@@ -48,7 +48,7 @@ import java.util.List;
  *
  * Created by Serdar Hamzaogullari on 06.08.2017.
  */
-public class JsonFileJournal {
+public class JsonFileJournal implements EventJournal {
 
   private final File aFile;
   private final List<String> events = new ArrayList<>();
@@ -80,6 +80,7 @@ public class JsonFileJournal {
    *
    * @param domainEvent the domain event
    */
+  @Override
   public void write(DomainEvent domainEvent) {
     Gson gson = new Gson();
     JsonElement jsonElement;
@@ -106,6 +107,7 @@ public class JsonFileJournal {
   /**
    * Reset.
    */
+  @Override
   public void reset() {
     aFile.delete();
   }
@@ -116,6 +118,7 @@ public class JsonFileJournal {
    *
    * @return the domain event
    */
+  @Override
   public DomainEvent readNext() {
     if (index >= events.size()) {
       return null;
@@ -0,0 +1,221 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.processor;
+
+import com.iluwatar.event.sourcing.domain.Account;
+import com.iluwatar.event.sourcing.state.AccountAggregate;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is the store of {@link AccountAggregate} snapshots.
+ * A snapshot holds the state of all the accounts together with the sequence id of the last event
+ * applied to it, so recovery only has to replay the events after that one.
+ *
+ * <p>Snapshots are written in a compact binary format, to a temporary file first which is then
+ * renamed, and end with a CRC so that a damaged snapshot is skipped in favour of an older one.
+ * The {@link #RETAINED_SNAPSHOTS} latest snapshots are kept.
+ * Fixed-point balances are written as a raw long of minor units.
+ */
+public class SnapshotStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStore.class);
+
+  /**
+   * The number of snapshots kept.
+   */
+  public static final int RETAINED_SNAPSHOTS = 2;
+
+  private static final int MAGIC = 0x534e5032;
+  private static final byte DECIMAL_BALANCE = 0;
+  private static final byte FIXED_POINT_BALANCE = 1;
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+
+  private final Path directory;
+
+  /**
+   * Instantiates a new Snapshot store.
+   *
+   * @param directory the directory of the snapshot files
+   */
+  public SnapshotStore(Path directory) {
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes a snapshot of the current state of {@link AccountAggregate}.
+   *
+   * @param lastSequenceId the sequence id of the last event applied to the state
+   */
+  public void save(long lastSequenceId) {
+    List<Account> accounts = AccountAggregate.getAccounts();
+    List<byte[]> owners = new ArrayList<>(accounts.size());
+    List<byte[]> balances = new ArrayList<>(accounts.size());
+    int size = 16;
+    for (Account account : accounts) {
+      byte[] owner = account.getOwner().getBytes(StandardCharsets.UTF_8);
+      byte[] balance = account.isFixedPoint()
+          ? null : account.getMoney().unscaledValue().toByteArray();
+      owners.add(owner);
+      balances.add(balance);
+      size += 17 + owner.length + (balance == null ? 0 : balance.length);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size + 4);
+    buffer.putInt(MAGIC);
+    buffer.putLong(lastSequenceId);
+    buffer.putInt(accounts.size());
+    for (int i = 0; i < accounts.size(); i++) {
+      Account account = accounts.get(i);
+      buffer.putInt(account.getAccountNo());
+      buffer.putInt(owners.get(i).length);
+      buffer.put(owners.get(i));
+      if (account.isFixedPoint()) {
+        buffer.put(FIXED_POINT_BALANCE);
+        buffer.putLong(account.getMinorUnits());
+      } else {
+        buffer.put(DECIMAL_BALANCE);
+        buffer.putInt(account.getMoney().scale());
+        buffer.putInt(balances.get(i).length);
+        buffer.put(balances.get(i));
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    buffer.putInt((int) crc.getValue());
+
+    try {
+      Path temporary = directory.resolve(snapshotName(lastSequenceId) + ".tmp");
+      Files.write(temporary, buffer.array());
+      Files.move(temporary, directory.resolve(snapshotName(lastSequenceId)),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      List<Path> snapshots = snapshots();
+      for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+        Files.delete(snapshots.get(i));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Loads the latest intact snapshot into {@link AccountAggregate}.
+   *
+   * @return the sequence id of the last event applied to the snapshot, or -1 if there is none
+   */
+  public long load() {
+    try {
+      List<Path> snapshots = snapshots();
+      for (int i = snapshots.size() - 1; i >= 0; i--) {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshots.get(i)));
+        if (isIntact(buffer)) {
+          return restore(buffer);
+        }
+        LOGGER.warn("Skipping damaged snapshot {}", snapshots.get(i));
+      }
+      return -1;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Deletes all the snapshots.
+   */
+  public void reset() {
+    try {
+      for (Path snapshot : snapshots()) {
+        Files.delete(snapshot);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isIntact(ByteBuffer buffer) {
+    int length = buffer.limit() - 4;
+    if (length < 16 || buffer.getInt(0) != MAGIC) {
+      return false;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, length);
+    return (int) crc.getValue() == buffer.getInt(length);
+  }
+
+  private static long restore(ByteBuffer buffer) {
+    buffer.position(4);
+    long lastSequenceId = buffer.getLong();
+    int count = buffer.getInt();
+    for (int i = 0; i < count; i++) {
+      int accountNo = buffer.getInt();
+      byte[] owner = new byte[buffer.getInt()];
+      buffer.get(owner);
+      String ownerName = new String(owner, StandardCharsets.UTF_8);
+      if (buffer.get() == FIXED_POINT_BALANCE) {
+        AccountAggregate.putAccount(new Account(accountNo, ownerName, buffer.getLong()));
+        continue;
+      }
+      int scale = buffer.getInt();
+      byte[] balance = new byte[buffer.getInt()];
+      buffer.get(balance);
+      AccountAggregate.putAccount(new Account(accountNo, ownerName,
+          new BigDecimal(new BigInteger(balance), scale)));
+    }
+    return lastSequenceId;
+  }
+
+  private List<Path> snapshots() throws IOException {
+    List<Path> snapshots = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+      for (Path path : stream) {
+        snapshots.add(path);
+      }
+    }
+    // the zero padded sequence ids sort by name
+    snapshots.sort(null);
+    return snapshots;
+  }
+
+  private static String snapshotName(long lastSequenceId) {
+    return String.format("%s%020d%s", SNAPSHOT_PREFIX, lastSequenceId, SNAPSHOT_SUFFIX);
+  }
+}
@@ -23,18 +23,23 @@
 package com.iluwatar.event.sourcing.state;
 
 import com.iluwatar.event.sourcing.domain.Account;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * This is the static accounts map holder class.
  * This class holds the state of the accounts.
  *
+ * <p>The accounts are immutable, an update publishes a new account in place of the old one,
+ * so reading an account needs no copy and no lock. The updates of an account are ordered by
+ * running them under the account's lock, see {@link #runLocked(int, Runnable)}, and a transfer
+ * locks both of its accounts, see {@link #runLocked(int, int, Runnable)}. The locks are striped
+ * over the account numbers, there is no global lock.
+ *
  * Created by Serdar Hamzaogullari on 06.08.2017.
  */
 public class AccountAggregate {
 
-  private static Map<Integer, Account> accounts = new HashMap<>();
+  private static volatile AccountTable accounts = new AccountTable();
 
   private AccountAggregate() {
   }
@@ -45,27 +50,69 @@ public class AccountAggregate {
    * @param account the account
    */
   public static void putAccount(Account account) {
-    accounts.put(account.getAccountNo(), account);
+    accounts.put(account);
   }
 
   /**
    * Gets account.
    *
    * @param accountNo the account no
-   * @return the copy of the account or null if not found
+   * @return the account or null if not found
    */
   public static Account getAccount(int accountNo) {
-    Account account = accounts.get(accountNo);
-    if (account == null) {
-      return null;
+    return accounts.get(accountNo);
+  }
+
+  /**
+   * Gets all the accounts.
+   *
+   * @return the accounts
+   */
+  public static List<Account> getAccounts() {
+    return accounts.values();
+  }
+
+  /**
+   * Runs an update of an account holding its lock,
+   * so that it reads and publishes the account without interference.
+   *
+   * @param accountNo the account no
+   * @param update the update
+   */
+  public static void runLocked(int accountNo, Runnable update) {
+    synchronized (accounts.lockOf(accountNo)) {
+      update.run();
+    }
+  }
+
+  /**
+   * Runs an update of two accounts holding both their locks. The locks are always taken in the
+   * same order, so concurrent updates of the same accounts cannot deadlock.
+   *
+   * @param accountNo the account no
+   * @param otherAccountNo the other account no
+   * @param update the update
+   */
+  public static void runLocked(int accountNo, int otherAccountNo, Runnable update) {
+    AccountTable table = accounts;
+    Object first = table.lockOf(accountNo);
+    Object second = table.lockOf(otherAccountNo);
+    if (!table.locksInOrder(accountNo, otherAccountNo)) {
+      Object swap = first;
+      first = second;
+      second = swap;
+    }
+    synchronized (first) {
+      synchronized (second) {
+        update.run();
+      }
     }
-    return account.copy();
   }
 
   /**
    * Reset state.
    */
   public static void resetState() {
-    accounts = new HashMap<>();
+    accounts = new AccountTable();
   }
 }
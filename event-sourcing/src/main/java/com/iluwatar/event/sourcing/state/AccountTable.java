@@ -0,0 +1,157 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.state;
+
+import com.iluwatar.event.sourcing.domain.Account;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This is the lock-striped table of the accounts, keyed by the primitive account number.
+ * Every stripe is an open addressing table with linear probing. The accounts are immutable and
+ * carry their own account number, so a slot only holds the account and reading it needs neither
+ * a lock nor a copy. Writes take the lock of the stripe, which also orders the updates of an
+ * account. Accounts are never removed, the whole table is replaced instead.
+ */
+class AccountTable {
+
+  private static final int STRIPE_BITS = 6;
+  private static final int STRIPES = 1 << STRIPE_BITS;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  AccountTable() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /*
+   * Returns the lock guarding the account.
+   */
+  Object lockOf(int accountNo) {
+    return stripes[stripeOf(hash(accountNo))];
+  }
+
+  /*
+   * Tells which of the locks of two accounts has to be taken first.
+   */
+  boolean locksInOrder(int accountNo, int otherAccountNo) {
+    return stripeOf(hash(accountNo)) <= stripeOf(hash(otherAccountNo));
+  }
+
+  Account get(int accountNo) {
+    int hash = hash(accountNo);
+    AtomicReferenceArray<Account> table = stripes[stripeOf(hash)].table;
+    int mask = table.length() - 1;
+    for (int i = slotOf(hash) & mask; ; i = (i + 1) & mask) {
+      Account account = table.get(i);
+      if (account == null || account.getAccountNo() == accountNo) {
+        return account;
+      }
+    }
+  }
+
+  void put(Account account) {
+    int hash = hash(account.getAccountNo());
+    Stripe stripe = stripes[stripeOf(hash)];
+    synchronized (stripe) {
+      if (stripe.insert(account, hash)) {
+        stripe.size++;
+        if (stripe.size * 4 > stripe.table.length() * 3) {
+          stripe.resize();
+        }
+      }
+    }
+  }
+
+  List<Account> values() {
+    List<Account> accounts = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      AtomicReferenceArray<Account> table = stripe.table;
+      for (int i = 0; i < table.length(); i++) {
+        Account account = table.get(i);
+        if (account != null) {
+          accounts.add(account);
+        }
+      }
+    }
+    return accounts;
+  }
+
+  private static int hash(int accountNo) {
+    int hash = accountNo * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int stripeOf(int hash) {
+    return hash & (STRIPES - 1);
+  }
+
+  private static int slotOf(int hash) {
+    return hash >>> STRIPE_BITS;
+  }
+
+  private static class Stripe {
+    private volatile AtomicReferenceArray<Account> table =
+        new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private int size;
+
+    /*
+     * Stores the account in its slot, returning true if it was not in the table yet.
+     */
+    boolean insert(Account account, int hash) {
+      int mask = table.length() - 1;
+      for (int i = slotOf(hash) & mask; ; i = (i + 1) & mask) {
+        Account current = table.get(i);
+        if (current == null || current.getAccountNo() == account.getAccountNo()) {
+          table.set(i, account);
+          return current == null;
+        }
+      }
+    }
+
+    /*
+     * Doubles the table. Readers keep using the old table until the new one is published, which
+     * is fine as they only race with the writes of this stripe, and those wait for the resize.
+     */
+    void resize() {
+      AtomicReferenceArray<Account> old = table;
+      AtomicReferenceArray<Account> resized = new AtomicReferenceArray<>(old.length() * 2);
+      int mask = resized.length() - 1;
+      for (int j = 0; j < old.length(); j++) {
+        Account account = old.get(j);
+        if (account != null) {
+          int i = slotOf(hash(account.getAccountNo())) & mask;
+          while (resized.get(i) != null) {
+            i = (i + 1) & mask;
+          }
+          resized.set(i, account);
+        }
+      }
+      table = resized;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.domain;
+
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.state.AccountAggregate;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the fixed-point money of {@link Account}.
+ */
+public class AccountTest {
+
+  /**
+   * Resets the state.
+   */
+  @BeforeEach
+  @AfterEach
+  public void reset() {
+    AccountAggregate.resetState();
+  }
+
+  @Test
+  public void testFixedPointDepositsAndTransfers() {
+    event(new AccountCreateEvent(0, 0, 1, "Arya Stark")).process();
+    event(new AccountCreateEvent(1, 0, 2, "Sansa Stark")).process();
+    event(new MoneyDepositEvent(2, 0, 1, 10_050L)).process();
+    event(new MoneyTransferEvent(3, 0, 25L, 1, 2)).process();
+
+    Account from = AccountAggregate.getAccount(1);
+    Account to = AccountAggregate.getAccount(2);
+    assertTrue(from.isFixedPoint());
+    assertEquals(10_025, from.getMinorUnits());
+    assertEquals(new BigDecimal("100.25"), from.getMoney());
+    assertEquals(new BigDecimal("0.25"), to.getMoney());
+  }
+
+  @Test
+  public void testInsufficientBalanceIsRejected() {
+    event(new AccountCreateEvent(0, 0, 1, "Arya Stark")).process();
+    event(new AccountCreateEvent(1, 0, 2, "Sansa Stark")).process();
+    event(new MoneyDepositEvent(2, 0, 1, 10L)).process();
+
+    assertThrows(RuntimeException.class,
+        () -> event(new MoneyTransferEvent(3, 0, 11L, 1, 2)).process());
+    assertEquals(10, AccountAggregate.getAccount(1).getMinorUnits());
+    assertEquals(0, AccountAggregate.getAccount(2).getMinorUnits());
+  }
+
+  @Test
+  public void testOverflowIsRejected() {
+    AccountAggregate.putAccount(new Account(1, "Arya Stark", Long.MAX_VALUE));
+
+    assertThrows(ArithmeticException.class,
+        () -> event(new MoneyDepositEvent(0, 0, 1, 1L)).process());
+    assertEquals(Long.MAX_VALUE, AccountAggregate.getAccount(1).getMinorUnits());
+  }
+
+  @Test
+  public void testTransferOverflowLeavesBothAccounts() {
+    AccountAggregate.putAccount(new Account(1, "Arya Stark", 100L));
+    AccountAggregate.putAccount(new Account(2, "Sansa Stark", Long.MAX_VALUE - 10));
+
+    assertThrows(ArithmeticException.class,
+        () -> event(new MoneyTransferEvent(0, 0, 50L, 1, 2)).process());
+    assertEquals(100, AccountAggregate.getAccount(1).getMinorUnits());
+    assertEquals(Long.MAX_VALUE - 10, AccountAggregate.getAccount(2).getMinorUnits());
+
+    event(new MoneyTransferEvent(1, 0, 50L, 1, 1)).process();
+    assertEquals(100, AccountAggregate.getAccount(1).getMinorUnits());
+  }
+
+  @Test
+  public void testMixedAmountsAreLossless() {
+    AccountAggregate.putAccount(new Account(1, "Arya Stark", new BigDecimal("0.001")));
+    event(new MoneyDepositEvent(0, 0, 1, 100L)).process();
+    assertFalse(AccountAggregate.getAccount(1).isFixedPoint());
+    assertEquals(new BigDecimal("1.001"), AccountAggregate.getAccount(1).getMoney());
+
+    AccountAggregate.putAccount(new Account(2, "Sansa Stark", 100L));
+    event(new MoneyDepositEvent(1, 0, 2, new BigDecimal("0.5"))).process();
+    assertEquals(new BigDecimal("1.50"), AccountAggregate.getAccount(2).getMoney());
+    assertEquals(150, AccountAggregate.getAccount(2).getMinorUnits());
+  }
+
+  @Test
+  public void testConversions() {
+    assertEquals(12_345, MinorUnits.fromBigDecimal(new BigDecimal("123.45")));
+    assertEquals(100, MinorUnits.fromBigDecimal(new BigDecimal("1.000")));
+    assertTrue(MinorUnits.isExact(new BigDecimal("1E+10")));
+    assertFalse(MinorUnits.isExact(new BigDecimal("0.001")));
+    assertFalse(MinorUnits.isExact(new BigDecimal("1E+20")));
+    assertTrue(MinorUnits.isExact(MinorUnits.toBigDecimal(Long.MIN_VALUE)));
+    assertThrows(ArithmeticException.class,
+        () -> MinorUnits.fromBigDecimal(new BigDecimal("0.001")));
+    assertEquals(new BigDecimal("-0.07"), MinorUnits.toBigDecimal(-7));
+  }
+
+  private static <T extends DomainEvent> T event(T event) {
+    event.setRealTime(false);
+    return event;
+  }
+}
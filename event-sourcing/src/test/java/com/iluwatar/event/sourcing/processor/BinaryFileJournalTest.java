@@ -0,0 +1,224 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.processor;
+
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal.FsyncPolicy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link BinaryFileJournal}.
+ */
+public class BinaryFileJournalTest {
+
+  private Path directory;
+
+  /**
+   * Creates the journal directory.
+   */
+  @BeforeEach
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("journal");
+  }
+
+  /**
+   * Deletes the journal directory.
+   */
+  @AfterEach
+  public void deleteDirectory() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void testEventsAreReadBackAfterReopening() {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.NEVER, 1024 * 1024);
+    journal.write(new AccountCreateEvent(0, 100, 1, "Daenerys Targaryen"));
+    journal.write(new MoneyDepositEvent(1, 101, 1, new BigDecimal("100000.25")));
+    journal.write(new MoneyTransferEvent(2, 102, new BigDecimal("-0.5"), 1, 2));
+    journal.close();
+
+    journal = newJournal(FsyncPolicy.NEVER, 1024 * 1024);
+    AccountCreateEvent create = (AccountCreateEvent) journal.readNext();
+    assertEquals(0, create.getSequenceId());
+    assertEquals(100, create.getCreatedTime());
+    assertEquals("Daenerys Targaryen", create.getOwner());
+    assertFalse(create.isRealTime());
+    MoneyDepositEvent deposit = (MoneyDepositEvent) journal.readNext();
+    assertEquals(new BigDecimal("100000.25"), deposit.getMoney());
+    MoneyTransferEvent transfer = (MoneyTransferEvent) journal.readNext();
+    assertEquals(new BigDecimal("-0.5"), transfer.getMoney());
+    assertEquals(1, transfer.getAccountNoFrom());
+    assertEquals(2, transfer.getAccountNoTo());
+    assertNull(journal.readNext());
+    journal.close();
+  }
+
+  @Test
+  public void testFixedPointEventsAreReadBack() {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.NEVER, 1024 * 1024);
+    journal.write(new MoneyDepositEvent(0, 100, 1, Long.MAX_VALUE));
+    journal.write(new MoneyTransferEvent(1, 101, -5L, 1, 2));
+    journal.close();
+
+    journal = newJournal(FsyncPolicy.NEVER, 1024 * 1024);
+    MoneyDepositEvent deposit = (MoneyDepositEvent) journal.readNext();
+    assertTrue(deposit.isFixedPoint());
+    assertEquals(Long.MAX_VALUE, deposit.getMinorUnits());
+    MoneyTransferEvent transfer = (MoneyTransferEvent) journal.readNext();
+    assertTrue(transfer.isFixedPoint());
+    assertEquals(new BigDecimal("-0.05"), transfer.getMoney());
+    assertEquals(1, transfer.getAccountNoFrom());
+    assertEquals(2, transfer.getAccountNoTo());
+    assertNull(journal.readNext());
+    journal.close();
+  }
+
+  @Test
+  public void testSegmentsRollOver() {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.INTERVAL, 256);
+    for (int i = 0; i < 100; i++) {
+      journal.write(new MoneyDepositEvent(i, i, 1, BigDecimal.valueOf(i)));
+    }
+    assertTrue(journal.getSegmentCount() > 10);
+    journal.close();
+
+    journal = newJournal(FsyncPolicy.INTERVAL, 256);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, journal.readNext().getSequenceId());
+    }
+    assertNull(journal.readNext());
+    journal.close();
+  }
+
+  @Test
+  public void testTornTailIsTruncated() throws IOException {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.ALWAYS, 1024 * 1024);
+    journal.write(new MoneyDepositEvent(0, 0, 1, BigDecimal.ONE));
+    journal.write(new MoneyDepositEvent(1, 0, 1, BigDecimal.ONE));
+    journal.close();
+    Path segment = onlySegment();
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    journal = newJournal(FsyncPolicy.ALWAYS, 1024 * 1024);
+    journal.write(new MoneyDepositEvent(2, 0, 1, BigDecimal.ONE));
+    assertEquals(0, journal.readNext().getSequenceId());
+    assertEquals(2, journal.readNext().getSequenceId());
+    assertNull(journal.readNext());
+    journal.close();
+  }
+
+  @Test
+  public void testCorruptRecordIsDetected() throws IOException {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.ALWAYS, 1024 * 1024);
+    journal.write(new MoneyDepositEvent(0, 0, 1, BigDecimal.ONE));
+    journal.write(new MoneyDepositEvent(1, 0, 1, BigDecimal.ONE));
+    journal.close();
+    try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), 12);
+    }
+
+    BinaryFileJournal corrupt = newJournal(FsyncPolicy.ALWAYS, 1024 * 1024);
+    assertThrows(IllegalStateException.class, corrupt::readNext);
+    corrupt.close();
+  }
+
+  @Test
+  public void testConcurrentWritersAreAllPersisted() throws InterruptedException {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.ALWAYS, 4096);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int base = t * 1000;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 200; i++) {
+          journal.write(new MoneyDepositEvent(base + i, 0, 1, BigDecimal.TEN));
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    journal.close();
+
+    BinaryFileJournal reopened = newJournal(FsyncPolicy.ALWAYS, 4096);
+    int count = 0;
+    for (DomainEvent event = reopened.readNext(); event != null; event = reopened.readNext()) {
+      count++;
+    }
+    assertEquals(800, count);
+    reopened.close();
+  }
+
+  @Test
+  public void testReset() {
+    BinaryFileJournal journal = newJournal(FsyncPolicy.NEVER, 256);
+    for (int i = 0; i < 20; i++) {
+      journal.write(new MoneyDepositEvent(i, i, 1, BigDecimal.ONE));
+    }
+    journal.reset();
+    journal.write(new MoneyDepositEvent(20, 0, 1, BigDecimal.ONE));
+    assertEquals(1, journal.getSegmentCount());
+    assertEquals(20, journal.readNext().getSequenceId());
+    assertNull(journal.readNext());
+    journal.close();
+  }
+
+  private BinaryFileJournal newJournal(FsyncPolicy fsyncPolicy, int segmentSize) {
+    return new BinaryFileJournal(directory, fsyncPolicy, 10, segmentSize);
+  }
+
+  private Path onlySegment() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.findFirst().get();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.processor;
+
+import com.iluwatar.event.sourcing.domain.Account;
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import com.iluwatar.event.sourcing.processor.BinaryFileJournal.FsyncPolicy;
+import com.iluwatar.event.sourcing.state.AccountAggregate;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the snapshotting and parallel recovery of {@link DomainEventProcessor}.
+ */
+public class DomainEventProcessorTest {
+
+  private static final int ACCOUNTS = 20;
+
+  private Path directory;
+
+  /**
+   * Creates the journal directory.
+   */
+  @BeforeEach
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("processor");
+    AccountAggregate.resetState();
+  }
+
+  /**
+   * Deletes the journal directory.
+   */
+  @AfterEach
+  public void deleteDirectory() throws IOException {
+    AccountAggregate.resetState();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void testRecoveryFromSnapshotAndTail() {
+    Map<Integer, BigDecimal> expected = processEvents(1000, 300);
+    assertEquals(SnapshotStore.RETAINED_SNAPSHOTS, snapshotFiles());
+
+    for (int parallelism : new int[] {1, 4}) {
+      AccountAggregate.resetState();
+      newProcessor().recover(parallelism);
+      assertEquals(expected, balances());
+    }
+  }
+
+  @Test
+  public void testParallelRecoveryWithoutSnapshot() {
+    Map<Integer, BigDecimal> expected = processEvents(2000, Integer.MAX_VALUE);
+
+    AccountAggregate.resetState();
+    newProcessor().recover(3);
+    assertEquals(expected, balances());
+  }
+
+  @Test
+  public void testDamagedSnapshotIsSkipped() throws IOException {
+    Map<Integer, BigDecimal> expected = processEvents(1000, 300);
+    Path latest;
+    try (Stream<Path> paths = Files.list(directory.resolve("snapshots"))) {
+      latest = paths.sorted(Comparator.reverseOrder()).findFirst().get();
+    }
+    Files.write(latest, new byte[] {1, 2, 3});
+
+    AccountAggregate.resetState();
+    newProcessor().recover(2);
+    assertEquals(expected, balances());
+  }
+
+  private Map<Integer, BigDecimal> processEvents(int count, int snapshotInterval) {
+    DomainEventProcessor processor = new DomainEventProcessor(newJournal(),
+        new SnapshotStore(directory.resolve("snapshots")), snapshotInterval);
+    processor.reset();
+    for (int i = 0; i < count; i++) {
+      if (i < ACCOUNTS) {
+        processor.process(new AccountCreateEvent(i, 0, i, "Owner " + i));
+      } else if (i % 7 == 0 && i > 10 * ACCOUNTS) {
+        processor.process(new MoneyTransferEvent(i, 0, BigDecimal.ONE, i % ACCOUNTS,
+            (i + 1) % ACCOUNTS));
+      } else if (i % 2 == 0) {
+        processor.process(new MoneyDepositEvent(i, 0, i % ACCOUNTS, 250L));
+      } else {
+        processor.process(new MoneyDepositEvent(i, 0, i % ACCOUNTS, new BigDecimal("2.5")));
+      }
+    }
+    processor.close();
+    return balances();
+  }
+
+  private DomainEventProcessor newProcessor() {
+    return new DomainEventProcessor(newJournal(),
+        new SnapshotStore(directory.resolve("snapshots")), 300);
+  }
+
+  private BinaryFileJournal newJournal() {
+    return new BinaryFileJournal(directory.resolve("journal"), FsyncPolicy.NEVER, 0, 4096);
+  }
+
+  private int snapshotFiles() {
+    try (Stream<Path> paths = Files.list(directory.resolve("snapshots"))) {
+      return (int) paths.count();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Map<Integer, BigDecimal> balances() {
+    Map<Integer, BigDecimal> balances = new HashMap<>();
+    List<Account> accounts = AccountAggregate.getAccounts();
+    for (Account account : accounts) {
+      balances.put(account.getAccountNo(), account.getMoney());
+    }
+    return balances;
+  }
+}
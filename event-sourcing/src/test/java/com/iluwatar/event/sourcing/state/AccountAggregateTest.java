@@ -0,0 +1,124 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.event.sourcing.state;
+
+import com.iluwatar.event.sourcing.domain.Account;
+import com.iluwatar.event.sourcing.event.AccountCreateEvent;
+import com.iluwatar.event.sourcing.event.DomainEvent;
+import com.iluwatar.event.sourcing.event.MoneyDepositEvent;
+import com.iluwatar.event.sourcing.event.MoneyTransferEvent;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests for {@link AccountAggregate}.
+ */
+public class AccountAggregateTest {
+
+  /**
+   * Resets the state.
+   */
+  @BeforeEach
+  @AfterEach
+  public void reset() {
+    AccountAggregate.resetState();
+  }
+
+  @Test
+  public void testManyAccounts() {
+    for (int i = -5000; i < 5000; i++) {
+      AccountAggregate.putAccount(new Account(i, "Owner " + i, BigDecimal.valueOf(i)));
+    }
+    for (int i = -5000; i < 5000; i++) {
+      assertEquals(BigDecimal.valueOf(i), AccountAggregate.getAccount(i).getMoney());
+    }
+    assertNull(AccountAggregate.getAccount(5000));
+    assertEquals(10000, AccountAggregate.getAccounts().size());
+  }
+
+  @Test
+  public void testReadsAreNotCopied() {
+    Account account = new Account(1, "Jon Snow");
+    AccountAggregate.putAccount(account);
+    assertSame(account, AccountAggregate.getAccount(1));
+
+    event(new MoneyDepositEvent(0, 0, 1, BigDecimal.TEN)).process();
+    assertEquals(BigDecimal.ZERO, account.getMoney());
+    assertEquals(BigDecimal.TEN, AccountAggregate.getAccount(1).getMoney());
+  }
+
+  @Test
+  public void testTransferToItself() {
+    event(new AccountCreateEvent(0, 0, 1, "Jon Snow")).process();
+    event(new MoneyDepositEvent(1, 0, 1, BigDecimal.TEN)).process();
+    event(new MoneyTransferEvent(2, 0, BigDecimal.ONE, 1, 1)).process();
+    assertEquals(BigDecimal.TEN, AccountAggregate.getAccount(1).getMoney());
+  }
+
+  @Test
+  public void testConcurrentTransfersKeepTheTotal() throws InterruptedException {
+    int accounts = 8;
+    for (int i = 0; i < accounts; i++) {
+      event(new AccountCreateEvent(i, 0, i, "Owner " + i)).process();
+      event(new MoneyDepositEvent(i, 0, i, BigDecimal.valueOf(1000))).process();
+    }
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20_000; i++) {
+          try {
+            event(new MoneyTransferEvent(0, 0, BigDecimal.ONE, random.nextInt(accounts),
+                random.nextInt(accounts))).process();
+          } catch (RuntimeException e) {
+            // insufficient balance, nothing has been changed
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (Account account : AccountAggregate.getAccounts()) {
+      total = total.add(account.getMoney());
+    }
+    assertEquals(BigDecimal.valueOf(accounts * 1000), total);
+  }
+
+  private static <T extends DomainEvent> T event(T event) {
+    event.setRealTime(false);
+    return event;
+  }
+}
@@ -0,0 +1,424 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.object.pool;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generic object pool for many concurrent threads.
+ * <p>
+ * Unlike {@link ObjectPool} it takes no lock and does not hash the objects on the way in or out.
+ * A returned object goes to a small cache of the returning thread, from where the same thread
+ * usually gets it back, or to a shared lock-free stack when that cache is full. A thread that
+ * finds neither scans all the pooled objects, taking over the idle objects in the caches of other
+ * threads, but only while some object is idle, so growing the pool does not cost a scan.
+ * Ownership is decided by a compare-and-set on the state of each {@link PooledObject}.
+ * <p>
+ * The pool creates at most {@code maxSize} objects. When all of them are in use a check out
+ * waits, up to a timeout, or fails fast with {@link #tryCheckOut()}. Objects idle for longer
+ * than the idle timeout are evicted by {@link #evictIdle()}, which check ins also run every idle
+ * timeout. Subclasses may override {@link #validate(Object)} and {@link #destroy(Object)}.
+ * <p>
+ * Reading the clock costs about as much as a check out, so the latencies are recorded for one in
+ * {@link #LATENCY_SAMPLE_INTERVAL} operations of each thread.
+ *
+ * @param <T> Type T of Object in the Pool
+ */
+public abstract class ConcurrentObjectPool<T> {
+
+  /**
+   * One in this many check outs and check ins of a thread records its latency.
+   */
+  public static final int LATENCY_SAMPLE_INTERVAL = 16;
+
+  private static final int LOCAL_CACHE_SIZE = 8;
+
+  private final int maxSize;
+  private final long idleTimeoutNanos;
+
+  private final CopyOnWriteArrayList<PooledObject<T>> all = new CopyOnWriteArrayList<>();
+  private final AtomicReference<Node<T>> top = new AtomicReference<>();
+  private final ThreadLocal<LocalCache<T>> localCache = ThreadLocal.withInitial(LocalCache::new);
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder idle = new LongAdder();
+  private final AtomicLong lastEvictionNanos = new AtomicLong(System.nanoTime());
+
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+
+  private final LatencyHistogram checkOutLatency = new LatencyHistogram();
+  private final LatencyHistogram checkInLatency = new LatencyHistogram();
+
+  /**
+   * Constructor of an unbounded pool that never evicts.
+   */
+  public ConcurrentObjectPool() {
+    this(Integer.MAX_VALUE, 0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maxSize the maximum number of objects created by the pool
+   * @param idleTimeout how long an object may stay idle, 0 to never evict
+   * @param unit the unit of the idle timeout
+   */
+  public ConcurrentObjectPool(int maxSize, long idleTimeout, TimeUnit unit) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+  }
+
+  protected abstract T create();
+
+  /**
+   * Checks whether a pooled object may still be used, before handing it out.
+   * An invalid object is destroyed and removed from the pool.
+   */
+  protected boolean validate(T instance) {
+    return true;
+  }
+
+  /**
+   * Releases the resources of an object removed from the pool.
+   */
+  protected void destroy(T instance) {
+  }
+
+  /**
+   * Checkout object from pool, waiting as long as all the objects are in use
+   */
+  public PooledObject<T> checkOut() throws InterruptedException {
+    return checkOut(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Checkout object from pool, waiting up to a timeout as long as all the objects are in use
+   *
+   * @return the object, or null if none became available within the timeout
+   */
+  public PooledObject<T> checkOut(long timeout, TimeUnit unit) throws InterruptedException {
+    LocalCache<T> cache = localCache.get();
+    boolean sampled = ++cache.checkOuts % LATENCY_SAMPLE_INTERVAL == 0;
+    long start = sampled ? System.nanoTime() : 0;
+    PooledObject<T> pooled = poll(cache);
+    if (pooled == null) {
+      pooled = tryCreate();
+    }
+    if (pooled == null && timeout > 0) {
+      if (!sampled) {
+        start = System.nanoTime();
+      }
+      pooled = await(start, unit.toNanos(timeout));
+    }
+    if (pooled != null && sampled) {
+      checkOutLatency.record(System.nanoTime() - start);
+    }
+    return pooled;
+  }
+
+  /**
+   * Checkout object from pool without waiting
+   *
+   * @return the object, or null if all the objects are in use
+   */
+  public PooledObject<T> tryCheckOut() {
+    try {
+      return checkOut(0, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException("A check out without timeout does not wait", e);
+    }
+  }
+
+  /**
+   * Return object to pool
+   *
+   * @throws IllegalArgumentException if the object belongs to another pool
+   * @throws IllegalStateException if the object is not checked out
+   */
+  public void checkIn(PooledObject<T> pooled) {
+    if (pooled.getPool() != this) {
+      throw new IllegalArgumentException("Not an object of this pool: " + pooled);
+    }
+    LocalCache<T> cache = localCache.get();
+    boolean sampled = ++cache.checkIns % LATENCY_SAMPLE_INTERVAL == 0;
+    long start = sampled || idleTimeoutNanos > 0 ? System.nanoTime() : 0;
+    if (idleTimeoutNanos > 0) {
+      pooled.returnedNanos = start;
+    }
+    if (!pooled.compareAndSetState(PooledObject.IN_USE, PooledObject.AVAILABLE)) {
+      throw new IllegalStateException("Not checked out: " + pooled);
+    }
+    idle.increment();
+    if (cache.size < LOCAL_CACHE_SIZE) {
+      cache.objects[cache.size++] = pooled;
+    } else {
+      push(pooled);
+    }
+    signalWaiter();
+    if (sampled) {
+      checkInLatency.record(System.nanoTime() - start);
+    }
+
+    long lastEviction = lastEvictionNanos.get();
+    if (idleTimeoutNanos > 0 && start - lastEviction > idleTimeoutNanos
+        && lastEvictionNanos.compareAndSet(lastEviction, start)) {
+      evictIdle();
+    }
+  }
+
+  /**
+   * Removes the objects idle for longer than the idle timeout.
+   *
+   * @return the number of evicted objects
+   */
+  public int evictIdle() {
+    if (idleTimeoutNanos <= 0) {
+      return 0;
+    }
+    int evicted = 0;
+    long now = System.nanoTime();
+    for (PooledObject<T> pooled : all) {
+      if (now - pooled.returnedNanos < idleTimeoutNanos
+          || !pooled.compareAndSetState(PooledObject.AVAILABLE, PooledObject.IN_USE)) {
+        continue;
+      }
+      idle.decrement();
+      // it may have been checked out and in again since the time was read
+      if (now - pooled.returnedNanos < idleTimeoutNanos) {
+        pooled.setState(PooledObject.AVAILABLE);
+        idle.increment();
+        push(pooled);
+        signalWaiter();
+      } else {
+        remove(pooled);
+        evicted++;
+      }
+    }
+    lastEvictionNanos.set(now);
+    return evicted;
+  }
+
+  /**
+   * @return the number of objects currently in the pool, available or in use
+   */
+  public int getSize() {
+    return size.get();
+  }
+
+  /**
+   * @return the sampled latencies of check outs, including the time spent waiting
+   */
+  public LatencyHistogram getCheckOutLatency() {
+    return checkOutLatency;
+  }
+
+  /**
+   * @return the sampled latencies of check ins
+   */
+  public LatencyHistogram getCheckInLatency() {
+    return checkInLatency;
+  }
+
+  /*
+   * Takes an available object, from the cache of this thread, the shared stack or else the
+   * caches of the other threads.
+   */
+  private PooledObject<T> poll(LocalCache<T> cache) {
+    while (cache.size > 0) {
+      PooledObject<T> pooled = cache.objects[--cache.size];
+      cache.objects[cache.size] = null;
+      if (claim(pooled)) {
+        return pooled;
+      }
+    }
+    for (Node<T> node = pop(); node != null; node = pop()) {
+      if (claim(node.pooled)) {
+        return node.pooled;
+      }
+    }
+    if (idle.sum() <= 0) {
+      return null;
+    }
+    for (PooledObject<T> pooled : all) {
+      if (claim(pooled)) {
+        return pooled;
+      }
+    }
+    return null;
+  }
+
+  private boolean claim(PooledObject<T> pooled) {
+    if (!pooled.compareAndSetState(PooledObject.AVAILABLE, PooledObject.IN_USE)) {
+      return false;
+    }
+    idle.decrement();
+    if (validate(pooled.get())) {
+      return true;
+    }
+    remove(pooled);
+    return false;
+  }
+
+  private PooledObject<T> tryCreate() {
+    for (;;) {
+      int current = size.get();
+      if (current >= maxSize) {
+        return null;
+      }
+      if (size.compareAndSet(current, current + 1)) {
+        break;
+      }
+    }
+    T instance;
+    try {
+      instance = create();
+    } catch (RuntimeException | Error e) {
+      size.decrementAndGet();
+      signalWaiter();
+      throw e;
+    }
+    PooledObject<T> pooled = new PooledObject<>(this, instance);
+    all.add(pooled);
+    return pooled;
+  }
+
+  private void remove(PooledObject<T> pooled) {
+    pooled.setState(PooledObject.REMOVED);
+    all.remove(pooled);
+    size.decrementAndGet();
+    signalWaiter();
+    destroy(pooled.get());
+  }
+
+  /*
+   * Waits for an object to be checked in, or for room to create one. Check ins signal only
+   * under the lock, after making their object available, so a waiter polling under the lock
+   * either finds the object or is woken up.
+   */
+  private PooledObject<T> await(long start, long timeoutNanos) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      for (;;) {
+        lock.lockInterruptibly();
+        try {
+          PooledObject<T> pooled = poll(localCache.get());
+          if (pooled != null) {
+            return pooled;
+          }
+          if (size.get() >= maxSize) {
+            long remaining = timeoutNanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+              return null;
+            }
+            released.awaitNanos(remaining);
+            continue;
+          }
+        } finally {
+          lock.unlock();
+        }
+        // objects are created outside the lock, which check ins take to signal
+        PooledObject<T> created = tryCreate();
+        if (created != null) {
+          return created;
+        }
+      }
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  private void signalWaiter() {
+    if (waiters.get() > 0) {
+      lock.lock();
+      try {
+        released.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /*
+   * A new node is pushed every time, so a node is never reused while another thread still holds
+   * it, which rules out the ABA problem of the compare-and-set.
+   */
+  private void push(PooledObject<T> pooled) {
+    Node<T> node = new Node<>(pooled);
+    do {
+      node.next = top.get();
+    } while (!top.compareAndSet(node.next, node));
+  }
+
+  private Node<T> pop() {
+    for (;;) {
+      Node<T> head = top.get();
+      if (head == null || top.compareAndSet(head, head.next)) {
+        return head;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    int available = 0;
+    int inUse = 0;
+    for (PooledObject<T> pooled : all) {
+      if (pooled.getState() == PooledObject.AVAILABLE) {
+        available++;
+      } else if (pooled.getState() == PooledObject.IN_USE) {
+        inUse++;
+      }
+    }
+    return String.format("Pool available=%d inUse=%d", available, inUse);
+  }
+
+  private static final class Node<T> {
+    private final PooledObject<T> pooled;
+    private Node<T> next;
+
+    private Node(PooledObject<T> pooled) {
+      this.pooled = pooled;
+    }
+  }
+
+  private static final class LocalCache<T> {
+    // generic arrays cannot be created, and this one only ever holds objects of type T
+    @SuppressWarnings("unchecked")
+    private final PooledObject<T>[] objects =
+        (PooledObject<T>[]) new PooledObject<?>[LOCAL_CACHE_SIZE];
+    private int size;
+    private int checkOuts;
+    private int checkIns;
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.object.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, with one bucket per power of two.
+ * Recording is lock-free and cheap enough to stay enabled; percentiles are reported as the
+ * upper bound of their bucket, so they are accurate to a factor of two.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 64;
+
+  private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+  /**
+   * Constructor
+   */
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    counts[bucketOf(nanos)].increment();
+  }
+
+  /**
+   * @return the number of recorded latencies
+   */
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : counts) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Gets a percentile of the recorded latencies.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the upper bound in nanoseconds of the bucket holding the percentile, 0 if nothing has
+   *     been recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] snapshot = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts[i].sum();
+      count += snapshot[i];
+    }
+    long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (snapshot[i] > 0 && seen >= rank) {
+        return upperBoundOf(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Clears the recorded latencies.
+   */
+  public void reset() {
+    for (LongAdder bucket : counts) {
+      bucket.reset();
+    }
+  }
+
+  /*
+   * Bucket i holds the latencies in [2^(i-1), 2^i), bucket 0 the latencies below one nanosecond.
+   */
+  private static int bucketOf(long nanos) {
+    return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+  }
+
+  private static long upperBoundOf(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d p50<=%dns p99<=%dns p99.9<=%dns", getCount(),
+        getPercentile(50), getPercentile(99), getPercentile(99.9));
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.object.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the check out and check in throughput of {@link OliphauntPool} and
+ * {@link ConcurrentOliphauntPool} for an increasing number of threads, each holding one
+ * oliphaunt at a time. Both pools are filled before measuring, since an oliphaunt takes a
+ * second to create.
+ * <p>
+ * Run with {@code java com.iluwatar.object.pool.PoolBenchmark [seconds] [maxThreads]}.
+ */
+public class PoolBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PoolBenchmark.class);
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+    OliphauntPool pool = new OliphauntPool();
+    ConcurrentOliphauntPool concurrentPool =
+        new ConcurrentOliphauntPool(maxThreads, 0, TimeUnit.SECONDS);
+    fill(pool, concurrentPool, maxThreads);
+
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      long operations = run(threads, seconds, () -> {
+        Oliphaunt oliphaunt = pool.checkOut();
+        oliphaunt.getId();
+        pool.checkIn(oliphaunt);
+      });
+      LOGGER.info("OliphauntPool, {} threads: {} operations/s", threads, operations / seconds);
+
+      concurrentPool.getCheckOutLatency().reset();
+      concurrentPool.getCheckInLatency().reset();
+      operations = run(threads, seconds, () -> {
+        try (PooledObject<Oliphaunt> oliphaunt = concurrentPool.checkOut()) {
+          oliphaunt.get().getId();
+        }
+      });
+      LOGGER.info("ConcurrentOliphauntPool, {} threads: {} operations/s", threads,
+          operations / seconds);
+      LOGGER.info("  check out {}", concurrentPool.getCheckOutLatency());
+      LOGGER.info("  check in {}", concurrentPool.getCheckInLatency());
+    }
+  }
+
+  /*
+   * Creates the oliphaunts of both pools in parallel.
+   */
+  private static void fill(OliphauntPool pool, ConcurrentOliphauntPool concurrentPool,
+      int count) throws InterruptedException {
+    List<Oliphaunt> oliphaunts = new ArrayList<>();
+    List<PooledObject<Oliphaunt>> pooled = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      threads.add(new Thread(() -> {
+        Oliphaunt oliphaunt = new Oliphaunt();
+        PooledObject<Oliphaunt> pooledOliphaunt = concurrentPool.tryCheckOut();
+        synchronized (oliphaunts) {
+          oliphaunts.add(oliphaunt);
+          pooled.add(pooledOliphaunt);
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    pooled.forEach(concurrentPool::checkIn);
+    oliphaunts.forEach(pool::checkIn);
+  }
+
+  private static long run(int threadCount, int seconds, Operation operation)
+      throws InterruptedException {
+    LongAdder operations = new LongAdder();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      threads.add(new Thread(() -> {
+        long count = 0;
+        try {
+          while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+            operation.run();
+            count++;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        operations.add(count);
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return operations.sum();
+  }
+
+  private interface Operation {
+    void run() throws InterruptedException;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.object.pool;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * An object of a {@link ConcurrentObjectPool} together with its pooling state.
+ * The state decides who owns the object: it is claimed by compare-and-set, so a stale reference
+ * to it in a cache or on the shared stack is simply skipped. Closing it returns the object to the
+ * pool, which makes it usable with try-with-resources.
+ *
+ * @param <T> Type T of Object in the Pool
+ */
+public final class PooledObject<T> implements AutoCloseable {
+
+  static final int AVAILABLE = 0;
+  static final int IN_USE = 1;
+  static final int REMOVED = 2;
+
+  // an updater can only be made for the raw class, the cast gives it the generic type
+  @SuppressWarnings("unchecked")
+  private static final AtomicIntegerFieldUpdater<PooledObject<?>> STATE =
+      (AtomicIntegerFieldUpdater<PooledObject<?>>) (AtomicIntegerFieldUpdater<?>)
+          AtomicIntegerFieldUpdater.newUpdater(PooledObject.class, "state");
+
+  private final ConcurrentObjectPool<T> pool;
+  private final T object;
+  private volatile int state = IN_USE;
+  /*
+   * Only kept up to date when the pool evicts idle objects.
+   */
+  volatile long returnedNanos;
+
+  PooledObject(ConcurrentObjectPool<T> pool, T object) {
+    this.pool = pool;
+    this.object = object;
+  }
+
+  /**
+   * @return the pooled object
+   */
+  public T get() {
+    return object;
+  }
+
+  /**
+   * Returns the object to its pool.
+   */
+  @Override
+  public void close() {
+    pool.checkIn(this);
+  }
+
+  ConcurrentObjectPool<T> getPool() {
+    return pool;
+  }
+
+  int getState() {
+    return state;
+  }
+
+  boolean compareAndSetState(int expected, int updated) {
+    return STATE.compareAndSet(this, expected, updated);
+  }
+
+  void setState(int updated) {
+    state = updated;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(object);
+  }
+}
@@ -0,0 +1,224 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.object.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.Duration.ofMillis;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ConcurrentObjectPool}.
+ */
+public class ConcurrentObjectPoolTest {
+
+  @Test
+  public void testSubsequentCheckinCheckout() {
+    final CountingPool pool = new CountingPool(4, 0);
+    final PooledObject<Integer> expected = pool.tryCheckOut();
+    assertEquals("Pool available=0 inUse=1", pool.toString());
+    expected.close();
+    assertEquals("Pool available=1 inUse=0", pool.toString());
+
+    for (int i = 0; i < 100; i++) {
+      try (PooledObject<Integer> pooled = pool.tryCheckOut()) {
+        assertSame(expected, pooled);
+      }
+    }
+    assertEquals(1, pool.created.get());
+    assertEquals(101 / ConcurrentObjectPool.LATENCY_SAMPLE_INTERVAL,
+        pool.getCheckOutLatency().getCount());
+    assertEquals(101 / ConcurrentObjectPool.LATENCY_SAMPLE_INTERVAL,
+        pool.getCheckInLatency().getCount());
+  }
+
+  @Test
+  public void testObjectIdleInAnotherThreadIsTakenOver() throws InterruptedException {
+    final CountingPool pool = new CountingPool(Integer.MAX_VALUE, 0);
+    final List<PooledObject<Integer>> returned = new ArrayList<>();
+    Thread other = new Thread(() -> {
+      PooledObject<Integer> pooled = pool.tryCheckOut();
+      returned.add(pooled);
+      pooled.close();
+    });
+    other.start();
+    other.join();
+
+    assertSame(returned.get(0), pool.tryCheckOut());
+    assertNotSame(returned.get(0), pool.tryCheckOut());
+    assertEquals(2, pool.created.get());
+  }
+
+  @Test
+  public void testFailFastWhenExhausted() {
+    final CountingPool pool = new CountingPool(2, 0);
+    final PooledObject<Integer> first = pool.tryCheckOut();
+    final PooledObject<Integer> second = pool.tryCheckOut();
+    assertNotSame(first, second);
+    assertNull(pool.tryCheckOut());
+
+    pool.checkIn(first);
+    assertSame(first, pool.tryCheckOut());
+    assertEquals(2, pool.getSize());
+  }
+
+  @Test
+  public void testCheckOutTimesOut() throws InterruptedException {
+    final CountingPool pool = new CountingPool(1, 0);
+    pool.tryCheckOut();
+    final long start = System.nanoTime();
+    assertNull(pool.checkOut(50, TimeUnit.MILLISECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void testWaitingCheckOutGetsReturnedObject() {
+    assertTimeout(ofMillis(5000), () -> {
+      final CountingPool pool = new CountingPool(1, 0);
+      final PooledObject<Integer> pooled = pool.tryCheckOut();
+      final Thread returner = new Thread(() -> {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        pool.checkIn(pooled);
+      });
+      returner.start();
+      assertSame(pooled, pool.checkOut());
+      returner.join();
+    });
+  }
+
+  @Test
+  public void testDoubleCheckInIsRejected() {
+    final CountingPool pool = new CountingPool(1, 0);
+    final PooledObject<Integer> pooled = pool.tryCheckOut();
+    pool.checkIn(pooled);
+    assertThrows(IllegalStateException.class, () -> pool.checkIn(pooled));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CountingPool(1, 0).checkIn(pooled));
+  }
+
+  @Test
+  public void testInvalidObjectsAreReplaced() {
+    final CountingPool pool = new CountingPool(1, 0);
+    final PooledObject<Integer> pooled = pool.tryCheckOut();
+    pool.checkIn(pooled);
+    pool.invalid.add(pooled.get());
+
+    final PooledObject<Integer> replacement = pool.tryCheckOut();
+    assertNotSame(pooled, replacement);
+    assertTrue(pool.destroyed.contains(pooled.get()));
+    assertEquals(1, pool.getSize());
+  }
+
+  @Test
+  public void testIdleObjectsAreEvicted() throws InterruptedException {
+    final CountingPool pool = new CountingPool(4, 20);
+    final PooledObject<Integer> idle = pool.tryCheckOut();
+    final PooledObject<Integer> busy = pool.tryCheckOut();
+    pool.checkIn(idle);
+    Thread.sleep(50);
+
+    assertEquals(1, pool.evictIdle());
+    assertTrue(pool.destroyed.contains(idle.get()));
+    assertEquals("Pool available=0 inUse=1", pool.toString());
+    pool.checkIn(busy);
+    assertEquals(0, pool.evictIdle());
+  }
+
+  @Test
+  public void testConcurrentCheckOutsNeverShareAnObject() {
+    assertTimeout(ofMillis(10000), () -> {
+      final CountingPool pool = new CountingPool(3, 0);
+      final Set<Integer> inUse = ConcurrentHashMap.newKeySet();
+      final AtomicInteger failures = new AtomicInteger();
+      final List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 6; t++) {
+        threads.add(new Thread(() -> {
+          for (int i = 0; i < 20_000; i++) {
+            try (PooledObject<Integer> pooled = pool.checkOut()) {
+              if (!inUse.add(pooled.get())) {
+                failures.incrementAndGet();
+              }
+              inUse.remove(pooled.get());
+            } catch (InterruptedException e) {
+              failures.incrementAndGet();
+            }
+          }
+        }));
+      }
+      threads.forEach(Thread::start);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(0, failures.get());
+      assertTrue(pool.created.get() <= 3);
+      assertEquals(120_000 / ConcurrentObjectPool.LATENCY_SAMPLE_INTERVAL,
+          pool.getCheckOutLatency().getCount());
+    });
+  }
+
+  /**
+   * Pool of consecutive integers, with hooks recording validation and destruction.
+   */
+  private static class CountingPool extends ConcurrentObjectPool<Integer> {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final Set<Integer> invalid = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> destroyed = ConcurrentHashMap.newKeySet();
+
+    CountingPool(int maxSize, long idleTimeoutMillis) {
+      super(maxSize, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Integer create() {
+      return created.incrementAndGet();
+    }
+
+    @Override
+    protected boolean validate(Integer instance) {
+      return !invalid.contains(instance);
+    }
+
+    @Override
+    protected void destroy(Integer instance) {
+      destroyed.add(instance);
+    }
+  }
+}
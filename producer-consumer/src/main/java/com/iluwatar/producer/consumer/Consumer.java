@@ -25,6 +25,9 @@ package com.iluwatar.producer.consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Class responsible for consume the {@link Item} produced by {@link Producer}
  */
@@ -50,4 +53,22 @@ public class Consumer {
     LOGGER.info("Consumer [{}] consume item [{}] produced by [{}]", name, item.getId(), item.getProducer());
 
   }
+
+  /**
+   * Consume a batch of items from the queue, waiting for the first and taking whatever else is
+   * already there, so a busy queue is visited once per batch instead of once per item.
+   *
+   * @param maxItems the most items to consume
+   * @return the number of items consumed
+   */
+  public int consumeBatch(int maxItems) throws InterruptedException {
+
+    List<Item> items = new ArrayList<>(maxItems);
+    items.add(queue.take());
+    queue.drainTo(items, maxItems - 1);
+    for (Item item : items) {
+      LOGGER.info("Consumer [{}] consume item [{}] produced by [{}]", name, item.getId(), item.getProducer());
+    }
+    return items.size();
+  }
 }
@@ -22,11 +22,15 @@
  */
 package com.iluwatar.producer.consumer;
 
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Class as a channel for {@link Producer}-{@link Consumer} exchange.
+ * <p>
+ * By default the items are kept in a {@link LinkedBlockingQueue} of capacity 5. Any other
+ * {@link BlockingQueue} can back it instead, such as a {@link RingBufferQueue}.
  */
 public class ItemQueue {
 
@@ -34,7 +38,12 @@ public class ItemQueue {
 
   public ItemQueue() {
 
-    queue = new LinkedBlockingQueue<>(5);
+    this(new LinkedBlockingQueue<>(5));
+  }
+
+  public ItemQueue(BlockingQueue<Item> queue) {
+
+    this.queue = queue;
   }
 
   public void put(Item item) throws InterruptedException {
@@ -47,4 +56,16 @@ public class ItemQueue {
     return queue.take();
   }
 
+  /**
+   * Removes the items available without waiting, up to the given number.
+   *
+   * @param items the collection to add the items to
+   * @param maxItems the most items to remove
+   * @return the number of items removed
+   */
+  public int drainTo(Collection<? super Item> items, int maxItems) {
+
+    return queue.drainTo(items, maxItems);
+  }
+
 }
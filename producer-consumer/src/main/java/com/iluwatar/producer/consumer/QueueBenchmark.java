@@ -0,0 +1,199 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.producer.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Compares the throughput and latency of the {@link ItemQueue} backends: the
+ * {@link LinkedBlockingQueue} and {@link RingBufferQueue}s with each {@link WaitStrategy}, with
+ * consumers taking one item at a time or draining batches.
+ * <p>
+ * Producers put items as fast as they can for the given time, and the run ends when the
+ * consumers have taken them all. Latency is from putting an item to taking it, sampled every
+ * 16th item. Spinning is left out when there are fewer cores than threads, as spinners would only
+ * keep the others from running.
+ * <p>
+ * Run with {@code java com.iluwatar.producer.consumer.QueueBenchmark [seconds] [producers]
+ * [consumers] [capacity]}.
+ */
+public class QueueBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueueBenchmark.class);
+
+  private static final int BATCH = 64;
+  private static final int SAMPLE_MASK = 15;
+  private static final int MAX_SAMPLES = 1 << 20;
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+    int producers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    int consumers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+    int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+    boolean spin = Runtime.getRuntime().availableProcessors() >= producers + consumers;
+
+    List<String> names = new ArrayList<>();
+    List<Supplier<ItemQueue>> queues = new ArrayList<>();
+    names.add("linked");
+    queues.add(() -> new ItemQueue(new LinkedBlockingQueue<>(capacity)));
+    for (String strategy : Arrays.asList("blocking", "parking", "yielding", "spinning")) {
+      if (strategy.equals("spinning") && !spin) {
+        LOGGER.info("Skipping spinning, {} threads on {} cores", producers + consumers,
+            Runtime.getRuntime().availableProcessors());
+        continue;
+      }
+      names.add("ring " + strategy);
+      queues.add(() -> new ItemQueue(producers == 1
+          ? RingBufferQueue.singleProducer(capacity, waitStrategy(strategy))
+          : RingBufferQueue.multiProducer(capacity, waitStrategy(strategy))));
+    }
+    for (int i = 0; i < names.size(); i++) {
+      run(names.get(i) + ", take", queues.get(i).get(), seconds, producers, consumers, 1);
+      run(names.get(i) + ", batch", queues.get(i).get(), seconds, producers, consumers, BATCH);
+    }
+  }
+
+  private static WaitStrategy waitStrategy(String name) {
+    switch (name) {
+      case "blocking":
+        return WaitStrategy.blocking();
+      case "parking":
+        return WaitStrategy.parking();
+      case "yielding":
+        return WaitStrategy.yielding();
+      default:
+        return WaitStrategy.spinning();
+    }
+  }
+
+  private static void run(String name, ItemQueue queue, int seconds, int producerCount,
+      int consumerCount, int batch) throws InterruptedException {
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+    LongAdder produced = new LongAdder();
+    LongAdder consumed = new LongAdder();
+    long[][] samples = new long[consumerCount][];
+    int[] sampleCounts = new int[consumerCount];
+
+    List<Thread> producers = new ArrayList<>();
+    for (int p = 0; p < producerCount; p++) {
+      String producer = "Producer_" + p;
+      producers.add(new Thread(() -> {
+        int id = 0;
+        try {
+          while (System.nanoTime() < deadline) {
+            queue.put(new TimedItem(producer, id++));
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        produced.add(id);
+      }));
+    }
+    List<Thread> consumers = new ArrayList<>();
+    for (int c = 0; c < consumerCount; c++) {
+      int index = c;
+      samples[c] = new long[MAX_SAMPLES];
+      consumers.add(new Thread(() -> {
+        List<Item> items = new ArrayList<>(batch);
+        long[] latencies = samples[index];
+        int sampled = 0;
+        try {
+          for (;;) {
+            items.add(queue.take());
+            if (batch > 1) {
+              queue.drainTo(items, batch - 1);
+            }
+            for (Item item : items) {
+              if ((item.getId() & SAMPLE_MASK) == 0 && sampled < MAX_SAMPLES) {
+                latencies[sampled++] = System.nanoTime() - ((TimedItem) item).sentAt;
+              }
+            }
+            consumed.add(items.size());
+            items.clear();
+          }
+        } catch (InterruptedException e) {
+          sampleCounts[index] = sampled;
+        }
+      }));
+    }
+    consumers.forEach(Thread::start);
+    producers.forEach(Thread::start);
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    while (consumed.sum() < produced.sum()) {
+      Thread.yield();
+    }
+    long elapsed = System.nanoTime() - start;
+    for (Thread consumer : consumers) {
+      consumer.interrupt();
+      consumer.join();
+    }
+
+    int total = 0;
+    for (int count : sampleCounts) {
+      total += count;
+    }
+    long[] latencies = new long[total];
+    int offset = 0;
+    for (int c = 0; c < consumerCount; c++) {
+      System.arraycopy(samples[c], 0, latencies, offset, sampleCounts[c]);
+      offset += sampleCounts[c];
+    }
+    Arrays.sort(latencies);
+    LOGGER.info("{}: {} items/s, latency p50 {} us, p99 {} us, p99.9 {} us", name,
+        produced.sum() * TimeUnit.SECONDS.toNanos(1) / elapsed, micros(latencies, 0.5),
+        micros(latencies, 0.99), micros(latencies, 0.999));
+  }
+
+  private static String micros(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return "-";
+    }
+    long nanos = sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * quantile))];
+    return String.format("%.1f", nanos / 1000.0);
+  }
+
+  private static final class TimedItem extends Item {
+    private final long sentAt = System.nanoTime();
+
+    private TimedItem(String producer, int id) {
+      super(producer, id);
+    }
+  }
+}
@@ -0,0 +1,304 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.producer.consumer;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded {@link BlockingQueue} on a ring buffer allocated up front, so adding and removing
+ * items neither allocates nor takes a lock.
+ * <p>
+ * Every slot of the ring has a sequence number telling whether it is free for the producer at
+ * a position or holds the item for the consumer at that position. Producers claim a position by
+ * moving the tail, consumers by moving the head with a compare-and-set, then publish the slot by
+ * setting its sequence. With a single producer the tail is only ever moved by that thread and
+ * needs no compare-and-set. {@link #drainTo(Collection, int)} claims all the items ready at once.
+ * The head and the tail each sit on a cache line of their own, so producers and consumers do not
+ * invalidate each other's line. Threads finding the queue full or empty wait with the
+ * {@link WaitStrategy} of the queue.
+ *
+ * @param <E> the type of the items
+ */
+public final class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+  // the counter in the middle of 15 longs, with 56 bytes either side of it
+  private static final int PADDED = 15;
+  private static final int VALUE = 7;
+
+  private final int capacity;
+  private final int mask;
+  private final boolean multiProducer;
+  private final WaitStrategy waitStrategy;
+  private final Object[] items;
+  private final AtomicLongArray sequences;
+  private final AtomicLongArray head = new AtomicLongArray(PADDED);
+  private final AtomicLongArray tail = new AtomicLongArray(PADDED);
+
+  private RingBufferQueue(int capacity, boolean multiProducer, WaitStrategy waitStrategy) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+    }
+    this.capacity = capacity < 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.multiProducer = multiProducer;
+    this.waitStrategy = waitStrategy;
+    this.items = new Object[this.capacity];
+    this.sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Creates a queue that only one thread adds items to, at a time.
+   *
+   * @param capacity the capacity, rounded up to a power of two
+   * @param waitStrategy how threads wait on a full or empty queue
+   * @param <E> the type of the items
+   * @return the queue
+   */
+  public static <E> RingBufferQueue<E> singleProducer(int capacity, WaitStrategy waitStrategy) {
+    return new RingBufferQueue<>(capacity, false, waitStrategy);
+  }
+
+  /**
+   * Creates a queue that any number of threads add items to.
+   *
+   * @param capacity the capacity, rounded up to a power of two
+   * @param waitStrategy how threads wait on a full or empty queue
+   * @param <E> the type of the items
+   * @return the queue
+   */
+  public static <E> RingBufferQueue<E> multiProducer(int capacity, WaitStrategy waitStrategy) {
+    return new RingBufferQueue<>(capacity, true, waitStrategy);
+  }
+
+  @Override
+  public boolean offer(E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    long position = tail.get(VALUE);
+    for (;;) {
+      long difference = sequences.get(index(position)) - position;
+      if (difference == 0) {
+        if (!multiProducer) {
+          tail.lazySet(VALUE, position + 1);
+          break;
+        }
+        if (tail.compareAndSet(VALUE, position, position + 1)) {
+          break;
+        }
+        position = tail.get(VALUE);
+      } else if (difference < 0) {
+        // the consumer of the previous lap has not freed the slot yet
+        return false;
+      } else {
+        position = tail.get(VALUE);
+      }
+    }
+    items[index(position)] = item;
+    sequences.set(index(position), position + 1);
+    waitStrategy.signal();
+    return true;
+  }
+
+  @Override
+  public E poll() {
+    long position = head.get(VALUE);
+    for (;;) {
+      long difference = sequences.get(index(position)) - (position + 1);
+      if (difference == 0) {
+        if (head.compareAndSet(VALUE, position, position + 1)) {
+          break;
+        }
+        position = head.get(VALUE);
+      } else if (difference < 0) {
+        return null;
+      } else {
+        position = head.get(VALUE);
+      }
+    }
+    E item = release(position);
+    waitStrategy.signal();
+    return item;
+  }
+
+  @Override
+  public void put(E item) throws InterruptedException {
+    while (!offer(item)) {
+      waitStrategy.await(this::hasFreeSlot, Long.MAX_VALUE);
+    }
+  }
+
+  @Override
+  public boolean offer(E item, long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!offer(item)) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0 || !waitStrategy.await(this::hasFreeSlot, remaining)) {
+        return offer(item);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public E take() throws InterruptedException {
+    for (;;) {
+      E item = poll();
+      if (item != null) {
+        return item;
+      }
+      waitStrategy.await(this::hasItem, Long.MAX_VALUE);
+    }
+  }
+
+  @Override
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (;;) {
+      E item = poll();
+      if (item != null) {
+        return item;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0 || !waitStrategy.await(this::hasItem, remaining)) {
+        return poll();
+      }
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> collection) {
+    return drainTo(collection, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes the items ready at the head, up to the given number, claiming them with a single
+   * compare-and-set.
+   */
+  @Override
+  public int drainTo(Collection<? super E> collection, int maxElements) {
+    if (collection == this) {
+      throw new IllegalArgumentException();
+    }
+    int limit = Math.min(maxElements, capacity);
+    long position;
+    int count;
+    do {
+      position = head.get(VALUE);
+      count = 0;
+      while (count < limit
+          && sequences.get(index(position + count)) == position + count + 1) {
+        count++;
+      }
+      if (count == 0) {
+        return 0;
+      }
+    } while (!head.compareAndSet(VALUE, position, position + count));
+    for (int i = 0; i < count; i++) {
+      collection.add(release(position + i));
+    }
+    waitStrategy.signal();
+    return count;
+  }
+
+  @Override
+  public E peek() {
+    long position = head.get(VALUE);
+    int index = index(position);
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    E item = (E) items[index];
+    // the item may have been taken, and the slot reused, while it was read
+    return sequences.get(index) == position + 1 ? item : null;
+  }
+
+  @Override
+  public int size() {
+    long size = tail.get(VALUE) - head.get(VALUE);
+    return (int) Math.max(0, Math.min(capacity, size));
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  /**
+   * Iterates over a snapshot of the items ready when called. Removing items through the iterator
+   * is not supported.
+   */
+  @Override
+  public Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<>();
+    long end = tail.get(VALUE);
+    for (long position = head.get(VALUE); position < end; position++) {
+      @SuppressWarnings("unchecked")
+      E item = (E) items[index(position)];
+      if (item != null && sequences.get(index(position)) == position + 1) {
+        snapshot.add(item);
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  private E release(long position) {
+    int index = index(position);
+    @SuppressWarnings("unchecked")
+    E item = (E) items[index];
+    items[index] = null;
+    // free for the producer of the next lap
+    sequences.set(index, position + capacity);
+    return item;
+  }
+
+  private boolean hasFreeSlot() {
+    long position = tail.get(VALUE);
+    return sequences.get(index(position)) - position >= 0;
+  }
+
+  private boolean hasItem() {
+    long position = head.get(VALUE);
+    return sequences.get(index(position)) - (position + 1) >= 0;
+  }
+
+  private int index(long position) {
+    return (int) position & mask;
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.producer.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a thread waits on a {@link RingBufferQueue} that is full or empty. Spinning answers soonest
+ * and burns a core for it, blocking frees the core and costs a wake up, yielding and parking lie
+ * in between. Spinning and yielding only make sense with a core per waiting thread.
+ */
+public interface WaitStrategy {
+
+  /**
+   * Waits until the condition holds, the time is up or the thread is interrupted.
+   *
+   * @param ready the condition waited for
+   * @param timeoutNanos the longest time to wait, {@link Long#MAX_VALUE} for no limit
+   * @return whether the condition holds
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  boolean await(BooleanSupplier ready, long timeoutNanos) throws InterruptedException;
+
+  /**
+   * Called after an item was added or removed, to wake the threads waiting for it.
+   */
+  void signal();
+
+  /**
+   * @return a strategy waiting on a lock condition, signalled when there are waiters
+   */
+  static WaitStrategy blocking() {
+    return new Blocking();
+  }
+
+  /**
+   * @return a strategy checking the condition in a busy loop
+   */
+  static WaitStrategy spinning() {
+    return new Backoff(Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return a strategy spinning a little, then yielding the core between checks
+   */
+  static WaitStrategy yielding() {
+    return new Backoff(Backoff.SPINS, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return a strategy spinning and yielding a little, then parking between checks
+   */
+  static WaitStrategy parking() {
+    return new Backoff(Backoff.SPINS, Backoff.SPINS + Backoff.YIELDS);
+  }
+
+  /**
+   * Spins, then yields, then parks, depending on the number of failed checks.
+   */
+  final class Backoff implements WaitStrategy {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int yieldAfter;
+    private final int parkAfter;
+
+    private Backoff(int yieldAfter, int parkAfter) {
+      this.yieldAfter = yieldAfter;
+      this.parkAfter = parkAfter;
+    }
+
+    @Override
+    public boolean await(BooleanSupplier ready, long timeoutNanos) throws InterruptedException {
+      long deadline = timeoutNanos == Long.MAX_VALUE ? 0 : System.nanoTime() + timeoutNanos;
+      for (int attempt = 0; !ready.getAsBoolean(); attempt++) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        if (deadline != 0 && (attempt & 0xff) == 0 && System.nanoTime() - deadline >= 0) {
+          return ready.getAsBoolean();
+        }
+        if (attempt >= parkAfter) {
+          LockSupport.parkNanos(this, PARK_NANOS);
+        } else if (attempt >= yieldAfter) {
+          Thread.yield();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void signal() {
+      // nothing sleeps for long, the waiters find the change themselves
+    }
+  }
+
+  /**
+   * Yields a few times, then waits on a lock condition. The lock is only taken on signalling when
+   * a thread waits, which the waiter announces before checking the condition a last time, so no
+   * signal is lost.
+   */
+  final class Blocking implements WaitStrategy {
+
+    private static final int YIELDS = 10;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private volatile int waiters;
+
+    private Blocking() {
+    }
+
+    @Override
+    public boolean await(BooleanSupplier ready, long timeoutNanos) throws InterruptedException {
+      // a change is often just around the corner, blocking costs a wake up
+      for (int i = 0; i < YIELDS; i++) {
+        if (ready.getAsBoolean()) {
+          return true;
+        }
+        Thread.yield();
+      }
+      long remaining = timeoutNanos;
+      lock.lockInterruptibly();
+      try {
+        waiters++;
+        try {
+          while (!ready.getAsBoolean()) {
+            if (timeoutNanos == Long.MAX_VALUE) {
+              changed.await();
+            } else if (remaining <= 0) {
+              return false;
+            } else {
+              remaining = changed.awaitNanos(remaining);
+            }
+          }
+          return true;
+        } finally {
+          waiters--;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void signal() {
+      if (waiters > 0) {
+        lock.lock();
+        try {
+          changed.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+}
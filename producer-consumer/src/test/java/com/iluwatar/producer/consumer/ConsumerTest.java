@@ -24,6 +24,9 @@ package com.iluwatar.producer.consumer;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -55,4 +58,20 @@ public class ConsumerTest {
     verify(queue, times(ITEM_COUNT)).take();
   }
 
+  @Test
+  public void testConsumeBatch() throws Exception {
+    final ItemQueue queue =
+        spy(new ItemQueue(RingBufferQueue.singleProducer(8, WaitStrategy.blocking())));
+    for (int id = 0; id < ITEM_COUNT; id++) {
+      queue.put(new Item("producer", id));
+    }
+
+    reset(queue); // Don't count the preparation above as interactions with the queue
+    final Consumer consumer = new Consumer("consumer", queue);
+
+    assertEquals(ITEM_COUNT, consumer.consumeBatch(10));
+    verify(queue, times(1)).take();
+    verify(queue, times(1)).drainTo(any(), eq(9));
+  }
+
 }
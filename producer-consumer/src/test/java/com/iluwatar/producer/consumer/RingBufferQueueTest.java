@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.producer.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link RingBufferQueue}
+ */
+public class RingBufferQueueTest {
+
+  private static final int ITEMS_PER_PRODUCER = 20000;
+
+  @Test
+  public void offerAndPollInOrderTest() {
+    RingBufferQueue<Integer> queue = RingBufferQueue.singleProducer(3, WaitStrategy.blocking());
+    assertEquals(4, queue.getCapacity());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(queue.offer(i));
+    }
+    assertFalse(queue.offer(4));
+    assertEquals(4, queue.size());
+    assertEquals(Arrays.asList(0, 1, 2, 3), new ArrayList<>(queue));
+    assertEquals(0, (int) queue.peek());
+    for (int i = 0; i < 4; i++) {
+      assertEquals(i, (int) queue.poll());
+    }
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void drainToTakesTheReadyItemsTest() {
+    RingBufferQueue<Integer> queue = RingBufferQueue.multiProducer(8, WaitStrategy.parking());
+    for (int i = 0; i < 6; i++) {
+      queue.offer(i);
+    }
+    List<Integer> items = new ArrayList<>();
+    assertEquals(4, queue.drainTo(items, 4));
+    assertEquals(2, queue.drainTo(items));
+    assertEquals(0, queue.drainTo(items));
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), items);
+    // the slots freed by the drain are used on the next lap
+    for (int i = 0; i < 8; i++) {
+      assertTrue(queue.offer(i));
+    }
+  }
+
+  @Test
+  public void timedWaitsGiveUpTest() throws InterruptedException {
+    RingBufferQueue<Integer> queue = RingBufferQueue.singleProducer(2, WaitStrategy.blocking());
+    assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+    assertTrue(queue.offer(1, 20, TimeUnit.MILLISECONDS));
+    assertTrue(queue.offer(2, 20, TimeUnit.MILLISECONDS));
+    assertFalse(queue.offer(3, 20, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void everyItemIsTakenOnceTest() throws InterruptedException {
+    for (WaitStrategy strategy : Arrays.asList(WaitStrategy.blocking(), WaitStrategy.parking(),
+        WaitStrategy.yielding(), WaitStrategy.spinning())) {
+      exchange(RingBufferQueue.multiProducer(16, strategy), 3, 2, false);
+      exchange(RingBufferQueue.singleProducer(16, strategy), 1, 2, true);
+    }
+  }
+
+  private static void exchange(RingBufferQueue<Item> queue, int producerCount, int consumerCount,
+      boolean batch) throws InterruptedException {
+    ItemQueue itemQueue = new ItemQueue(queue);
+    AtomicIntegerArray taken = new AtomicIntegerArray(producerCount * ITEMS_PER_PRODUCER);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producerCount; p++) {
+      String producer = String.valueOf(p);
+      threads.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+            itemQueue.put(new Item(producer, i));
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }));
+    }
+    int perConsumer = producerCount * ITEMS_PER_PRODUCER / consumerCount;
+    for (int c = 0; c < consumerCount; c++) {
+      threads.add(new Thread(() -> {
+        List<Item> items = new ArrayList<>();
+        try {
+          for (int count = 0; count < perConsumer; count++) {
+            if (items.isEmpty()) {
+              items.add(itemQueue.take());
+              if (batch) {
+                itemQueue.drainTo(items, perConsumer - count - 1);
+              }
+            }
+            Item item = items.remove(items.size() - 1);
+            int producer = Integer.parseInt(item.getProducer());
+            taken.incrementAndGet(producer * ITEMS_PER_PRODUCER + item.getId());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int i = 0; i < taken.length(); i++) {
+      assertEquals(1, taken.get(i), "item " + i);
+    }
+    assertTrue(queue.isEmpty());
+  }
+}
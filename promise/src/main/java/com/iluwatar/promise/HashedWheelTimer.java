@@ -0,0 +1,275 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.promise;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timer for very many timeouts, most of which are cancelled before they expire.
+ * <p>
+ * Time is cut into ticks and the timeouts are kept in a wheel of buckets, one per tick, each
+ * timeout in the bucket of the tick it expires in and counting the turns of the wheel left
+ * before it does. Scheduling pushes the timeout onto a lock-free stack with one compare-and-set
+ * and cancelling is one compare-and-set as well; a single thread moves the new timeouts into the
+ * wheel, and every tick goes through one bucket, dropping the cancelled timeouts and running the
+ * expired ones. A timeout thus expires up to one tick late, never early, and the tasks run on the
+ * timer thread, so they should be short.
+ */
+final class HashedWheelTimer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+  private static final AtomicReferenceFieldUpdater<HashedWheelTimer, Timeout> INCOMING =
+      AtomicReferenceFieldUpdater.newUpdater(HashedWheelTimer.class, Timeout.class, "incoming");
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final long startTime;
+  private final LongAdder pending = new LongAdder();
+  private final Thread worker;
+
+  private volatile Timeout incoming;
+  private volatile boolean stopped;
+
+  /**
+   * Creates a timer and starts its thread.
+   * @param tick the duration of a tick, the precision of the timer.
+   * @param unit the unit of the tick.
+   * @param ticksPerWheel the number of buckets, rounded up to a power of two.
+   */
+  HashedWheelTimer(long tick, TimeUnit unit, int ticksPerWheel) {
+    if (tick <= 0 || ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+      throw new IllegalArgumentException("tick and ticksPerWheel must be positive");
+    }
+    this.tickNanos = unit.toNanos(tick);
+    this.wheel = new Bucket[Integer.bitCount(ticksPerWheel) == 1 ? ticksPerWheel
+        : Integer.highestOneBit(ticksPerWheel) << 1];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.startTime = System.nanoTime();
+    this.worker = new Thread(this::run, "hashed-wheel-timer");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * @return the timer shared by all promises, ticking every millisecond.
+   */
+  static HashedWheelTimer shared() {
+    return Shared.TIMER;
+  }
+
+  /**
+   * Schedules the task to run once the delay has passed.
+   * @return the timeout, to cancel it.
+   */
+  Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    if (stopped) {
+      throw new IllegalStateException("Timer is stopped");
+    }
+    long now = System.nanoTime() - startTime;
+    long delayNanos = Math.max(0, unit.toNanos(delay));
+    Timeout timeout = new Timeout(this, task,
+        delayNanos > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + delayNanos);
+    pending.increment();
+    Timeout head;
+    do {
+      head = incoming;
+      timeout.next = head;
+    } while (!INCOMING.compareAndSet(this, head, timeout));
+    return timeout;
+  }
+
+  /**
+   * @return the number of timeouts neither expired nor cancelled.
+   */
+  long pending() {
+    return pending.sum();
+  }
+
+  /**
+   * Stops the timer thread. The timeouts pending never expire.
+   */
+  void stop() {
+    stopped = true;
+    LockSupport.unpark(worker);
+  }
+
+  private void run() {
+    long tick = 0;
+    while (!stopped) {
+      long tickEnd = tickNanos * (tick + 1);
+      long remaining;
+      while ((remaining = tickEnd - (System.nanoTime() - startTime)) > 0 && !stopped) {
+        LockSupport.parkNanos(this, remaining);
+      }
+      transferIncoming(tick);
+      expire(wheel[(int) (tick & (wheel.length - 1))], tickEnd);
+      tick++;
+    }
+  }
+
+  private void transferIncoming(long tick) {
+    Timeout timeout = INCOMING.getAndSet(this, null);
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      if (timeout.state == Timeout.PENDING) {
+        // a timeout already due goes into the current bucket, to expire at the end of this tick
+        long expiryTick = Math.max(timeout.deadline / tickNanos, tick);
+        timeout.rounds = (expiryTick - tick) / wheel.length;
+        wheel[(int) (expiryTick & (wheel.length - 1))].add(timeout);
+      } else {
+        timeout.next = null;
+      }
+      timeout = next;
+    }
+  }
+
+  private void expire(Bucket bucket, long tickEnd) {
+    Timeout timeout = bucket.head;
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      if (timeout.state != Timeout.PENDING) {
+        bucket.remove(timeout);
+      } else if (timeout.rounds <= 0 && timeout.deadline < tickEnd) {
+        bucket.remove(timeout);
+        timeout.expire();
+      } else {
+        timeout.rounds--;
+      }
+      timeout = next;
+    }
+  }
+
+  /**
+   * A task scheduled on the timer.
+   */
+  static final class Timeout {
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final HashedWheelTimer timer;
+    private final long deadline;
+    private Runnable task;
+    private volatile int state;
+
+    // owned by the timer thread once transferred
+    private long rounds;
+    private Timeout next;
+    private Timeout prev;
+
+    private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+      this.timer = timer;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the timeout so that the task is not run.
+     * @return whether the timeout was pending.
+     */
+    boolean cancel() {
+      if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+        // let go of the task right away, the timeout itself stays in the wheel until its tick
+        task = null;
+        timer.pending.decrement();
+        return true;
+      }
+      return false;
+    }
+
+    boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    boolean isExpired() {
+      return state == EXPIRED;
+    }
+
+    private void expire() {
+      if (STATE.compareAndSet(this, PENDING, EXPIRED)) {
+        timer.pending.decrement();
+        Runnable expired = task;
+        task = null;
+        try {
+          expired.run();
+        } catch (Throwable throwable) {
+          LOGGER.warn("Timeout task failed", throwable);
+        }
+      }
+    }
+  }
+
+  /**
+   * The timeouts expiring in one tick of the wheel, a doubly linked list only the timer thread
+   * touches.
+   */
+  private static final class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    private void add(Timeout timeout) {
+      timeout.next = null;
+      timeout.prev = tail;
+      if (tail == null) {
+        head = timeout;
+      } else {
+        tail.next = timeout;
+      }
+      tail = timeout;
+    }
+
+    private void remove(Timeout timeout) {
+      if (timeout.prev == null) {
+        head = timeout.next;
+      } else {
+        timeout.prev.next = timeout.next;
+      }
+      if (timeout.next == null) {
+        tail = timeout.prev;
+      } else {
+        timeout.next.prev = timeout.prev;
+      }
+      timeout.next = null;
+      timeout.prev = null;
+    }
+  }
+
+  private static final class Shared {
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer(1, TimeUnit.MILLISECONDS,
+        4096);
+  }
+}
@@ -25,22 +25,43 @@ package com.iluwatar.promise;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * A Promise represents a proxy for a value not necessarily known when the promise is created. It
  * allows you to associate dependent promises to an asynchronous action's eventual success value or
  * failure reason. This lets asynchronous methods return values like synchronous methods: instead 
  * of the final value, the asynchronous method returns a promise of having a value at some point 
  * in the future.
+ * <p>
+ * Any number of dependent promises and error handlers can be added to a promise, from any thread,
+ * without locking. They run on the thread fulfilling the promise, or at once on the adding thread
+ * if the promise is already fulfilled, unless they are added with an {@link Executor} to run in.
  * 
  * @param <T> type of result.
  */
 public class Promise<T> extends PromiseSupport<T> {
 
-  private Runnable fulfillmentAction;
-  private Consumer<? super Throwable> exceptionHandler;
+  private static final Logger LOGGER = LoggerFactory.getLogger(Promise.class);
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<Promise, Object> RUNNER =
+      AtomicReferenceFieldUpdater.newUpdater(Promise.class, Object.class, "runner");
+
+  // the runner of a task being interrupted
+  private static final Object INTERRUPTING = new Object();
+
+  // the thread running the task of fulfillInAsync
+  private volatile Object runner;
 
   /**
    * Creates a promise that will be fulfilled in future.
@@ -55,7 +76,6 @@ public class Promise<T> extends PromiseSupport<T> {
   @Override
   public void fulfill(T value) {
     super.fulfill(value);
-    postFulfillment();
   }
 
   /**
@@ -66,22 +86,6 @@ public class Promise<T> extends PromiseSupport<T> {
   @Override
   public void fulfillExceptionally(Exception exception) {
     super.fulfillExceptionally(exception);
-    handleException(exception);
-    postFulfillment();
-  }
-
-  private void handleException(Exception exception) {
-    if (exceptionHandler == null) {
-      return;
-    }
-    exceptionHandler.accept(exception);
-  }
-
-  private void postFulfillment() {
-    if (fulfillmentAction == null) {
-      return;
-    }
-    fulfillmentAction.run();
   }
 
   /**
@@ -94,15 +98,83 @@ public class Promise<T> extends PromiseSupport<T> {
    */
   public Promise<T> fulfillInAsync(final Callable<T> task, Executor executor) {
     executor.execute(() -> {
+      Thread thread = Thread.currentThread();
+      runner = thread;
       try {
-        fulfill(task.call());
+        // the promise may have been cancelled before the task started
+        if (!isDone()) {
+          fulfill(task.call());
+        }
       } catch (Exception ex) {
         fulfillExceptionally(ex);
+      } finally {
+        if (!RUNNER.compareAndSet(this, thread, null)) {
+          // cancel is interrupting this thread, don't leave the interrupt to the next task
+          while (runner == INTERRUPTING) {
+            Thread.yield();
+          }
+          Thread.interrupted();
+        }
       }
     });
     return this;
   }
 
+  /**
+   * Cancels the promise, and the promises depending on it.
+   * @param mayInterruptIfRunning whether to interrupt the thread running the task given to
+   *        {@link #fulfillInAsync(Callable, Executor)}.
+   * @return whether the promise was cancelled by this call.
+   */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    if (!super.cancel(mayInterruptIfRunning)) {
+      return false;
+    }
+    Object thread = runner;
+    if (mayInterruptIfRunning && thread instanceof Thread
+        && RUNNER.compareAndSet(this, thread, INTERRUPTING)) {
+      try {
+        ((Thread) thread).interrupt();
+      } finally {
+        runner = null;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fulfills the promise exceptionally with a {@link TimeoutException} unless it is fulfilled
+   * within the timeout. The timeout is kept by a timer shared by all promises, which may be up
+   * to a millisecond late, and the dependents of a promise timing out run on the timer thread.
+   * @param timeout how long to wait.
+   * @param unit the unit of the timeout.
+   * @return this
+   */
+  public Promise<T> orTimeout(long timeout, TimeUnit unit) {
+    return expireAfter(timeout, unit, () -> complete(new Failure(new TimeoutException())));
+  }
+
+  /**
+   * Fulfills the promise with the value unless it is fulfilled within the timeout, like
+   * {@link #orTimeout(long, TimeUnit)}.
+   * @param value the value to fulfill the promise with on timeout.
+   * @param timeout how long to wait.
+   * @param unit the unit of the timeout.
+   * @return this
+   */
+  public Promise<T> completeOnTimeout(T value, long timeout, TimeUnit unit) {
+    return expireAfter(timeout, unit, () -> complete(encode(value)));
+  }
+
+  private Promise<T> expireAfter(long timeout, TimeUnit unit, Runnable expiry) {
+    if (!isDone()) {
+      // cancel the timeout as soon as the promise is done, so it does not linger in the timer
+      push(new TimeoutAction(HashedWheelTimer.shared().schedule(expiry, timeout, unit)));
+    }
+    return this;
+  }
+
   /**
    * Returns a new promise that, when this promise is fulfilled normally, is fulfilled with 
    * result of this promise as argument to the action provided.
@@ -110,19 +182,29 @@ public class Promise<T> extends PromiseSupport<T> {
    * @return a new promise.
    */
   public Promise<Void> thenAccept(Consumer<? super T> action) {
+    return thenAcceptAsync(action, null);
+  }
+
+  /**
+   * Like {@link #thenAccept(Consumer)}, but the action is executed using the executor.
+   * @param action action to be executed.
+   * @param executor the executor in which the action should be run, null to run it directly.
+   * @return a new promise.
+   */
+  public Promise<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
     Promise<Void> dest = new Promise<>();
-    fulfillmentAction = new ConsumeAction(this, dest, action);
+    push(new ConsumeAction<>(this, dest, executor, action));
     return dest;
   }
-  
+
   /**
-   * Set the exception handler on this promise.
+   * Adds an exception handler to this promise. All the handlers added are called.
    * @param exceptionHandler a consumer that will handle the exception occurred while fulfilling
    *            the promise.
    * @return this
    */
   public Promise<T> onError(Consumer<? super Throwable> exceptionHandler) {
-    this.exceptionHandler = exceptionHandler;
+    push(new ErrorAction(this, exceptionHandler));
     return this;
   }
 
@@ -133,61 +215,280 @@ public class Promise<T> extends PromiseSupport<T> {
    * @return a new promise.
    */
   public <V> Promise<V> thenApply(Function<? super T, V> func) {
+    return thenApplyAsync(func, null);
+  }
+
+  /**
+   * Like {@link #thenApply(Function)}, but the function is executed using the executor.
+   * @param func function to be executed.
+   * @param executor the executor in which the function should be run, null to run it directly.
+   * @return a new promise.
+   */
+  public <V> Promise<V> thenApplyAsync(Function<? super T, V> func, Executor executor) {
     Promise<V> dest = new Promise<>();
-    fulfillmentAction = new TransformAction<V>(this, dest, func);
+    push(new TransformAction<>(this, dest, executor, func));
     return dest;
   }
 
   /**
-   * Accesses the value from source promise and calls the consumer, then fulfills the
-   * destination promise.
+   * Returns a new promise that, when this promise is fulfilled normally, is fulfilled the same
+   * way as the promise the function provided returns for the result of this promise.
+   * @param func function returning the next promise.
+   * @return a new promise.
    */
-  private class ConsumeAction implements Runnable {
+  public <V> Promise<V> thenCompose(Function<? super T, ? extends Promise<V>> func) {
+    Promise<V> dest = new Promise<>();
+    push(new ComposeAction<>(this, dest, func));
+    return dest;
+  }
 
-    private final Promise<T> src;
-    private final Promise<Void> dest;
-    private final Consumer<? super T> action;
+  /**
+   * Returns a new promise that is fulfilled once all the promises provided are fulfilled
+   * normally, or exceptionally as soon as one of them is fulfilled exceptionally.
+   * @param promises the promises to wait for.
+   * @return a new promise.
+   */
+  public static Promise<Void> allOf(Promise<?>... promises) {
+    Promise<Void> dest = new Promise<>();
+    if (promises.length == 0) {
+      dest.fulfill(null);
+      return dest;
+    }
+    AtomicInteger remaining = new AtomicInteger(promises.length);
+    for (Promise<?> promise : promises) {
+      promise.push(new AllAction(promise, dest, remaining));
+    }
+    return dest;
+  }
+
+  /**
+   * Returns a new promise that is fulfilled the same way as the first of the promises provided
+   * to be fulfilled.
+   * @param promises the promises to wait for.
+   * @return a new promise.
+   */
+  @SafeVarargs
+  public static <T> Promise<T> anyOf(Promise<? extends T>... promises) {
+    Promise<T> dest = new Promise<>();
+    for (Promise<? extends T> promise : promises) {
+      promise.push(new RelayAction(promise, dest));
+    }
+    return dest;
+  }
 
-    private ConsumeAction(Promise<T> src, Promise<Void> dest, Consumer<? super T> action) {
+  /**
+   * Fulfills the destination promise with the outcome of running the action on the value of
+   * the source promise, directly or using the executor.
+   */
+  private abstract static class DependentAction<S, V> extends Completion implements Runnable {
+
+    private final PromiseSupport<S> src;
+    private final PromiseSupport<V> dest;
+    private final Executor executor;
+
+    DependentAction(PromiseSupport<S> src, PromiseSupport<V> dest, Executor executor) {
       this.src = src;
       this.dest = dest;
-      this.action = action;
+      this.executor = executor;
+    }
+
+    @Override
+    PromiseSupport<?> fire() {
+      if (executor == null || src.result() instanceof Failure) {
+        return dest.tryComplete(outcome()) ? dest : null;
+      }
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException ex) {
+        return dest.tryComplete(new Failure(ex)) ? dest : null;
+      }
+      return null;
     }
 
     @Override
     public void run() {
+      dest.complete(outcome());
+    }
+
+    private Object outcome() {
+      Object result = src.result();
+      if (result instanceof Failure) {
+        return result;
+      }
       try {
-        action.accept(src.get());
-        dest.fulfill(null);
+        return apply(PromiseSupport.<S>decode(result));
       } catch (Throwable throwable) {
-        dest.fulfillExceptionally((Exception) throwable.getCause());
+        return new Failure(throwable);
       }
     }
+
+    abstract Object apply(S value);
+  }
+
+  /**
+   * Accesses the value from source promise and calls the consumer, then fulfills the
+   * destination promise.
+   */
+  private static class ConsumeAction<S> extends DependentAction<S, Void> {
+
+    private final Consumer<? super S> action;
+
+    private ConsumeAction(PromiseSupport<S> src, PromiseSupport<Void> dest, Executor executor,
+        Consumer<? super S> action) {
+      super(src, dest, executor);
+      this.action = action;
+    }
+
+    @Override
+    Object apply(S value) {
+      action.accept(value);
+      return encode(null);
+    }
   }
 
   /**
    * Accesses the value from source promise, then fulfills the destination promise using the
    * transformed value. The source value is transformed using the transformation function.
    */
-  private class TransformAction<V> implements Runnable {
+  private static class TransformAction<S, V> extends DependentAction<S, V> {
+
+    private final Function<? super S, V> func;
+
+    private TransformAction(PromiseSupport<S> src, PromiseSupport<V> dest, Executor executor,
+        Function<? super S, V> func) {
+      super(src, dest, executor);
+      this.func = func;
+    }
+
+    @Override
+    Object apply(S value) {
+      return encode(func.apply(value));
+    }
+  }
+
+  /**
+   * Calls the exception handler if the source promise was fulfilled exceptionally.
+   */
+  private static class ErrorAction extends Completion {
+
+    private final PromiseSupport<?> src;
+    private final Consumer<? super Throwable> exceptionHandler;
+
+    private ErrorAction(PromiseSupport<?> src, Consumer<? super Throwable> exceptionHandler) {
+      this.src = src;
+      this.exceptionHandler = exceptionHandler;
+    }
+
+    @Override
+    PromiseSupport<?> fire() {
+      Object result = src.result();
+      if (result instanceof Failure) {
+        try {
+          exceptionHandler.accept(((Failure) result).throwable);
+        } catch (RuntimeException ex) {
+          LOGGER.warn("Exception handler failed", ex);
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Calls the function with the value from source promise, then relays the outcome of the
+   * promise it returns to the destination promise.
+   */
+  private static class ComposeAction<S, V> extends Completion {
 
-    private final Promise<T> src;
-    private final Promise<V> dest;
-    private final Function<? super T, V> func;
+    private final PromiseSupport<S> src;
+    private final PromiseSupport<V> dest;
+    private final Function<? super S, ? extends Promise<V>> func;
 
-    private TransformAction(Promise<T> src, Promise<V> dest, Function<? super T, V> func) {
+    private ComposeAction(PromiseSupport<S> src, PromiseSupport<V> dest,
+        Function<? super S, ? extends Promise<V>> func) {
       this.src = src;
       this.dest = dest;
       this.func = func;
     }
 
     @Override
-    public void run() {
+    PromiseSupport<?> fire() {
+      Object result = src.result();
+      if (result instanceof Failure) {
+        return dest.tryComplete(result) ? dest : null;
+      }
+      Promise<V> next;
       try {
-        dest.fulfill(func.apply(src.get()));
+        next = func.apply(PromiseSupport.<S>decode(result));
       } catch (Throwable throwable) {
-        dest.fulfillExceptionally((Exception) throwable.getCause());
+        return dest.tryComplete(new Failure(throwable)) ? dest : null;
+      }
+      if (next == null) {
+        return dest.tryComplete(new Failure(new NullPointerException())) ? dest : null;
+      }
+      next.push(new RelayAction(next, dest));
+      return null;
+    }
+  }
+
+  /**
+   * Fulfills the destination promise the same way as the source promise.
+   */
+  private static class RelayAction extends Completion {
+
+    private final PromiseSupport<?> src;
+    private final PromiseSupport<?> dest;
+
+    private RelayAction(PromiseSupport<?> src, PromiseSupport<?> dest) {
+      this.src = src;
+      this.dest = dest;
+    }
+
+    @Override
+    PromiseSupport<?> fire() {
+      return dest.tryComplete(src.result()) ? dest : null;
+    }
+  }
+
+  /**
+   * Cancels the timeout of a promise once it is done.
+   */
+  private static class TimeoutAction extends Completion {
+
+    private final HashedWheelTimer.Timeout timeout;
+
+    private TimeoutAction(HashedWheelTimer.Timeout timeout) {
+      this.timeout = timeout;
+    }
+
+    @Override
+    PromiseSupport<?> fire() {
+      timeout.cancel();
+      return null;
+    }
+  }
+
+  /**
+   * Counts the source promises fulfilled for {@link #allOf(Promise[])}.
+   */
+  private static class AllAction extends Completion {
+
+    private final PromiseSupport<?> src;
+    private final PromiseSupport<Void> dest;
+    private final AtomicInteger remaining;
+
+    private AllAction(PromiseSupport<?> src, PromiseSupport<Void> dest, AtomicInteger remaining) {
+      this.src = src;
+      this.dest = dest;
+      this.remaining = remaining;
+    }
+
+    @Override
+    PromiseSupport<?> fire() {
+      Object result = src.result();
+      if (result instanceof Failure || remaining.decrementAndGet() == 0) {
+        return dest.tryComplete(result instanceof Failure ? result : encode(null)) ? dest : null;
       }
+      return null;
     }
   }
-}
\ No newline at end of file
+}
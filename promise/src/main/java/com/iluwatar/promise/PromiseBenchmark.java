@@ -0,0 +1,182 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.promise;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Compares {@link Promise} with {@link CompletableFuture}: building chains of dependents on a
+ * pending promise and completing them, completing a promise with many dependents, and handing a
+ * value to a thread waiting in {@code get()}.
+ * <p>
+ * Each case is run a few times to warm up before the measured run, and the cost is reported per
+ * dependent, or per value handed over.
+ * <p>
+ * Run with {@code java com.iluwatar.promise.PromiseBenchmark [rounds] [depth]}.
+ */
+public class PromiseBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PromiseBenchmark.class);
+
+  private static final int WARMUPS = 5;
+  private static final int HANDOFFS = 100_000;
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) throws Exception {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+    for (int i = 0; i <= WARMUPS; i++) {
+      boolean report = i == WARMUPS;
+      chain("promise chain", rounds, depth, report, PromiseBenchmark::promiseChain);
+      chain("future chain", rounds, depth, report, PromiseBenchmark::futureChain);
+      chain("promise fan-out", rounds, depth, report, PromiseBenchmark::promiseFanOut);
+      chain("future fan-out", rounds, depth, report, PromiseBenchmark::futureFanOut);
+      handoff("promise handoff", report, Promise::new, (p, v) -> p.fulfill(v));
+      handoff("future handoff", report, CompletableFuture::new, CompletableFuture::complete);
+    }
+  }
+
+  private static void chain(String name, int rounds, int depth, boolean report, Round round)
+      throws Exception {
+    long[] times = new long[2];
+    for (int i = 0; i < rounds; i++) {
+      round.run(depth, times);
+    }
+    if (report) {
+      long stages = (long) rounds * depth;
+      LOGGER.info("{}: build {} ns, complete {} ns per dependent", name,
+          String.format("%.1f", (double) times[0] / stages),
+          String.format("%.1f", (double) times[1] / stages));
+    }
+  }
+
+  private static void promiseChain(int depth, long[] times)
+      throws InterruptedException, ExecutionException {
+    long start = System.nanoTime();
+    Promise<Integer> first = new Promise<>();
+    Promise<Integer> last = first;
+    for (int i = 0; i < depth; i++) {
+      last = last.thenApply(value -> value + 1);
+    }
+    long built = System.nanoTime();
+    first.fulfill(0);
+    check(last.get(), depth);
+    times[0] += built - start;
+    times[1] += System.nanoTime() - built;
+  }
+
+  private static void futureChain(int depth, long[] times)
+      throws InterruptedException, ExecutionException {
+    long start = System.nanoTime();
+    CompletableFuture<Integer> first = new CompletableFuture<>();
+    CompletableFuture<Integer> last = first;
+    for (int i = 0; i < depth; i++) {
+      last = last.thenApply(value -> value + 1);
+    }
+    long built = System.nanoTime();
+    first.complete(0);
+    check(last.get(), depth);
+    times[0] += built - start;
+    times[1] += System.nanoTime() - built;
+  }
+
+  private static void promiseFanOut(int depth, long[] times)
+      throws InterruptedException, ExecutionException {
+    long start = System.nanoTime();
+    Promise<Integer> first = new Promise<>();
+    int[] sum = new int[1];
+    for (int i = 0; i < depth; i++) {
+      first.thenAccept(value -> sum[0] += value);
+    }
+    long built = System.nanoTime();
+    first.fulfill(1);
+    check(sum[0], depth);
+    times[0] += built - start;
+    times[1] += System.nanoTime() - built;
+  }
+
+  private static void futureFanOut(int depth, long[] times)
+      throws InterruptedException, ExecutionException {
+    long start = System.nanoTime();
+    CompletableFuture<Integer> first = new CompletableFuture<>();
+    int[] sum = new int[1];
+    for (int i = 0; i < depth; i++) {
+      first.thenAccept(value -> sum[0] += value);
+    }
+    long built = System.nanoTime();
+    first.complete(1);
+    check(sum[0], depth);
+    times[0] += built - start;
+    times[1] += System.nanoTime() - built;
+  }
+
+  private static <F extends Future<Integer>> void handoff(String name,
+      boolean report, Supplier<F> factory,
+      BiConsumer<F, Integer> complete) throws Exception {
+    @SuppressWarnings("unchecked")
+    F[] slots = (F[]) new Future<?>[HANDOFFS];
+    for (int i = 0; i < HANDOFFS; i++) {
+      slots[i] = factory.get();
+    }
+    Thread producer = new Thread(() -> {
+      for (int i = 0; i < HANDOFFS; i++) {
+        complete.accept(slots[i], i);
+      }
+    });
+    long start = System.nanoTime();
+    producer.start();
+    for (int i = 0; i < HANDOFFS; i++) {
+      check(slots[i].get(), i);
+    }
+    long elapsed = System.nanoTime() - start;
+    producer.join();
+    if (report) {
+      LOGGER.info("{}: {} ns per value", name, String.format("%.1f", (double) elapsed / HANDOFFS));
+    }
+  }
+
+  private static void check(int actual, int expected) {
+    if (actual != expected) {
+      throw new IllegalStateException("Expected " + expected + " but was " + actual);
+    }
+  }
+
+  /**
+   * Builds and completes one set of dependents, adding the time taken to the times given.
+   */
+  private interface Round {
+    void run(int depth, long[] times) throws InterruptedException, ExecutionException;
+  }
+}
@@ -22,97 +22,299 @@
  */
 package com.iluwatar.promise;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A really simplified implementation of future that allows completing it successfully with a value 
  * or exceptionally with an exception.
+ * <p>
+ * The outcome is set once with a compare-and-set, the first completion wins. What is to happen on
+ * completion is kept in a stack of {@link Completion}s pushed with compare-and-set, so any number
+ * of them can be added without a lock, and they are popped and fired by the thread completing
+ * the promise, or by the thread adding one to a completed promise. Threads waiting in
+ * {@link #get()} push a completion that unparks them, which is unlinked again if they stop
+ * waiting before the promise is done.
  */
 class PromiseSupport<T> implements Future<T> {
-  
-  private static final Logger LOGGER = LoggerFactory.getLogger(PromiseSupport.class);
-
-  private static final int RUNNING = 1;
-  private static final int FAILED = 2;
-  private static final int COMPLETED = 3;
 
-  private final Object lock;
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<PromiseSupport, Object> RESULT =
+      AtomicReferenceFieldUpdater.newUpdater(PromiseSupport.class, Object.class, "result");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<PromiseSupport, Completion> STACK =
+      AtomicReferenceFieldUpdater.newUpdater(PromiseSupport.class, Completion.class, "stack");
 
-  private volatile int state = RUNNING;
-  private T value;
-  private Exception exception;
+  // the outcome of a promise fulfilled with null
+  private static final Object NIL = new Object();
 
-  PromiseSupport() {
-    this.lock = new Object();
-  }
+  private volatile Object result;
+  private volatile Completion stack;
 
   void fulfill(T value) {
-    this.value = value;
-    this.state = COMPLETED;
-    synchronized (lock) {
-      lock.notifyAll();
-    }
+    complete(value == null ? NIL : value);
   }
 
   void fulfillExceptionally(Exception exception) {
-    this.exception = exception;
-    this.state = FAILED;
-    synchronized (lock) {
-      lock.notifyAll();
-    }
+    complete(new Failure(exception));
   }
 
+  /**
+   * Fulfills the promise exceptionally with a {@link CancellationException}, unless it is done.
+   * Dependent promises are fulfilled with the same exception, and are cancelled too.
+   */
   @Override
   public boolean cancel(boolean mayInterruptIfRunning) {
-    return false;
+    return complete(new Failure(new CancellationException()));
   }
 
   @Override
   public boolean isCancelled() {
-    return false;
+    Object outcome = result;
+    return outcome instanceof Failure
+        && ((Failure) outcome).throwable instanceof CancellationException;
   }
 
   @Override
   public boolean isDone() {
-    return state > RUNNING;
+    return result != null;
   }
 
   @Override
   public T get() throws InterruptedException, ExecutionException {
-    synchronized (lock) {
-      while (state == RUNNING) {
-        lock.wait();
-      }
-    }
-    if (state == COMPLETED) {
-      return value;
-    } 
-    throw new ExecutionException(exception);
+    Object outcome = result;
+    return report(outcome != null ? outcome : await(false, 0L));
   }
 
   @Override
   public T get(long timeout, TimeUnit unit)
-      throws  ExecutionException, TimeoutException {
-    synchronized (lock) {
-      while (state == RUNNING) {
-        try {
-          lock.wait(unit.toMillis(timeout));
-        } catch (InterruptedException e) {
-          LOGGER.warn("Interrupted!", e);
-          Thread.currentThread().interrupt();
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Object outcome = result;
+    if (outcome == null) {
+      outcome = await(true, System.nanoTime() + unit.toNanos(timeout));
+      if (outcome == null) {
+        throw new TimeoutException();
+      }
+    }
+    return report(outcome);
+  }
+
+  /**
+   * Sets the outcome, unless there is one already, and fires the completions.
+   * @return whether this call set the outcome.
+   */
+  boolean complete(Object outcome) {
+    if (tryComplete(outcome)) {
+      postComplete();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Sets the outcome, unless there is one already, leaving the completions to the caller.
+   */
+  boolean tryComplete(Object outcome) {
+    return RESULT.compareAndSet(this, null, outcome);
+  }
+
+  /**
+   * @return the outcome, null until the promise is done.
+   */
+  Object result() {
+    return result;
+  }
+
+  static Object encode(Object value) {
+    return value == null ? NIL : value;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <V> V decode(Object outcome) {
+    return outcome == NIL ? null : (V) outcome;
+  }
+
+  /**
+   * Adds the completion, firing it at once if the promise is done.
+   */
+  void push(Completion completion) {
+    while (result == null) {
+      Completion head = stack;
+      Completion next = head;
+      // drops the waiters that gave up from the top of the stack
+      while (next != null && !next.isLive()) {
+        next = next.next;
+      }
+      completion.next = next;
+      if (STACK.compareAndSet(this, head, completion)) {
+        // the promise may have been completed before the completion was on the stack
+        if (result != null) {
+          postComplete();
         }
+        return;
+      }
+    }
+    PromiseSupport<?> dependent = completion.fire();
+    if (dependent != null) {
+      dependent.postComplete();
+    }
+  }
+
+  /**
+   * Pops and fires the completions. A completion completing a dependent promise hands it back
+   * instead of firing its completions itself, so that a long chain of dependents is completed in
+   * a loop rather than a recursion as deep as the chain.
+   */
+  void postComplete() {
+    PromiseSupport<?> current = this;
+    ArrayDeque<PromiseSupport<?>> pending = null;
+    for (;;) {
+      Completion head;
+      while ((head = current.stack) != null) {
+        if (STACK.compareAndSet(current, head, head.next)) {
+          head.next = null;
+          PromiseSupport<?> dependent = head.fire();
+          if (dependent != null) {
+            if (pending == null) {
+              pending = new ArrayDeque<>();
+            }
+            pending.push(dependent);
+          }
+        }
+      }
+      if (pending == null || pending.isEmpty()) {
+        return;
+      }
+      current = pending.pop();
+    }
+  }
+
+  /**
+   * Unlinks the waiters that gave up, so that repeated timed gets on a promise that is not done
+   * do not pile them up. A concurrent unlink may leave one in place, never drop a live one.
+   */
+  private void cleanStack() {
+    Completion head;
+    while ((head = stack) != null && !head.isLive()) {
+      STACK.compareAndSet(this, head, head.next);
+    }
+    for (Completion previous = head, current; previous != null
+        && (current = previous.next) != null; ) {
+      if (current.isLive()) {
+        previous = current;
+      } else {
+        previous.next = current.next;
+      }
+    }
+  }
+
+  /**
+   * @return the number of completions on the stack.
+   */
+  int stackSize() {
+    int size = 0;
+    for (Completion completion = stack; completion != null; completion = completion.next) {
+      size++;
+    }
+    return size;
+  }
+
+  private Object await(boolean timed, long deadline) throws InterruptedException {
+    Signaller signaller = new Signaller(Thread.currentThread());
+    push(signaller);
+    Object outcome;
+    while ((outcome = result) == null) {
+      if (Thread.interrupted()) {
+        signaller.thread = null;
+        cleanStack();
+        throw new InterruptedException();
+      }
+      if (timed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          signaller.thread = null;
+          cleanStack();
+          return null;
+        }
+        LockSupport.parkNanos(this, remaining);
+      } else {
+        LockSupport.park(this);
+      }
+    }
+    return outcome;
+  }
+
+  private static <T> T report(Object outcome) throws ExecutionException {
+    if (outcome instanceof Failure) {
+      Throwable throwable = ((Failure) outcome).throwable;
+      if (throwable instanceof CancellationException) {
+        throw (CancellationException) throwable;
+      }
+      throw new ExecutionException(throwable);
+    }
+    return decode(outcome);
+  }
+
+  /**
+   * The outcome of a promise fulfilled exceptionally.
+   */
+  static final class Failure {
+    final Throwable throwable;
+
+    Failure(Throwable throwable) {
+      this.throwable = throwable;
+    }
+  }
+
+  /**
+   * Something to be done once a promise is done.
+   */
+  abstract static class Completion {
+    Completion next;
+
+    /**
+     * @return false if firing this would do nothing, so it can be unlinked.
+     */
+    boolean isLive() {
+      return true;
+    }
+
+    /**
+     * @return a dependent promise this completed and whose completions are still to be fired,
+     *     or null.
+     */
+    abstract PromiseSupport<?> fire();
+  }
+
+  /**
+   * Wakes a thread waiting for the outcome.
+   */
+  private static final class Signaller extends Completion {
+    private volatile Thread thread;
+
+    private Signaller(Thread thread) {
+      this.thread = thread;
+    }
+
+    @Override
+    boolean isLive() {
+      return thread != null;
+    }
+
+    @Override
+    PromiseSupport<?> fire() {
+      Thread waiter = thread;
+      if (waiter != null) {
+        thread = null;
+        LockSupport.unpark(waiter);
       }
+      return null;
     }
-    
-    if (state == COMPLETED) {
-      return value;
-    } 
-    throw new ExecutionException(exception);
   }
-}
\ No newline at end of file
+}
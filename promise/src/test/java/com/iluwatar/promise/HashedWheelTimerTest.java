@@ -0,0 +1,173 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.promise;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests HashedWheelTimer, and measures its overhead against a ScheduledThreadPoolExecutor.
+ */
+public class HashedWheelTimerTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimerTest.class);
+
+  private static final int MANY = 1_000_000;
+
+  private HashedWheelTimer timer;
+
+  @BeforeEach
+  public void setUp() {
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 512);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    timer.stop();
+  }
+
+  @Test
+  public void timeoutExpiresAfterItsDelayAndNotBefore() throws InterruptedException {
+    int count = 10_000;
+    long[] lateness = new long[count];
+    CountDownLatch expired = new CountDownLatch(count);
+    for (int i = 0; i < count; i++) {
+      int index = i;
+      long delay = TimeUnit.MILLISECONDS.toNanos(i % 200);
+      long deadline = System.nanoTime() + delay;
+      timer.schedule(() -> {
+        lateness[index] = System.nanoTime() - deadline;
+        expired.countDown();
+      }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    assertTrue(expired.await(10, TimeUnit.SECONDS));
+    Arrays.sort(lateness);
+    LOGGER.info("Lateness p50 {} us, p99 {} us, max {} us", lateness[count / 2] / 1000,
+        lateness[count * 99 / 100] / 1000, lateness[count - 1] / 1000);
+    assertTrue(lateness[0] >= 0, "Timeout expired early");
+    assertEquals(0, timer.pending());
+  }
+
+  @Test
+  public void cancelledTimeoutDoesNotExpire() throws InterruptedException {
+    AtomicInteger runs = new AtomicInteger();
+    HashedWheelTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 20,
+        TimeUnit.MILLISECONDS);
+    CountDownLatch expired = new CountDownLatch(1);
+    HashedWheelTimer.Timeout later = timer.schedule(expired::countDown, 40,
+        TimeUnit.MILLISECONDS);
+
+    assertTrue(cancelled.cancel());
+    assertFalse(cancelled.cancel());
+    assertEquals(1, timer.pending());
+    assertTrue(expired.await(10, TimeUnit.SECONDS));
+
+    assertEquals(0, runs.get());
+    assertTrue(cancelled.isCancelled());
+    assertTrue(later.isExpired());
+    assertFalse(later.cancel());
+  }
+
+  @Test
+  public void timeoutsBeyondOneTurnOfTheWheelWaitForTheirTurn() throws InterruptedException {
+    HashedWheelTimer small = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+    try {
+      CountDownLatch expired = new CountDownLatch(1);
+      long start = System.nanoTime();
+      small.schedule(expired::countDown, 50, TimeUnit.MILLISECONDS);
+
+      assertTrue(expired.await(10, TimeUnit.SECONDS));
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    } finally {
+      small.stop();
+    }
+  }
+
+  @Test
+  public void millionsOfTimeoutsAreCheapToScheduleAndCancel() throws InterruptedException {
+    HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[MANY];
+    Runnable task = () -> { };
+    long start = System.nanoTime();
+    for (int i = 0; i < MANY; i++) {
+      timeouts[i] = timer.schedule(task, 10 + i % 10_000, TimeUnit.MILLISECONDS);
+    }
+    long scheduled = System.nanoTime();
+    for (HashedWheelTimer.Timeout timeout : timeouts) {
+      timeout.cancel();
+    }
+    long cancelled = System.nanoTime();
+    assertEquals(0, timer.pending());
+
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    executor.setRemoveOnCancelPolicy(true);
+    ScheduledFuture<?>[] futures = new ScheduledFuture<?>[MANY];
+    long executorStart = System.nanoTime();
+    for (int i = 0; i < MANY; i++) {
+      futures[i] = executor.schedule(task, 10 + i % 10_000, TimeUnit.MILLISECONDS);
+    }
+    long executorScheduled = System.nanoTime();
+    for (ScheduledFuture<?> future : futures) {
+      future.cancel(false);
+    }
+    long executorCancelled = System.nanoTime();
+    executor.shutdownNow();
+
+    long schedule = (scheduled - start) / MANY;
+    long cancel = (cancelled - scheduled) / MANY;
+    LOGGER.info("Wheel: schedule {} ns, cancel {} ns; executor: schedule {} ns, cancel {} ns",
+        schedule, cancel, (executorScheduled - executorStart) / MANY,
+        (executorCancelled - executorScheduled) / MANY);
+    assertTrue(schedule < 10_000 && cancel < 10_000, "Timer overhead too high");
+  }
+
+  @Test
+  public void millionsOfTimeoutsExpireTogether() throws InterruptedException {
+    CountDownLatch expired = new CountDownLatch(MANY);
+    Runnable task = expired::countDown;
+    long start = System.nanoTime();
+    for (int i = 0; i < MANY; i++) {
+      timer.schedule(task, 100, TimeUnit.MILLISECONDS);
+    }
+
+    assertTrue(expired.await(30, TimeUnit.SECONDS));
+    long elapsed = System.nanoTime() - start - TimeUnit.MILLISECONDS.toNanos(100);
+    LOGGER.info("Expired {} timeouts {} ms after the deadline, {} ns each", MANY,
+        TimeUnit.NANOSECONDS.toMillis(elapsed), Math.max(0, elapsed) / MANY);
+    assertEquals(0, timer.pending());
+  }
+}
@@ -25,17 +25,26 @@ package com.iluwatar.promise;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Matchers.eq;
@@ -231,6 +240,255 @@ public class PromiseTest {
     verify(exceptionHandler).accept(eq(exception));
   }
 
+  @Test
+  public void allDependentsAndExceptionHandlersAreCalled()
+      throws InterruptedException, ExecutionException {
+    Promise<Integer> promise = new Promise<>();
+    AtomicInteger calls = new AtomicInteger();
+    List<Promise<Void>> dependents = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      dependents.add(promise.thenAccept(value -> calls.incrementAndGet()));
+      promise.onError(error -> fail("Promise fulfilled normally"));
+    }
+
+    promise.fulfill(NumberCrunchingTask.CRUNCHED_NUMBER);
+
+    for (Promise<Void> dependent : dependents) {
+      dependent.get();
+    }
+    assertEquals(100, calls.get());
+
+    Promise<Void> failed = new Promise<>();
+    AtomicInteger handled = new AtomicInteger();
+    failed.onError(error -> handled.incrementAndGet()).onError(error -> handled.incrementAndGet());
+    failed.fulfillExceptionally(new Exception("barf!"));
+    failed.onError(error -> handled.incrementAndGet());
+    assertEquals(3, handled.get());
+  }
+
+  @Test
+  public void dependentsAddedConcurrentlyWithFulfillmentAreAllCalled() throws Exception {
+    ExecutorService adders = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 100; round++) {
+        Promise<Integer> promise = new Promise<>();
+        AtomicInteger calls = new AtomicInteger();
+        List<Future<Promise<Void>>> dependents = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+          dependents.add(adders.submit(() -> {
+            Promise<Void> last = null;
+            for (int j = 0; j < 25; j++) {
+              last = promise.thenAccept(value -> calls.incrementAndGet());
+            }
+            return last;
+          }));
+        }
+        promise.fulfill(round);
+        for (Future<Promise<Void>> dependent : dependents) {
+          dependent.get().get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(100, calls.get());
+      }
+    } finally {
+      adders.shutdownNow();
+    }
+  }
+
+  @Test
+  public void longChainIsFulfilledWithoutRecursion()
+      throws InterruptedException, ExecutionException {
+    Promise<Integer> first = new Promise<>();
+    Promise<Integer> last = first;
+    for (int i = 0; i < 100_000; i++) {
+      last = last.thenApply(value -> value + 1);
+    }
+
+    first.fulfill(0);
+
+    assertEquals(Integer.valueOf(100_000), last.get());
+  }
+
+  @Test
+  public void asyncDependentsRunInTheExecutor()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Thread caller = Thread.currentThread();
+    Promise<String> dependentPromise = promise
+        .thenApplyAsync(value -> {
+          assertNotSame(caller, Thread.currentThread());
+          return String.valueOf(value);
+        }, executor);
+    Promise<Void> consumed = dependentPromise
+        .thenAcceptAsync(value -> assertNotSame(caller, Thread.currentThread()), executor);
+
+    promise.fulfill(NumberCrunchingTask.CRUNCHED_NUMBER);
+
+    assertEquals(String.valueOf(NumberCrunchingTask.CRUNCHED_NUMBER),
+        dependentPromise.get(10, TimeUnit.SECONDS));
+    consumed.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void composedPromiseIsFulfilledWithTheResultOfTheReturnedPromise()
+      throws InterruptedException, ExecutionException {
+    Promise<String> composed = promise
+        .fulfillInAsync(new NumberCrunchingTask(), executor)
+        .thenCompose(value -> new Promise<String>()
+            .fulfillInAsync(() -> String.valueOf(value), executor));
+
+    assertEquals(String.valueOf(NumberCrunchingTask.CRUNCHED_NUMBER), composed.get());
+
+    Promise<String> failed = promise.thenCompose(value -> {
+      throw new RuntimeException("Barf!");
+    });
+    try {
+      failed.get();
+      fail("Composing should fail if the function threw an exception");
+    } catch (ExecutionException ex) {
+      assertEquals("Barf!", ex.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void allOfIsFulfilledWhenAllPromisesAreFulfilled()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Promise<Integer> first = new Promise<>();
+    Promise<String> second = new Promise<>();
+    Promise<Void> all = Promise.allOf(first, second);
+
+    first.fulfill(1);
+    assertFalse(all.isDone());
+    second.fulfill("2");
+    all.get(10, TimeUnit.SECONDS);
+
+    Promise<Integer> pending = new Promise<>();
+    Promise<Integer> failing = new Promise<>();
+    Promise<Void> failed = Promise.allOf(pending, failing);
+    failing.fulfillExceptionally(new Exception("barf!"));
+    try {
+      failed.get(10, TimeUnit.SECONDS);
+      fail("allOf should fail as soon as one of the promises fails");
+    } catch (ExecutionException ex) {
+      assertEquals("barf!", ex.getCause().getMessage());
+    }
+
+    assertTrue(Promise.allOf().isDone());
+  }
+
+  @Test
+  public void anyOfIsFulfilledWithTheFirstPromiseFulfilled()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Promise<Integer> first = new Promise<>();
+    Promise<Integer> second = new Promise<>();
+    Promise<Integer> any = Promise.anyOf(first, second);
+
+    second.fulfill(2);
+    first.fulfill(1);
+
+    assertEquals(Integer.valueOf(2), any.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void waitingWithTimeoutForAPendingPromiseTimesOut() throws InterruptedException {
+    Promise<Integer> promise = new Promise<>();
+    try {
+      promise.get(50, TimeUnit.MILLISECONDS);
+      fail("Fetching a pending promise should time out");
+    } catch (ExecutionException | TimeoutException ex) {
+      assertTrue(ex instanceof TimeoutException);
+    }
+    assertFalse(promise.isDone());
+  }
+
+  @Test
+  public void waitersThatTimedOutAreUnlinked() throws Exception {
+    Promise<Integer> promise = new Promise<>();
+    Promise<Integer> dependent = promise.thenApply(value -> value + 1);
+    for (int i = 0; i < 100; i++) {
+      assertThrows(TimeoutException.class, () -> promise.get(1, TimeUnit.MILLISECONDS));
+    }
+    assertEquals(1, promise.stackSize());
+
+    promise.fulfill(1);
+    assertEquals(Integer.valueOf(2), dependent.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void cancellingAPromiseCancelsItsDependents() throws Exception {
+    Promise<Integer> promise = new Promise<>();
+    Promise<String> applied = promise.thenApply(String::valueOf);
+    Promise<Void> accepted = applied.thenAccept(value -> fail("Promise was cancelled"));
+    AtomicInteger handled = new AtomicInteger();
+    promise.onError(error -> handled.incrementAndGet());
+
+    assertTrue(promise.cancel(false));
+    assertFalse(promise.cancel(false));
+    promise.fulfill(1);
+
+    assertTrue(promise.isCancelled());
+    assertTrue(applied.isCancelled());
+    assertTrue(accepted.isCancelled());
+    assertEquals(1, handled.get());
+    assertThrows(CancellationException.class, () -> accepted.get());
+    assertThrows(CancellationException.class, () -> applied.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void cancellingInterruptsTheTaskFulfillingThePromise() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    promise.fulfillInAsync(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException ex) {
+        interrupted.countDown();
+        throw ex;
+      }
+      return NumberCrunchingTask.CRUNCHED_NUMBER;
+    }, executor);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    assertTrue(promise.cancel(true));
+
+    assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    assertTrue(promise.isCancelled());
+
+    Promise<Boolean> next = new Promise<Boolean>()
+        .fulfillInAsync(() -> Thread.currentThread().isInterrupted(), executor);
+    assertFalse(next.get(10, TimeUnit.SECONDS), "Interrupt leaked to the next task");
+  }
+
+  @Test
+  public void promiseNotFulfilledInTimeFailsWithTimeout() throws Exception {
+    Promise<Integer> promise = new Promise<Integer>().orTimeout(20, TimeUnit.MILLISECONDS);
+    Promise<String> dependent = promise.thenApply(String::valueOf);
+
+    try {
+      dependent.get(10, TimeUnit.SECONDS);
+      fail("Promise not fulfilled in time should fail");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof TimeoutException);
+    }
+    assertFalse(promise.isCancelled());
+
+    Promise<Integer> defaulted = new Promise<Integer>()
+        .completeOnTimeout(42, 20, TimeUnit.MILLISECONDS);
+    assertEquals(Integer.valueOf(42), defaulted.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void timeoutIsCancelledWhenPromiseIsFulfilledInTime() throws Exception {
+    HashedWheelTimer timer = HashedWheelTimer.shared();
+    long pending = timer.pending();
+    Promise<Integer> promise = new Promise<Integer>().orTimeout(10, TimeUnit.SECONDS);
+    assertEquals(pending + 1, timer.pending());
+
+    promise.fulfill(NumberCrunchingTask.CRUNCHED_NUMBER);
+
+    assertEquals(pending, timer.pending());
+    assertEquals(NumberCrunchingTask.CRUNCHED_NUMBER, promise.get());
+  }
+
   private static class NumberCrunchingTask implements Callable<Integer> {
 
     private static final Integer CRUNCHED_NUMBER = Integer.MAX_VALUE;
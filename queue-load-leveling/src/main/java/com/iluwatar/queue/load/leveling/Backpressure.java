@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a submitter does when the {@link MessageQueue} is full: wait for room, wait for a while,
+ * or give up at once. Waiting slows the submitters down to the pace of the service, giving up
+ * leaves it to them to retry or shed the load.
+ */
+public final class Backpressure {
+
+  private static final Backpressure BLOCK = new Backpressure(-1);
+  private static final Backpressure REJECT = new Backpressure(0);
+
+  private final long timeoutNanos;
+
+  private Backpressure(long timeoutNanos) {
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  /**
+   * @return backpressure waiting as long as it takes for room in the queue
+   */
+  public static Backpressure block() {
+    return BLOCK;
+  }
+
+  /**
+   * @return backpressure rejecting the message when the queue is full
+   */
+  public static Backpressure reject() {
+    return REJECT;
+  }
+
+  /**
+   * @param timeout the longest time to wait for room in the queue
+   * @param unit the unit of the timeout
+   * @return backpressure waiting for room up to the timeout
+   */
+  public static Backpressure timeout(long timeout, TimeUnit unit) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("Timeout must be positive");
+    }
+    return new Backpressure(unit.toNanos(timeout));
+  }
+
+  boolean isBlocking() {
+    return timeoutNanos < 0;
+  }
+
+  long getTimeoutNanos() {
+    return timeoutNanos;
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how the {@link MessageQueue} absorbs bursts: generators submit a burst of messages
+ * every interval, faster than the service can take them, while on average the service keeps up.
+ * Every run reports the outcomes of the submissions, the deepest the queue got, the time the
+ * messages spent in it and the rate they were served at, for pools of service executors of
+ * different sizes and batch sizes, and for each kind of {@link Backpressure}.
+ * <p>
+ * The service waits a fixed time per message, like a call to a remote service would.
+ * Run with {@code java com.iluwatar.queue.load.leveling.LoadLevelingBenchmark [bursts]
+ * [burstSize] [intervalMillis] [serviceMicros]}.
+ */
+public class LoadLevelingBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoadLevelingBenchmark.class);
+
+  private static final int GENERATORS = 4;
+  private static final int CAPACITY = 1024;
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int bursts = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int burstSize = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    int interval = args.length > 2 ? Integer.parseInt(args[2]) : 250;
+    long serviceNanos = TimeUnit.MICROSECONDS.toNanos(
+        args.length > 3 ? Integer.parseInt(args[3]) : 100);
+
+    for (int executors : new int[] {1, 4}) {
+      for (int batchSize : new int[] {1, 32}) {
+        run("reject", Backpressure.reject(), executors, batchSize, bursts, burstSize, interval,
+            serviceNanos);
+      }
+    }
+    run("timeout 20 ms", Backpressure.timeout(20, TimeUnit.MILLISECONDS), 4, 32, bursts,
+        burstSize, interval, serviceNanos);
+    run("block", Backpressure.block(), 4, 32, bursts, burstSize, interval, serviceNanos);
+  }
+
+  private static void run(String name, Backpressure backpressure, int executors, int batchSize,
+      int bursts, int burstSize, int interval, long serviceNanos) throws InterruptedException {
+    MessageQueue queue = new MessageQueue(CAPACITY);
+    List<TaskGenerator> generators = new ArrayList<>();
+    for (int i = 0; i < GENERATORS; i++) {
+      generators.add(new TaskGenerator(queue, burstSize / GENERATORS, backpressure));
+    }
+    long start = System.nanoTime();
+    ServiceExecutorPool pool = new ServiceExecutorPool(queue, executors, batchSize,
+        msg -> LockSupport.parkNanos(serviceNanos));
+    try {
+      for (int burst = 0; burst < bursts; burst++) {
+        long burstStart = start + TimeUnit.MILLISECONDS.toNanos((long) burst * interval);
+        LockSupport.parkNanos(burstStart - System.nanoTime());
+        List<Thread> threads = new ArrayList<>();
+        for (TaskGenerator generator : generators) {
+          threads.add(new Thread(() -> {
+            for (int i = 0; i < burstSize / GENERATORS; i++) {
+              generator.submit(new Message("burst message " + i));
+            }
+          }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+          thread.join();
+        }
+      }
+      QueueMetrics metrics = queue.getMetrics();
+      while (metrics.getServed() < metrics.getAccepted()) {
+        Thread.sleep(1);
+      }
+      long elapsed = System.nanoTime() - start;
+      LOGGER.info("{}, {} executors, batch {}: accepted {}, rejected {}, timed out {},"
+          + " max depth {}, time in queue mean {} ms max {} ms, served {}/s, done in {} ms",
+          name, executors, batchSize, metrics.getAccepted(), metrics.getRejected(),
+          metrics.getTimedOut(), metrics.getMaxDepth(),
+          metrics.getMeanTimeInQueue(TimeUnit.MILLISECONDS),
+          metrics.getMaxTimeInQueue(TimeUnit.MILLISECONDS),
+          metrics.getServed() * TimeUnit.SECONDS.toNanos(1) / elapsed,
+          TimeUnit.NANOSECONDS.toMillis(elapsed));
+    } finally {
+      pool.close();
+    }
+  }
+}
@@ -22,8 +22,12 @@
  */
 package com.iluwatar.queue.load.leveling;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,29 +37,157 @@ import org.slf4j.LoggerFactory;
  * MessageQueue class.
  * In this class we will create a Blocking Queue and 
  * submit/retrieve all the messages from it.
+ * <p>
+ * A full queue pushes back on the submitters as their {@link Backpressure} says, and every
+ * submission has an explicit {@link Submission} outcome. The messages are queued together with
+ * the time they were queued at, for the {@link QueueMetrics} of the time spent in the queue.
+ * <p>
+ * Given a {@link SpillQueue}, a full queue accepts every message and spills it to disk instead.
+ * Once messages are spilled all new ones follow them there until the spill is read back, so that
+ * the messages of a submitter keep their order. The spilled messages are moved back a batch at a
+ * time when the queue is down to half its capacity.
  */
 public class MessageQueue {
   
   private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
   
-  private final BlockingQueue<Message> blkQueue;
+  private final BlockingQueue<Queued> blkQueue;
+
+  private final QueueMetrics metrics = new QueueMetrics();
+
+  private final int capacity;
+
+  private final SpillQueue spill;
+
+  // Whether there are spilled messages, changed under the lock of the spill.
+  private volatile boolean spilling;
   
   // Default constructor when called creates Blocking Queue object. 
   public MessageQueue() {
-    this.blkQueue = new ArrayBlockingQueue<Message>(1024);
+    this(1024);
+  }
+
+  /**
+   * Creates a queue holding up to the given number of messages.
+   */
+  public MessageQueue(int capacity) {
+    this(capacity, null);
+  }
+
+  /**
+   * Creates a queue holding up to the given number of messages in memory and spilling the rest,
+   * starting with the messages recovered by the spill.
+   */
+  public MessageQueue(int capacity, SpillQueue spill) {
+    this.blkQueue = new ArrayBlockingQueue<Queued>(capacity);
+    this.capacity = capacity;
+    this.spill = spill;
+    if (spill != null && spill.size() > 0) {
+      synchronized (spill) {
+        spilling = true;
+        refill();
+      }
+    }
   }
   
   /**
    * All the TaskGenerator threads will call this method to insert the
-   * Messages in to the Blocking Queue. 
+   * Messages in to the Blocking Queue. A message finding the queue full is rejected, as is a
+   * null message.
    */
-  public void submitMsg(Message msg) {
+  public Submission submitMsg(Message msg) {
+    if (null == msg) {
+      return Submission.REJECTED;
+    }
     try {
-      if (null != msg) {
-        blkQueue.add(msg);
+      return submitMsg(msg, Backpressure.reject());
+    } catch (InterruptedException e) {
+      // rejecting never waits
+      Thread.currentThread().interrupt();
+      return Submission.REJECTED;
+    }
+  }
+
+  /**
+   * Inserts the message, waiting for room in the queue as the backpressure says.
+   *
+   * @throws InterruptedException if interrupted while waiting for room
+   */
+  public Submission submitMsg(Message msg, Backpressure backpressure)
+      throws InterruptedException {
+    if (null == msg) {
+      throw new NullPointerException("Message must not be null");
+    }
+    Queued queued = new Queued(msg);
+    Submission submission;
+    if (!spilling && blkQueue.offer(queued)) {
+      submission = Submission.ACCEPTED;
+    } else if (spill != null) {
+      submission = spill(queued);
+    } else if (backpressure.isBlocking()) {
+      blkQueue.put(queued);
+      submission = Submission.ACCEPTED;
+    } else if (backpressure.getTimeoutNanos() == 0) {
+      submission = Submission.REJECTED;
+    } else if (blkQueue.offer(queued, backpressure.getTimeoutNanos(), TimeUnit.NANOSECONDS)) {
+      submission = Submission.ACCEPTED;
+    } else {
+      submission = Submission.TIMED_OUT;
+    }
+    if (submission != Submission.ACCEPTED) {
+      LOGGER.debug("Message queue full, {}: {}", submission, msg);
+    }
+    metrics.recordSubmission(submission, getDepth());
+    return submission;
+  }
+
+  private Submission spill(Queued queued) {
+    synchronized (spill) {
+      // the queue may have drained, or the spill been read back, in the meantime
+      if (!spilling && blkQueue.offer(queued)) {
+        return Submission.ACCEPTED;
+      }
+      try {
+        spill.append(queued.msg, System.currentTimeMillis());
+      } catch (RuntimeException e) {
+        LOGGER.error("Failed to spill " + queued.msg, e);
+        return Submission.REJECTED;
+      }
+      spilling = true;
+      // the consumers may all be waiting on an empty queue
+      if (blkQueue.size() <= capacity / 2) {
+        refill();
+      }
+      return Submission.ACCEPTED;
+    }
+  }
+
+  /**
+   * Moves spilled messages back into the queue while there is room, under the lock of the spill.
+   */
+  private void refill() {
+    for (;;) {
+      SpillQueue.Spilled spilled = spill.peek();
+      if (spilled == null) {
+        spilling = false;
+        return;
+      }
+      long queuedAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(
+          Math.max(0, System.currentTimeMillis() - spilled.getSpilledAt()));
+      if (!blkQueue.offer(new Queued(spilled.getMsg(), queuedAt))) {
+        return;
+      }
+      spill.remove();
+    }
+  }
+
+  private void refillIfLow() {
+    if (spilling && blkQueue.size() <= capacity / 2) {
+      synchronized (spill) {
+        if (spilling) {
+          refill();
+        }
       }
-    } catch (Exception e) {
-      LOGGER.error(e.getMessage());
     }
   }
   
@@ -65,13 +197,66 @@ public class MessageQueue {
    * Retrieves and removes the head of this queue, or returns null if this queue is empty.
    */
   public Message retrieveMsg() {
-    Message retrievedMsg = null;
-    try {
-      retrievedMsg = blkQueue.poll();
-    } catch (Exception e) {
-      LOGGER.error(e.getMessage());
+    refillIfLow();
+    return unwrap(blkQueue.poll());
+  }
+
+  /**
+   * Retrieves and removes the head of this queue, waiting up to the timeout for a message.
+   *
+   * @return the message, or null if none arrived in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Message retrieveMsg(long timeout, TimeUnit unit) throws InterruptedException {
+    refillIfLow();
+    return unwrap(blkQueue.poll(timeout, unit));
+  }
+
+  /**
+   * Removes the messages available without waiting, up to the given number.
+   *
+   * @return the number of messages removed
+   */
+  public int drainMsgs(Collection<? super Message> msgs, int maxMsgs) {
+    refillIfLow();
+    List<Queued> drained = new ArrayList<>(Math.min(maxMsgs, 64));
+    int count = blkQueue.drainTo(drained, maxMsgs);
+    for (Queued queued : drained) {
+      msgs.add(unwrap(queued));
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of messages in the queue, in memory and spilled
+   */
+  public long getDepth() {
+    return blkQueue.size() + (spilling ? spill.size() : 0);
+  }
+
+  public QueueMetrics getMetrics() {
+    return metrics;
+  }
+
+  private Message unwrap(Queued queued) {
+    if (queued == null) {
+      return null;
+    }
+    metrics.recordRetrieval(System.nanoTime() - queued.queuedAt);
+    return queued.msg;
+  }
+
+  private static final class Queued {
+    private final Message msg;
+    private final long queuedAt;
+
+    private Queued(Message msg) {
+      this(msg, System.nanoTime());
+    }
+
+    private Queued(Message msg, long queuedAt) {
+      this.msg = msg;
+      this.queuedAt = queuedAt;
     }
-    
-    return retrievedMsg;
   }
-}
\ No newline at end of file
+}
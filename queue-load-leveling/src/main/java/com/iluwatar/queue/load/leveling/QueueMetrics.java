@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a {@link MessageQueue}: what became of the submitted messages, how long the served
+ * ones spent in the queue and the rate they were served at. The queue depth is read from the
+ * queue itself.
+ */
+public class QueueMetrics {
+
+  private final long startNanos = System.nanoTime();
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder retrieved = new LongAdder();
+  private final LongAdder served = new LongAdder();
+  private final LongAdder timeInQueue = new LongAdder();
+  private final LongAccumulator maxTimeInQueue = new LongAccumulator(Math::max, 0);
+  private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+  void recordSubmission(Submission submission, long depth) {
+    switch (submission) {
+      case ACCEPTED:
+        accepted.increment();
+        maxDepth.accumulate(depth);
+        break;
+      case REJECTED:
+        rejected.increment();
+        break;
+      default:
+        timedOut.increment();
+        break;
+    }
+  }
+
+  void recordRetrieval(long queuedNanos) {
+    retrieved.increment();
+    timeInQueue.add(queuedNanos);
+    maxTimeInQueue.accumulate(queuedNanos);
+  }
+
+  void recordServed(int messages) {
+    served.add(messages);
+  }
+
+  public long getAccepted() {
+    return accepted.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getTimedOut() {
+    return timedOut.sum();
+  }
+
+  public long getServed() {
+    return served.sum();
+  }
+
+  /**
+   * @return the deepest the queue has been right after accepting a message
+   */
+  public long getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  /**
+   * @param unit the unit of the result
+   * @return the mean time the retrieved messages spent in the queue
+   */
+  public long getMeanTimeInQueue(TimeUnit unit) {
+    long count = retrieved.sum();
+    return count == 0 ? 0 : unit.convert(timeInQueue.sum() / count, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param unit the unit of the result
+   * @return the longest time a retrieved message spent in the queue
+   */
+  public long getMaxTimeInQueue(TimeUnit unit) {
+    return unit.convert(maxTimeInQueue.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the messages served per second since the queue was created
+   */
+  public double getServiceRate() {
+    long elapsed = System.nanoTime() - startNanos;
+    return elapsed == 0 ? 0 : served.sum() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+  }
+}
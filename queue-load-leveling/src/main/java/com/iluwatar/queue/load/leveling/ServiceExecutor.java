@@ -23,43 +23,92 @@
 
 package com.iluwatar.queue.load.leveling;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * 
  *  ServiceExecuotr class.
- *  This class will pick up Messages one by one from 
+ *  This class will pick up Messages from 
  *  the Blocking Queue and process them.
+ *  <p>
+ *  It waits on the queue until a message arrives, then takes the ones queued behind it up to the
+ *  batch size without waiting again, so a backlog is worked off as fast as the service goes.
  */
 public class ServiceExecutor implements Runnable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
 
+  // How long to wait for a message before reporting the wait.
+  private static final long IDLE_SECONDS = 1;
+
   private final MessageQueue msgQueue;
 
+  private final int batchSize;
+
+  private final Consumer<Message> service;
+
   public ServiceExecutor(MessageQueue msgQueue) {
+    this(msgQueue, 1, msg -> LOGGER.info(msg.toString() + " is served."));
+  }
+
+  /**
+   * @param msgQueue the queue to take the messages from
+   * @param batchSize the most messages taken from the queue at a time
+   * @param service the service processing each message
+   */
+  public ServiceExecutor(MessageQueue msgQueue, int batchSize, Consumer<Message> service) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
     this.msgQueue = msgQueue;
+    this.batchSize = batchSize;
+    this.service = service;
   }
 
   /**
-   * The ServiceExecutor thread will retrieve each message and process it.
+   * The ServiceExecutor thread will retrieve each message and process it, until interrupted.
    */
   public void run() {
+    List<Message> batch = new ArrayList<>(batchSize);
     try {
       while (!Thread.currentThread().isInterrupted()) {
-        Message msg = msgQueue.retrieveMsg();
+        Message msg = msgQueue.retrieveMsg(IDLE_SECONDS, TimeUnit.SECONDS);
 
-        if (null != msg) {
-          LOGGER.info(msg.toString() + " is served.");
-        } else {
+        if (null == msg) {
           LOGGER.info("Service Executor: Waiting for Messages to serve .. ");
+          continue;
         }
-
-        Thread.sleep(1000);
+        batch.add(msg);
+        if (batchSize > 1) {
+          msgQueue.drainMsgs(batch, batchSize - 1);
+        }
+        serve(batch);
+        batch.clear();
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     } catch (Exception e) {
       LOGGER.error(e.getMessage());
     }
   }
-}
\ No newline at end of file
+
+  private void serve(List<Message> batch) {
+    int served = 0;
+    for (Message msg : batch) {
+      try {
+        service.accept(msg);
+        served++;
+      } catch (RuntimeException e) {
+        // one failing message does not stop the service
+        LOGGER.error("Failed to serve " + msg, e);
+      }
+    }
+    msgQueue.getMetrics().recordServed(served);
+  }
+}
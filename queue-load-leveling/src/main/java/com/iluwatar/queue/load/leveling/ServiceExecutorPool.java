@@ -0,0 +1,74 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of {@link ServiceExecutor}s serving one {@link MessageQueue}. The number of executors
+ * sets the pace the queue is drained at, to what the service can take.
+ */
+public class ServiceExecutorPool implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServiceExecutorPool.class);
+
+  private final ExecutorService executor;
+
+  /**
+   * Starts the executors.
+   *
+   * @param msgQueue the queue to take the messages from
+   * @param executors the number of executors
+   * @param batchSize the most messages an executor takes from the queue at a time
+   * @param service the service processing each message
+   */
+  public ServiceExecutorPool(MessageQueue msgQueue, int executors, int batchSize,
+      Consumer<Message> service) {
+    this.executor = Executors.newFixedThreadPool(executors);
+    for (int i = 0; i < executors; i++) {
+      executor.submit(new ServiceExecutor(msgQueue, batchSize, service));
+    }
+  }
+
+  /**
+   * Stops the executors, leaving the messages still queued in the queue. If interrupted while
+   * waiting for them it stops waiting and keeps the interrupt status set.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOGGER.warn("Service executors did not stop in time");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
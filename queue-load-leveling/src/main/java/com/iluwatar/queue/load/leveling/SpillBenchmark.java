@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures a burst much larger than the {@link MessageQueue}: the rate messages are submitted
+ * and read back at, and the heap they take, with the whole burst in memory and with all but the
+ * in-memory capacity spilled to a {@link SpillQueue}, and the time to recover the spill after a
+ * crash.
+ * <p>
+ * Run with {@code java com.iluwatar.queue.load.leveling.SpillBenchmark [messages]}.
+ */
+public class SpillBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillBenchmark.class);
+
+  private static final int CAPACITY = 1024;
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) throws IOException {
+    int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+    long before = usedMemory();
+    run("in memory", new MessageQueue(messages), messages, before);
+
+    Path directory = Files.createTempDirectory("spill");
+    try {
+      before = usedMemory();
+      SpillQueue spill = new SpillQueue(directory);
+      run("spilled", new MessageQueue(CAPACITY, spill), messages, before);
+
+      // spill again and leave the spill open, as if the process crashed
+      MessageQueue crashed = new MessageQueue(CAPACITY, spill);
+      for (int i = 0; i < messages; i++) {
+        crashed.submitMsg(new Message("Message-" + i));
+      }
+      long start = System.nanoTime();
+      try (SpillQueue recovered = new SpillQueue(directory)) {
+        LOGGER.info("recovered {} messages in {} ms", recovered.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      }
+      spill.close();
+    } finally {
+      try (Stream<Path> paths = Files.walk(directory)) {
+        paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  private static void run(String name, MessageQueue queue, int messages, long before) {
+    long start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      if (queue.submitMsg(new Message("Message-" + i)) != Submission.ACCEPTED) {
+        throw new IllegalStateException("Message rejected");
+      }
+    }
+    long submitted = System.nanoTime() - start;
+    long heap = usedMemory() - before;
+
+    start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      if (queue.retrieveMsg() == null) {
+        throw new IllegalStateException("Message lost");
+      }
+    }
+    long retrieved = System.nanoTime() - start;
+    LOGGER.info("{}: submitted {} messages/s, retrieved {} messages/s, {} MB of heap held",
+        name, messages * TimeUnit.SECONDS.toNanos(1) / submitted,
+        messages * TimeUnit.SECONDS.toNanos(1) / retrieved, heap >> 20);
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,334 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The overflow of a {@link MessageQueue}: messages that do not fit in memory are appended to
+ * memory mapped segment files and read back in the order they were appended, so a burst is
+ * bounded by the disk instead of the heap.
+ * <p>
+ * A record is its length, the time it was spilled at and the text of the message. The length is
+ * stored plus one, as a zero ends the records, and written last, so a record is only there once
+ * it is complete. It is negated once the record is read, so that after a crash the records not
+ * read yet are found again by scanning the segments. A segment read to the end is deleted. The
+ * records survive the process crashing, as the mapped pages belong to the operating system;
+ * {@link #close()} forces them to the disk.
+ */
+public class SpillQueue implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillQueue.class);
+
+  /**
+   * The default size of a segment file.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+  private static final int HEADER = 4 + 8;
+  private static final String SEGMENT_PREFIX = "spill-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final Deque<Segment> segments = new ArrayDeque<>();
+  private long size;
+
+  /**
+   * Opens the spill files in the directory, recovering the messages not read yet.
+   *
+   * @param directory the directory of the segment files
+   */
+  public SpillQueue(Path directory) {
+    this(directory, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Opens the spill files in the directory, recovering the messages not read yet.
+   *
+   * @param directory the directory of the segment files
+   * @param segmentSize the size of a new segment file
+   */
+  public SpillQueue(Path directory, int segmentSize) {
+    if (segmentSize < HEADER + 4) {
+      throw new IllegalArgumentException("Segment size too small");
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    try {
+      Files.createDirectories(directory);
+      for (Path path : segmentFiles()) {
+        Segment segment = new Segment(path, Long.parseLong(path.getFileName().toString()
+            .substring(SEGMENT_PREFIX.length(), path.getFileName().toString().length()
+                - SEGMENT_SUFFIX.length())));
+        size += segment.recover();
+        segments.add(segment);
+      }
+      while (segments.size() > 1 && segments.peekFirst().isConsumed()) {
+        segments.removeFirst().delete();
+      }
+      if (segments.isEmpty()) {
+        segments.add(new Segment(0));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (size > 0) {
+      LOGGER.info("Recovered {} spilled messages", size);
+    }
+  }
+
+  /**
+   * Appends the message.
+   *
+   * @param msg the message
+   * @param spilledAt the time the message was queued at, in milliseconds since the epoch
+   */
+  public synchronized void append(Message msg, long spilledAt) {
+    byte[] text = msg.getMsg().getBytes(StandardCharsets.UTF_8);
+    if (HEADER + text.length > segmentSize) {
+      throw new IllegalArgumentException("Message larger than a segment");
+    }
+    Segment segment = segments.peekLast();
+    if (!segment.fits(text.length)) {
+      segment = new Segment(segment.number + 1);
+      segments.addLast(segment);
+    }
+    segment.append(text, spilledAt);
+    size++;
+  }
+
+  /**
+   * @return the oldest message not read yet, or null if there is none
+   */
+  public synchronized Spilled peek() {
+    Segment segment = readSegment();
+    return segment == null ? null : segment.peek();
+  }
+
+  /**
+   * Marks the oldest message as read.
+   */
+  public synchronized void remove() {
+    Segment segment = readSegment();
+    if (segment == null) {
+      throw new IllegalStateException("No spilled message");
+    }
+    segment.remove();
+    size--;
+  }
+
+  /**
+   * @return the number of messages not read yet
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Forces the records to the disk and closes the segment files.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    for (Segment segment : segments) {
+      segment.buffer.force();
+      segment.channel.close();
+    }
+    segments.clear();
+  }
+
+  /**
+   * @return the segment holding the oldest unread record, deleting the segments read to the end
+   */
+  private Segment readSegment() {
+    for (;;) {
+      Segment segment = segments.peekFirst();
+      if (!segment.isConsumed()) {
+        return segment;
+      }
+      if (segments.size() == 1) {
+        return null;
+      }
+      segments.removeFirst().delete();
+    }
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+             Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        files.add(path);
+      }
+    }
+    // the zero padded segment numbers sort by name
+    files.sort(null);
+    return files;
+  }
+
+  /**
+   * A message read back from a {@link SpillQueue}.
+   */
+  public static final class Spilled {
+    private final Message msg;
+    private final long spilledAt;
+
+    private Spilled(Message msg, long spilledAt) {
+      this.msg = msg;
+      this.spilledAt = spilledAt;
+    }
+
+    public Message getMsg() {
+      return msg;
+    }
+
+    /**
+     * @return the time the message was queued at, in milliseconds since the epoch
+     */
+    public long getSpilledAt() {
+      return spilledAt;
+    }
+  }
+
+  private final class Segment {
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // for bulk reads and writes at a position
+    private final ByteBuffer view;
+    private int readPosition;
+    private int writePosition;
+
+    private Segment(long number) {
+      this(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX)),
+          number);
+    }
+
+    private Segment(Path path, long number) {
+      this.number = number;
+      this.path = path;
+      try {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        view = buffer.duplicate();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Finds the first unread record and the end of the records.
+     *
+     * @return the number of unread records
+     */
+    private long recover() {
+      long unread = 0;
+      int position = 0;
+      readPosition = -1;
+      for (int stored; position + HEADER <= segmentSize
+          && (stored = buffer.getInt(position)) != 0; ) {
+        long length = Math.abs((long) stored) - 1;
+        if (position + HEADER + length > segmentSize) {
+          LOGGER.warn("Damaged record in {} at {}, dropping the rest", path, position);
+          break;
+        }
+        if (stored > 0) {
+          unread++;
+          if (readPosition < 0) {
+            readPosition = position;
+          }
+        }
+        position += HEADER + (int) length;
+      }
+      writePosition = position;
+      if (readPosition < 0) {
+        readPosition = position;
+      }
+      return unread;
+    }
+
+    private boolean fits(int length) {
+      return writePosition + HEADER + length <= segmentSize;
+    }
+
+    private void append(byte[] text, long spilledAt) {
+      int next = writePosition + HEADER + text.length;
+      // ends the records after this one, over whatever a crashed append left there
+      if (next + 4 <= segmentSize) {
+        buffer.putInt(next, 0);
+      }
+      buffer.putLong(writePosition + 4, spilledAt);
+      view.position(writePosition + HEADER);
+      view.put(text);
+      // the length commits the record; stored plus one, so an empty message does not end them
+      buffer.putInt(writePosition, text.length + 1);
+      writePosition = next;
+    }
+
+    private boolean isConsumed() {
+      return readPosition == writePosition;
+    }
+
+    private Spilled peek() {
+      byte[] text = new byte[buffer.getInt(readPosition) - 1];
+      view.position(readPosition + HEADER);
+      view.get(text);
+      return new Spilled(new Message(new String(text, StandardCharsets.UTF_8)),
+          buffer.getLong(readPosition + 4));
+    }
+
+    private void remove() {
+      int stored = buffer.getInt(readPosition);
+      buffer.putInt(readPosition, -stored);
+      readPosition += HEADER + stored - 1;
+    }
+
+    private void delete() {
+      try {
+        channel.close();
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
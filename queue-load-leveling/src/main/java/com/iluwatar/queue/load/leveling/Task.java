@@ -26,5 +26,5 @@ package com.iluwatar.queue.load.leveling;
  * 
 */
 public interface Task {
-  void submit(Message msg);
+  Submission submit(Message msg);
 }
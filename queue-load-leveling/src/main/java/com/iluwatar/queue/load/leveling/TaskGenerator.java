@@ -22,6 +22,10 @@
  */
 package com.iluwatar.queue.load.leveling;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +33,9 @@ import org.slf4j.LoggerFactory;
  * TaskGenerator class.
  * Each TaskGenerator thread will be a Worker which submit's messages to the queue.
  * We need to mention the message count for each of the TaskGenerator threads.
+ * <p>
+ * When the queue is full the generator waits or gives up as its {@link Backpressure} says, and
+ * keeps count of the outcomes of its submissions.
  * 
 */
 public class TaskGenerator implements Task, Runnable {
@@ -41,22 +48,58 @@ public class TaskGenerator implements Task, Runnable {
   
   // Total message count that a TaskGenerator will submit.
   private final int msgCount;
+
+  // What to do when the queue is full.
+  private final Backpressure backpressure;
+
+  // The number of submissions of each outcome.
+  private final Map<Submission, AtomicLong> outcomes = new EnumMap<>(Submission.class);
   
-  // Parameterized constructor.
+  // Parameterized constructor, rejecting messages when the queue is full.
   public TaskGenerator(MessageQueue msgQueue, int msgCount) {
+    this(msgQueue, msgCount, Backpressure.reject());
+  }
+
+  /**
+   * Parameterized constructor.
+   *
+   * @param msgQueue the queue to submit the messages to
+   * @param msgCount the number of messages to submit
+   * @param backpressure what to do when the queue is full: block, reject the message or wait for
+   *     room up to a timeout
+   */
+  public TaskGenerator(MessageQueue msgQueue, int msgCount, Backpressure backpressure) {
     this.msgQueue = msgQueue;
     this.msgCount = msgCount;
+    this.backpressure = backpressure;
+    for (Submission submission : Submission.values()) {
+      outcomes.put(submission, new AtomicLong());
+    }
   }
   
   /**
    * Submit messages to the Blocking Queue.
+   *
+   * @return the outcome of the submission, rejected if interrupted while waiting for room
    */
-  public void submit(Message msg) {
+  public Submission submit(Message msg) {
+    Submission submission = Submission.REJECTED;
     try {
-      this.msgQueue.submitMsg(msg);
+      submission = this.msgQueue.submitMsg(msg, backpressure);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     } catch (Exception e) {
       LOGGER.error(e.getMessage());
     }
+    outcomes.get(submission).incrementAndGet();
+    return submission;
+  }
+
+  /**
+   * @return the number of submissions with the given outcome
+   */
+  public long getCount(Submission submission) {
+    return outcomes.get(submission).get();
   }
   
   /**
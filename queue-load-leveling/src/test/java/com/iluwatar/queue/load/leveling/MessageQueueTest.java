@@ -24,7 +24,12 @@ package com.iluwatar.queue.load.leveling;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * 
@@ -45,4 +50,51 @@ public class MessageQueueTest {
     assertEquals("MessageQueue Test", msgQueue.retrieveMsg().getMsg());
   }
 
+  @Test
+  public void backpressureOutcomesTest() throws InterruptedException {
+    MessageQueue msgQueue = new MessageQueue(2);
+    assertEquals(Submission.ACCEPTED, msgQueue.submitMsg(new Message("first")));
+    assertEquals(Submission.ACCEPTED,
+        msgQueue.submitMsg(new Message("second"), Backpressure.block()));
+
+    // the queue is full now
+    assertEquals(Submission.REJECTED, msgQueue.submitMsg(new Message("third")));
+    assertEquals(Submission.TIMED_OUT, msgQueue.submitMsg(new Message("third"),
+        Backpressure.timeout(10, TimeUnit.MILLISECONDS)));
+
+    Thread consumer = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      msgQueue.retrieveMsg();
+    });
+    consumer.start();
+    assertEquals(Submission.ACCEPTED,
+        msgQueue.submitMsg(new Message("third"), Backpressure.block()));
+    consumer.join();
+
+    QueueMetrics metrics = msgQueue.getMetrics();
+    assertEquals(3, metrics.getAccepted());
+    assertEquals(1, metrics.getRejected());
+    assertEquals(1, metrics.getTimedOut());
+    assertEquals(2, metrics.getMaxDepth());
+    assertEquals(2, msgQueue.getDepth());
+  }
+
+  @Test
+  public void drainMessagesTest() throws InterruptedException {
+    MessageQueue msgQueue = new MessageQueue();
+    for (int i = 0; i < 5; i++) {
+      msgQueue.submitMsg(new Message("Message-" + i));
+    }
+    List<Message> msgs = new ArrayList<>();
+    assertEquals(3, msgQueue.drainMsgs(msgs, 3));
+    assertEquals("Message-0", msgs.get(0).getMsg());
+    assertEquals("Message-3", msgQueue.retrieveMsg(10, TimeUnit.MILLISECONDS).getMsg());
+    assertEquals(1, msgQueue.drainMsgs(msgs, 3));
+    assertNull(msgQueue.retrieveMsg(10, TimeUnit.MILLISECONDS));
+  }
+
 }
@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.queue.load.leveling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 
+ * Test case for spilling messages to disk and reading them back.
+ * 
+ */
+public class SpillQueueTest {
+
+  private Path directory;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("spill");
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void readBackInOrderAcrossSegmentsTest() throws IOException {
+    try (SpillQueue spill = new SpillQueue(directory, 256)) {
+      for (int i = 0; i < 100; i++) {
+        spill.append(new Message("Message-" + i), i);
+      }
+      assertTrue(segmentCount() > 1);
+      assertEquals(100, spill.size());
+      for (int i = 0; i < 100; i++) {
+        SpillQueue.Spilled spilled = spill.peek();
+        assertEquals("Message-" + i, spilled.getMsg().getMsg());
+        assertEquals(i, spilled.getSpilledAt());
+        spill.remove();
+      }
+      assertNull(spill.peek());
+      assertEquals(0, spill.size());
+      // the segments read to the end are deleted
+      assertEquals(1, segmentCount());
+    }
+  }
+
+  @Test
+  public void unreadMessagesAreRecoveredTest() throws IOException {
+    // the first queue is never closed, as if the process crashed
+    SpillQueue crashed = new SpillQueue(directory, 256);
+    for (int i = 0; i < 50; i++) {
+      crashed.append(new Message("Message-" + i), i);
+    }
+    for (int i = 0; i < 20; i++) {
+      crashed.remove();
+    }
+
+    try (SpillQueue recovered = new SpillQueue(directory, 256)) {
+      assertEquals(30, recovered.size());
+      recovered.append(new Message("Message-50"), 50);
+      for (int i = 20; i <= 50; i++) {
+        assertEquals("Message-" + i, recovered.peek().getMsg().getMsg());
+        recovered.remove();
+      }
+      assertNull(recovered.peek());
+    }
+  }
+
+  @Test
+  public void emptyMessagesAreRecoveredTest() throws IOException {
+    // the first queue is never closed, as if the process crashed
+    SpillQueue crashed = new SpillQueue(directory, 256);
+    crashed.append(new Message("Message-0"), 0);
+    crashed.append(new Message(""), 1);
+    crashed.append(new Message(""), 2);
+    crashed.append(new Message("Message-3"), 3);
+    crashed.remove();
+    crashed.remove();
+
+    try (SpillQueue recovered = new SpillQueue(directory, 256)) {
+      assertEquals(2, recovered.size());
+      recovered.append(new Message("Message-4"), 4);
+      assertEquals("", recovered.peek().getMsg().getMsg());
+      recovered.remove();
+      for (int i = 3; i <= 4; i++) {
+        assertEquals("Message-" + i, recovered.peek().getMsg().getMsg());
+        recovered.remove();
+      }
+      assertNull(recovered.peek());
+    }
+  }
+
+  @Test
+  public void messageQueueSpillsInOrderTest() throws IOException {
+    try (SpillQueue spill = new SpillQueue(directory, 4096)) {
+      MessageQueue msgQueue = new MessageQueue(8, spill);
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(Submission.ACCEPTED, msgQueue.submitMsg(new Message("Message-" + i)));
+      }
+      assertEquals(1000, msgQueue.getDepth());
+      assertTrue(spill.size() > 900);
+      for (int i = 0; i < 1000; i++) {
+        assertEquals("Message-" + i, msgQueue.retrieveMsg().getMsg());
+      }
+      assertNull(msgQueue.retrieveMsg());
+      assertEquals(0, spill.size());
+      assertEquals(1000, msgQueue.getMetrics().getAccepted());
+    }
+  }
+
+  @Test
+  public void messageQueueStartsWithRecoveredMessagesTest() throws IOException {
+    SpillQueue crashed = new SpillQueue(directory, 4096);
+    for (int i = 0; i < 20; i++) {
+      crashed.append(new Message("Message-" + i), System.currentTimeMillis());
+    }
+
+    try (SpillQueue spill = new SpillQueue(directory, 4096)) {
+      MessageQueue msgQueue = new MessageQueue(8, spill);
+      msgQueue.submitMsg(new Message("Message-20"));
+      for (int i = 0; i <= 20; i++) {
+        assertEquals("Message-" + i, msgQueue.retrieveMsg().getMsg());
+      }
+      assertNull(msgQueue.retrieveMsg());
+    }
+  }
+
+  @Test
+  public void concurrentProducersKeepTheirOrderTest() throws Exception {
+    int producers = 4;
+    int perProducer = 20000;
+    try (SpillQueue spill = new SpillQueue(directory, 1 << 16)) {
+      MessageQueue msgQueue = new MessageQueue(64, spill);
+      List<Thread> threads = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        String producer = p + "-";
+        threads.add(new Thread(() -> {
+          for (int i = 0; i < perProducer; i++) {
+            msgQueue.submitMsg(new Message(producer + i));
+          }
+        }));
+      }
+      threads.forEach(Thread::start);
+
+      int[] next = new int[producers];
+      for (int count = 0; count < producers * perProducer; count++) {
+        Message msg = msgQueue.retrieveMsg(5, TimeUnit.SECONDS);
+        String[] parts = msg.getMsg().split("-");
+        int producer = Integer.parseInt(parts[0]);
+        assertEquals(next[producer]++, Integer.parseInt(parts[1]), msg.getMsg());
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertNull(msgQueue.retrieveMsg());
+      assertEquals(producers * perProducer, msgQueue.getMetrics().getAccepted());
+    }
+  }
+
+  private long segmentCount() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.count();
+    }
+  }
+}
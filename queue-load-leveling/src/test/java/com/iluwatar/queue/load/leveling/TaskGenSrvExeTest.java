@@ -24,6 +24,12 @@ package com.iluwatar.queue.load.leveling;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * 
  * Test case for submitting Message to Blocking Queue by TaskGenerator
@@ -47,4 +53,34 @@ public class TaskGenSrvExeTest {
     srvExeThr.start();
   }
 
+  @Test
+  public void servicePoolServesEveryMessageTest() throws InterruptedException {
+    MessageQueue msgQueue = new MessageQueue(16);
+    TaskGenerator generator = new TaskGenerator(msgQueue, 0, Backpressure.block());
+    Set<String> served = ConcurrentHashMap.newKeySet();
+
+    ServiceExecutorPool pool = new ServiceExecutorPool(msgQueue, 3, 8, msg -> {
+      if (msg.getMsg().equals("Message-13")) {
+        throw new IllegalStateException("Service failure");
+      }
+      served.add(msg.getMsg());
+    });
+    try {
+      for (int i = 0; i < 500; i++) {
+        assertEquals(Submission.ACCEPTED, generator.submit(new Message("Message-" + i)));
+      }
+      long deadline = System.currentTimeMillis() + 5000;
+      while (msgQueue.getMetrics().getServed() < 499 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+    } finally {
+      pool.close();
+    }
+    // every message but the failing one was served once
+    assertEquals(499, served.size());
+    assertEquals(499, msgQueue.getMetrics().getServed());
+    assertEquals(500, generator.getCount(Submission.ACCEPTED));
+    assertTrue(msgQueue.getMetrics().getServiceRate() > 0);
+  }
+
 }
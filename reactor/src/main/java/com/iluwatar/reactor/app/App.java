@@ -95,6 +95,7 @@ public class App {
   private NioReactor reactor;
   private List<AbstractNioChannel> channels = new ArrayList<>();
   private Dispatcher dispatcher;
+  private int workerCount;
 
   /**
    * Creates an instance of App which will use provided dispatcher for dispatching events on
@@ -103,7 +104,19 @@ public class App {
    * @param dispatcher the dispatcher that will be used to dispatch events.
    */
   public App(Dispatcher dispatcher) {
+    this(dispatcher, 0);
+  }
+
+  /**
+   * Creates an instance of App running a multi-reactor: one acceptor loop handing connections to
+   * {@code workerCount} worker loops.
+   * 
+   * @param dispatcher the dispatcher that will be used to dispatch events.
+   * @param workerCount the number of worker event loops, 0 for a single event loop.
+   */
+  public App(Dispatcher dispatcher, int workerCount) {
     this.dispatcher = dispatcher;
+    this.workerCount = workerCount;
   }
 
   /**
@@ -122,7 +135,7 @@ public class App {
     /*
      * The application can customize its event dispatching mechanism.
      */
-    reactor = new NioReactor(dispatcher);
+    reactor = new NioReactor(dispatcher, workerCount);
 
     /*
      * This represents application specific business logic that dispatcher will call on appropriate
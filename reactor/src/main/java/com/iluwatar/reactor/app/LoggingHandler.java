@@ -24,10 +24,12 @@ package com.iluwatar.reactor.app;
 
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
+import java.nio.charset.StandardCharsets;
 
 import com.iluwatar.reactor.framework.AbstractNioChannel;
 import com.iluwatar.reactor.framework.ChannelHandler;
 import com.iluwatar.reactor.framework.NioDatagramChannel.DatagramPacket;
+import com.iluwatar.reactor.framework.PooledBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,10 +50,10 @@ public class LoggingHandler implements ChannelHandler {
   public void handleChannelRead(AbstractNioChannel channel, Object readObject, SelectionKey key) {
     /*
      * As this handler is attached with both TCP and UDP channels we need to check whether the data
-     * received is a ByteBuffer (from TCP channel) or a DatagramPacket (from UDP channel).
+     * received is a PooledBuffer (from TCP channel) or a DatagramPacket (from UDP channel).
      */
-    if (readObject instanceof ByteBuffer) {
-      doLogging((ByteBuffer) readObject);
+    if (readObject instanceof PooledBuffer) {
+      LOGGER.info(((PooledBuffer) readObject).toString(StandardCharsets.UTF_8));
       sendReply(channel, key);
     } else if (readObject instanceof DatagramPacket) {
       DatagramPacket datagram = (DatagramPacket) readObject;
@@ -80,6 +82,6 @@ public class LoggingHandler implements ChannelHandler {
 
   private static void doLogging(ByteBuffer data) {
     // assuming UTF-8 :(
-    LOGGER.info(new String(data.array(), 0, data.limit()));
+    LOGGER.info(StandardCharsets.UTF_8.decode(data.duplicate()).toString());
   }
 }
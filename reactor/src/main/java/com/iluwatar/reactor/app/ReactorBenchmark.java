@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.app;
+
+import com.iluwatar.reactor.framework.AbstractNioChannel;
+import com.iluwatar.reactor.framework.BufferPool;
+import com.iluwatar.reactor.framework.ChannelHandler;
+import com.iluwatar.reactor.framework.NioReactor;
+import com.iluwatar.reactor.framework.NioServerSocketChannel;
+import com.iluwatar.reactor.framework.PooledBuffer;
+import com.iluwatar.reactor.framework.SameThreadDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares a single event loop with the multi-reactor mode of {@link NioReactor}. An echo server is
+ * started in each mode and a number of TCP clients send fixed-size requests back to back, each
+ * waiting for its echo before sending the next. The benchmark reports throughput and median / 99th
+ * percentile round-trip latency. Requests are handled by a {@link SameThreadDispatcher}, so all the
+ * work happens in the event loops. The number of read buffers the event loops had to allocate, as
+ * opposed to take from their pools, is reported as well.
+ * 
+ * <p>
+ * Run with {@code java com.iluwatar.reactor.app.ReactorBenchmark [clients] [seconds] [workers]}.
+ */
+public class ReactorBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReactorBenchmark.class);
+
+  private static final int PORT = 6670;
+  private static final int REQUEST_SIZE = 256;
+
+  /**
+   * Echoes every read buffer back to the sender, without copying it.
+   */
+  static class EchoHandler implements ChannelHandler {
+    @Override
+    public void handleChannelRead(AbstractNioChannel channel, Object readObject,
+        SelectionKey key) {
+      channel.write(((PooledBuffer) readObject).retain(), key);
+    }
+  }
+
+  /**
+   * Benchmark entry.
+   */
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int workers = args.length > 2 ? Integer.parseInt(args[2]) : NioReactor.DEFAULT_WORKER_COUNT;
+    run("single loop", 0, clients, seconds);
+    run(workers + " workers", workers, clients, seconds);
+  }
+
+  private static void run(String name, int workers, int clients, int seconds) throws Exception {
+    NioReactor reactor = new NioReactor(new SameThreadDispatcher(), workers);
+    NioServerSocketChannel channel = new NioServerSocketChannel(PORT, new EchoHandler());
+    channel.bind();
+    reactor.registerChannel(channel).start();
+
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    List<Future<long[]>> results = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      results.add(executor.submit(() -> roundTrips(deadline)));
+    }
+    List<Long> latencies = new ArrayList<>();
+    for (Future<long[]> result : results) {
+      for (long latency : result.get()) {
+        latencies.add(latency);
+      }
+    }
+    executor.shutdown();
+    reactor.stop();
+    channel.getJavaChannel().close();
+
+    latencies.sort(null);
+    LOGGER.info("{}: {} clients, {} requests/s, p50 {} us, p99 {} us", name, clients,
+        latencies.size() / seconds, percentile(latencies, 50) / 1000,
+        percentile(latencies, 99) / 1000);
+    long reads = 0;
+    long allocations = 0;
+    for (BufferPool pool : reactor.getBufferPools()) {
+      reads += pool.getAcquireCount();
+      allocations += pool.getAllocationCount();
+    }
+    LOGGER.info("{}: {} read buffers acquired, {} allocated", name, reads, allocations);
+  }
+
+  private static long[] roundTrips(long deadline) throws IOException {
+    byte[] request = new byte[REQUEST_SIZE];
+    Arrays.fill(request, (byte) 'x');
+    byte[] reply = new byte[REQUEST_SIZE];
+    long[] latencies = new long[1024];
+    int count = 0;
+    try (Socket socket = new Socket(InetAddress.getLocalHost(), PORT)) {
+      socket.setTcpNoDelay(true);
+      OutputStream out = socket.getOutputStream();
+      InputStream in = socket.getInputStream();
+      while (System.nanoTime() < deadline) {
+        long start = System.nanoTime();
+        out.write(request);
+        out.flush();
+        int received = 0;
+        while (received < REQUEST_SIZE) {
+          int read = in.read(reply, received, REQUEST_SIZE - received);
+          if (read < 0) {
+            throw new IOException("Server closed connection");
+          }
+          received += read;
+        }
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = System.nanoTime() - start;
+      }
+    }
+    return Arrays.copyOf(latencies, count);
+  }
+
+  private static long percentile(List<Long> sorted, int percentile) {
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100));
+  }
+}
@@ -27,9 +27,7 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This represents the <i>Handle</i> of Reactor pattern. These are resources managed by OS which can
@@ -41,14 +39,28 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * concrete implementation. It provides a block writing mechanism wherein when any
  * {@link ChannelHandler} wants to write data back, it queues the data in pending write queue and
  * clears it in block manner. This provides better throughput.
+ * 
+ * <p>
+ * The pending data of every connection is kept in an {@link OutboundBuffer}. When the connection
+ * becomes writable the reactor writes as much of it as the socket accepts, trying at most
+ * {@link #getWriteSpinCount()} times so that a single busy connection cannot hold up the event
+ * loop, and keeps waiting for writability until everything has been written.
  */
 public abstract class AbstractNioChannel {
 
+  /**
+   * The default number of write attempts per flush.
+   */
+  public static final int DEFAULT_WRITE_SPIN_COUNT = 16;
+
   private final SelectableChannel channel;
   private final ChannelHandler handler;
-  private final Map<SelectableChannel, Queue<Object>> channelToPendingWrites =
+  private final Map<SelectableChannel, OutboundBuffer> channelToPendingWrites =
       new ConcurrentHashMap<>();
   private NioReactor reactor;
+  private volatile int writeSpinCount = DEFAULT_WRITE_SPIN_COUNT;
+  private volatile int lowWaterMark = OutboundBuffer.DEFAULT_LOW_WATER_MARK;
+  private volatile int highWaterMark = OutboundBuffer.DEFAULT_HIGH_WATER_MARK;
 
   /**
    * Creates a new channel.
@@ -101,6 +113,21 @@ public abstract class AbstractNioChannel {
    */
   public abstract Object read(SelectionKey key) throws IOException;
 
+  /**
+   * Reads the data using the key into buffers acquired from <code>pool</code>, which belongs to the
+   * event loop the key is registered with. If the data read is {@link ReferenceCounted} it is
+   * released by the {@link Dispatcher} once handled. The default implementation does not pool and
+   * delegates to {@link #read(SelectionKey)}.
+   * 
+   * @param key the key on which read event occurred.
+   * @param pool the buffer pool of the event loop.
+   * @return data read.
+   * @throws IOException if any I/O error occurs.
+   */
+  public Object read(SelectionKey key, BufferPool pool) throws IOException {
+    return read(key);
+  }
+
   /**
    * @return the handler associated with this channel.
    */
@@ -108,33 +135,112 @@ public abstract class AbstractNioChannel {
     return handler;
   }
 
+  /**
+   * @return the maximum number of write attempts per flush.
+   */
+  public int getWriteSpinCount() {
+    return writeSpinCount;
+  }
+
+  /**
+   * Sets the maximum number of write attempts made each time a connection becomes writable.
+   * 
+   * @param writeSpinCount the number of attempts, at least one.
+   */
+  public void setWriteSpinCount(int writeSpinCount) {
+    if (writeSpinCount < 1) {
+      throw new IllegalArgumentException("writeSpinCount must be positive: " + writeSpinCount);
+    }
+    this.writeSpinCount = writeSpinCount;
+  }
+
+  /**
+   * Sets the water marks of the outbound buffers of connections opened from now on.
+   * 
+   * @param lowWaterMark the pending byte count below which a connection becomes writable again.
+   * @param highWaterMark the pending byte count above which a connection becomes not writable.
+   * @see OutboundBuffer
+   */
+  public void setWriteBufferWaterMarks(int lowWaterMark, int highWaterMark) {
+    if (lowWaterMark < 0 || lowWaterMark > highWaterMark) {
+      throw new IllegalArgumentException(
+          "Invalid water marks: low " + lowWaterMark + ", high " + highWaterMark);
+    }
+    this.lowWaterMark = lowWaterMark;
+    this.highWaterMark = highWaterMark;
+  }
+
+  /**
+   * Tells whether the handler can go on writing to the connection of <code>key</code>, that is
+   * whether its pending data has not crossed the high water mark.
+   * 
+   * @param key the key of the connection.
+   * @return true if the connection is writable.
+   */
+  public boolean isWritable(SelectionKey key) {
+    OutboundBuffer pendingWrites = channelToPendingWrites.get(key.channel());
+    return pendingWrites == null || pendingWrites.isWritable();
+  }
+
+  /**
+   * @param key the key of the connection.
+   * @return the number of bytes waiting to be written on the connection.
+   */
+  public long getPendingBytes(SelectionKey key) {
+    OutboundBuffer pendingWrites = channelToPendingWrites.get(key.channel());
+    return pendingWrites == null ? 0 : pendingWrites.getPendingBytes();
+  }
+
   /*
-   * Called from the context of reactor thread when the key becomes writable. The channel writes the
-   * whole pending block of data at once.
+   * Called from the context of reactor thread when the key becomes writable. The channel writes as
+   * much of the pending data as the socket accepts. The key stays interested in writing until
+   * everything is written, then goes back to reading.
    */
   void flush(SelectionKey key) throws IOException {
-    Queue<Object> pendingWrites = channelToPendingWrites.get(key.channel());
-    while (true) {
-      Object pendingWrite = pendingWrites.poll();
-      if (pendingWrite == null) {
-        // We don't have anything more to write so channel is interested in reading more data
-        reactor.changeOps(key, SelectionKey.OP_READ);
+    OutboundBuffer pendingWrites = channelToPendingWrites.get(key.channel());
+    if (pendingWrites == null) {
+      key.interestOps(SelectionKey.OP_READ);
+      return;
+    }
+    for (int i = 0; i < writeSpinCount && !pendingWrites.isEmpty(); i++) {
+      // ask the concrete channel to make sense of data and write it to java channel
+      long written = doWrite(pendingWrites, key);
+      if (pendingWrites.removeBytes(written)) {
+        handler.handleWritabilityChanged(this, key);
+      }
+      if (written == 0) {
+        // the socket send buffer is full
         break;
       }
-
-      // ask the concrete channel to make sense of data and write it to java channel
-      doWrite(pendingWrite, key);
+    }
+    if (pendingWrites.isEmpty() && pendingWrites.completeFlush()) {
+      // We don't have anything more to write so channel is interested in reading more data
+      key.interestOps(SelectionKey.OP_READ);
     }
   }
 
   /**
-   * Writes the data to the channel.
+   * Writes as much as possible from the head of the pending data to the channel, without
+   * blocking. A channel writing byte buffers should write several of them at once using
+   * {@link OutboundBuffer#nioBuffers(int)}.
    * 
-   * @param pendingWrite the data to be written on channel.
+   * @param pendingWrites the data to be written on channel.
    * @param key the key which is writable.
+   * @return the number of bytes written, zero if the channel cannot take any more data.
    * @throws IOException if any I/O error occurs.
    */
-  protected abstract void doWrite(Object pendingWrite, SelectionKey key) throws IOException;
+  protected abstract long doWrite(OutboundBuffer pendingWrites, SelectionKey key)
+      throws IOException;
+
+  /*
+   * Drops the pending data of a connection that has been closed.
+   */
+  void discardPendingWrites(SelectableChannel javaChannel) {
+    OutboundBuffer pendingWrites = channelToPendingWrites.remove(javaChannel);
+    if (pendingWrites != null) {
+      pendingWrites.discard();
+    }
+  }
 
   /**
    * Queues the data for writing. The data is not guaranteed to be written on underlying channel
@@ -148,28 +254,29 @@ public abstract class AbstractNioChannel {
    * <code>
    * {@literal @}Override
    * public void handleChannelRead(AbstractNioChannel channel, Object readObject, SelectionKey key) {
-   *   byte[] data = ((ByteBuffer)readObject).array();
+   *   byte[] data = ((PooledBuffer)readObject).toByteArray();
    *   ByteBuffer buffer = ByteBuffer.wrap("Server reply".getBytes());
    *   channel.write(buffer, key);
    * }
    * </code>
    * </pre>
    * 
+   * <p>
+   * A {@link ReferenceCounted} object is released once written, so a handler writing back the
+   * buffer it read has to {@link ReferenceCounted#retain() retain} it first. The reactor is woken
+   * up only for the first write queued since the last flush.
+   * 
    * @param data the data to be written on underlying channel.
    * @param key the key which is writable.
    */
   public void write(Object data, SelectionKey key) {
-    Queue<Object> pendingWrites = this.channelToPendingWrites.get(key.channel());
-    if (pendingWrites == null) {
-      synchronized (this.channelToPendingWrites) {
-        pendingWrites = this.channelToPendingWrites.get(key.channel());
-        if (pendingWrites == null) {
-          pendingWrites = new ConcurrentLinkedQueue<>();
-          this.channelToPendingWrites.put(key.channel(), pendingWrites);
-        }
-      }
+    OutboundBuffer pendingWrites = channelToPendingWrites.computeIfAbsent(key.channel(),
+        javaChannel -> new OutboundBuffer(lowWaterMark, highWaterMark));
+    if (pendingWrites.add(data)) {
+      handler.handleWritabilityChanged(this, key);
+    }
+    if (pendingWrites.scheduleFlush()) {
+      reactor.changeOps(key, SelectionKey.OP_WRITE);
     }
-    pendingWrites.add(data);
-    reactor.changeOps(key, SelectionKey.OP_WRITE);
   }
 }
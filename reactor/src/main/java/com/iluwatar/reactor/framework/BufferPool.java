@@ -0,0 +1,189 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.framework;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct {@link ByteBuffer}s used by the channels to read incoming data. Allocating a
+ * direct buffer is expensive, so buffers are handed out from a free list and returned to it when
+ * the data read into them has been handled.
+ * 
+ * <p>
+ * Buffers come in size classes of 1, 4, 16 and 64 KiB, a request being served by the smallest
+ * class that fits it. Every {@link NioReactor} event loop owns a pool, so the loops never contend
+ * with each other when acquiring buffers. Buffers may be released from any thread, as handlers
+ * often run on the threads of a {@link ThreadPoolDispatcher}.
+ */
+public class BufferPool {
+
+  /**
+   * The capacity of the smallest size class.
+   */
+  public static final int MIN_BUFFER_SIZE = 1024;
+
+  /**
+   * The capacity of the largest size class.
+   */
+  public static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The default number of free buffers kept per size class.
+   */
+  public static final int DEFAULT_MAX_POOLED = 64;
+
+  private static final int SIZE_CLASS_SHIFT = 2;
+
+  private final SizeClass[] sizeClasses;
+  private final int maxPooled;
+  private final long createdAt = System.nanoTime();
+  private final AtomicLong acquireCount = new AtomicLong();
+  private final AtomicLong allocationCount = new AtomicLong();
+  private final AtomicLong allocatedBytes = new AtomicLong();
+
+  /**
+   * Creates a pool keeping at most {@link #DEFAULT_MAX_POOLED} free buffers per size class.
+   */
+  public BufferPool() {
+    this(DEFAULT_MAX_POOLED);
+  }
+
+  /**
+   * Creates a pool.
+   * 
+   * @param maxPooled the number of free buffers kept per size class, any buffer released beyond
+   *        that is left to the garbage collector.
+   */
+  public BufferPool(int maxPooled) {
+    if (maxPooled < 0) {
+      throw new IllegalArgumentException("maxPooled must not be negative: " + maxPooled);
+    }
+    this.maxPooled = maxPooled;
+    int count = 0;
+    for (int size = MIN_BUFFER_SIZE; size <= MAX_BUFFER_SIZE; size <<= SIZE_CLASS_SHIFT) {
+      count++;
+    }
+    sizeClasses = new SizeClass[count];
+    for (int i = 0; i < count; i++) {
+      sizeClasses[i] = new SizeClass(MIN_BUFFER_SIZE << (i * SIZE_CLASS_SHIFT));
+    }
+  }
+
+  /**
+   * Acquires a cleared buffer with a capacity of at least <code>size</code> bytes.
+   * 
+   * @param size the minimum capacity, at most {@link #MAX_BUFFER_SIZE}.
+   * @return a direct buffer which has to be given back with {@link #release(ByteBuffer)}.
+   */
+  public ByteBuffer acquire(int size) {
+    if (size > MAX_BUFFER_SIZE) {
+      throw new IllegalArgumentException("Buffer size exceeds " + MAX_BUFFER_SIZE + ": " + size);
+    }
+    SizeClass sizeClass = sizeClasses[0];
+    for (int i = 1; sizeClass.capacity < size; i++) {
+      sizeClass = sizeClasses[i];
+    }
+    acquireCount.incrementAndGet();
+    ByteBuffer buffer = sizeClass.free.poll();
+    if (buffer == null) {
+      allocationCount.incrementAndGet();
+      allocatedBytes.addAndGet(sizeClass.capacity);
+      return ByteBuffer.allocateDirect(sizeClass.capacity);
+    }
+    sizeClass.freeCount.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Gives a buffer back to the pool. The buffer must not be used afterwards.
+   * 
+   * @param buffer a buffer acquired from this pool.
+   */
+  public void release(ByteBuffer buffer) {
+    for (SizeClass sizeClass : sizeClasses) {
+      if (sizeClass.capacity == buffer.capacity()) {
+        if (sizeClass.freeCount.incrementAndGet() <= maxPooled) {
+          sizeClass.free.offer(buffer);
+        } else {
+          sizeClass.freeCount.decrementAndGet();
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the number of buffers handed out by this pool.
+   */
+  public long getAcquireCount() {
+    return acquireCount.get();
+  }
+
+  /**
+   * @return the number of buffers that had to be allocated because no free one was available.
+   */
+  public long getAllocationCount() {
+    return allocationCount.get();
+  }
+
+  /**
+   * @return the total capacity of the buffers allocated by this pool.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  /**
+   * @return the average number of bytes allocated per second since the pool was created.
+   */
+  public double getAllocationRate() {
+    long elapsed = System.nanoTime() - createdAt;
+    return elapsed == 0 ? 0 : allocatedBytes.get() * 1_000_000_000.0 / elapsed;
+  }
+
+  /**
+   * @return the number of free buffers currently held by the pool.
+   */
+  public int getPooledCount() {
+    int count = 0;
+    for (SizeClass sizeClass : sizeClasses) {
+      count += sizeClass.free.size();
+    }
+    return count;
+  }
+
+  private static class SizeClass {
+    private final int capacity;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    SizeClass(int capacity) {
+      this.capacity = capacity;
+    }
+  }
+}
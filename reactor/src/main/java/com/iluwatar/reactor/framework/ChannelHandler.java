@@ -42,4 +42,17 @@ public interface ChannelHandler {
    * @param key the key on which read event occurred.
    */
   void handleChannelRead(AbstractNioChannel channel, Object readObject, SelectionKey key);
+
+  /**
+   * Called when the data pending to be written on a connection crosses the high water mark or,
+   * having crossed it, drops below the low water mark again. A handler producing a lot of data
+   * should stop writing until {@link AbstractNioChannel#isWritable(SelectionKey)} turns true.
+   * Does nothing by default.
+   * 
+   * @param channel the channel the connection belongs to.
+   * @param key the key of the connection.
+   */
+  default void handleWritabilityChanged(AbstractNioChannel channel, SelectionKey key) {
+    // no-op
+  }
 }
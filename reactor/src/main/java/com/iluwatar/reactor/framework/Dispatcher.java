@@ -46,7 +46,8 @@ public interface Dispatcher {
    * associated {@link ChannelHandler} of <code>channel</code>.
    * 
    * <p>
-   * The type of <code>readObject</code> depends on the channel on which data was received.
+   * The type of <code>readObject</code> depends on the channel on which data was received. If it is
+   * {@link ReferenceCounted} the implementation must release it after the handler returns.
    * 
    * @param channel on which read event occurred
    * @param readObject object read by channel
@@ -73,7 +73,7 @@ public class NioDatagramChannel extends AbstractNioChannel {
    */
   @Override
   public DatagramPacket read(SelectionKey key) throws IOException {
-    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    ByteBuffer buffer = ByteBuffer.allocate(BufferPool.MAX_BUFFER_SIZE);
     SocketAddress sender = ((DatagramChannel) key.channel()).receive(buffer);
 
     /*
@@ -87,6 +87,32 @@ public class NioDatagramChannel extends AbstractNioChannel {
     return packet;
   }
 
+  /**
+   * Reads a {@link DatagramPacket} into a direct buffer from <code>pool</code>. A datagram has to
+   * be received in a single buffer, so the buffer is of the largest size class, which fits any
+   * datagram sent over IPv4. The buffer is returned to the pool when the packet is released.
+   * 
+   * @return the datagram packet read having the sender address.
+   */
+  @Override
+  public DatagramPacket read(SelectionKey key, BufferPool pool) throws IOException {
+    PooledBuffer message = new PooledBuffer(pool);
+    ByteBuffer buffer = pool.acquire(BufferPool.MAX_BUFFER_SIZE);
+    SocketAddress sender;
+    try {
+      sender = ((DatagramChannel) key.channel()).receive(buffer);
+    } catch (IOException e) {
+      pool.release(buffer);
+      throw e;
+    }
+    buffer.flip();
+    message.addComponent(buffer);
+
+    DatagramPacket packet = new DatagramPacket(message);
+    packet.setSender(sender);
+    return packet;
+  }
+
   /**
    * @return the underlying datagram channel.
    */
@@ -108,13 +134,13 @@ public class NioDatagramChannel extends AbstractNioChannel {
   }
 
   /**
-   * Writes the pending {@link DatagramPacket} to the underlying channel sending data to the
-   * intended receiver of the packet.
+   * Writes the first pending {@link DatagramPacket} to the underlying channel sending data to the
+   * intended receiver of the packet. A datagram is sent whole or not at all.
    */
   @Override
-  protected void doWrite(Object pendingWrite, SelectionKey key) throws IOException {
-    DatagramPacket pendingPacket = (DatagramPacket) pendingWrite;
-    getJavaChannel().send(pendingPacket.getData(), pendingPacket.getReceiver());
+  protected long doWrite(OutboundBuffer pendingWrites, SelectionKey key) throws IOException {
+    DatagramPacket pendingPacket = (DatagramPacket) pendingWrites.current();
+    return getJavaChannel().send(pendingPacket.getData(), pendingPacket.getReceiver());
   }
 
   /**
@@ -130,10 +156,11 @@ public class NioDatagramChannel extends AbstractNioChannel {
   /**
    * Container of data used for {@link NioDatagramChannel} to communicate with remote peer.
    */
-  public static class DatagramPacket {
+  public static class DatagramPacket implements ReferenceCounted {
     private SocketAddress sender;
     private ByteBuffer data;
     private SocketAddress receiver;
+    private PooledBuffer pooled;
 
     /**
      * Creates a container with underlying data.
@@ -144,6 +171,14 @@ public class NioDatagramChannel extends AbstractNioChannel {
       this.data = data;
     }
 
+    /*
+     * Creates a packet over a pooled buffer holding a single component.
+     */
+    DatagramPacket(PooledBuffer pooled) {
+      this.data = pooled.nioBuffers()[0];
+      this.pooled = pooled;
+    }
+
     /**
      * @return the sender address.
      */
@@ -182,5 +217,26 @@ public class NioDatagramChannel extends AbstractNioChannel {
     public ByteBuffer getData() {
       return data;
     }
+
+    /**
+     * Adds a reference to the pooled buffer of a received packet, packets created by the
+     * application are not pooled.
+     */
+    @Override
+    public DatagramPacket retain() {
+      if (pooled != null) {
+        pooled.retain();
+      }
+      return this;
+    }
+
+    /**
+     * Drops a reference to the pooled buffer of a received packet, which goes back to the pool
+     * with the last reference.
+     */
+    @Override
+    public boolean release() {
+      return pooled != null && pooled.release();
+    }
   }
 }
@@ -30,13 +30,16 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class acts as Synchronous Event De-multiplexer and Initiation Dispatcher of Reactor pattern. Multiple handles
@@ -50,6 +53,17 @@ import java.util.concurrent.TimeUnit;
  * {@link NioReactor} uses {@link Selector} for realizing Synchronous Event De-multiplexing.
  * 
  * <p>
+ * Multi-reactor mode: a reactor created with a number of workers only accepts connections (and serves
+ * channels registered on it directly, such as UDP channels) in its own loop. Every accepted
+ * {@link SocketChannel} is handed round-robin to one of the worker reactors, each running its own
+ * {@link Selector} in its own thread, so reads and writes of different connections are spread over
+ * several cores. {@link #DEFAULT_WORKER_COUNT} workers is a good starting point.
+ * 
+ * <p>
+ * Every event loop reads into direct buffers from a {@link BufferPool} of its own, which the dispatcher
+ * releases after the handler has run, so reading does not allocate once the pools are warm.
+ * 
+ * <p>
  * NOTE: This is one of the ways to implement NIO reactor and it does not take care of all possible edge cases which are
  * required in a real application. This implementation is meant to demonstrate the fundamental concepts that lie behind
  * Reactor pattern.
@@ -58,6 +72,11 @@ public class NioReactor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NioReactor.class);
 
+  /**
+   * Default number of worker event loops in multi-reactor mode, one per available core.
+   */
+  public static final int DEFAULT_WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
   private final Selector selector;
   private final Dispatcher dispatcher;
   /**
@@ -67,6 +86,11 @@ public class NioReactor {
    */
   private final Queue<Runnable> pendingCommands = new ConcurrentLinkedQueue<>();
   private final ExecutorService reactorMain = Executors.newSingleThreadExecutor();
+  private final NioReactor[] workers;
+  private final BufferPool bufferPool = new BufferPool();
+  private final AtomicBoolean wakeupPending = new AtomicBoolean();
+  private volatile Thread loopThread;
+  private int nextWorker;
 
   /**
    * Creates a reactor which will use provided {@code dispatcher} to dispatch events. The application can provide
@@ -78,14 +102,37 @@ public class NioReactor {
    *           if any I/O error occurs.
    */
   public NioReactor(Dispatcher dispatcher) throws IOException {
+    this(dispatcher, 0);
+  }
+
+  /**
+   * Creates a reactor in multi-reactor mode, which hands accepted connections to {@code workerCount}
+   * worker event loops. All of them use provided {@code dispatcher} to dispatch events. With no
+   * workers this is the same as {@link #NioReactor(Dispatcher)}.
+   * 
+   * @param dispatcher
+   *          a non-null dispatcher used to dispatch events on registered channels.
+   * @param workerCount
+   *          number of worker event loops serving accepted connections.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public NioReactor(Dispatcher dispatcher, int workerCount) throws IOException {
     this.dispatcher = dispatcher;
     this.selector = Selector.open();
+    this.workers = new NioReactor[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new NioReactor(dispatcher);
+    }
   }
 
   /**
    * Starts the reactor event loop in a new thread.
    */
   public void start() {
+    for (NioReactor worker : workers) {
+      worker.start();
+    }
     reactorMain.execute(() -> {
       try {
         LOGGER.info("Reactor started, waiting for events...");
@@ -109,9 +156,27 @@ public class NioReactor {
     selector.wakeup();
     reactorMain.awaitTermination(4, TimeUnit.SECONDS);
     selector.close();
+    for (NioReactor worker : workers) {
+      worker.stop();
+    }
     LOGGER.info("Reactor stopped");
   }
 
+  /**
+   * Returns the buffer pools of this reactor's event loops, useful for monitoring allocations. The pool of the
+   * acceptor loop comes first, followed by those of the workers.
+   * 
+   * @return the buffer pools.
+   */
+  public List<BufferPool> getBufferPools() {
+    List<BufferPool> pools = new ArrayList<>(workers.length + 1);
+    pools.add(bufferPool);
+    for (NioReactor worker : workers) {
+      pools.add(worker.bufferPool);
+    }
+    return pools;
+  }
+
   /**
    * Registers a new channel (handle) with this reactor. Reactor will start waiting for events on this channel and
    * notify of any events. While registering the channel the reactor uses {@link AbstractNioChannel#getInterestedOps()}
@@ -131,6 +196,7 @@ public class NioReactor {
   }
 
   private void eventLoop() throws IOException {
+    loopThread = Thread.currentThread();
     while (true) {
 
       // honor interrupt request
@@ -138,7 +204,8 @@ public class NioReactor {
         break;
       }
 
-      // honor any pending commands first
+      // honor any pending commands first, commands added from now on wake the selector up again
+      wakeupPending.set(false);
       processPendingCommands();
 
       /*
@@ -189,23 +256,32 @@ public class NioReactor {
     }
   }
 
-  private static void onChannelWritable(SelectionKey key) throws IOException {
+  private static void onChannelWritable(SelectionKey key) {
     AbstractNioChannel channel = (AbstractNioChannel) key.attachment();
-    channel.flush(key);
+    try {
+      channel.flush(key);
+    } catch (IOException e) {
+      closeChannel(key);
+    }
   }
 
   private void onChannelReadable(SelectionKey key) {
     try {
       // reads the incoming data in context of reactor main loop. Can this be improved?
-      Object readObject = ((AbstractNioChannel) key.attachment()).read(key);
+      Object readObject = ((AbstractNioChannel) key.attachment()).read(key, bufferPool);
 
       dispatchReadEvent(key, readObject);
     } catch (IOException e) {
-      try {
-        key.channel().close();
-      } catch (IOException e1) {
-        LOGGER.error("error closing channel", e1);
-      }
+      closeChannel(key);
+    }
+  }
+
+  private static void closeChannel(SelectionKey key) {
+    ((AbstractNioChannel) key.attachment()).discardPendingWrites(key.channel());
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      LOGGER.error("error closing channel", e);
     }
   }
 
@@ -219,16 +295,50 @@ public class NioReactor {
   private void onChannelAcceptable(SelectionKey key) throws IOException {
     ServerSocketChannel serverSocketChannel = (ServerSocketChannel) key.channel();
     SocketChannel socketChannel = serverSocketChannel.accept();
+    if (socketChannel == null) {
+      return;
+    }
     socketChannel.configureBlocking(false);
-    SelectionKey readKey = socketChannel.register(selector, SelectionKey.OP_READ);
-    readKey.attach(key.attachment());
+    if (workers.length == 0) {
+      SelectionKey readKey = socketChannel.register(selector, SelectionKey.OP_READ);
+      readKey.attach(key.attachment());
+    } else {
+      NioReactor worker = workers[nextWorker];
+      nextWorker = (nextWorker + 1) % workers.length;
+      worker.registerAcceptedChannel(socketChannel, (AbstractNioChannel) key.attachment());
+    }
+  }
+
+  /*
+   * Registers a connection accepted by the acceptor reactor with this worker. The registration has to
+   * happen in this reactor's own loop, as registering with a selector blocks while it is selecting.
+   */
+  private void registerAcceptedChannel(SocketChannel socketChannel, AbstractNioChannel channel) {
+    pendingCommands.add(() -> {
+      try {
+        socketChannel.register(selector, SelectionKey.OP_READ, channel);
+      } catch (IOException e) {
+        LOGGER.error("error registering accepted channel", e);
+      }
+    });
+    wakeup();
+  }
+
+  /*
+   * Wakes the selector up unless a wake up is already pending, as every wake up costs a system call.
+   */
+  private void wakeup() {
+    if (wakeupPending.compareAndSet(false, true)) {
+      selector.wakeup();
+    }
   }
 
   /**
    * Queues the change of operations request of a channel, which will change the interested operations of the channel
    * sometime in future.
    * <p>
-   * This is a non-blocking method and does not guarantee that the operations have changed when this method returns.
+   * This is a non-blocking method and does not guarantee that the operations have changed when this method returns,
+   * unless it is called from the event loop owning the key, in which case the operations are changed right away.
    * 
    * @param key
    *          the key for which operations have to be changed.
@@ -236,8 +346,26 @@ public class NioReactor {
    *          the new interest operations.
    */
   public void changeOps(SelectionKey key, int interestedOps) {
-    pendingCommands.add(new ChangeKeyOpsCommand(key, interestedOps));
-    selector.wakeup();
+    NioReactor owner = ownerOf(key);
+    if (Thread.currentThread() == owner.loopThread) {
+      key.interestOps(interestedOps);
+      return;
+    }
+    owner.pendingCommands.add(new ChangeKeyOpsCommand(key, interestedOps));
+    owner.wakeup();
+  }
+
+  /*
+   * Channels only know the reactor they were registered with, but in multi-reactor mode the keys of
+   * accepted connections belong to a worker's selector.
+   */
+  private NioReactor ownerOf(SelectionKey key) {
+    for (NioReactor worker : workers) {
+      if (key.selector() == worker.selector) {
+        return worker;
+      }
+    }
+    return this;
   }
 
   /**
@@ -41,6 +41,17 @@ public class NioServerSocketChannel extends AbstractNioChannel {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NioServerSocketChannel.class);
 
+  /*
+   * Keeps gathering writes within the number of buffers operating systems accept in one call.
+   */
+  private static final int MAX_GATHERED_BUFFERS = 1024;
+
+  /**
+   * The number of reads made from a connection each time it becomes readable, so a fast sender
+   * cannot hold up the other connections of its reactor.
+   */
+  public static final int MAX_READS_PER_EVENT = 16;
+
   private final int port;
 
   /**
@@ -78,17 +89,58 @@ public class NioServerSocketChannel extends AbstractNioChannel {
    * Reads and returns {@link ByteBuffer} from the underlying {@link SocketChannel} represented by
    * the <code>key</code>. Due to the fact that there is a dedicated channel for each client
    * connection we don't need to store the sender.
+   * 
+   * <p>
+   * The read buffer is copied out of a throwaway pool, the event loops use
+   * {@link #read(SelectionKey, BufferPool)} instead.
    */
   @Override
   public ByteBuffer read(SelectionKey key) throws IOException {
+    PooledBuffer pooled = read(key, new BufferPool(0));
+    ByteBuffer buffer = ByteBuffer.wrap(pooled.toByteArray());
+    pooled.release();
+    return buffer;
+  }
+
+  /**
+   * Reads the data available on the {@link SocketChannel} represented by the <code>key</code>
+   * into direct buffers from <code>pool</code>. Reading starts with a buffer of the smallest size
+   * class and, as long as the socket fills the buffers, continues in buffers four times larger, up
+   * to the largest class, until no more data is available or {@link #MAX_READS_PER_EVENT} reads
+   * have been made. The rest is read when the selector reports the connection readable again.
+   * 
+   * @return the composite buffer holding the data read.
+   */
+  @Override
+  public PooledBuffer read(SelectionKey key, BufferPool pool) throws IOException {
     SocketChannel socketChannel = (SocketChannel) key.channel();
-    ByteBuffer buffer = ByteBuffer.allocate(1024);
-    int read = socketChannel.read(buffer);
-    buffer.flip();
-    if (read == -1) {
-      throw new IOException("Socket closed");
+    PooledBuffer message = new PooledBuffer(pool);
+    int size = BufferPool.MIN_BUFFER_SIZE;
+    for (int reads = 1; ; reads++) {
+      ByteBuffer buffer = pool.acquire(size);
+      int read;
+      try {
+        read = socketChannel.read(buffer);
+      } catch (IOException e) {
+        pool.release(buffer);
+        message.release();
+        throw e;
+      }
+      if (read <= 0) {
+        pool.release(buffer);
+        if (read == -1 && message.componentCount() == 0) {
+          message.release();
+          throw new IOException("Socket closed");
+        }
+        return message;
+      }
+      buffer.flip();
+      message.addComponent(buffer);
+      if (buffer.limit() < buffer.capacity() || reads == MAX_READS_PER_EVENT) {
+        return message;
+      }
+      size = Math.min(size << 2, BufferPool.MAX_BUFFER_SIZE);
     }
-    return buffer;
   }
 
   /**
@@ -105,12 +157,12 @@ public class NioServerSocketChannel extends AbstractNioChannel {
   }
 
   /**
-   * Writes the pending {@link ByteBuffer} to the underlying channel sending data to the intended
-   * receiver of the packet.
+   * Writes the pending {@link ByteBuffer}s and {@link PooledBuffer}s to the underlying channel with
+   * a single gathering write.
    */
   @Override
-  protected void doWrite(Object pendingWrite, SelectionKey key) throws IOException {
-    ByteBuffer pendingBuffer = (ByteBuffer) pendingWrite;
-    ((SocketChannel) key.channel()).write(pendingBuffer);
+  protected long doWrite(OutboundBuffer pendingWrites, SelectionKey key) throws IOException {
+    ByteBuffer[] buffers = pendingWrites.nioBuffers(MAX_GATHERED_BUFFERS);
+    return ((SocketChannel) key.channel()).write(buffers);
   }
 }
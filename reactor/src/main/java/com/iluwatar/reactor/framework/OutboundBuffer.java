@@ -0,0 +1,209 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.framework;
+
+import com.iluwatar.reactor.framework.NioDatagramChannel.DatagramPacket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The data queued for writing on a connection of an {@link AbstractNioChannel}. Handlers add
+ * messages from any thread, the event loop owning the connection writes them out when it becomes
+ * writable, possibly in several goes when the socket does not take everything at once.
+ * 
+ * <p>
+ * The buffer counts the bytes pending. Once they exceed the high water mark the connection is
+ * reported as not writable, and only when they drop below the low water mark is it writable
+ * again, so a handler producing data faster than the peer consumes it can hold back.
+ */
+public class OutboundBuffer {
+
+  /**
+   * The default pending byte count above which the connection becomes not writable.
+   */
+  public static final int DEFAULT_HIGH_WATER_MARK = 64 * 1024;
+
+  /**
+   * The default pending byte count below which the connection becomes writable again.
+   */
+  public static final int DEFAULT_LOW_WATER_MARK = 32 * 1024;
+
+  private final Queue<Object> messages = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final int lowWaterMark;
+  private final int highWaterMark;
+  private volatile long pendingBytes;
+  private volatile boolean writable = true;
+
+  OutboundBuffer(int lowWaterMark, int highWaterMark) {
+    if (lowWaterMark > highWaterMark) {
+      throw new IllegalArgumentException("Low water mark " + lowWaterMark
+          + " exceeds high water mark " + highWaterMark);
+    }
+    this.lowWaterMark = lowWaterMark;
+    this.highWaterMark = highWaterMark;
+  }
+
+  /*
+   * Queues a message and returns true if it made the buffer cross the high water mark.
+   */
+  boolean add(Object message) {
+    int size = sizeOf(message);
+    messages.add(message);
+    synchronized (this) {
+      pendingBytes += size;
+      if (pendingBytes > highWaterMark && writable) {
+        writable = false;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Accounts for bytes written to the channel and drops the messages fully written, releasing
+   * the reference counted ones. A datagram is sent on its own, so only the one at the head is
+   * dropped, and an empty one behind it still gets sent. Returns true if the buffer dropped below
+   * the low water mark.
+   */
+  boolean removeBytes(long written) {
+    Object message;
+    while ((message = messages.peek()) != null && sizeOf(message) == 0) {
+      messages.poll();
+      ReferenceCounted.release(message);
+      if (message instanceof DatagramPacket) {
+        break;
+      }
+    }
+    synchronized (this) {
+      pendingBytes -= written;
+      if (pendingBytes < lowWaterMark && !writable) {
+        writable = true;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the message at the head of the buffer, or null if the buffer is empty.
+   */
+  public Object current() {
+    return messages.peek();
+  }
+
+  /**
+   * Collects the buffers of the messages at the head of the buffer for a gathering write, stopping
+   * at the first message that is not made of byte buffers. Writing the returned buffers advances
+   * the pending messages.
+   * 
+   * @param maxCount the number of buffers after which no further message is added.
+   * @return the buffers, in order.
+   */
+  public ByteBuffer[] nioBuffers(int maxCount) {
+    List<ByteBuffer> buffers = new ArrayList<>();
+    for (Object message : messages) {
+      if (message instanceof ByteBuffer) {
+        buffers.add((ByteBuffer) message);
+      } else if (message instanceof PooledBuffer) {
+        Collections.addAll(buffers, ((PooledBuffer) message).nioBuffers());
+      } else {
+        break;
+      }
+      if (buffers.size() >= maxCount) {
+        break;
+      }
+    }
+    return buffers.toArray(new ByteBuffer[0]);
+  }
+
+  /*
+   * Schedules a flush, returning false if one was already scheduled so that the event loop is
+   * woken up only once for any number of messages added before it flushes.
+   */
+  boolean scheduleFlush() {
+    return flushScheduled.compareAndSet(false, true);
+  }
+
+  /*
+   * Called by the event loop when it has written everything. Returns false if messages were
+   * added concurrently and the flush has been scheduled again.
+   */
+  boolean completeFlush() {
+    flushScheduled.set(false);
+    return messages.isEmpty() || !scheduleFlush();
+  }
+
+  /*
+   * Drops all pending messages, used when the connection is closed.
+   */
+  void discard() {
+    Object message;
+    while ((message = messages.poll()) != null) {
+      ReferenceCounted.release(message);
+    }
+    synchronized (this) {
+      pendingBytes = 0;
+      writable = true;
+    }
+  }
+
+  /**
+   * @return true if nothing is waiting to be written.
+   */
+  public boolean isEmpty() {
+    return messages.isEmpty();
+  }
+
+  /**
+   * @return the number of bytes waiting to be written.
+   */
+  public long getPendingBytes() {
+    return pendingBytes;
+  }
+
+  /**
+   * @return false if the pending bytes crossed the high water mark and have not yet dropped
+   *         below the low water mark.
+   */
+  public boolean isWritable() {
+    return writable;
+  }
+
+  private static int sizeOf(Object message) {
+    if (message instanceof ByteBuffer) {
+      return ((ByteBuffer) message).remaining();
+    } else if (message instanceof PooledBuffer) {
+      return ((PooledBuffer) message).readableBytes();
+    } else if (message instanceof DatagramPacket) {
+      return ((DatagramPacket) message).getData().remaining();
+    }
+    throw new IllegalArgumentException("Unsupported message type: " + message.getClass());
+  }
+}
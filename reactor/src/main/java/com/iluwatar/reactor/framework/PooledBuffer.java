@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.framework;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The data read from a TCP connection by {@link NioServerSocketChannel}. It is a composite of one
+ * or more direct buffers taken from a {@link BufferPool}: a message that does not fit the first
+ * buffer continues in further, larger ones instead of being copied into a bigger buffer. The
+ * buffers go back to the pool when the last reference is released.
+ */
+public class PooledBuffer implements ReferenceCounted {
+
+  private final BufferPool pool;
+  private final List<ByteBuffer> components = new ArrayList<>(1);
+  private final AtomicInteger refCount = new AtomicInteger(1);
+
+  /**
+   * Creates an empty buffer holding a single reference.
+   * 
+   * @param pool the pool the components are released to.
+   */
+  public PooledBuffer(BufferPool pool) {
+    this.pool = pool;
+  }
+
+  /*
+   * Appends a component, flipped for reading. Only called by the reading event loop before the
+   * buffer is dispatched.
+   */
+  void addComponent(ByteBuffer component) {
+    components.add(component);
+  }
+
+  /**
+   * @return the number of bytes that can be read.
+   */
+  public int readableBytes() {
+    int readable = 0;
+    for (ByteBuffer component : components) {
+      readable += component.remaining();
+    }
+    return readable;
+  }
+
+  /**
+   * @return the number of buffers holding the data.
+   */
+  public int componentCount() {
+    return components.size();
+  }
+
+  /**
+   * Returns the buffers holding the data, in order. The buffers are shared, so reading them
+   * advances the position of this buffer as well, which is what a gathering write needs.
+   * 
+   * @return the component buffers.
+   */
+  public ByteBuffer[] nioBuffers() {
+    return components.toArray(new ByteBuffer[0]);
+  }
+
+  /**
+   * @return a copy of the readable bytes.
+   */
+  public byte[] toByteArray() {
+    byte[] bytes = new byte[readableBytes()];
+    int offset = 0;
+    for (ByteBuffer component : components) {
+      int length = component.remaining();
+      component.duplicate().get(bytes, offset, length);
+      offset += length;
+    }
+    return bytes;
+  }
+
+  /**
+   * Decodes the readable bytes.
+   * 
+   * @param charset the charset of the data.
+   * @return the decoded string.
+   */
+  public String toString(Charset charset) {
+    if (components.size() == 1) {
+      return charset.decode(components.get(0).duplicate()).toString();
+    }
+    return new String(toByteArray(), charset);
+  }
+
+  @Override
+  public PooledBuffer retain() {
+    int count;
+    do {
+      count = refCount.get();
+      if (count == 0) {
+        throw new IllegalStateException("Buffer already released");
+      }
+    } while (!refCount.compareAndSet(count, count + 1));
+    return this;
+  }
+
+  @Override
+  public boolean release() {
+    int count;
+    do {
+      count = refCount.get();
+      if (count == 0) {
+        throw new IllegalStateException("Buffer already released");
+      }
+    } while (!refCount.compareAndSet(count, count - 1));
+    if (count > 1) {
+      return false;
+    }
+    for (ByteBuffer component : components) {
+      pool.release(component);
+    }
+    components.clear();
+    return true;
+  }
+
+  /**
+   * @return the number of references held.
+   */
+  public int refCount() {
+    return refCount.get();
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.framework;
+
+/**
+ * An object holding pooled resources that are returned to their pool once the last reference is
+ * released. Objects read by the pooled channels implement this interface; the {@link Dispatcher}
+ * releases them after {@link ChannelHandler#handleChannelRead} returns, so a handler that wants to
+ * use the read object afterwards, for instance from another thread, has to {@link #retain()} it
+ * and release it when done.
+ */
+public interface ReferenceCounted {
+
+  /**
+   * Adds a reference.
+   * 
+   * @return this object.
+   * @throws IllegalStateException if the object has already been released.
+   */
+  ReferenceCounted retain();
+
+  /**
+   * Drops a reference, freeing the pooled resources when it was the last one.
+   * 
+   * @return true if the resources were freed.
+   * @throws IllegalStateException if the object has already been released.
+   */
+  boolean release();
+
+  /**
+   * Releases <code>object</code> if it is reference counted and does nothing otherwise.
+   * 
+   * @param object the object to be released, may be null.
+   */
+  static void release(Object object) {
+    if (object instanceof ReferenceCounted) {
+      ((ReferenceCounted) object).release();
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link BufferPool} and the pooled reads of {@link NioServerSocketChannel}.
+ */
+public class BufferPoolTest {
+
+  @Test
+  public void testAcquireUsesSmallestFittingSizeClass() {
+    BufferPool pool = new BufferPool();
+    assertEquals(1024, pool.acquire(1).capacity());
+    assertEquals(4096, pool.acquire(1025).capacity());
+    assertEquals(65536, pool.acquire(BufferPool.MAX_BUFFER_SIZE).capacity());
+    assertTrue(pool.acquire(10).isDirect());
+    assertThrows(IllegalArgumentException.class,
+        () -> pool.acquire(BufferPool.MAX_BUFFER_SIZE + 1));
+  }
+
+  @Test
+  public void testReleasedBufferIsReused() {
+    BufferPool pool = new BufferPool();
+    ByteBuffer buffer = pool.acquire(100);
+    buffer.put((byte) 1);
+    pool.release(buffer);
+
+    ByteBuffer reused = pool.acquire(1000);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(2, pool.getAcquireCount());
+    assertEquals(1, pool.getAllocationCount());
+    assertEquals(1024, pool.getAllocatedBytes());
+  }
+
+  @Test
+  public void testPoolIsBounded() {
+    BufferPool pool = new BufferPool(1);
+    pool.release(pool.acquire(1));
+    pool.release(ByteBuffer.allocateDirect(1024));
+    assertEquals(1, pool.getPooledCount());
+  }
+
+  @Test
+  public void testPooledBufferReleasesComponentsWithLastReference() {
+    BufferPool pool = new BufferPool();
+    PooledBuffer buffer = new PooledBuffer(pool);
+    ByteBuffer component = pool.acquire(1);
+    component.put(new byte[] {1, 2, 3}).flip();
+    buffer.addComponent(component);
+
+    buffer.retain();
+    assertFalse(buffer.release());
+    assertEquals(0, pool.getPooledCount());
+    assertTrue(buffer.release());
+    assertEquals(1, pool.getPooledCount());
+    assertThrows(IllegalStateException.class, buffer::release);
+  }
+
+  @Test
+  public void testLargeMessageIsReadIntoCompositeBuffer() throws IOException {
+    byte[] message = new byte[20_000];
+    for (int i = 0; i < message.length; i++) {
+      message[i] = (byte) i;
+    }
+    BufferPool pool = new BufferPool();
+    NioServerSocketChannel channel = new NioServerSocketChannel(0, null);
+    try (ServerSocketChannel server = ServerSocketChannel.open();
+        Selector selector = Selector.open()) {
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      try (SocketChannel client = SocketChannel.open(server.getLocalAddress());
+          SocketChannel accepted = server.accept()) {
+        client.write(ByteBuffer.wrap(message));
+        accepted.configureBlocking(false);
+        SelectionKey key = accepted.register(selector, SelectionKey.OP_READ, channel);
+
+        byte[] received = new byte[0];
+        while (received.length < message.length) {
+          selector.select();
+          selector.selectedKeys().clear();
+          PooledBuffer read = channel.read(key, pool);
+          byte[] bytes = read.toByteArray();
+          int offset = received.length;
+          received = Arrays.copyOf(received, offset + bytes.length);
+          System.arraycopy(bytes, 0, received, offset, bytes.length);
+          read.release();
+        }
+        assertArrayEquals(message, received);
+        assertEquals(pool.getAllocationCount(), pool.getPooledCount());
+      }
+    } finally {
+      channel.getJavaChannel().close();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reactor.framework;
+
+import com.iluwatar.reactor.framework.NioDatagramChannel.DatagramPacket;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link OutboundBuffer} and the flushing of {@link AbstractNioChannel}.
+ */
+public class OutboundBufferTest {
+
+  private static final int PORT = 6680;
+
+  @Test
+  public void testWaterMarks() {
+    OutboundBuffer buffer = new OutboundBuffer(10, 20);
+    assertFalse(buffer.add(ByteBuffer.allocate(15)));
+    assertTrue(buffer.add(ByteBuffer.allocate(10)));
+    assertFalse(buffer.isWritable());
+    assertEquals(25, buffer.getPendingBytes());
+
+    ByteBuffer[] buffers = buffer.nioBuffers(16);
+    buffers[0].position(15);
+    assertFalse(buffer.removeBytes(15));
+    assertFalse(buffer.isWritable());
+    buffers[1].position(5);
+    assertTrue(buffer.removeBytes(5));
+    assertTrue(buffer.isWritable());
+    assertSame(buffers[1], buffer.current());
+  }
+
+  @Test
+  public void testFullyWrittenMessagesAreReleased() {
+    BufferPool pool = new BufferPool();
+    PooledBuffer message = new PooledBuffer(pool);
+    ByteBuffer component = pool.acquire(1);
+    component.put(new byte[8]).flip();
+    message.addComponent(component);
+
+    OutboundBuffer buffer = new OutboundBuffer(10, 20);
+    buffer.add(message);
+    buffer.nioBuffers(16)[0].position(8);
+    buffer.removeBytes(8);
+    assertNull(buffer.current());
+    assertEquals(0, message.refCount());
+    assertEquals(1, pool.getPooledCount());
+  }
+
+  @Test
+  public void testOnlyTheSentDatagramIsDropped() {
+    DatagramPacket sent = new DatagramPacket(ByteBuffer.allocate(8));
+    DatagramPacket empty = new DatagramPacket(ByteBuffer.allocate(0));
+    OutboundBuffer buffer = new OutboundBuffer(10, 20);
+    buffer.add(sent);
+    buffer.add(empty);
+
+    sent.getData().position(8);
+    buffer.removeBytes(8);
+    assertSame(empty, buffer.current());
+    buffer.removeBytes(0);
+    assertNull(buffer.current());
+  }
+
+  @Test
+  public void testFlushOnlyScheduledOnce() {
+    OutboundBuffer buffer = new OutboundBuffer(10, 20);
+    assertTrue(buffer.scheduleFlush());
+    assertFalse(buffer.scheduleFlush());
+    assertTrue(buffer.completeFlush());
+
+    buffer.scheduleFlush();
+    buffer.add(ByteBuffer.allocate(1));
+    assertFalse(buffer.completeFlush());
+  }
+
+  @Test
+  public void testUnsupportedMessage() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new OutboundBuffer(10, 20).add("text"));
+  }
+
+  @Test
+  public void testReplyLargerThanSocketBufferIsWrittenWhole() throws Exception {
+    int replySize = 8 * 1024 * 1024;
+    AtomicInteger writabilityChanges = new AtomicInteger();
+    ChannelHandler handler = new ChannelHandler() {
+      @Override
+      public void handleChannelRead(AbstractNioChannel channel, Object readObject,
+          SelectionKey key) {
+        for (int i = 0; i < replySize / 4096; i++) {
+          channel.write(ByteBuffer.allocate(4096), key);
+        }
+      }
+
+      @Override
+      public void handleWritabilityChanged(AbstractNioChannel channel, SelectionKey key) {
+        writabilityChanges.incrementAndGet();
+      }
+    };
+    NioReactor reactor = new NioReactor(new SameThreadDispatcher());
+    NioServerSocketChannel channel = new NioServerSocketChannel(PORT, handler);
+    channel.bind();
+    reactor.registerChannel(channel).start();
+    try (Socket socket = new Socket(InetAddress.getLocalHost(), PORT)) {
+      socket.getOutputStream().write(1);
+      InputStream in = socket.getInputStream();
+      byte[] chunk = new byte[64 * 1024];
+      long received = 0;
+      while (received < replySize) {
+        int read = in.read(chunk);
+        if (read < 0) {
+          throw new IOException("Server closed connection");
+        }
+        received += read;
+      }
+      assertEquals(replySize, received);
+    } finally {
+      reactor.stop();
+      channel.getJavaChannel().close();
+    }
+    assertEquals(2, writabilityChanges.get());
+  }
+}
@@ -0,0 +1,205 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reader.writer.lock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the throughput of {@link ReaderWriterLock}, {@link ReentrantReadWriteLock},
+ * {@link StampedLock} and {@link StripedReaderWriterLock} across read to write ratios, locking
+ * the reads or reading optimistically where the lock can.
+ * <p>
+ * Each thread reads or writes a pair of fields under the lock, choosing at random with the given
+ * share of writes, for the given time; readers check the pair is consistent.
+ * <p>
+ * Run with {@code java com.iluwatar.reader.writer.lock.LockBenchmark [seconds] [threads]}.
+ */
+public class LockBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LockBenchmark.class);
+
+  private static final int[] WRITE_PERCENTS = {0, 1, 10, 50};
+
+  private long first;
+  private long second;
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+    Map<String, Supplier<Access>> accesses = new LinkedHashMap<>();
+    accesses.put("ReaderWriterLock", () -> locked(new ReaderWriterLock()));
+    accesses.put("ReentrantReadWriteLock", () -> locked(new ReentrantReadWriteLock()));
+    accesses.put("StampedLock", () -> locked(new StampedLock().asReadWriteLock()));
+    accesses.put("StampedLock optimistic", LockBenchmark::stampedOptimistic);
+    for (StripedReaderWriterLock.Policy policy : StripedReaderWriterLock.Policy.values()) {
+      accesses.put("Striped " + policy, () -> locked(new StripedReaderWriterLock(policy)));
+    }
+    accesses.put("Striped optimistic", LockBenchmark::stripedOptimistic);
+
+    for (int writePercent : WRITE_PERCENTS) {
+      for (Map.Entry<String, Supplier<Access>> access : accesses.entrySet()) {
+        // warm up, then measure
+        run(access.getValue().get(), 1, threads, writePercent);
+        double opsPerSecond = run(access.getValue().get(), seconds, threads, writePercent);
+        LOGGER.info("{}% writes, {}: {} ops/s", writePercent, access.getKey(),
+            String.format("%.0f", opsPerSecond));
+      }
+    }
+  }
+
+  private static double run(Access access, int seconds, int threadCount, int writePercent)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    LongAdder ops = new LongAdder();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long count = 0;
+        while ((count & 255) != 0 || System.nanoTime() < deadline) {
+          if (random.nextInt(100) < writePercent) {
+            access.write();
+          } else if (access.read() != 0) {
+            throw new IllegalStateException("Read an inconsistent pair");
+          }
+          count++;
+        }
+        ops.add(count);
+      }));
+    }
+    long start = System.nanoTime();
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return ops.sum() * 1e9 / (System.nanoTime() - start);
+  }
+
+  private static Access locked(ReadWriteLock lock) {
+    return locked(lock, new LockBenchmark());
+  }
+
+  private static Access locked(ReadWriteLock lock, LockBenchmark data) {
+    return new Access() {
+      @Override
+      public long read() {
+        lock.readLock().lock();
+        try {
+          return data.first - data.second;
+        } finally {
+          lock.readLock().unlock();
+        }
+      }
+
+      @Override
+      public void write() {
+        lock.writeLock().lock();
+        try {
+          data.first++;
+          data.second++;
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    };
+  }
+
+  private static Access stampedOptimistic() {
+    StampedLock lock = new StampedLock();
+    LockBenchmark data = new LockBenchmark();
+    return new Access() {
+      @Override
+      public long read() {
+        long stamp = lock.tryOptimisticRead();
+        long difference = data.first - data.second;
+        if (lock.validate(stamp)) {
+          return difference;
+        }
+        stamp = lock.readLock();
+        try {
+          return data.first - data.second;
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+
+      @Override
+      public void write() {
+        long stamp = lock.writeLock();
+        data.first++;
+        data.second++;
+        lock.unlockWrite(stamp);
+      }
+    };
+  }
+
+  private static Access stripedOptimistic() {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock();
+    LockBenchmark data = new LockBenchmark();
+    Access locked = locked(lock, data);
+    return new Access() {
+      @Override
+      public long read() {
+        long stamp = lock.tryOptimisticRead();
+        long difference = data.first - data.second;
+        return lock.validate(stamp) ? difference : locked.read();
+      }
+
+      @Override
+      public void write() {
+        locked.write();
+      }
+    };
+  }
+
+  /**
+   * Reads or writes the pair of fields.
+   */
+  private interface Access {
+    /**
+     * @return the difference of the pair, zero unless the read was torn.
+     */
+    long read();
+
+    void write();
+  }
+}
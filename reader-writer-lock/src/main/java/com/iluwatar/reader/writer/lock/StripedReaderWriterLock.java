@@ -0,0 +1,650 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reader.writer.lock;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A reader writer lock that scales with the number of readers.
+ * <p>
+ * Readers count themselves in one of several counters, picked by thread and each on cache lines
+ * of its own, so readers on different cores do not fight over one cache line. A writer marks the
+ * lock as written, which stops new readers, then waits for the counters to add up to zero.
+ * Readers can also read without locking at all: {@link #tryOptimisticRead()} returns a stamp and
+ * {@link #validate(long)} tells whether a writer may have got the lock since. The stamps come
+ * from a {@link StampedLock} that writers hold along with the write lock, as checking a stamp
+ * needs a load fence, which Java 8 only offers to its own classes.
+ * <p>
+ * Threads that cannot get the lock yield a few times before waiting on a mutex, and the
+ * {@link Policy} decides which of readers and writers waits for the other. The lock is not
+ * reentrant for writers, and a reader must not ask for the write lock. Like with
+ * {@link java.util.concurrent.locks.ReentrantReadWriteLock}, only the write lock supports
+ * conditions, and unlocking a lock the thread does not hold throws
+ * {@link IllegalMonitorStateException}.
+ */
+public class StripedReaderWriterLock implements ReadWriteLock {
+
+  /**
+   * Which of readers and writers waits for the other.
+   */
+  public enum Policy {
+    /**
+     * Readers get in as long as no writer holds the lock, so a stream of readers can starve the
+     * writers, like with {@link ReaderWriterLock}.
+     */
+    READER_PREFERENCE,
+    /**
+     * A waiting writer stops new readers, so a stream of writers can starve the readers.
+     */
+    WRITER_PREFERENCE,
+    /**
+     * A waiting writer stops new readers, but a writer unlocking lets in the readers waiting
+     * before the next writer, and writers get the lock in the order they asked, so nobody starves.
+     */
+    PHASE_FAIR
+  }
+
+  private static final AtomicLongFieldUpdater<StripedReaderWriterLock> STATE =
+      AtomicLongFieldUpdater.newUpdater(StripedReaderWriterLock.class, "state");
+
+  // the state: a writer holds the lock, and writers wait
+  private static final long WRITE = 1L;
+  private static final long PENDING = 2L;
+
+  // times to yield and retry before waiting on the mutex
+  private static final int SPINS = 16;
+
+  // longs per reader counter, two cache lines to keep clear of adjacent line prefetching
+  private static final int PAD = 16;
+
+  private final Policy policy;
+  private final long blocksReaders;
+  private final AtomicLongArray readers;
+  private final int stripeMask;
+  private final ReadLock readLock = new ReadLock();
+  private final WriteLock writeLock = new WriteLock();
+  // the read locks each thread holds, as the counters are shared by threads
+  private final ThreadLocal<int[]> readHolds = ThreadLocal.withInitial(() -> new int[1]);
+  // held by the writer, for the stamps of optimistic reads
+  private final StampedLock versions = new StampedLock();
+
+  private final ReentrantLock sync = new ReentrantLock();
+  private final Condition readable = sync.newCondition();
+  private final Condition writable = sync.newCondition();
+  // guarded by sync
+  private final ArrayDeque<Thread> writers = new ArrayDeque<>();
+  private int waitingReaders;
+  private int admitted;
+
+  private volatile int waiters;
+  private volatile long state;
+  // only ever compared with the current thread, which sees its own writes
+  private Thread owner;
+
+  /**
+   * Creates a lock preferring writers, with twice as many reader counters as cores.
+   */
+  public StripedReaderWriterLock() {
+    this(Policy.WRITER_PREFERENCE);
+  }
+
+  /**
+   * Creates a lock with twice as many reader counters as cores.
+   * @param policy which of readers and writers waits for the other.
+   */
+  public StripedReaderWriterLock(Policy policy) {
+    this(policy, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a lock.
+   * @param policy which of readers and writers waits for the other.
+   * @param stripes the number of reader counters, rounded up to a power of two.
+   */
+  public StripedReaderWriterLock(Policy policy, int stripes) {
+    if (stripes <= 0 || stripes > 1 << 16) {
+      throw new IllegalArgumentException("stripes must be between 1 and 65536");
+    }
+    int size = Integer.highestOneBit(stripes * 2 - 1);
+    this.policy = policy;
+    this.blocksReaders = policy == Policy.READER_PREFERENCE ? WRITE : WRITE | PENDING;
+    this.readers = new AtomicLongArray((size + 1) * PAD);
+    this.stripeMask = size - 1;
+  }
+
+  @Override
+  public Lock readLock() {
+    return readLock;
+  }
+
+  @Override
+  public Lock writeLock() {
+    return writeLock;
+  }
+
+  /**
+   * Returns a stamp to read without locking, to be checked with {@link #validate(long)} after
+   * reading.
+   * @return the stamp, or zero if a writer holds the lock.
+   */
+  public long tryOptimisticRead() {
+    return versions.tryOptimisticRead();
+  }
+
+  /**
+   * Tells whether no writer got the lock since the stamp was returned, in which case what was
+   * read since is consistent.
+   * @param stamp the stamp from {@link #tryOptimisticRead()}.
+   * @return whether the reads made since the stamp are valid.
+   */
+  public boolean validate(long stamp) {
+    return stamp != 0L && versions.validate(stamp);
+  }
+
+  /**
+   * @return the number of read locks held.
+   */
+  public long getReadLockCount() {
+    return readerCount();
+  }
+
+  /**
+   * @return whether a writer holds the lock.
+   */
+  public boolean isWriteLocked() {
+    return versions.isWriteLocked();
+  }
+
+  /**
+   * @return the policy of the lock.
+   */
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  private int readerIndex() {
+    return (((int) Thread.currentThread().getId() & stripeMask) + 1) * PAD;
+  }
+
+  private long readerCount() {
+    long count = 0;
+    for (int i = PAD; i < readers.length(); i += PAD) {
+      count += readers.get(i);
+    }
+    return count;
+  }
+
+  private boolean tryReadFast(int index, long blocking) {
+    readers.incrementAndGet(index);
+    if ((state & blocking) == 0) {
+      return true;
+    }
+    readers.decrementAndGet(index);
+    // a writer may be waiting for this reader to leave
+    signalWriters();
+    return false;
+  }
+
+  private boolean spinRead(int index) {
+    for (int i = 0; i < SPINS; i++) {
+      Thread.yield();
+      if ((state & blocksReaders) == 0 && tryReadFast(index, blocksReaders)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean acquireRead(int index, boolean interruptible, long nanos)
+      throws InterruptedException {
+    if (interruptible) {
+      sync.lockInterruptibly();
+    } else {
+      sync.lock();
+    }
+    waitingReaders++;
+    updateWaiters();
+    try {
+      for (;;) {
+        if (admitted > 0) {
+          // let in by the writer that unlocked last, ahead of the writers waiting
+          readers.incrementAndGet(index);
+          if ((state & WRITE) == 0) {
+            if (--admitted == 0) {
+              writable.signalAll();
+            }
+            return true;
+          }
+          readers.decrementAndGet(index);
+        } else if (tryReadFast(index, blocksReaders)) {
+          return true;
+        }
+        if (nanos == 0) {
+          return false;
+        }
+        nanos = await(readable, interruptible, nanos);
+      }
+    } finally {
+      waitingReaders--;
+      if (admitted > waitingReaders) {
+        admitted = waitingReaders;
+        if (admitted == 0) {
+          writable.signalAll();
+        }
+      }
+      updateWaiters();
+      sync.unlock();
+    }
+  }
+
+  private boolean holdRead(boolean acquired) {
+    if (acquired) {
+      readHolds.get()[0]++;
+    }
+    return acquired;
+  }
+
+  private void releaseRead() {
+    int[] held = readHolds.get();
+    if (held[0] == 0) {
+      throw new IllegalMonitorStateException("Read lock not held");
+    }
+    held[0]--;
+    readers.decrementAndGet(readerIndex());
+    if ((state & (WRITE | PENDING)) != 0 && readerCount() == 0) {
+      signalWriters();
+    }
+  }
+
+  private boolean tryWriteFast(boolean barge) {
+    long current = state;
+    if ((current & WRITE) != 0
+        || !barge && ((current & PENDING) != 0 || policy == Policy.PHASE_FAIR && waiters != 0)
+        || !STATE.compareAndSet(this, current, current | WRITE)) {
+      return false;
+    }
+    if (readerCount() == 0) {
+      holdWrite();
+      return true;
+    }
+    clearBits(WRITE);
+    signalReaders();
+    return false;
+  }
+
+  private boolean spinWrite() {
+    for (int i = 0; i < SPINS; i++) {
+      Thread.yield();
+      if ((state & WRITE) == 0 && readerCount() == 0 && tryWriteFast(false)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean acquireWrite(boolean interruptible, long nanos) throws InterruptedException {
+    if (interruptible) {
+      sync.lockInterruptibly();
+    } else {
+      sync.lock();
+    }
+    Thread current = Thread.currentThread();
+    boolean acquired = false;
+    writers.addLast(current);
+    if (writers.size() == 1) {
+      setBits(PENDING);
+    }
+    updateWaiters();
+    try {
+      for (;;) {
+        if (writers.peekFirst() == current && admitted == 0 && trySetBits(WRITE)) {
+          // no reader gets in any more, wait for those in to leave
+          try {
+            while (readerCount() != 0 && policy != Policy.READER_PREFERENCE && nanos != 0) {
+              nanos = await(writable, interruptible, nanos);
+            }
+          } catch (InterruptedException ex) {
+            clearBits(WRITE);
+            throw ex;
+          }
+          if (readerCount() == 0) {
+            holdWrite();
+            acquired = true;
+            return true;
+          }
+          // readers go first, or the time is up
+          clearBits(WRITE);
+          readable.signalAll();
+        }
+        if (nanos == 0) {
+          return false;
+        }
+        nanos = await(writable, interruptible, nanos);
+      }
+    } finally {
+      writers.remove(current);
+      if (writers.isEmpty()) {
+        clearBits(PENDING);
+      }
+      updateWaiters();
+      if (!acquired) {
+        readable.signalAll();
+        writable.signalAll();
+      }
+      sync.unlock();
+    }
+  }
+
+  private void holdWrite() {
+    owner = Thread.currentThread();
+    // free, as only the writer holding the write lock takes it
+    versions.tryWriteLock();
+  }
+
+  private void releaseWrite() {
+    if (owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException("Write lock not held");
+    }
+    owner = null;
+    versions.tryUnlockWrite();
+    clearBits(WRITE);
+    if (waiters != 0) {
+      sync.lock();
+      try {
+        if (policy == Policy.PHASE_FAIR) {
+          admitted = waitingReaders;
+        }
+        readable.signalAll();
+        writable.signalAll();
+      } finally {
+        sync.unlock();
+      }
+    }
+  }
+
+  private void signalWriters() {
+    if (waiters != 0) {
+      sync.lock();
+      try {
+        writable.signalAll();
+      } finally {
+        sync.unlock();
+      }
+    }
+  }
+
+  private void signalReaders() {
+    if (waiters != 0) {
+      sync.lock();
+      try {
+        readable.signalAll();
+      } finally {
+        sync.unlock();
+      }
+    }
+  }
+
+  private void updateWaiters() {
+    waiters = waitingReaders + writers.size();
+  }
+
+  private boolean trySetBits(long bits) {
+    long current;
+    do {
+      current = state;
+      if ((current & bits) != 0) {
+        return false;
+      }
+    } while (!STATE.compareAndSet(this, current, current | bits));
+    return true;
+  }
+
+  private void setBits(long bits) {
+    long current;
+    do {
+      current = state;
+    } while (!STATE.compareAndSet(this, current, current | bits));
+  }
+
+  private void clearBits(long bits) {
+    long current;
+    do {
+      current = state;
+    } while (!STATE.compareAndSet(this, current, current & ~bits));
+  }
+
+  /**
+   * Waits on the condition, for the nanoseconds given or without time limit if negative.
+   * @return the nanoseconds left, zero once the time is up, or negative if there is no limit.
+   */
+  private static long await(Condition condition, boolean interruptible, long nanos)
+      throws InterruptedException {
+    if (nanos >= 0) {
+      return Math.max(0L, condition.awaitNanos(nanos));
+    }
+    if (interruptible) {
+      condition.await();
+    } else {
+      condition.awaitUninterruptibly();
+    }
+    return nanos;
+  }
+
+  /**
+   * Read lock, held by any number of readers at once while no writer holds the write lock.
+   */
+  private class ReadLock implements Lock {
+
+    @Override
+    public void lock() {
+      int index = readerIndex();
+      if (!tryReadFast(index, blocksReaders) && !spinRead(index)) {
+        try {
+          acquireRead(index, false, -1L);
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      holdRead(true);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      int index = readerIndex();
+      if (!tryReadFast(index, blocksReaders) && !spinRead(index)) {
+        acquireRead(index, true, -1L);
+      }
+      holdRead(true);
+    }
+
+    @Override
+    public boolean tryLock() {
+      return holdRead(tryReadFast(readerIndex(), WRITE));
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      int index = readerIndex();
+      return holdRead(tryReadFast(index, blocksReaders)
+          || acquireRead(index, true, Math.max(0L, unit.toNanos(time))));
+    }
+
+    @Override
+    public void unlock() {
+      releaseRead();
+    }
+
+    @Override
+    public Condition newCondition() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Write lock, held by one writer at a time while no reader holds the read lock.
+   */
+  private class WriteLock implements Lock {
+
+    @Override
+    public void lock() {
+      if (!tryWriteFast(false) && !spinWrite()) {
+        try {
+          acquireWrite(false, -1L);
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (!tryWriteFast(false) && !spinWrite()) {
+        acquireWrite(true, -1L);
+      }
+    }
+
+    @Override
+    public boolean tryLock() {
+      return tryWriteFast(true);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      return tryWriteFast(false) || acquireWrite(true, Math.max(0L, unit.toNanos(time)));
+    }
+
+    @Override
+    public void unlock() {
+      releaseWrite();
+    }
+
+    @Override
+    public Condition newCondition() {
+      return new WriteCondition();
+    }
+  }
+
+  /**
+   * Condition of the write lock: waiting on it unlocks the write lock, and locks it again before
+   * returning, even when interrupted.
+   */
+  private class WriteCondition implements Condition {
+
+    private final Condition condition = sync.newCondition();
+
+    @Override
+    public void await() throws InterruptedException {
+      awaitUnlocked(true, -1L);
+    }
+
+    @Override
+    public void awaitUninterruptibly() {
+      try {
+        awaitUnlocked(false, -1L);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public long awaitNanos(long nanosTimeout) throws InterruptedException {
+      return awaitUnlocked(true, Math.max(0L, nanosTimeout));
+    }
+
+    @Override
+    public boolean await(long time, TimeUnit unit) throws InterruptedException {
+      return awaitNanos(unit.toNanos(time)) > 0;
+    }
+
+    @Override
+    public boolean awaitUntil(Date deadline) throws InterruptedException {
+      return awaitNanos(
+          TimeUnit.MILLISECONDS.toNanos(deadline.getTime() - System.currentTimeMillis())) > 0;
+    }
+
+    @Override
+    public void signal() {
+      checkHeld();
+      sync.lock();
+      try {
+        condition.signal();
+      } finally {
+        sync.unlock();
+      }
+    }
+
+    @Override
+    public void signalAll() {
+      checkHeld();
+      sync.lock();
+      try {
+        condition.signalAll();
+      } finally {
+        sync.unlock();
+      }
+    }
+
+    private long awaitUnlocked(boolean interruptible, long nanos) throws InterruptedException {
+      checkHeld();
+      if (interruptible && Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      // the mutex is held from unlocking to waiting, so a signal cannot come in between
+      sync.lock();
+      try {
+        releaseWrite();
+        return StripedReaderWriterLock.await(condition, interruptible, nanos);
+      } finally {
+        sync.unlock();
+        writeLock.lock();
+      }
+    }
+
+    private void checkHeld() {
+      if (owner != Thread.currentThread()) {
+        throw new IllegalMonitorStateException("Write lock not held");
+      }
+    }
+  }
+}
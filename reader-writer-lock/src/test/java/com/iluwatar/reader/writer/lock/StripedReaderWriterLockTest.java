@@ -0,0 +1,327 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.reader.writer.lock;
+
+import com.iluwatar.reader.writer.lock.StripedReaderWriterLock.Policy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests StripedReaderWriterLock.
+ */
+public class StripedReaderWriterLockTest {
+
+  private int first;
+  private int second;
+
+  @Test
+  public void readersShareTheLockAndWritersHaveItAlone() throws Exception {
+    for (Policy policy : Policy.values()) {
+      StripedReaderWriterLock lock = new StripedReaderWriterLock(policy, 4);
+      AtomicInteger writing = new AtomicInteger();
+      AtomicInteger reading = new AtomicInteger();
+      AtomicBoolean failed = new AtomicBoolean();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(executor.submit(() -> {
+          for (int i = 0; i < 20_000; i++) {
+            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+              lock.writeLock().lock();
+              try {
+                failed.compareAndSet(false, writing.incrementAndGet() != 1 || reading.get() != 0);
+                first++;
+                second++;
+                writing.decrementAndGet();
+              } finally {
+                lock.writeLock().unlock();
+              }
+            } else {
+              lock.readLock().lock();
+              try {
+                reading.incrementAndGet();
+                failed.compareAndSet(false, writing.get() != 0 || first != second);
+                reading.decrementAndGet();
+              } finally {
+                lock.readLock().unlock();
+              }
+            }
+          }
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get(60, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+
+      assertFalse(failed.get(), policy + " let a writer in with others");
+      assertEquals(0, lock.getReadLockCount());
+      assertFalse(lock.isWriteLocked());
+    }
+  }
+
+  @Test
+  public void optimisticReadIsInvalidatedByAWriter() {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock();
+    long stamp = lock.tryOptimisticRead();
+    assertNotEquals(0L, stamp);
+    lock.readLock().lock();
+    lock.readLock().unlock();
+    assertTrue(lock.validate(stamp));
+
+    lock.writeLock().lock();
+    assertEquals(0L, lock.tryOptimisticRead());
+    assertFalse(lock.validate(stamp));
+    lock.writeLock().unlock();
+
+    assertFalse(lock.validate(stamp));
+    assertTrue(lock.validate(lock.tryOptimisticRead()));
+  }
+
+  @Test
+  public void waitingWriterStopsNewReaders() throws Exception {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock(Policy.WRITER_PREFERENCE);
+    lock.readLock().lock();
+    Thread writer = start(() -> {
+      lock.writeLock().lock();
+      lock.writeLock().unlock();
+    });
+    awaitBlocked(writer);
+
+    assertFalse(tryLockElsewhere(lock.readLock(), 50));
+
+    lock.readLock().unlock();
+    writer.join(10_000);
+    assertFalse(writer.isAlive());
+    assertTrue(tryLockElsewhere(lock.readLock(), 0));
+  }
+
+  @Test
+  public void readerPreferenceLetsReadersPassAWaitingWriter() throws Exception {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock(Policy.READER_PREFERENCE);
+    lock.readLock().lock();
+    Thread writer = start(() -> {
+      lock.writeLock().lock();
+      lock.writeLock().unlock();
+    });
+    awaitBlocked(writer);
+
+    assertTrue(tryLockElsewhere(lock.readLock(), 50));
+
+    lock.readLock().unlock();
+    writer.join(10_000);
+    assertFalse(writer.isAlive());
+  }
+
+  @Test
+  public void phaseFairLetsWaitingReadersInBeforeTheNextWriter() throws Exception {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock(Policy.PHASE_FAIR);
+    lock.writeLock().lock();
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch doneReading = new CountDownLatch(1);
+    AtomicBoolean wrote = new AtomicBoolean();
+    Thread reader = start(() -> {
+      lock.readLock().lock();
+      try {
+        reading.countDown();
+        doneReading.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.readLock().unlock();
+      }
+    });
+    awaitBlocked(reader);
+    Thread writer = start(() -> {
+      lock.writeLock().lock();
+      wrote.set(true);
+      lock.writeLock().unlock();
+    });
+    awaitBlocked(writer);
+
+    lock.writeLock().unlock();
+
+    assertTrue(reading.await(10, TimeUnit.SECONDS));
+    assertFalse(wrote.get());
+    doneReading.countDown();
+    writer.join(10_000);
+    assertTrue(wrote.get());
+  }
+
+  @Test
+  public void timedTryLockGivesUpAndLeavesTheLockUsable() throws Exception {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock();
+    lock.readLock().lock();
+    assertFalse(tryLockElsewhere(lock.writeLock(), 50));
+    assertFalse(lock.writeLock().tryLock());
+    lock.readLock().unlock();
+
+    assertTrue(lock.writeLock().tryLock(1, TimeUnit.SECONDS));
+    assertFalse(tryLockElsewhere(lock.readLock(), 50));
+    assertFalse(tryLockElsewhere(lock.writeLock(), 0));
+    lock.writeLock().unlock();
+
+    assertTrue(lock.readLock().tryLock());
+    lock.readLock().unlock();
+  }
+
+  @Test
+  public void lockInterruptiblyGivesUpWhenInterrupted() throws Exception {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock();
+    lock.writeLock().lock();
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Thread reader = start(() -> {
+      try {
+        lock.readLock().lockInterruptibly();
+        lock.readLock().unlock();
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+    });
+    awaitBlocked(reader);
+
+    reader.interrupt();
+    reader.join(10_000);
+
+    assertTrue(interrupted.get());
+    lock.writeLock().unlock();
+    assertTrue(lock.readLock().tryLock());
+    lock.readLock().unlock();
+    assertTrue(lock.writeLock().tryLock());
+    lock.writeLock().unlock();
+  }
+
+  @Test
+  public void unlockingAWriteLockNotHeldFails() {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock();
+    assertThrows(IllegalMonitorStateException.class, () -> lock.writeLock().unlock());
+  }
+
+  @Test
+  public void unlockingAReadLockNotHeldFails() throws Exception {
+    // one counter, shared with the thread holding a read lock
+    StripedReaderWriterLock lock = new StripedReaderWriterLock(Policy.WRITER_PREFERENCE, 1);
+    assertThrows(IllegalMonitorStateException.class, () -> lock.readLock().unlock());
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    Thread reader = start(() -> {
+      lock.readLock().lock();
+      locked.countDown();
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.readLock().unlock();
+      }
+    });
+    assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+    assertThrows(IllegalMonitorStateException.class, () -> lock.readLock().unlock());
+    assertEquals(1, lock.getReadLockCount());
+    done.countDown();
+    reader.join(10_000);
+    assertEquals(0, lock.getReadLockCount());
+  }
+
+  @Test
+  public void waitingOnAConditionUnlocksTheWriteLock() throws Exception {
+    StripedReaderWriterLock lock = new StripedReaderWriterLock();
+    Condition changed = lock.writeLock().newCondition();
+    assertThrows(IllegalMonitorStateException.class, () -> changed.await());
+    assertThrows(IllegalMonitorStateException.class, () -> changed.signal());
+    AtomicBoolean signalled = new AtomicBoolean();
+    Thread waiter = start(() -> {
+      lock.writeLock().lock();
+      try {
+        while (first == 0) {
+          changed.await();
+        }
+        signalled.set(lock.isWriteLocked());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    });
+    awaitBlocked(waiter);
+
+    lock.writeLock().lock();
+    first++;
+    changed.signalAll();
+    lock.writeLock().unlock();
+    waiter.join(10_000);
+    assertTrue(signalled.get());
+
+    lock.writeLock().lock();
+    assertFalse(changed.await(10, TimeUnit.MILLISECONDS));
+    assertTrue(lock.isWriteLocked());
+    lock.writeLock().unlock();
+  }
+
+  private static Thread start(Runnable task) {
+    Thread thread = new Thread(task);
+    thread.start();
+    return thread;
+  }
+
+  private static void awaitBlocked(Thread thread) throws InterruptedException {
+    for (int i = 0; i < 1000 && thread.getState() != Thread.State.WAITING; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(Thread.State.WAITING, thread.getState());
+  }
+
+  private static boolean tryLockElsewhere(Lock lock, long millis) throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      return executor.submit(() -> {
+        if (lock.tryLock(millis, TimeUnit.MILLISECONDS)) {
+          lock.unlock();
+          return true;
+        }
+        return false;
+      }).get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,424 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.threadpool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ *
+ * AdaptiveTaskExecutor runs tasks on a pool whose number of workers follows the load, for task
+ * mixes that shift between CPU-bound and blocking phases.
+ * <p>
+ * Every task records how long it waited in the bounded queue and how long it ran, per type of
+ * {@link Task}. At every control interval the pool is resized from two signals:
+ * <ul>
+ * <li>Little's law: the workers needed are the arrival rate of each task type times its service
+ * time, where the service time is the lowest seen recently, the time the task takes without
+ * contention.</li>
+ * <li>the gradient of the service time, the uncontended service time over the current one. Blocking
+ * tasks keep a gradient of one however many workers run them, while CPU-bound tasks slow down as
+ * soon as there are more workers than processors. While tasks wait in the queue longer than the
+ * target wait the pool grows, but only as long as the gradient shows that more workers still
+ * help; otherwise it shrinks to the workers the gradient justifies.</li>
+ * </ul>
+ * Shrinking is gradual, at most a quarter of the workers per interval. A task submitted to a full
+ * queue is handled by the {@link RejectionPolicy}.
+ *
+ */
+public class AdaptiveTaskExecutor extends TaskExecutor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveTaskExecutor.class);
+
+  public static final int DEFAULT_MAX_THREADS = 256;
+  public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+  public static final long DEFAULT_CONTROL_INTERVAL_MILLIS = 100;
+  public static final long DEFAULT_TARGET_WAIT_MILLIS = 10;
+
+  /**
+   * The gradient above which adding workers is considered to pay off
+   */
+  private static final double MIN_GROWTH_GRADIENT = 0.9;
+
+  /**
+   * How fast the uncontended service time may rise per interval, to follow tasks that really got
+   * slower
+   */
+  private static final double BASELINE_DRIFT = 0.01;
+
+  /**
+   * What happens to a task submitted to a full queue
+   */
+  public enum RejectionPolicy {
+    /**
+     * The submission throws {@link RejectedExecutionException}
+     */
+    ABORT,
+    /**
+     * The submitting thread runs the task, which slows the submissions down
+     */
+    CALLER_RUNS,
+    /**
+     * The task is dropped, its future completes with {@link RejectedExecutionException}
+     */
+    DISCARD,
+    /**
+     * The oldest queued task is dropped in favour of the new one, the dropped future completes
+     * with {@link RejectedExecutionException}
+     */
+    DISCARD_OLDEST
+  }
+
+  private final ThreadPoolExecutor pool;
+  private final int minThreads;
+  private final int maxThreads;
+  private final long targetWaitNanos;
+  private final RejectionPolicy rejectionPolicy;
+  private final ScheduledExecutorService controller;
+
+  private final Map<Class<? extends Task>, TaskTypeMetrics> taskTypes = new ConcurrentHashMap<>();
+  private final LatencyHistogram waitTime = new LatencyHistogram();
+  private final LongAdder rejected = new LongAdder();
+  private volatile int targetThreads;
+  private long lastAdjustNanos = System.nanoTime();
+
+  /**
+   * Constructor with the default control interval and target wait
+   */
+  public AdaptiveTaskExecutor(int minThreads, int maxThreads, int queueCapacity,
+      RejectionPolicy rejectionPolicy) {
+    this(minThreads, maxThreads, queueCapacity, rejectionPolicy,
+        DEFAULT_CONTROL_INTERVAL_MILLIS, DEFAULT_TARGET_WAIT_MILLIS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param minThreads the number of workers to start with and never go below
+   * @param maxThreads the number of workers never to go above
+   * @param queueCapacity the number of tasks that may wait for a worker
+   * @param rejectionPolicy what happens to a task submitted to a full queue
+   * @param controlIntervalMillis how often the pool is resized
+   * @param targetWaitMillis how long a task may wait in the queue before the pool grows
+   */
+  public AdaptiveTaskExecutor(int minThreads, int maxThreads, int queueCapacity,
+      RejectionPolicy rejectionPolicy, long controlIntervalMillis, long targetWaitMillis) {
+    this(newPool(minThreads, maxThreads, queueCapacity), minThreads, maxThreads,
+        rejectionPolicy, controlIntervalMillis, targetWaitMillis);
+  }
+
+  private AdaptiveTaskExecutor(ThreadPoolExecutor pool, int minThreads, int maxThreads,
+      RejectionPolicy rejectionPolicy, long controlIntervalMillis, long targetWaitMillis) {
+    super(Mode.ADAPTIVE, pool);
+    this.pool = pool;
+    this.minThreads = minThreads;
+    this.maxThreads = maxThreads;
+    this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetWaitMillis);
+    this.rejectionPolicy = rejectionPolicy;
+    this.targetThreads = minThreads;
+    pool.setRejectedExecutionHandler(this::reject);
+    controller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "adaptive-pool-controller");
+      thread.setDaemon(true);
+      return thread;
+    });
+    controller.scheduleWithFixedDelay(this::adjust, controlIntervalMillis, controlIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private static ThreadPoolExecutor newPool(int minThreads, int maxThreads, int queueCapacity) {
+    if (minThreads <= 0 || maxThreads < minThreads) {
+      throw new IllegalArgumentException(
+          String.format("Invalid thread bounds min=%d max=%d", minThreads, maxThreads));
+    }
+    // the core size is the target size, the pool never grows past it on its own
+    return new ThreadPoolExecutor(minThreads, minThreads, 1, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity));
+  }
+
+  @Override
+  public <T extends Task> CompletableFuture<T> execute(T task, Consumer<? super T> work) {
+    TaskTypeMetrics metrics = taskTypes.computeIfAbsent(task.getClass(),
+        type -> new TaskTypeMetrics());
+    metrics.submitted.increment();
+    TimedTask<T> timedTask = new TimedTask<>(task, work, metrics);
+    pool.execute(timedTask);
+    return timedTask.future;
+  }
+
+  /**
+   * @return the number of workers running a task
+   */
+  public int getActiveWorkers() {
+    return pool.getActiveCount();
+  }
+
+  /**
+   * @return the number of workers the controller currently aims for
+   */
+  public int getTargetWorkers() {
+    return targetThreads;
+  }
+
+  /**
+   * @return the number of workers started, busy or idle
+   */
+  public int getPoolSize() {
+    return pool.getPoolSize();
+  }
+
+  public int getQueueDepth() {
+    return pool.getQueue().size();
+  }
+
+  /**
+   * @return the time the tasks waited in the queue
+   */
+  public LatencyHistogram getWaitTime() {
+    return waitTime;
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * @return the metrics of every type of task submitted so far
+   */
+  public Map<Class<? extends Task>, TaskTypeMetrics> getTaskTypeMetrics() {
+    return Collections.unmodifiableMap(taskTypes);
+  }
+
+  @Override
+  public void close() {
+    controller.shutdownNow();
+    super.close();
+  }
+
+  private void reject(Runnable runnable, ThreadPoolExecutor executor) {
+    rejected.increment();
+    TimedTask<?> task = (TimedTask<?>) runnable;
+    if (executor.isShutdown()) {
+      task.reject();
+      throw new RejectedExecutionException("Executor is shut down");
+    }
+    switch (rejectionPolicy) {
+      case CALLER_RUNS:
+        task.run();
+        break;
+      case DISCARD:
+        task.reject();
+        break;
+      case DISCARD_OLDEST:
+        TimedTask<?> oldest = (TimedTask<?>) executor.getQueue().poll();
+        if (oldest != null) {
+          oldest.reject();
+        }
+        executor.execute(task);
+        break;
+      default:
+        task.reject();
+        throw new RejectedExecutionException("Queue full, rejected " + task.task);
+    }
+  }
+
+  /*
+   * Runs on the controller thread, which alone touches the sampling state of the metrics.
+   */
+  private void adjust() {
+    try {
+      long now = System.nanoTime();
+      double seconds = (now - lastAdjustNanos) / 1e9;
+      lastAdjustNanos = now;
+
+      double demand = 0;
+      long completed = 0;
+      double weightedGradient = 0;
+      for (TaskTypeMetrics metrics : taskTypes.values()) {
+        metrics.sample();
+        if (metrics.baselineServiceNanos > 0) {
+          demand += metrics.intervalArrivals / seconds * metrics.baselineServiceNanos / 1e9;
+        }
+        if (metrics.intervalCompleted > 0) {
+          completed += metrics.intervalCompleted;
+          weightedGradient += metrics.intervalCompleted * metrics.baselineServiceNanos
+              / metrics.intervalServiceNanos;
+        }
+      }
+      double gradient = completed > 0 ? weightedGradient / completed : 1;
+
+      int current = targetThreads;
+      int target = (int) Math.ceil(demand);
+      TimedTask<?> head = (TimedTask<?>) pool.getQueue().peek();
+      if (head != null && now - head.enqueuedNanos > targetWaitNanos) {
+        target = Math.max(target, gradient >= MIN_GROWTH_GRADIENT
+            ? current + Math.max(1, current / 2) : (int) Math.ceil(current * gradient));
+      }
+      if (target < current) {
+        target = Math.max(target, current - Math.max(1, current / 4));
+      }
+      resize(Math.max(minThreads, Math.min(maxThreads, target)));
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to resize the pool", e);
+    }
+  }
+
+  private void resize(int target) {
+    int current = targetThreads;
+    if (target == current) {
+      return;
+    }
+    // the core size may never exceed the maximum size
+    if (target > current) {
+      pool.setMaximumPoolSize(target);
+      pool.setCorePoolSize(target);
+    } else {
+      pool.setCorePoolSize(target);
+      pool.setMaximumPoolSize(target);
+    }
+    targetThreads = target;
+    LOGGER.debug("Resized the pool from {} to {} workers", current, target);
+  }
+
+  /**
+   * Metrics of one type of task
+   */
+  public static final class TaskTypeMetrics {
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    private long lastSubmitted;
+    private long lastCompleted;
+    private long lastServiceNanos;
+    private long intervalArrivals;
+    private long intervalCompleted;
+    private double intervalServiceNanos;
+    private volatile double baselineServiceNanos;
+
+    public long getSubmittedCount() {
+      return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+      return completed.sum();
+    }
+
+    /**
+     * @return the mean time the tasks ran, in nanoseconds
+     */
+    public double getMeanServiceNanos() {
+      long count = completed.sum();
+      return count == 0 ? 0 : (double) serviceNanos.sum() / count;
+    }
+
+    /**
+     * @return the mean time the tasks waited in the queue, in nanoseconds
+     */
+    public double getMeanWaitNanos() {
+      long count = completed.sum();
+      return count == 0 ? 0 : (double) waitNanos.sum() / count;
+    }
+
+    /**
+     * @return the recent uncontended service time, in nanoseconds
+     */
+    public double getBaselineServiceNanos() {
+      return baselineServiceNanos;
+    }
+
+    private void sample() {
+      long submittedNow = submitted.sum();
+      long completedNow = completed.sum();
+      long serviceNow = serviceNanos.sum();
+      intervalArrivals = submittedNow - lastSubmitted;
+      intervalCompleted = completedNow - lastCompleted;
+      if (intervalCompleted > 0) {
+        intervalServiceNanos = (double) (serviceNow - lastServiceNanos) / intervalCompleted;
+        baselineServiceNanos = baselineServiceNanos == 0 ? intervalServiceNanos
+            : Math.min(baselineServiceNanos * (1 + BASELINE_DRIFT), intervalServiceNanos);
+      }
+      lastSubmitted = submittedNow;
+      lastCompleted = completedNow;
+      lastServiceNanos = serviceNow;
+    }
+  }
+
+  /**
+   * A task with its work, future and timings
+   */
+  private final class TimedTask<T extends Task> implements Runnable {
+
+    private final T task;
+    private final Consumer<? super T> work;
+    private final TaskTypeMetrics metrics;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private final long enqueuedNanos = System.nanoTime();
+
+    private TimedTask(T task, Consumer<? super T> work, TaskTypeMetrics metrics) {
+      this.task = task;
+      this.work = work;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void run() {
+      long start = System.nanoTime();
+      waitTime.record(start - enqueuedNanos);
+      metrics.waitNanos.add(start - enqueuedNanos);
+      Throwable failure = null;
+      try {
+        work.accept(task);
+      } catch (Throwable e) {
+        failure = e;
+      }
+      // recorded before completing, so that whoever waits on the future sees them
+      metrics.serviceNanos.add(System.nanoTime() - start);
+      metrics.completed.increment();
+      if (failure == null) {
+        future.complete(task);
+      } else {
+        future.completeExceptionally(failure);
+      }
+    }
+
+    private void reject() {
+      future.completeExceptionally(new RejectedExecutionException("Rejected " + task));
+    }
+  }
+}
@@ -27,8 +27,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 
@@ -40,9 +38,10 @@ import java.util.concurrent.Executors;
  * tasks available.
  * <p>
  * In this example we create a list of tasks presenting work to be done. Each task is then wrapped
- * into a {@link Worker} object that implements {@link Runnable}. We create an
- * {@link ExecutorService} with fixed number of threads (Thread Pool) and use them to execute the
- * {@link Worker}s.
+ * into a {@link Worker} object that implements {@link Runnable}. We create a {@link TaskExecutor}
+ * with fixed number of threads (Thread Pool) and use them to execute the {@link Worker}s. The
+ * executor reports the completion of the tasks through futures, so the program simply waits for
+ * them. {@link TaskExecutor} also offers a work-stealing and a thread-per-task pool.
  *
  */
 public class App {
@@ -80,20 +79,13 @@ public class App {
     // unbounded queue. At any point, at most nThreads threads will be active processing
     // tasks. If additional tasks are submitted when all threads are active, they will wait
     // in the queue until a thread is available.
-    ExecutorService executor = Executors.newFixedThreadPool(3);
-
-    // Allocate new worker for each task
-    // The worker is executed when a thread becomes
-    // available in the thread pool
-    for (int i = 0; i < tasks.size(); i++) {
-      Runnable worker = new Worker(tasks.get(i));
-      executor.execute(worker);
-    }
-    // All tasks were executed, now shutdown
-    executor.shutdown();
-    while (!executor.isTerminated()) {
-      Thread.yield();
+    try (TaskExecutor executor = TaskExecutor.fixed(3)) {
+      // Allocate new worker for each task
+      // The worker is executed when a thread becomes
+      // available in the thread pool
+      executor.executeAll(tasks).join();
     }
+    // All tasks were executed and the pool is shut down
     LOGGER.info("Program finished");
   }
 }
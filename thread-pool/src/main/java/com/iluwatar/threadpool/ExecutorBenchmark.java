@@ -0,0 +1,124 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.threadpool;
+
+import com.iluwatar.threadpool.TaskExecutor.Mode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ *
+ * Runs a mix of {@link PotatoPeelingTask}s and {@link CoffeeMakingTask}s on every
+ * {@link TaskExecutor.Mode}, once as blocking work and once as CPU-bound work, and reports the
+ * throughput and the latency from submission to completion. The tasks are scaled down to be run
+ * in large numbers: blocking work sleeps a hundredth of the time of the task, in milliseconds,
+ * and CPU-bound work computes for the time of the task in microseconds.
+ * <p>
+ * Run with {@code java com.iluwatar.threadpool.ExecutorBenchmark [tasks] [threads]}.
+ *
+ */
+public class ExecutorBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorBenchmark.class);
+
+  private static final int TIME_DIVISOR = 100;
+
+  private static volatile double sink;
+
+  /**
+   * Program entry point
+   *
+   * @param args command line args
+   */
+  public static void main(String[] args) {
+    int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+
+    List<Task> tasks = new ArrayList<>();
+    Random random = new Random(42);
+    for (int i = 0; i < taskCount; i++) {
+      int amount = 1 + random.nextInt(3);
+      tasks.add(i % 2 == 0 ? new PotatoPeelingTask(amount) : new CoffeeMakingTask(amount));
+    }
+
+    for (Mode mode : Mode.values()) {
+      run(mode, threads, "blocking", tasks, ExecutorBenchmark::sleep);
+    }
+    for (Mode mode : Mode.values()) {
+      run(mode, threads, "cpu-bound", tasks, ExecutorBenchmark::compute);
+    }
+  }
+
+  private static void run(Mode mode, int threads, String workload, List<Task> tasks,
+      Consumer<Task> work) {
+    long[] latencies = new long[tasks.size()];
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+    long start = System.nanoTime();
+    try (TaskExecutor executor = TaskExecutor.of(mode, threads)) {
+      for (int i = 0; i < futures.length; i++) {
+        int index = i;
+        long submitted = System.nanoTime();
+        futures[i] = executor.execute(tasks.get(i), work)
+            .thenRun(() -> latencies[index] = System.nanoTime() - submitted);
+      }
+      CompletableFuture.allOf(futures).join();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    Arrays.sort(latencies);
+    LOGGER.info("{} {}: {} tasks/s, latency p50 {} ms, p99 {} ms, max {} ms", workload, mode,
+        tasks.size() * 1_000_000_000L / elapsed, millis(latencies[latencies.length / 2]),
+        millis(latencies[latencies.length * 99 / 100]), millis(latencies[latencies.length - 1]));
+  }
+
+  private static void sleep(Task task) {
+    try {
+      Thread.sleep(task.getTimeMs() / TIME_DIVISOR);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void compute(Task task) {
+    long deadline = System.nanoTime() + task.getTimeMs() * 1000L;
+    double value = task.getId();
+    while (System.nanoTime() < deadline) {
+      for (int i = 0; i < 100; i++) {
+        value = Math.sqrt(value + i);
+      }
+    }
+    sink = value;
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.1f", nanos / 1_000_000.0);
+  }
+}
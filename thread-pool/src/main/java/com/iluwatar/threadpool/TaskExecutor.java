@@ -0,0 +1,175 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.threadpool;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ *
+ * TaskExecutor runs {@link Task}s on one of several kinds of thread pool, and reports the
+ * completion of each task through a {@link CompletableFuture} instead of making the caller poll
+ * the pool.
+ * <p>
+ * {@link Mode#FIXED} is the classic pool of a fixed number of threads sharing one queue.
+ * {@link Mode#WORK_STEALING} is a {@link ForkJoinPool}, whose threads each have their own queue
+ * and steal from the others when idle, suited to CPU-bound tasks. {@link Mode#THREAD_PER_TASK}
+ * runs every task on a thread of its own, suited to blocking tasks such as the sleeping
+ * {@link Worker}: it uses virtual threads when the Java runtime provides them, and otherwise a
+ * cached pool that starts a thread whenever all the others are busy. {@link Mode#ADAPTIVE} is an
+ * {@link AdaptiveTaskExecutor}, which resizes its pool as the mix of tasks changes.
+ *
+ */
+public class TaskExecutor implements AutoCloseable {
+
+  /**
+   * The kinds of thread pool
+   */
+  public enum Mode {
+    FIXED, WORK_STEALING, THREAD_PER_TASK, ADAPTIVE
+  }
+
+  private final Mode mode;
+  private final ExecutorService executor;
+
+  protected TaskExecutor(Mode mode, ExecutorService executor) {
+    this.mode = mode;
+    this.executor = executor;
+  }
+
+  /**
+   * Creates an executor with a fixed number of threads
+   */
+  public static TaskExecutor fixed(int threads) {
+    return new TaskExecutor(Mode.FIXED, Executors.newFixedThreadPool(threads));
+  }
+
+  /**
+   * Creates a work-stealing executor, processing the submitted tasks in FIFO order
+   */
+  public static TaskExecutor workStealing(int parallelism) {
+    return new TaskExecutor(Mode.WORK_STEALING, new ForkJoinPool(parallelism,
+        ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+  }
+
+  /**
+   * Creates an executor running each task on a thread of its own
+   */
+  public static TaskExecutor threadPerTask() {
+    return new TaskExecutor(Mode.THREAD_PER_TASK, newThreadPerTaskExecutor());
+  }
+
+  /**
+   * Creates an executor of the given mode
+   *
+   * @param threads the number of threads, the initial number for {@link Mode#ADAPTIVE} and
+   *     ignored by {@link Mode#THREAD_PER_TASK}
+   */
+  public static TaskExecutor of(Mode mode, int threads) {
+    switch (mode) {
+      case FIXED:
+        return fixed(threads);
+      case WORK_STEALING:
+        return workStealing(threads);
+      case ADAPTIVE:
+        return new AdaptiveTaskExecutor(threads, AdaptiveTaskExecutor.DEFAULT_MAX_THREADS,
+            AdaptiveTaskExecutor.DEFAULT_QUEUE_CAPACITY,
+            AdaptiveTaskExecutor.RejectionPolicy.CALLER_RUNS);
+      default:
+        return threadPerTask();
+    }
+  }
+
+  /*
+   * Virtual threads arrived in Java 21, so they are looked up rather than linked against.
+   */
+  private static ExecutorService newThreadPerTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (NoSuchMethodException e) {
+      return Executors.newCachedThreadPool();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot create a virtual thread executor", e);
+    }
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Executes a task with a {@link Worker}
+   *
+   * @return the future completed with the task once the worker has finished
+   */
+  public <T extends Task> CompletableFuture<T> execute(T task) {
+    return execute(task, t -> new Worker(t).run());
+  }
+
+  /**
+   * Executes a task with the given work
+   *
+   * @return the future completed with the task once the work has finished, or exceptionally
+   *     if the work failed
+   */
+  public <T extends Task> CompletableFuture<T> execute(T task, Consumer<? super T> work) {
+    return CompletableFuture.supplyAsync(() -> {
+      work.accept(task);
+      return task;
+    }, executor);
+  }
+
+  /**
+   * Executes tasks with {@link Worker}s
+   *
+   * @return the future completed once all the workers have finished
+   */
+  public CompletableFuture<Void> executeAll(List<? extends Task> tasks) {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = execute(tasks.get(i));
+    }
+    return CompletableFuture.allOf(futures);
+  }
+
+  /**
+   * Stops accepting tasks and waits for the running ones to finish. If interrupted while waiting
+   * it stops waiting and keeps the interrupt status set.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.threadpool;
+
+import com.iluwatar.threadpool.AdaptiveTaskExecutor.RejectionPolicy;
+import com.iluwatar.threadpool.AdaptiveTaskExecutor.TaskTypeMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.time.Duration.ofMillis;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link AdaptiveTaskExecutor}
+ */
+public class AdaptiveTaskExecutorTest {
+
+  /**
+   * Verify if the pool grows for a backlog of blocking tasks and records metrics per task type
+   */
+  @Test
+  public void testGrowsForBlockingTasks() {
+    assertTimeout(ofMillis(10000), () -> {
+      try (AdaptiveTaskExecutor executor =
+               new AdaptiveTaskExecutor(1, 64, 1000, RejectionPolicy.ABORT, 20, 5)) {
+        final List<CompletableFuture<Task>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+          final Task task = i % 2 == 0 ? new PotatoPeelingTask(1) : new CoffeeMakingTask(1);
+          futures.add(executor.execute(task, AdaptiveTaskExecutorTest::sleep));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertTrue(executor.getTargetWorkers() > 4);
+        assertEquals(2, executor.getTaskTypeMetrics().size());
+        final TaskTypeMetrics coffee = executor.getTaskTypeMetrics().get(CoffeeMakingTask.class);
+        assertEquals(200, coffee.getCompletedCount());
+        assertTrue(coffee.getMeanServiceNanos() >= 1_000_000);
+        assertEquals(400, executor.getWaitTime().getCount());
+        assertTrue(executor.getWaitTime().getPercentile(99) > 0);
+      }
+    });
+  }
+
+  /**
+   * Verify the rejection policies on a full queue
+   */
+  @Test
+  public void testRejectionPolicies() {
+    final CountDownLatch release = new CountDownLatch(1);
+    try (AdaptiveTaskExecutor executor =
+             new AdaptiveTaskExecutor(1, 1, 1, RejectionPolicy.DISCARD_OLDEST)) {
+      executor.execute(new CoffeeMakingTask(0), t -> await(release));
+      final CompletableFuture<Task> oldest = executor.execute(new CoffeeMakingTask(0), t -> { });
+      final CompletableFuture<Task> newest = executor.execute(new CoffeeMakingTask(0), t -> { });
+      assertThrows(CompletionException.class, oldest::join);
+      release.countDown();
+      newest.join();
+      assertEquals(1, executor.getRejectedCount());
+    }
+
+    final CountDownLatch block = new CountDownLatch(1);
+    try (AdaptiveTaskExecutor executor =
+             new AdaptiveTaskExecutor(1, 1, 1, RejectionPolicy.ABORT)) {
+      executor.execute(new CoffeeMakingTask(0), t -> await(block));
+      executor.execute(new CoffeeMakingTask(0), t -> { });
+      assertThrows(RejectedExecutionException.class,
+          () -> executor.execute(new CoffeeMakingTask(0), t -> { }));
+      block.countDown();
+    }
+
+    final CountDownLatch hold = new CountDownLatch(1);
+    try (AdaptiveTaskExecutor executor =
+             new AdaptiveTaskExecutor(1, 1, 1, RejectionPolicy.CALLER_RUNS)) {
+      executor.execute(new CoffeeMakingTask(0), t -> await(hold));
+      executor.execute(new CoffeeMakingTask(0), t -> { });
+      final Thread caller = Thread.currentThread();
+      final List<Thread> runners = new ArrayList<>();
+      executor.execute(new CoffeeMakingTask(0), t -> runners.add(Thread.currentThread())).join();
+      assertEquals(caller, runners.get(0));
+      hold.countDown();
+    }
+  }
+
+  private static void sleep(Task task) {
+    try {
+      Thread.sleep(task.getTimeMs() / 20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
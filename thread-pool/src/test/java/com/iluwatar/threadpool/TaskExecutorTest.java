@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.threadpool;
+
+import com.iluwatar.threadpool.TaskExecutor.Mode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.time.Duration.ofMillis;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link TaskExecutor}
+ */
+public class TaskExecutorTest {
+
+  /**
+   * Verify if every mode runs all the tasks and completes their futures
+   */
+  @Test
+  public void testAllTasksComplete() {
+    assertTimeout(ofMillis(10000), () -> {
+      for (Mode mode : Mode.values()) {
+        final Set<Integer> done = ConcurrentHashMap.newKeySet();
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+          tasks.add(i % 2 == 0 ? new PotatoPeelingTask(0) : new CoffeeMakingTask(0));
+        }
+        try (TaskExecutor executor = TaskExecutor.of(mode, 4)) {
+          assertEquals(mode, executor.getMode());
+          final List<CompletableFuture<Task>> futures = new ArrayList<>();
+          for (Task task : tasks) {
+            futures.add(executor.execute(task, t -> done.add(t.getId())));
+          }
+          for (int i = 0; i < tasks.size(); i++) {
+            assertSame(tasks.get(i), futures.get(i).join());
+          }
+        }
+        assertEquals(tasks.size(), done.size());
+      }
+    });
+  }
+
+  /**
+   * Verify if the workers of blocking tasks overlap on a thread-per-task executor
+   */
+  @Test
+  public void testBlockingWorkersRunConcurrently() {
+    assertTimeout(ofMillis(5000), () -> {
+      final List<Task> tasks = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        tasks.add(new CoffeeMakingTask(2));
+      }
+      final long start = System.nanoTime();
+      try (TaskExecutor executor = TaskExecutor.threadPerTask()) {
+        executor.executeAll(tasks).join();
+      }
+      // twenty tasks of 200 ms each would take four seconds one after the other
+      assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    });
+  }
+
+  /**
+   * Verify if a failing task completes its future exceptionally
+   */
+  @Test
+  public void testFailureCompletesExceptionally() {
+    try (TaskExecutor executor = TaskExecutor.workStealing(2)) {
+      final CompletableFuture<CoffeeMakingTask> future =
+          executor.execute(new CoffeeMakingTask(1), t -> {
+            throw new IllegalStateException("out of coffee");
+          });
+      final CompletionException e = assertThrows(CompletionException.class, future::join);
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
@@ -25,53 +25,210 @@ package com.iluwatar.throttling;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A class to keep track of the counter of different Tenants
+ * <p>
+ * Tenant names are interned to dense int ids, and the count of each tenant is a single long in a
+ * chunk of an array, holding the epoch it was counted in next to the count. A {@link #reset()}
+ * only starts a new epoch, counts of an older epoch read as zero and start over on the next
+ * increment, so it takes the same time for a million tenants as for one. A tenant whose count is
+ * contended, losing a compare-and-set twice in one call, is moved to a
+ * {@link StripedCounter}.
  * @author drastogi
  *
  */
 public final class CallsCount {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CallsCount.class);
-  private Map<String, AtomicLong> tenantCallsCount = new ConcurrentHashMap<>();
+
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final long STRIPED = 1L << 31;
+  private static final long COUNT_MASK = STRIPED - 1;
+
+  private final TenantIds tenantIds = new TenantIds();
+  private final AtomicInteger epoch = new AtomicInteger();
+  private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+  private volatile StripedCounter[] striped = new StripedCounter[0];
+  private int stripedCount;
 
   /**
    * Add a new tenant to the map.
    * @param tenantName name of the tenant.
+   * @return the id of the tenant.
    */
-  public void addTenant(String tenantName) {
-    tenantCallsCount.putIfAbsent(tenantName, new AtomicLong(0));
+  public int addTenant(String tenantName) {
+    int id = tenantIds.idOf(tenantName);
+    if (id >= 0) {
+      return id;
+    }
+    synchronized (this) {
+      id = tenantIds.intern(tenantName);
+      int chunk = id >>> CHUNK_SHIFT;
+      if (chunk >= chunks.length) {
+        AtomicLongArray[] grown = Arrays.copyOf(chunks, Math.max(4, chunks.length * 2));
+        for (int i = chunks.length; i < grown.length; i++) {
+          grown[i] = new AtomicLongArray(CHUNK_SIZE);
+        }
+        chunks = grown;
+      }
+      return id;
+    }
   }
-  
+
+  /**
+   * @param tenantName name of the tenant.
+   * @return the id of the tenant.
+   * @throws IllegalArgumentException if the tenant has not been added.
+   */
+  public int getTenantId(String tenantName) {
+    int id = tenantIds.idOf(tenantName);
+    if (id < 0) {
+      throw new IllegalArgumentException("Unknown tenant " + tenantName);
+    }
+    return id;
+  }
+
   /**
    * Increment the count of the specified tenant.
    * @param tenantName name of the tenant.
    */
   public void incrementCount(String tenantName) {
-    tenantCallsCount.get(tenantName).incrementAndGet();
+    incrementCount(getTenantId(tenantName));
+  }
+
+  /**
+   * Increment the count of the specified tenant.
+   * @param tenantId id of the tenant.
+   */
+  public void incrementCount(int tenantId) {
+    tryIncrement(tenantId, COUNT_MASK);
+  }
+
+  /**
+   * Increment the count of the specified tenant unless it has reached the limit. The check and the
+   * increment are a single atomic step, so concurrent callers cannot overshoot the limit.
+   * @param tenantName name of the tenant.
+   * @param limit the count not to go beyond.
+   * @return true if the count was incremented.
+   */
+  public boolean tryIncrement(String tenantName, long limit) {
+    return tryIncrement(getTenantId(tenantName), limit);
+  }
+
+  /**
+   * Increment the count of the specified tenant unless it has reached the limit.
+   * @param tenantId id of the tenant.
+   * @param limit the count not to go beyond.
+   * @return true if the count was incremented.
+   */
+  public boolean tryIncrement(int tenantId, long limit) {
+    limit = Math.min(limit, COUNT_MASK);
+    AtomicLongArray chunk = chunks[tenantId >>> CHUNK_SHIFT];
+    int index = tenantId & (CHUNK_SIZE - 1);
+    int current = epoch.get();
+    boolean contended = false;
+    for (;;) {
+      long slot = chunk.get(index);
+      if ((slot & STRIPED) != 0) {
+        return striped[(int) (slot & COUNT_MASK)].tryIncrement(current, limit);
+      }
+      current = latest(current, slot);
+      long count = countOf(slot, current);
+      if (count >= limit) {
+        return false;
+      }
+      if (chunk.compareAndSet(index, slot, pack(current, count + 1))) {
+        return true;
+      }
+      if (contended) {
+        stripe(chunk, index);
+      }
+      contended = true;
+    }
   }
-  
+
   /**
    * 
    * @param tenantName name of the tenant.
    * @return the count of the tenant.
    */
   public long getCount(String tenantName) {
-    return tenantCallsCount.get(tenantName).get();
+    return getCount(getTenantId(tenantName));
   }
-  
+
+  /**
+   * @param tenantId id of the tenant.
+   * @return the count of the tenant.
+   */
+  public long getCount(int tenantId) {
+    long slot = chunks[tenantId >>> CHUNK_SHIFT].get(tenantId & (CHUNK_SIZE - 1));
+    if ((slot & STRIPED) != 0) {
+      return striped[(int) (slot & COUNT_MASK)].getCount(epoch.get());
+    }
+    int current = latest(epoch.get(), slot);
+    return countOf(slot, current);
+  }
+
+  /**
+   * @return the number of tenants added.
+   */
+  public int getTenantCount() {
+    return tenantIds.size();
+  }
+
   /**
    * Resets the count of all the tenants in the map.
    */
   public void reset() {
     LOGGER.debug("Resetting the map.");
-    for (Entry<String, AtomicLong> e : tenantCallsCount.entrySet()) {
-      tenantCallsCount.put(e.getKey(), new AtomicLong(0));
+    epoch.incrementAndGet();
+  }
+
+  /**
+   * Moves the count in a contended slot to a {@link StripedCounter}. The counter is stored before
+   * the slot points to it, callers that find the slot striped always find the counter.
+   */
+  private synchronized void stripe(AtomicLongArray chunk, int index) {
+    for (;;) {
+      long slot = chunk.get(index);
+      if ((slot & STRIPED) != 0) {
+        return;
+      }
+      int current = latest(epoch.get(), slot);
+      if (stripedCount == striped.length) {
+        striped = Arrays.copyOf(striped, Math.max(4, stripedCount * 2));
+      }
+      striped[stripedCount] = new StripedCounter(current, countOf(slot, current));
+      if (chunk.compareAndSet(index, slot, STRIPED | stripedCount)) {
+        LOGGER.debug("Striping the count of a contended tenant.");
+        stripedCount++;
+        return;
+      }
     }
   }
+
+  static long pack(int epoch, long count) {
+    return ((long) epoch << 32) | count;
+  }
+
+  /**
+   * @return the epoch of the value if it is newer than the given one, which happens when the
+   *     counts were reset after the caller read the epoch.
+   */
+  static int latest(int epoch, long value) {
+    int valueEpoch = (int) (value >>> 32);
+    return valueEpoch - epoch > 0 ? valueEpoch : epoch;
+  }
+
+  /**
+   * @return the count in the value, or zero if it was counted in an older epoch.
+   */
+  static long countOf(long value, int epoch) {
+    return (int) (value >>> 32) == epoch ? value & COUNT_MASK : 0;
+  }
 }
@@ -0,0 +1,163 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares {@link CallsCount} with a map of one {@link AtomicLong} per tenant, the way the counts
+ * used to be kept, for a million tenants: the heap the counts take, the time of a reset, and the
+ * calls per second counted across random tenants and for a single hot tenant.
+ * <p>
+ * The tenant names are created up front and shared by both, so only the counts are measured.
+ * Run with {@code java com.iluwatar.throttling.CallsCountBenchmark [tenants] [seconds]
+ * [threads]}.
+ */
+public class CallsCountBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CallsCountBenchmark.class);
+
+  /**
+   * Application entry point
+   * @param args main arguments
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int tenants = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+    String[] names = new String[tenants];
+    for (int i = 0; i < tenants; i++) {
+      names[i] = "tenant-" + i;
+    }
+
+    long before = usedMemory();
+    MapCallsCount map = new MapCallsCount();
+    for (String name : names) {
+      map.addTenant(name);
+    }
+    long mapBytes = usedMemory() - before;
+    before = usedMemory();
+    CallsCount callsCount = new CallsCount();
+    for (String name : names) {
+      callsCount.addTenant(name);
+    }
+    long callsCountBytes = usedMemory() - before;
+    LOGGER.info("{} tenants: map of counters {} bytes/tenant, CallsCount {} bytes/tenant",
+        tenants, mapBytes / tenants, callsCountBytes / tenants);
+
+    long start = System.nanoTime();
+    map.reset();
+    long mapReset = System.nanoTime() - start;
+    start = System.nanoTime();
+    callsCount.reset();
+    long callsCountReset = System.nanoTime() - start;
+    LOGGER.info("reset: map of counters {} us, CallsCount {} us",
+        TimeUnit.NANOSECONDS.toMicros(mapReset), TimeUnit.NANOSECONDS.toMicros(callsCountReset));
+
+    run("random tenants, map of counters", seconds, threads,
+        () -> map.tryIncrement(names[ThreadLocalRandom.current().nextInt(tenants)], 100));
+    run("random tenants, CallsCount by name", seconds, threads,
+        () -> callsCount.tryIncrement(names[ThreadLocalRandom.current().nextInt(tenants)], 100));
+    run("random tenants, CallsCount by id", seconds, threads,
+        () -> callsCount.tryIncrement(ThreadLocalRandom.current().nextInt(tenants), 100));
+    run("hot tenant, map of counters", seconds, threads,
+        () -> map.tryIncrement(names[0], Long.MAX_VALUE));
+    run("hot tenant, CallsCount", seconds, threads,
+        () -> callsCount.tryIncrement(0, Long.MAX_VALUE));
+  }
+
+  private static void run(String name, int seconds, int threadCount, Runnable call)
+      throws InterruptedException {
+    long[] calls = new long[threadCount];
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      int index = t;
+      threads.add(new Thread(() -> {
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+          for (int i = 0; i < 256; i++) {
+            call.run();
+          }
+          count += 256;
+        }
+        calls[index] = count;
+      }));
+    }
+    threads.forEach(Thread::start);
+    long total = 0;
+    for (int t = 0; t < threadCount; t++) {
+      threads.get(t).join();
+      total += calls[t];
+    }
+    long elapsed = System.nanoTime() - start;
+    LOGGER.info("{}: {} calls/s", name, total * TimeUnit.SECONDS.toNanos(1) / elapsed);
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * The counts kept the way {@link CallsCount} used to keep them.
+   */
+  private static final class MapCallsCount {
+    private final Map<String, AtomicLong> tenantCallsCount = new ConcurrentHashMap<>();
+
+    void addTenant(String tenantName) {
+      tenantCallsCount.putIfAbsent(tenantName, new AtomicLong(0));
+    }
+
+    boolean tryIncrement(String tenantName, long limit) {
+      AtomicLong count = tenantCallsCount.get(tenantName);
+      long current;
+      do {
+        current = count.get();
+        if (current >= limit) {
+          return false;
+        }
+      } while (!count.compareAndSet(current, current + 1));
+      return true;
+    }
+
+    void reset() {
+      for (Map.Entry<String, AtomicLong> e : tenantCallsCount.entrySet()) {
+        tenantCallsCount.put(e.getKey(), new AtomicLong(0));
+      }
+    }
+  }
+}
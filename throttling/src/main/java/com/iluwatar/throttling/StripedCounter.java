@@ -0,0 +1,124 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The count of a hot tenant, spread over cells so that concurrent callers do not all compete
+ * for one value, in the manner of {@link java.util.concurrent.atomic.LongAdder}.
+ * <p>
+ * Unlike an adder it still enforces a limit exactly. A central value holds the number of calls
+ * granted in the epoch, and a cell takes a batch of them at a time, which its callers then use up
+ * with a compare-and-set on the cell alone. The count is the calls granted minus those left in
+ * the cells. Near the limit, when nothing more can be granted, a caller takes the calls left in
+ * the other cells. Like the slots of {@link CallsCount}, the central value and every cell are
+ * tagged with their epoch, and values of an older epoch count as zero.
+ */
+final class StripedCounter {
+
+  private static final int BATCH = 32;
+  private static final int STRIPES = stripes();
+  // a cell per cache line
+  private static final int PADDING = 8;
+
+  private final AtomicLong granted;
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  StripedCounter(int epoch, long count) {
+    granted = new AtomicLong(CallsCount.pack(epoch, count));
+  }
+
+  boolean tryIncrement(int epoch, long limit) {
+    int home = stripe();
+    if (takeFrom(home, epoch)) {
+      return true;
+    }
+    for (;;) {
+      long state = granted.get();
+      epoch = CallsCount.latest(epoch, state);
+      long count = CallsCount.countOf(state, epoch);
+      long batch = Math.min(BATCH, limit - count);
+      if (batch <= 0) {
+        break;
+      }
+      if (granted.compareAndSet(state, CallsCount.pack(epoch, count + batch))) {
+        // one call of the batch is this one
+        addTo(home, epoch, batch - 1);
+        return true;
+      }
+    }
+    for (int i = 1; i < STRIPES; i++) {
+      if (takeFrom((home + i) % STRIPES, epoch)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  long getCount(int epoch) {
+    long state = granted.get();
+    epoch = CallsCount.latest(epoch, state);
+    long count = CallsCount.countOf(state, epoch);
+    for (int i = 0; i < STRIPES; i++) {
+      count -= CallsCount.countOf(cells.get(i * PADDING), epoch);
+    }
+    return Math.max(0, count);
+  }
+
+  private boolean takeFrom(int stripe, int epoch) {
+    int index = stripe * PADDING;
+    for (;;) {
+      long cell = cells.get(index);
+      long left = CallsCount.countOf(cell, epoch);
+      if (left == 0) {
+        return false;
+      }
+      if (cells.compareAndSet(index, cell, CallsCount.pack(epoch, left - 1))) {
+        return true;
+      }
+    }
+  }
+
+  private void addTo(int stripe, int epoch, long calls) {
+    int index = stripe * PADDING;
+    for (;;) {
+      long cell = cells.get(index);
+      long left = CallsCount.countOf(cell, epoch);
+      if (cells.compareAndSet(index, cell, CallsCount.pack(epoch, left + calls))) {
+        return;
+      }
+    }
+  }
+
+  private static int stripe() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+  }
+
+  private static int stripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Math.min(64, Integer.highestOneBit(Math.max(1, processors * 2 - 1)) * 2);
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Interns tenant names to dense int ids, 0 for the first tenant, 1 for the next and so on.
+ * The names are kept in an open addressing table read without locks, with the hash of each name
+ * next to its id so that a lookup only compares the names whose hashes match. Adding a tenant,
+ * which is rare, is synchronized and publishes a grown table by replacing it.
+ */
+final class TenantIds {
+
+  private volatile Table table = new Table(16);
+  private int size;
+
+  /**
+   * @param name name of the tenant.
+   * @return the id of the tenant, or -1 if it has not been added.
+   */
+  int idOf(String name) {
+    Table current = table;
+    int hash = spread(name.hashCode());
+    int mask = current.names.length() - 1;
+    for (int i = hash & mask;; i = (i + 1) & mask) {
+      String key = current.names.get(i);
+      if (key == null) {
+        return -1;
+      }
+      if (current.slots[2 * i] == hash && (key == name || key.equals(name))) {
+        return current.slots[2 * i + 1];
+      }
+    }
+  }
+
+  /**
+   * @param name name of the tenant.
+   * @return the id of the tenant, a new one if it has not been added before.
+   */
+  synchronized int intern(String name) {
+    int id = idOf(name);
+    if (id >= 0) {
+      return id;
+    }
+    if ((size + 1) * 2 > table.names.length()) {
+      Table grown = new Table(table.names.length() * 2);
+      for (int i = 0; i < table.names.length(); i++) {
+        String key = table.names.get(i);
+        if (key != null) {
+          grown.insert(key, table.slots[2 * i + 1]);
+        }
+      }
+      table = grown;
+    }
+    table.insert(name, size);
+    return size++;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final class Table {
+    private final AtomicReferenceArray<String> names;
+    // the hash and the id of each name, side by side
+    private final int[] slots;
+
+    private Table(int capacity) {
+      names = new AtomicReferenceArray<>(capacity);
+      slots = new int[capacity * 2];
+    }
+
+    private void insert(String name, int id) {
+      int hash = spread(name.hashCode());
+      int mask = names.length() - 1;
+      int i = hash & mask;
+      while (names.get(i) != null) {
+        i = (i + 1) & mask;
+      }
+      // the slot is written before the name is published, readers find the name first
+      slots[2 * i] = hash;
+      slots[2 * i + 1] = id;
+      names.set(i, name);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014-2016 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling;
+
+import com.iluwatar.throttling.timer.SlidingWindowThrottler;
+import com.iluwatar.throttling.timer.ThrottleTimerImpl;
+import com.iluwatar.throttling.timer.Throttler;
+import com.iluwatar.throttling.timer.TokenBucketThrottler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how closely each {@link Throttler} holds a tenant to its allowed calls per second, and
+ * what an admission decision costs, with many threads calling for the same tenant.
+ * <p>
+ * The admitted rate is reported over the whole run and as the most calls admitted in any sliding
+ * one second window, which shows the bursts let through around period boundaries.
+ * <p>
+ * Run with {@code java com.iluwatar.throttling.ThrottlerBenchmark [seconds] [threads]
+ * [allowedCallsPerSecond]}.
+ */
+public class ThrottlerBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThrottlerBenchmark.class);
+
+  private static final long BUCKET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final int BUCKETS_PER_SECOND = 100;
+
+  /**
+   * Application entry point
+   * @param args main arguments
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int allowedCalls = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+    CallsCount timerCallsCount = new CallsCount();
+    run("timer reset", new ThrottleTimerImpl(1000, timerCallsCount), timerCallsCount, seconds,
+        threads, allowedCalls);
+    CallsCount callsCount = new CallsCount();
+    run("token bucket", new TokenBucketThrottler(1000), callsCount, seconds, threads,
+        allowedCalls);
+    run("sliding window", new SlidingWindowThrottler(1000), callsCount, seconds, threads,
+        allowedCalls);
+  }
+
+  private static void run(String name, Throttler throttler, CallsCount callsCount, int seconds,
+      int threadCount, int allowedCalls) throws InterruptedException {
+    Tenant tenant = new Tenant(name, allowedCalls, callsCount);
+    throttler.start();
+    int bucketCount = seconds * BUCKETS_PER_SECOND;
+    long[][] admitted = new long[threadCount][bucketCount];
+    long[] calls = new long[threadCount];
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      int index = t;
+      threads.add(new Thread(() -> {
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+          for (int i = 0; i < 64; i++) {
+            if (throttler.tryAcquire(tenant, callsCount)) {
+              long now = System.nanoTime();
+              admitted[index][(int) Math.min(bucketCount - 1, (now - start) / BUCKET_NANOS)]++;
+            }
+          }
+          count += 64;
+        }
+        calls[index] = count;
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    long[] perBucket = new long[bucketCount];
+    long totalAdmitted = 0;
+    long totalCalls = 0;
+    for (int t = 0; t < threadCount; t++) {
+      for (int b = 0; b < bucketCount; b++) {
+        perBucket[b] += admitted[t][b];
+        totalAdmitted += admitted[t][b];
+      }
+      totalCalls += calls[t];
+    }
+    long window = 0;
+    long maxWindow = 0;
+    for (int b = 0; b < bucketCount; b++) {
+      window += perBucket[b];
+      if (b >= BUCKETS_PER_SECOND) {
+        window -= perBucket[b - BUCKETS_PER_SECOND];
+      }
+      maxWindow = Math.max(maxWindow, window);
+    }
+    LOGGER.info("{}: admitted {}/s of {}/s allowed, at most {} in any second, {} ns/call"
+        + " over {} calls", name, totalAdmitted / seconds, allowedCalls, maxWindow,
+        elapsed / totalCalls, totalCalls);
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link QuotaStore} kept in memory, shared by the nodes in one process, or served to nodes in
+ * other processes by a {@link QuotaServer}. Periods are counted from the clock, and the calls
+ * leased to a tenant start over from zero in every period.
+ */
+public class InMemoryQuotaStore implements QuotaStore {
+
+  private final long periodNanos;
+  private final LongSupplier nanoClock;
+  private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+  /**
+   * @param throttlePeriod the period of the allowed calls of the tenants, in milliseconds.
+   */
+  public InMemoryQuotaStore(int throttlePeriod) {
+    this(throttlePeriod, System::nanoTime);
+  }
+
+  /**
+   * @param throttlePeriod the period of the allowed calls of the tenants, in milliseconds.
+   * @param nanoClock the source of the current time in nanoseconds.
+   */
+  public InMemoryQuotaStore(int throttlePeriod, LongSupplier nanoClock) {
+    this.periodNanos = TimeUnit.MILLISECONDS.toNanos(throttlePeriod);
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public Lease lease(String tenantName, long limit, long requested) {
+    long now = nanoClock.getAsLong();
+    long period = Math.floorDiv(now, periodNanos);
+    long remaining = periodNanos - Math.floorMod(now, periodNanos);
+    Quota quota = quotas.computeIfAbsent(tenantName, name -> new Quota());
+    synchronized (quota) {
+      if (quota.period != period) {
+        quota.period = period;
+        quota.leased = 0;
+      }
+      long calls = Math.max(0, Math.min(requested, limit - quota.leased));
+      quota.leased += calls;
+      return new Lease(period, calls, remaining);
+    }
+  }
+
+  @Override
+  public void release(String tenantName, long period, long calls) {
+    Quota quota = quotas.get(tenantName);
+    if (quota == null) {
+      return;
+    }
+    synchronized (quota) {
+      if (quota.period == period) {
+        quota.leased -= Math.min(calls, quota.leased);
+      }
+    }
+  }
+
+  /**
+   * @param tenantName name of the tenant.
+   * @return the calls of the tenant leased and not returned in the current period.
+   */
+  public long getLeased(String tenantName) {
+    Quota quota = quotas.get(tenantName);
+    if (quota == null) {
+      return 0;
+    }
+    synchronized (quota) {
+      return quota.period == Math.floorDiv(nanoClock.getAsLong(), periodNanos) ? quota.leased : 0;
+    }
+  }
+
+  private static final class Quota {
+    private long period = Long.MIN_VALUE;
+    private long leased;
+  }
+}
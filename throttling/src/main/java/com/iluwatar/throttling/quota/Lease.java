@@ -0,0 +1,56 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+/**
+ * Calls of a tenant leased from a {@link QuotaStore}, valid until the end of their period.
+ */
+public final class Lease {
+
+  private final long period;
+  private final long calls;
+  private final long remainingNanos;
+
+  /**
+   * @param period the period the calls are leased in.
+   * @param calls the calls leased.
+   * @param remainingNanos the time left in the period when the calls were leased.
+   */
+  public Lease(long period, long calls, long remainingNanos) {
+    this.period = period;
+    this.calls = calls;
+    this.remainingNanos = remainingNanos;
+  }
+
+  public long getPeriod() {
+    return period;
+  }
+
+  public long getCalls() {
+    return calls;
+  }
+
+  public long getRemainingNanos() {
+    return remainingNanos;
+  }
+}
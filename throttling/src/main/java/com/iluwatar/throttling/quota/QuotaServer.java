@@ -0,0 +1,134 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves a {@link QuotaStore} over local sockets to {@link RemoteQuotaStore}s, standing in for a
+ * shared store such as a database or a cache cluster that the nodes of a service would use.
+ * <p>
+ * Every connection is served by a thread of its own. A request is an operation byte, the tenant
+ * name and two longs; a lease is answered with its period, calls and remaining time, a release is
+ * not answered.
+ */
+public class QuotaServer implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QuotaServer.class);
+
+  static final byte LEASE = 1;
+  static final byte RELEASE = 2;
+
+  private final QuotaStore store;
+  private final ServerSocket serverSocket;
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Starts serving the store on an ephemeral port of the loopback address.
+   * @param store the store to serve.
+   * @throws IOException if the server socket cannot be opened.
+   */
+  public QuotaServer(QuotaStore store) throws IOException {
+    this.store = store;
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::accept, "quota-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    for (Socket connection : connections) {
+      connection.close();
+    }
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket connection = serverSocket.accept();
+        connection.setTcpNoDelay(true);
+        connections.add(connection);
+        Thread thread = new Thread(() -> serve(connection), "quota-connection");
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          LOGGER.error("Failed to accept a connection", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket connection) {
+    try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+         DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+      for (;;) {
+        byte operation = in.readByte();
+        String tenantName = in.readUTF();
+        long first = in.readLong();
+        long second = in.readLong();
+        if (operation == LEASE) {
+          Lease lease = store.lease(tenantName, first, second);
+          out.writeLong(lease.getPeriod());
+          out.writeLong(lease.getCalls());
+          out.writeLong(lease.getRemainingNanos());
+          out.flush();
+        } else if (operation == RELEASE) {
+          store.release(tenantName, first, second);
+        } else {
+          throw new IOException("Unknown operation " + operation);
+        }
+      }
+    } catch (EOFException e) {
+      LOGGER.debug("Connection closed by the node");
+    } catch (IOException e) {
+      if (!serverSocket.isClosed()) {
+        LOGGER.error("Failed to serve a connection", e);
+      }
+    } finally {
+      connections.remove(connection);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+/**
+ * The store of the calls the tenants are allowed, shared by all the nodes serving them.
+ * <p>
+ * A node leases a batch of calls of a tenant at a time and admits them locally, so that most
+ * calls do not go to the store, and returns the calls it did not use. The store counts the calls
+ * leased in each period and never leases more than the limit of the tenant in a period, however
+ * many nodes ask for them.
+ */
+public interface QuotaStore {
+
+  /**
+   * Leases calls of the tenant in the current period.
+   * @param tenantName name of the tenant.
+   * @param limit the calls the tenant is allowed in a period.
+   * @param requested the calls wanted.
+   * @return the lease, of fewer calls than requested, possibly none, near the limit.
+   */
+  Lease lease(String tenantName, long limit, long requested);
+
+  /**
+   * Returns calls of a lease that were not used. Calls of a period that has ended are ignored.
+   * @param tenantName name of the tenant.
+   * @param period the period of the lease.
+   * @param calls the calls not used.
+   */
+  void release(String tenantName, long period, long calls);
+}
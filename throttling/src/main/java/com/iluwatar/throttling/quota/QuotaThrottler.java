@@ -0,0 +1,209 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+import com.iluwatar.throttling.timer.Throttler;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Throttler of one node of several serving the tenants, which together admit no more calls of a
+ * tenant than it is allowed. The calls are leased from a {@link QuotaStore} shared by the nodes,
+ * a batch at a time, and admitted locally with a compare-and-set until the batch is used up or
+ * its period ends. Calls are not counted in the {@link CallsCount}.
+ * <p>
+ * Calls a node leased but stopped using would be lost to the other nodes until the period ends,
+ * so the timer started by {@link #start()} returns the calls of a tenant that were not touched
+ * since its previous run. A larger batch means fewer trips to the store, and more calls held back
+ * from the other nodes.
+ */
+public class QuotaThrottler implements Throttler, AutoCloseable {
+
+  private final QuotaStore store;
+  private final int batchSize;
+  private final int idlePeriod;
+  private final LongSupplier nanoClock;
+  private final Map<String, LocalQuota> quotas = new ConcurrentHashMap<>();
+  private Timer timer;
+
+  /**
+   * @param store the store shared by the nodes.
+   * @param batchSize the calls leased at a time.
+   * @param idlePeriod the time after which the calls not used are returned, in milliseconds.
+   */
+  public QuotaThrottler(QuotaStore store, int batchSize, int idlePeriod) {
+    this(store, batchSize, idlePeriod, System::nanoTime);
+  }
+
+  /**
+   * @param store the store shared by the nodes.
+   * @param batchSize the calls leased at a time.
+   * @param idlePeriod the time after which the calls not used are returned, in milliseconds.
+   * @param nanoClock the source of the current time in nanoseconds.
+   */
+  public QuotaThrottler(QuotaStore store, int batchSize, int idlePeriod, LongSupplier nanoClock) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.store = store;
+    this.batchSize = batchSize;
+    this.idlePeriod = idlePeriod;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Starts the timer returning the calls not used.
+   */
+  @Override
+  public synchronized void start() {
+    if (timer == null) {
+      timer = new Timer(true);
+      timer.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          releaseIdle();
+        }
+      }, idlePeriod, idlePeriod);
+    }
+  }
+
+  /**
+   * Stops the timer and returns all the calls not used.
+   */
+  @Override
+  public synchronized void close() {
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+    long now = nanoClock.getAsLong();
+    for (Map.Entry<String, LocalQuota> entry : quotas.entrySet()) {
+      LocalQuota quota = entry.getValue();
+      synchronized (quota) {
+        release(entry.getKey(), quota, now);
+      }
+    }
+  }
+
+  /**
+   * Admits the call with a leased call of the tenant, leasing more from the store when there are
+   * none left. Failures of the store are thrown to the caller.
+   */
+  @Override
+  public boolean tryAcquire(Tenant tenant, CallsCount callsCount) {
+    LocalQuota quota = quotas.computeIfAbsent(tenant.getName(), name -> new LocalQuota());
+    long now = nanoClock.getAsLong();
+    if (quota.take(now)) {
+      return true;
+    }
+    synchronized (quota) {
+      // another caller may have leased calls in the meantime
+      if (quota.take(now)) {
+        return true;
+      }
+      long leasedAt = nanoClock.getAsLong();
+      Lease lease =
+          store.lease(tenant.getName(), tenant.getAllowedCallsPerSecond(), batchSize);
+      if (lease.getCalls() == 0) {
+        return false;
+      }
+      quota.renew(lease, leasedAt);
+      return true;
+    }
+  }
+
+  /**
+   * Returns the calls of the tenants that were not touched since the previous run.
+   */
+  void releaseIdle() {
+    long now = nanoClock.getAsLong();
+    for (Map.Entry<String, LocalQuota> entry : quotas.entrySet()) {
+      LocalQuota quota = entry.getValue();
+      synchronized (quota) {
+        long calls = quota.calls.get();
+        if (calls > 0 && calls == quota.lastSeen) {
+          release(entry.getKey(), quota, now);
+        }
+        quota.lastSeen = quota.calls.get();
+      }
+    }
+  }
+
+  private void release(String tenantName, LocalQuota quota, long now) {
+    long calls = quota.calls.getAndSet(0);
+    // the calls of an ended period are gone anyway
+    if (calls > 0 && now - quota.expiresAt < 0) {
+      store.release(tenantName, quota.period, calls);
+    }
+  }
+
+  /**
+   * The calls of a tenant leased by this node. Only the count of calls is touched when admitting,
+   * the rest changes under the lock of the quota.
+   */
+  private static final class LocalQuota {
+    private final AtomicLong calls = new AtomicLong();
+    private volatile long expiresAt;
+    private long period = Long.MIN_VALUE;
+    private long lastSeen;
+
+    private boolean take(long now) {
+      if (now - expiresAt >= 0) {
+        return false;
+      }
+      for (;;) {
+        long current = calls.get();
+        if (current == 0) {
+          return false;
+        }
+        if (calls.compareAndSet(current, current - 1)) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Adds the calls of the lease, one of which is taken by the caller. The calls of an ended
+     * period are dropped before the expiry moves on, so that they are not admitted in the next.
+     * The expiry is measured from before the lease was asked for, to end no later than the
+     * period of the store.
+     */
+    private void renew(Lease lease, long leasedAt) {
+      if (lease.getPeriod() != period) {
+        calls.set(0);
+        period = lease.getPeriod();
+        expiresAt = leasedAt + lease.getRemainingNanos();
+      } else if (leasedAt + lease.getRemainingNanos() - expiresAt > 0) {
+        expiresAt = leasedAt + lease.getRemainingNanos();
+      }
+      calls.addAndGet(lease.getCalls() - 1);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+
+/**
+ * A {@link QuotaStore} served by a {@link QuotaServer}, over one connection shared by the callers
+ * of a node. Failures of the connection are thrown as {@link UncheckedIOException}.
+ */
+public class RemoteQuotaStore implements QuotaStore, Closeable {
+
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+
+  /**
+   * Connects to the server.
+   * @param host the host of the server.
+   * @param port the port of the server.
+   * @throws IOException if the connection fails.
+   */
+  public RemoteQuotaStore(String host, int port) throws IOException {
+    socket = new Socket(host, port);
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  @Override
+  public synchronized Lease lease(String tenantName, long limit, long requested) {
+    try {
+      write(QuotaServer.LEASE, tenantName, limit, requested);
+      out.flush();
+      return new Lease(in.readLong(), in.readLong(), in.readLong());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Sends the calls back without waiting for the server to answer.
+   */
+  @Override
+  public synchronized void release(String tenantName, long period, long calls) {
+    try {
+      write(QuotaServer.RELEASE, tenantName, period, calls);
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    socket.close();
+  }
+
+  private void write(byte operation, String tenantName, long first, long second)
+      throws IOException {
+    out.writeByte(operation);
+    out.writeUTF(tenantName);
+    out.writeLong(first);
+    out.writeLong(second);
+  }
+}
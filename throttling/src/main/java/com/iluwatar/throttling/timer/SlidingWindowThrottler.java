@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.timer;
+
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window implementation of throttler interface. The calls of a tenant are counted per
+ * period, and a call is admitted while the calls of the last full period of time stay within the
+ * limit. That number is estimated as the calls of the current period plus the calls of the
+ * previous period weighted by the part of it still inside the sliding window, so unlike a counter
+ * reset every period it does not let a burst through on each side of a period boundary.
+ * <p>
+ * The period number and both counts are packed in a single long, so a call is admitted with a
+ * single compare-and-set and no timer thread is needed. Calls are not counted in the
+ * {@link CallsCount}.
+ */
+public class SlidingWindowThrottler implements Throttler {
+
+  private static final int COUNT_BITS = 21;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+  private static final long WINDOW_MASK = (1L << (64 - 2 * COUNT_BITS)) - 1;
+
+  /**
+   * The highest number of calls per period that can be enforced.
+   */
+  public static final int MAX_CALLS_PER_PERIOD = (int) COUNT_MASK;
+
+  private final long periodNanos;
+  private final LongSupplier nanoClock;
+  private final long origin;
+  private final Map<String, AtomicLong> windows = new ConcurrentHashMap<>();
+
+  /**
+   * @param throttlePeriod the period of the allowed calls of the tenants, in milliseconds.
+   */
+  public SlidingWindowThrottler(int throttlePeriod) {
+    this(throttlePeriod, System::nanoTime);
+  }
+
+  /**
+   * @param throttlePeriod the period of the allowed calls of the tenants, in milliseconds.
+   * @param nanoClock the source of the current time in nanoseconds.
+   */
+  public SlidingWindowThrottler(int throttlePeriod, LongSupplier nanoClock) {
+    this.periodNanos = TimeUnit.MILLISECONDS.toNanos(throttlePeriod);
+    this.nanoClock = nanoClock;
+    this.origin = nanoClock.getAsLong();
+  }
+
+  /**
+   * Nothing to start, the periods roll over when calls arrive.
+   */
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public boolean tryAcquire(Tenant tenant, CallsCount callsCount) {
+    long allowedCalls = Math.min(tenant.getAllowedCallsPerSecond(), MAX_CALLS_PER_PERIOD);
+    AtomicLong window = windowOf(tenant.getName());
+    for (;;) {
+      // the clock is read after the state, so the state is never of a later period
+      long state = window.get();
+      long elapsed = nanoClock.getAsLong() - origin;
+      long period = elapsed / periodNanos;
+      long statePeriod = state >>> (2 * COUNT_BITS);
+      long previous = (state >>> COUNT_BITS) & COUNT_MASK;
+      long current = state & COUNT_MASK;
+      if (statePeriod != (period & WINDOW_MASK)) {
+        previous = statePeriod == ((period - 1) & WINDOW_MASK) ? current : 0;
+        current = 0;
+      }
+      double overlap = 1 - (double) (elapsed % periodNanos) / periodNanos;
+      if (current + 1 + previous * overlap > allowedCalls) {
+        return false;
+      }
+      long next = ((period & WINDOW_MASK) << (2 * COUNT_BITS)) | (previous << COUNT_BITS)
+          | (current + 1);
+      if (window.compareAndSet(state, next)) {
+        return true;
+      }
+    }
+  }
+
+  private AtomicLong windowOf(String tenantName) {
+    AtomicLong window = windows.get(tenantName);
+    if (window == null) {
+      window = windows.computeIfAbsent(tenantName, name -> new AtomicLong());
+    }
+    return window;
+  }
+}
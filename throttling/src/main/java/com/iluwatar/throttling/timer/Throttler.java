@@ -25,6 +25,9 @@
  */
 package com.iluwatar.throttling.timer;
 
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+
 /**
  * An interface for defining the structure of different types of throttling ways.
  * @author drastogi
@@ -33,4 +36,16 @@ package com.iluwatar.throttling.timer;
 public interface Throttler {
   
   void start();
+
+  /**
+   * Decides whether a call of the tenant is admitted, and counts it if so. By default the call is
+   * admitted while the count of the tenant is below its limit, which suits throttlers that reset
+   * the count every period.
+   * @param tenant the calling tenant.
+   * @param callsCount the counts of the calls of the tenants.
+   * @return true if the call is admitted.
+   */
+  default boolean tryAcquire(Tenant tenant, CallsCount callsCount) {
+    return callsCount.tryIncrement(tenant.getName(), tenant.getAllowedCallsPerSecond());
+  }
 }
@@ -0,0 +1,101 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.timer;
+
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket implementation of throttler interface. Every tenant has a bucket holding as many
+ * tokens as it is allowed calls per period, refilled at that rate; a call takes a token.
+ * <p>
+ * The bucket is kept as a single timestamp, the time at which it would be full again (the generic
+ * cell rate algorithm). The refill is computed from that time when a call arrives, so there is no
+ * timer thread, and a call is admitted with a single compare-and-set of the timestamp. Calls are
+ * not counted in the {@link CallsCount}.
+ */
+public class TokenBucketThrottler implements Throttler {
+
+  private final long periodNanos;
+  private final LongSupplier nanoClock;
+  private final Map<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+  /**
+   * @param throttlePeriod the period of the allowed calls of the tenants, in milliseconds.
+   */
+  public TokenBucketThrottler(int throttlePeriod) {
+    this(throttlePeriod, System::nanoTime);
+  }
+
+  /**
+   * @param throttlePeriod the period of the allowed calls of the tenants, in milliseconds.
+   * @param nanoClock the source of the current time in nanoseconds.
+   */
+  public TokenBucketThrottler(int throttlePeriod, LongSupplier nanoClock) {
+    this.periodNanos = TimeUnit.MILLISECONDS.toNanos(throttlePeriod);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Nothing to start, the buckets are refilled when calls arrive.
+   */
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public boolean tryAcquire(Tenant tenant, CallsCount callsCount) {
+    int allowedCalls = tenant.getAllowedCallsPerSecond();
+    if (allowedCalls == 0) {
+      return false;
+    }
+    long interval = periodNanos / allowedCalls;
+    AtomicLong bucket = bucketOf(tenant.getName());
+    for (;;) {
+      long current = bucket.get();
+      long now = nanoClock.getAsLong();
+      // a bucket full before now stays full, it does not save up tokens beyond its size
+      long next = (current - now > 0 ? current : now) + interval;
+      if (next - now > periodNanos) {
+        return false;
+      }
+      if (bucket.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+
+  private AtomicLong bucketOf(String tenantName) {
+    AtomicLong bucket = fullAt.get(tenantName);
+    if (bucket == null) {
+      bucket = fullAt.computeIfAbsent(tenantName, name -> new AtomicLong(nanoClock.getAsLong()));
+    }
+    return bucket;
+  }
+}
@@ -26,6 +26,10 @@ import com.iluwatar.throttling.timer.Throttler;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -48,4 +52,27 @@ public class B2BServiceTest {
     long counter = callsCount.getCount(tenant.getName());
     assertEquals(2, counter, "Counter limit must be reached");
   }
+
+  @Test
+  public void concurrentCallersDoNotOvershootTest() throws InterruptedException {
+    Tenant tenant = new Tenant("concurrentTenant", 100, callsCount);
+    B2BService service = new B2BService(() -> { }, callsCount);
+    AtomicInteger admitted = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          if (service.dummyCustomerApi(tenant) != -1) {
+            admitted.incrementAndGet();
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(100, admitted.get());
+    assertEquals(100, callsCount.getCount(tenant.getName()));
+  }
 }
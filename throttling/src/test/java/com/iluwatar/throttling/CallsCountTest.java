@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link CallsCount} and the {@link StripedCounter} of its hot tenants.
+ */
+public class CallsCountTest {
+
+  @Test
+  public void tenantsAreInternedToDenseIdsTest() {
+    CallsCount callsCount = new CallsCount();
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, callsCount.addTenant("tenant" + i));
+    }
+    assertEquals(42, callsCount.addTenant("tenant42"));
+    assertEquals(42, callsCount.getTenantId("tenant42"));
+    assertEquals(10000, callsCount.getTenantCount());
+    assertThrows(IllegalArgumentException.class, () -> callsCount.getTenantId("unknown"));
+  }
+
+  @Test
+  public void resetStartsEveryCountOverTest() {
+    CallsCount callsCount = new CallsCount();
+    int first = callsCount.addTenant("first");
+    int second = callsCount.addTenant("second");
+    callsCount.incrementCount(first);
+    callsCount.incrementCount(first);
+    callsCount.incrementCount("second");
+    assertEquals(2, callsCount.getCount("first"));
+    assertEquals(1, callsCount.getCount(second));
+
+    callsCount.reset();
+    assertEquals(0, callsCount.getCount(first));
+    assertEquals(0, callsCount.getCount(second));
+    assertTrue(callsCount.tryIncrement(first, 1));
+    assertFalse(callsCount.tryIncrement(first, 1));
+    assertEquals(1, callsCount.getCount(first));
+  }
+
+  @Test
+  public void stripedCounterEnforcesTheLimitTest() throws InterruptedException {
+    StripedCounter counter = new StripedCounter(0, 10);
+    AtomicInteger admitted = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          if (counter.tryIncrement(0, 1000)) {
+            admitted.incrementAndGet();
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(990, admitted.get());
+    assertEquals(1000, counter.getCount(0));
+    // the calls left in the cells belong to the old epoch
+    assertEquals(0, counter.getCount(1));
+    assertTrue(counter.tryIncrement(1, 1));
+    assertFalse(counter.tryIncrement(1, 1));
+  }
+
+  @Test
+  public void contendedTenantKeepsItsCountTest() throws InterruptedException {
+    CallsCount callsCount = new CallsCount();
+    int tenant = callsCount.addTenant("hot");
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 100000; i++) {
+          callsCount.incrementCount(tenant);
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(800000, callsCount.getCount(tenant));
+    callsCount.reset();
+    assertEquals(0, callsCount.getCount(tenant));
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.quota;
+
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link QuotaThrottler} with several simulated nodes sharing a {@link QuotaStore}.
+ */
+public class QuotaThrottlerTest {
+
+  private final CallsCount callsCount = new CallsCount();
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void nodesShareTheLimitTest() {
+    InMemoryQuotaStore store = new InMemoryQuotaStore(1000, clock::get);
+    List<QuotaThrottler> nodes = nodes(store, 4, 10);
+    Tenant tenant = new Tenant("shared", 100, callsCount);
+
+    assertEquals(100, callRoundRobin(nodes, tenant, 1000));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(100, callRoundRobin(nodes, tenant, 1000));
+  }
+
+  @Test
+  public void idleCallsAreReturnedTest() {
+    InMemoryQuotaStore store = new InMemoryQuotaStore(1000, clock::get);
+    QuotaThrottler idle = new QuotaThrottler(store, 10, 100, clock::get);
+    QuotaThrottler busy = new QuotaThrottler(store, 10, 100, clock::get);
+    Tenant tenant = new Tenant("idle", 10, callsCount);
+
+    assertTrue(idle.tryAcquire(tenant, callsCount));
+    assertFalse(busy.tryAcquire(tenant, callsCount));
+    // the first run only notes the calls, they are returned if still untouched on the next
+    idle.releaseIdle();
+    assertEquals(10, store.getLeased("idle"));
+    idle.releaseIdle();
+    assertEquals(1, store.getLeased("idle"));
+    for (int i = 0; i < 9; i++) {
+      assertTrue(busy.tryAcquire(tenant, callsCount));
+    }
+    assertFalse(busy.tryAcquire(tenant, callsCount));
+  }
+
+  @Test
+  public void leasedCallsExpireWithThePeriodTest() {
+    InMemoryQuotaStore store = new InMemoryQuotaStore(1000, clock::get);
+    QuotaThrottler first = new QuotaThrottler(store, 10, 100, clock::get);
+    QuotaThrottler second = new QuotaThrottler(store, 10, 100, clock::get);
+    Tenant tenant = new Tenant("expiring", 10, callsCount);
+
+    assertTrue(first.tryAcquire(tenant, callsCount));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    for (int i = 0; i < 10; i++) {
+      assertTrue(second.tryAcquire(tenant, callsCount));
+    }
+    // the nine calls the first node still holds belong to the previous period
+    assertFalse(first.tryAcquire(tenant, callsCount));
+  }
+
+  @Test
+  public void nodesOverSocketsStayWithinToleranceTest() throws Exception {
+    int periodMillis = 100;
+    int allowedCalls = 200;
+    int runMillis = 1000;
+    try (QuotaServer server = new QuotaServer(new InMemoryQuotaStore(periodMillis))) {
+      List<RemoteQuotaStore> stores = new ArrayList<>();
+      List<QuotaThrottler> nodes = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        RemoteQuotaStore store = new RemoteQuotaStore("localhost", server.getPort());
+        stores.add(store);
+        nodes.add(new QuotaThrottler(store, 10, periodMillis / 2));
+      }
+      nodes.forEach(QuotaThrottler::start);
+      Tenant tenant = new Tenant("remote", allowedCalls, callsCount);
+      AtomicLong admitted = new AtomicLong();
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(runMillis);
+      List<Thread> threads = new ArrayList<>();
+      for (QuotaThrottler node : nodes) {
+        for (int t = 0; t < 2; t++) {
+          threads.add(new Thread(() -> {
+            while (System.nanoTime() < deadline) {
+              if (node.tryAcquire(tenant, callsCount)) {
+                admitted.incrementAndGet();
+              }
+            }
+          }));
+        }
+      }
+      threads.forEach(Thread::start);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      nodes.forEach(QuotaThrottler::close);
+      for (RemoteQuotaStore store : stores) {
+        store.close();
+      }
+
+      // the run may touch one period more than it spans, at either end
+      long expected = (long) allowedCalls * runMillis / periodMillis;
+      assertTrue(admitted.get() <= expected + allowedCalls, "admitted " + admitted.get());
+      assertTrue(admitted.get() >= expected - allowedCalls, "admitted " + admitted.get());
+    }
+  }
+
+  private List<QuotaThrottler> nodes(QuotaStore store, int count, int batchSize) {
+    List<QuotaThrottler> nodes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      nodes.add(new QuotaThrottler(store, batchSize, 100, clock::get));
+    }
+    return nodes;
+  }
+
+  private int callRoundRobin(List<QuotaThrottler> nodes, Tenant tenant, int calls) {
+    int admitted = 0;
+    for (int i = 0; i < calls; i++) {
+      if (nodes.get(i % nodes.size()).tryAcquire(tenant, callsCount)) {
+        admitted++;
+      }
+    }
+    return admitted;
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.timer;
+
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * SlidingWindowThrottlerTest to test the admission of calls by a sliding window.
+ */
+public class SlidingWindowThrottlerTest {
+
+  private final AtomicLong clock = new AtomicLong(123_456_789L);
+  private final CallsCount callsCount = new CallsCount();
+  private final Tenant tenant = new Tenant("testTenant", 10, callsCount);
+  private final Throttler throttler = new SlidingWindowThrottler(1000, clock::get);
+
+  @Test
+  public void limitWithinPeriodTest() {
+    assertEquals(10, admitted(20));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+    assertEquals(0, admitted(20));
+  }
+
+  @Test
+  public void noBurstAtPeriodBoundaryTest() {
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(900));
+    assertEquals(10, admitted(20));
+    // just after the boundary most of the previous period is still inside the window
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+    assertEquals(1, admitted(20));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(5, admitted(20));
+  }
+
+  @Test
+  public void idlePeriodsAreForgottenTest() {
+    assertEquals(10, admitted(20));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertEquals(10, admitted(20));
+  }
+
+  private int admitted(int calls) {
+    int admitted = 0;
+    for (int i = 0; i < calls; i++) {
+      if (throttler.tryAcquire(tenant, callsCount)) {
+        admitted++;
+      }
+    }
+    return admitted;
+  }
+}
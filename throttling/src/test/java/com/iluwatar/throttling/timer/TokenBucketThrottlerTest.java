@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright (c) 2014 Ilkka Seppälä
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.iluwatar.throttling.timer;
+
+import com.iluwatar.throttling.CallsCount;
+import com.iluwatar.throttling.Tenant;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TokenBucketThrottlerTest to test the admission of calls by a token bucket.
+ */
+public class TokenBucketThrottlerTest {
+
+  private final AtomicLong clock = new AtomicLong(-5_000_000_000L);
+  private final CallsCount callsCount = new CallsCount();
+  private final Tenant tenant = new Tenant("testTenant", 4, callsCount);
+  private final Throttler throttler = new TokenBucketThrottler(1000, clock::get);
+
+  @Test
+  public void burstUpToBucketSizeTest() {
+    assertEquals(4, admitted(10));
+    assertEquals(0, callsCount.getCount(tenant.getName()));
+  }
+
+  @Test
+  public void refillTest() {
+    assertEquals(4, admitted(4));
+    assertFalse(throttler.tryAcquire(tenant, callsCount));
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+    assertEquals(1, admitted(4));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(2, admitted(4));
+    // an idle tenant saves up no more than a full bucket
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertEquals(4, admitted(10));
+  }
+
+  @Test
+  public void noCallsAllowedTest() {
+    Tenant blocked = new Tenant("blockedTenant", 0, callsCount);
+    assertFalse(throttler.tryAcquire(blocked, callsCount));
+    assertTrue(throttler.tryAcquire(tenant, callsCount));
+  }
+
+  private int admitted(int calls) {
+    int admitted = 0;
+    for (int i = 0; i < calls; i++) {
+      if (throttler.tryAcquire(tenant, callsCount)) {
+        admitted++;
+      }
+    }
+    return admitted;
+  }
+}